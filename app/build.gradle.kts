@@ -29,6 +29,13 @@ android {
         sourceCompatibility = JavaVersion.VERSION_11
         targetCompatibility = JavaVersion.VERSION_11
     }
+    testOptions {
+        unitTests.all {
+            // -Pfieldviewer.bench=full runs StorageBenchmarkTest's full matrix
+            it.systemProperty("fieldviewer.bench", project.findProperty("fieldviewer.bench") ?: "")
+            it.maxHeapSize = "2g"
+        }
+    }
 }
 
 dependencies {
@@ -42,6 +49,7 @@ dependencies {
     implementation("com.google.android.gms:play-services-location:21.2.0")
 
     testImplementation(libs.junit)
+    testImplementation("org.json:json:20240303")  // Android's org.json is a stub in local unit tests
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
 }
\ No newline at end of file
@@ -29,10 +29,6 @@ import com.google.ar.core.ArCoreApk;
 import com.google.ar.core.ArCoreApk.Availability;
 import com.google.ar.core.ArCoreApk.InstallStatus;
 import com.google.ar.core.exceptions.CameraNotAvailableException;
-import com.google.ar.sceneform.ux.ArFragment;
-
-import java.util.ArrayList;
-import java.util.List;
 
 /**
  * Main AR measurement activity that handles:
@@ -50,37 +46,57 @@ public class ARMeasureActivity extends AppCompatActivity {
     // UI Views - Overlay elements on top of AR camera view
     private TextView tvPoints, tvArea, tvPerimeter;
     private TextView crosshair;  // Center crosshair for precise point placement
-    private Button btnAdd, btnUndo, btnFinish;
+    private Button btnAdd, btnUndo, btnRedo, btnFinish;
+    private Button btnRing;  // Closes the current ring and starts another field or exclusion zone
 
     // AR Components - Core AR functionality
-    private com.google.ar.sceneform.ux.ArFragment arFragment;  // Main AR camera view
-    private final java.util.List<com.google.ar.core.Anchor> anchors = new java.util.ArrayList<>();  // 3D anchors in world space
-    private final java.util.List<com.google.ar.sceneform.Node> markers = new java.util.ArrayList<>();  // Visual markers for anchors
-
-    // 2D helper point for local ground-plane math - simplifies area calculations
-    private static class P2 { double x, y; P2(double x, double y){ this.x=x; this.y=y; } }
+    // Camera view and outline renderer (Sceneform or direct GL, picked with a long-press on the area label)
+    private ArRenderBackend ar;
+    static final String PREFS = "fieldviewer";
+    static final String PREF_AR_BACKEND = "ar_backend";
+    // Fill, edges and vertex dots of every ring as one dynamic mesh (fixed draw calls, rebuilt per placed point)
+    private final OutlineMesh outlineMesh = new OutlineMesh(0.015f, 0.04f, 0.005f);
+
+    // Anchors, rings, history and georeferencing; survives activity recreation (see MeasurementSession)
+    private MeasurementSession measurement;
+    private java.util.ArrayList<java.util.ArrayList<double[]>> pendingRings2d;  // All rings for the result screen
+    private boolean[] pendingRingHoles;
+    private java.util.ArrayList<double[]> pendingRingHeights;  // Per ring, per vertex height above the origin anchor
+    private double pendingSurfaceArea = Double.NaN;
+    private double[] pendingAnchorDrift;  // AnchorDriftMonitor.snapshot of every ring's anchors
 
     // Data storage and state management
-    private final List<Object> points = new ArrayList<>();
     private boolean arCoreReady = false;  // Flag to ensure ARCore is properly initialized
     private boolean userRequestedInstall = true; // Only true first time, prevents repeated install prompts
    
 
     // Location and orientation tracking for map georeferencing
     private FusedLocationProviderClient fusedLocationClient;  // High-accuracy GPS provider
-    private Double originLat = null, originLng = null;  // GPS coordinates of first point
     private SensorManager sensorManager;
     private Sensor rotationVectorSensor;
     private final float[] rotationMatrix = new float[9];  // Device orientation matrix
+    private final float[] remappedMatrix = new float[9];  // Reused remap buffer, avoids per-event allocation
     private final float[] orientation = new float[3];  // Roll, pitch, yaw angles
-    private float lastAzimuthRad = 0f; // Device heading
-    private Float headingAtFirstAnchorRad = null; // Captured when first anchor placed for map alignment
+    // Sensor sampling: ~25 Hz, batched in hardware so the CPU wakes up about 5x per second
+    private static final int HEADING_SAMPLING_US = 40_000;
+    private static final int HEADING_MAX_REPORT_LATENCY_US = 200_000;
+    // ~1 s sliding window of heading samples with light low-pass smoothing
+    private final HeadingFilter headingFilter = new HeadingFilter(25, 0.3);
     private boolean resultStarted = false;  // Prevents multiple result launches
-    private boolean shouldResetAfterResult = false;  // Flag to reset state after returning from results
     private boolean autoAddFirstPoint = false; // Disabled. User starts manually after warmup
     private boolean attemptedAutoFirstAdd = false;
     private android.os.CountDownTimer warmupTimer;
 
+    // Performance telemetry
+    private PerfOverlay perfOverlay;  // Debug overlay, long-press point counter to toggle
+    private SessionRecorder sessionRecorder;  // Debug recording for offline replay, long-press perimeter to toggle
+    // Live metrics and outline fill, computed off the main thread and shown once per frame
+    private final java.util.concurrent.ExecutorService metricsExecutor = MetricsWorker.newExecutor("ar-metrics");
+    private final MetricsWorker<MeasurementPipeline.LiveInput, MeasurementPipeline.LiveSnapshot> metricsWorker =
+            new MetricsWorker<>(metricsExecutor, ARMeasureActivity::computeLiveMetrics, METRICS_MAX_LAG_NS, null);
+    private static final long METRICS_MAX_LAG_NS = 100_000_000L;  // Publish at least ~10x/s while points keep coming
+    private long shownMetricsVersion = 0;
+
     // Permission request launcher - handles camera permission flow
     private final ActivityResultLauncher<String> requestPermissionLauncher =
             registerForActivityResult(new ActivityResultContracts.RequestPermission(), isGranted -> {
@@ -107,51 +123,23 @@ public class ARMeasureActivity extends AppCompatActivity {
             return insets;
         });
 
-        // Initialize AR Fragment from layout XML
-        arFragment = (com.google.ar.sceneform.ux.ArFragment) getSupportFragmentManager()
-                .findFragmentById(R.id.ar_fragment_container);
+        measurement = new androidx.lifecycle.ViewModelProvider(this).get(MeasurementSession.class);
+        if (measurement.journal == null) {
+            try {
+                measurement.journal = MeasurementJournal.create(journalFile(this));
+            } catch (java.io.IOException e) {
+                Log.w(TAG, "Measurement journal unavailable; points will not survive a crash", e);
+            }
+        }
+
+        // Camera view and outline; each backend records its own frame telemetry
+        ar = ArRenderBackend.create(getSharedPreferences(PREFS, MODE_PRIVATE).getString(PREF_AR_BACKEND, ArRenderBackend.SCENEFORM));
+        ar.attach(this, R.id.ar_container, this::onArFrame);
 
         // Initialize location services for GPS tracking
         fusedLocationClient = LocationServices.getFusedLocationProviderClient(this);
         // Warm up origin location early so Maps placement is ready even if user proceeds quickly
         tryCaptureOriginLocation();
-        // Option: Auto-add first anchor point on startMeasurement. Disabled
-        if (arFragment != null && arFragment.getArSceneView() != null && arFragment.getArSceneView().getScene() != null) {
-            arFragment.getArSceneView().getScene().addOnUpdateListener(frameTime -> {
-                if (!autoAddFirstPoint || attemptedAutoFirstAdd) return;
-                if (!arCoreReady || anchors.size() > 0) return;
-                com.google.ar.core.Frame frame = arFragment.getArSceneView().getArFrame();
-                if (frame == null) return;
-                int w = arFragment.getArSceneView().getWidth();
-                int h = arFragment.getArSceneView().getHeight();
-                float cx = w / 2f, cy = h / 2f;
-                java.util.List<com.google.ar.core.HitResult> hits = frame.hitTest(cx, cy);
-                for (com.google.ar.core.HitResult hit : hits) {
-                    com.google.ar.core.Trackable trackable = hit.getTrackable();
-                    if (trackable instanceof com.google.ar.core.Plane) {
-                        com.google.ar.core.Plane plane = (com.google.ar.core.Plane) trackable;
-                        if (plane.getType() != com.google.ar.core.Plane.Type.HORIZONTAL_UPWARD_FACING) continue;
-                        if (!plane.isPoseInPolygon(hit.getHitPose())) continue;
-                        // We have a valid plane under the crosshair; try to capture GPS and add
-                        attemptedAutoFirstAdd = true;
-                        // Kick off a current location fetch (non-blocking)
-                        if (originLat == null || originLng == null) {
-                            if (ContextCompat.checkSelfPermission(this, Manifest.permission.ACCESS_FINE_LOCATION) == PackageManager.PERMISSION_GRANTED
-                                    || ContextCompat.checkSelfPermission(this, Manifest.permission.ACCESS_COARSE_LOCATION) == PackageManager.PERMISSION_GRANTED) {
-                                try {
-                                    fusedLocationClient.getCurrentLocation(Priority.PRIORITY_HIGH_ACCURACY, null)
-                                            .addOnSuccessListener(location -> {
-                                                if (location != null) { originLat = location.getLatitude(); originLng = location.getLongitude(); }
-                                            });
-                                } catch (Exception ignore) {}
-                            }
-                        }
-                        addPoint();
-                        break;
-                    }
-                }
-            });
-        }
 
         // Main screen handles GPS warmup; no AR warmup countdown here
         // Initialize sensors for device orientation tracking
@@ -168,14 +156,36 @@ public class ARMeasureActivity extends AppCompatActivity {
             tvPerimeter = findViewById(R.id.tvPerimeter);
             btnAdd = findViewById(R.id.btnAdd);
             btnUndo = findViewById(R.id.btnUndo);
+            btnRedo = findViewById(R.id.btnRedo);
             btnFinish = findViewById(R.id.btnFinish);
+            btnRing = findViewById(R.id.btnRing);
 
             // Wire up button click handlers
             if (btnAdd != null) btnAdd.setOnClickListener(v -> addPoint());
             if (btnUndo != null) btnUndo.setOnClickListener(v -> undoLastPoint());
+            if (btnRedo != null) btnRedo.setOnClickListener(v -> redoPoint());
             if (btnFinish != null) btnFinish.setOnClickListener(v -> finishMeasurement());
+            if (btnRing != null) btnRing.setOnClickListener(v -> promptCloseRing());
+            if (tvArea != null) {
+                tvArea.setOnClickListener(v -> {
+                    measurement.rings.setMode(measurement.rings.mode().next());
+                    Toast.makeText(this, "Area engine: " + measurement.rings.mode().label(), Toast.LENGTH_SHORT).show();
+                    updateUIAndMetrics();
+                });
+                tvArea.setOnLongClickListener(v -> {
+                    promptRenderBackend();
+                    return true;
+                });
+            }
+            if (tvPerimeter != null) {
+                tvPerimeter.setOnLongClickListener(v -> {
+                    toggleSessionRecording();
+                    return true;
+                });
+            }
 
-            updateUI();
+            TextView tvPerf = findViewById(R.id.tvPerfOverlay);
+            if (tvPerf != null) perfOverlay = new PerfOverlay(this, tvPerf, tvPoints);
         } catch (Exception e) {
             Log.e(TAG, "Error initializing views: " + e.getMessage());
             Toast.makeText(this, "Error initializing UI", Toast.LENGTH_LONG).show();
@@ -185,20 +195,72 @@ public class ARMeasureActivity extends AppCompatActivity {
         checkCameraPermissionAndContinue();
     }
 
+    /**
+     * Per-frame work on the main thread, for whichever backend renders
+     */
+    private void onArFrame(ArFrame frame, java.util.Collection<com.google.ar.core.Anchor> updatedAnchors) {
+        bindArSession(frame);
+        recordSessionFrame(frame);
+        trackAnchorDrift(updatedAnchors);
+        applyMetricsSnapshot();
+        // Option: Auto-add first anchor point on startMeasurement. Disabled
+        if (!autoAddFirstPoint || attemptedAutoFirstAdd) return;
+        if (!arCoreReady || !measurement.isEmpty()) return;
+        float cx = ar.viewWidth() / 2f, cy = ar.viewHeight() / 2f;
+        if (MeasurementPipeline.selectPlacementHit(frame.hitTest(cx, cy)) != null) {
+            // We have a valid plane under the crosshair; try to capture GPS and add
+            attemptedAutoFirstAdd = true;
+            // Kick off a current location fetch (non-blocking)
+            if (measurement.originLat == null || measurement.originLng == null) {
+                if (ContextCompat.checkSelfPermission(this, Manifest.permission.ACCESS_FINE_LOCATION) == PackageManager.PERMISSION_GRANTED
+                        || ContextCompat.checkSelfPermission(this, Manifest.permission.ACCESS_COARSE_LOCATION) == PackageManager.PERMISSION_GRANTED) {
+                    try {
+                        fusedLocationClient.getCurrentLocation(Priority.PRIORITY_HIGH_ACCURACY, null)
+                                .addOnSuccessListener(location -> {
+                                    if (location != null) measurement.setOrigin(location);
+                                });
+                    } catch (Exception ignore) {}
+                }
+            }
+            addPoint();
+        }
+    }
+
+    /**
+     * Lets the user switch between the Sceneform and the direct GL renderer. The screen is
+     * recreated; the measurement survives in MeasurementSession and its anchors are rebuilt in
+     * the new backend's session.
+     */
+    private void promptRenderBackend() {
+        final String[] ids = {ArRenderBackend.SCENEFORM, ArRenderBackend.GL};
+        String[] labels = {"Sceneform", "Direct GL (lightweight)"};
+        int checked = ArRenderBackend.GL.equals(ar.id()) ? 1 : 0;
+        new androidx.appcompat.app.AlertDialog.Builder(this)
+                .setTitle("AR renderer")
+                .setSingleChoiceItems(labels, checked, (d, which) -> {
+                    d.dismiss();
+                    if (ids[which].equals(ar.id())) return;
+                    getSharedPreferences(PREFS, MODE_PRIVATE).edit().putString(PREF_AR_BACKEND, ids[which]).apply();
+                    recreate();
+                })
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
     /**
      * Attempts to capture the current GPS location as the origin point
      * This is used to georeference the AR measurements on the map
      */
     private void tryCaptureOriginLocation() {
-        if (originLat != null && originLng != null) return;  // Already captured
+        if (measurement.originLat != null && measurement.originLng != null) return;  // Already captured
         if (ContextCompat.checkSelfPermission(this, Manifest.permission.ACCESS_FINE_LOCATION) == PackageManager.PERMISSION_GRANTED
                 || ContextCompat.checkSelfPermission(this, Manifest.permission.ACCESS_COARSE_LOCATION) == PackageManager.PERMISSION_GRANTED) {
             fusedLocationClient.getLastLocation()
                     .addOnSuccessListener(location -> {
                         if (location != null) {
-                            originLat = location.getLatitude();
-                            originLng = location.getLongitude();
-                            Log.d(TAG, "Captured origin location: " + originLat + ", " + originLng);
+                            measurement.setOrigin(location);
+                            Log.d(TAG, "Captured origin location: " + measurement.originLat + ", " + measurement.originLng);
+                            maybePrefetchTiles();
                         }
                     });
         } else {
@@ -209,18 +271,26 @@ public class ARMeasureActivity extends AppCompatActivity {
     @Override
     protected void onResume() {
         super.onResume();
-        // Let ArFragment handle its own lifecycle - nothing to do here
+        // Back from the ARCore install/update prompt: finish the flow so the backend can start
+        if (!arCoreReady && !userRequestedInstall
+                && ContextCompat.checkSelfPermission(this, CAMERA_PERMISSION) == PackageManager.PERMISSION_GRANTED) {
+            proceedArCoreFlow();
+        }
+        ar.onResume();
         if (sensorManager != null && rotationVectorSensor != null) {
-            sensorManager.registerListener(sensorListener, rotationVectorSensor, SensorManager.SENSOR_DELAY_UI);
+            // Hardware batching (maxReportLatencyUs) delivers samples in bursts instead of one wakeup per event
+            sensorManager.registerListener(sensorListener, rotationVectorSensor,
+                    HEADING_SAMPLING_US, HEADING_MAX_REPORT_LATENCY_US);
         }
+        if (perfOverlay != null) perfOverlay.onResume();
         // Re-warm origin upon returning to AR
         tryCaptureOriginLocation();
         // GPS warmup handled on main screen; no AR countdown restart
         // Allow starting results again after returning from the result screen
         resultStarted = false;
-        if (shouldResetAfterResult) {
+        if (measurement.resetPending) {
             resetMeasurementState();
-            shouldResetAfterResult = false;
+            measurement.resetPending = false;
         } else {
             // Refresh UI state (buttons enablement etc.)
             updateUIAndMetrics();
@@ -230,25 +300,130 @@ public class ARMeasureActivity extends AppCompatActivity {
     @Override
     protected void onPause() {
         super.onPause();
-        // nothing to do here
         if (sensorManager != null) {
             sensorManager.unregisterListener(sensorListener);
         }
+        if (perfOverlay != null) perfOverlay.onPause();
+        ar.onPause();
+        if (measurement.journal != null) measurement.journal.flush();  // A backgrounded app may be killed any time
+        if (sessionRecorder != null) toggleSessionRecording();  // Anchors don't survive a pause; end the recording
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        measurement.releaseAnchors();  // The backend closes their session
+        ar.destroy();
+        metricsExecutor.shutdownNow();
+    }
+
+    /**
+     * Crash journal of the measurement in progress (see MeasurementJournal); MainActivity offers
+     * to recover it when a process died before the measurement was finished
+     */
+    static java.io.File journalFile(android.content.Context context) {
+        return new java.io.File(new java.io.File(context.getFilesDir(), "journal"), "current.fvj");
+    }
+
+    /**
+     * Starts or stops writing frames and actions to sessions/session_<time>.fvrs
+     * (replayable on the JVM with SessionReplayer + MeasurementPipeline)
+     */
+    private void toggleSessionRecording() {
+        if (sessionRecorder != null) {
+            int frames = sessionRecorder.frameCount();
+            try {
+                sessionRecorder.close();
+            } catch (java.io.IOException e) {
+                Log.w(TAG, "Closing session recording failed", e);
+            }
+            sessionRecorder = null;
+            Toast.makeText(this, "Recording saved (" + frames + " frames)", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        if (ar.frame() == null) return;
+        java.io.File dir = getExternalFilesDir("sessions");
+        if (dir == null) return;
+        if (!dir.exists()) dir.mkdirs();
+        java.io.File file = new java.io.File(dir, "session_" + System.currentTimeMillis() + ".fvrs");
+        try {
+            sessionRecorder = new SessionRecorder(new java.io.FileOutputStream(file), ar.viewWidth(), ar.viewHeight());
+            Toast.makeText(this, "Recording AR session", Toast.LENGTH_SHORT).show();
+        } catch (java.io.IOException e) {
+            Log.e(TAG, "Unable to start session recording", e);
+        }
+    }
+
+    /**
+     * Starts downloading satellite tiles around the origin while the user is still measuring,
+     * so the result map has imagery even where the field has no coverage
+     */
+    private void maybePrefetchTiles() {
+        if (measurement.tilePrefetchStarted || measurement.originLat == null || measurement.originLng == null) return;
+        OfflineTiles tiles = CachedTileProvider.offlineTiles(this);
+        if (tiles == null) return;
+        measurement.tilePrefetchStarted = true;
+        tiles.prefetchAround(measurement.originLat, measurement.originLng);
+    }
+
+    /**
+     * Binds the measurement to the backend's ARCore session once the camera tracks. After a
+     * recreation the anchors are recreated if the session is new, and the outline follows them.
+     */
+    private void bindArSession(ArFrame frame) {
+        if (!frame.isTracking()) return;
+        try {
+            if (measurement.bind(ar.session())) {
+                updateUIAndMetrics();
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Unable to restore anchors", e);
+        }
+    }
+
+    /**
+     * Feeds the anchors ARCore updated since the last frame to the drift monitor and refreshes
+     * the metrics once the accumulated movement is worth showing
+     */
+    private void trackAnchorDrift(java.util.Collection<com.google.ar.core.Anchor> updatedAnchors) {
+        if (updatedAnchors.isEmpty()) return;
+        java.util.List<ArAnchor> updated = new java.util.ArrayList<>(updatedAnchors.size());
+        for (com.google.ar.core.Anchor a : updatedAnchors) updated.add(ArCoreBridge.anchor(a));
+        if (measurement.rings.anchorsUpdated(updated)) updateUIAndMetrics();
+    }
+
+    private void recordSessionFrame(ArFrame frame) {
+        if (sessionRecorder == null) return;
+        try {
+            sessionRecorder.recordFrame(frame);
+        } catch (java.io.IOException e) {
+            Log.e(TAG, "Session recording failed", e);
+            toggleSessionRecording();
+        }
+    }
+
+    private void recordSessionEvent(int event) {
+        if (sessionRecorder == null) return;
+        try {
+            sessionRecorder.recordEvent(event);
+        } catch (java.io.IOException e) {
+            Log.e(TAG, "Session recording failed", e);
+            toggleSessionRecording();
+        }
     }
 
     /**
      * Sensor listener for device orientation tracking
-     * Captures magnetic heading for map alignment
+     * Feeds magnetic heading into the heading filter for map alignment
      */
     private final SensorEventListener sensorListener = new SensorEventListener() {
         @Override public void onSensorChanged(SensorEvent event) {
             if (event.sensor.getType() != Sensor.TYPE_ROTATION_VECTOR) return;
             try {
                 SensorManager.getRotationMatrixFromVector(rotationMatrix, event.values);
-                float[] remapped = new float[9];
-                SensorManager.remapCoordinateSystem(rotationMatrix, SensorManager.AXIS_X, SensorManager.AXIS_Z, remapped);
-                SensorManager.getOrientation(remapped, orientation);
-                lastAzimuthRad = orientation[0];
+                SensorManager.remapCoordinateSystem(rotationMatrix, SensorManager.AXIS_X, SensorManager.AXIS_Z, remappedMatrix);
+                SensorManager.getOrientation(remappedMatrix, orientation);
+                headingFilter.addSample(orientation[0]);
             } catch (Exception ignore) {}
         }
         @Override public void onAccuracyChanged(Sensor sensor, int accuracy) {
@@ -310,109 +485,127 @@ public class ARMeasureActivity extends AppCompatActivity {
         // Reaching here: SUPPORTED_INSTALLED
         arCoreReady = true;
         Toast.makeText(this, "ARCore ready", Toast.LENGTH_SHORT).show();
-        // ArFragment is inflated from XML (legacy <fragment> tag) and manages its own lifecycle
+        ar.start();
     }
 
     /**
      * Adds a new measurement point at the center crosshair location
-     * Performs hit testing to find a horizontal plane and creates an AR anchor
+     * Timed end-to-end for telemetry; see placePointAtCrosshair for the work itself
      */
     private void addPoint() {
+        recordSessionEvent(SessionRecorder.EVENT_ADD_POINT);
+        long t0 = PerfTelemetry.begin(PerfTelemetry.ADD_POINT);
+        try {
+            placePointAtCrosshair();
+        } finally {
+            PerfTelemetry.end(PerfTelemetry.ADD_POINT, t0);
+        }
+    }
+
+    /**
+     * Performs hit testing at the crosshair to find a horizontal plane and creates an AR anchor
+     */
+    private void placePointAtCrosshair() {
         // No cooldown/debounce on +Point; respond immediately
-        if (arFragment == null || arFragment.getArSceneView() == null || arFragment.getArSceneView().getArFrame() == null) {
+        ArFrame frame = ar.frame();
+        if (frame == null) {
             android.widget.Toast.makeText(this, "AR not ready", android.widget.Toast.LENGTH_SHORT).show();
             return;
         }
         
         // Get center screen coordinates for hit testing
-        int w = arFragment.getArSceneView().getWidth();
-        int h = arFragment.getArSceneView().getHeight();
-        float cx = w / 2f, cy = h / 2f;
+        float cx = ar.viewWidth() / 2f, cy = ar.viewHeight() / 2f;
 
         // Perform hit test at center screen to find a plane
-        com.google.ar.core.Frame frame = arFragment.getArSceneView().getArFrame();
-        java.util.List<com.google.ar.core.HitResult> hits = frame.hitTest(cx, cy);
-        for (com.google.ar.core.HitResult hit : hits) {
-            com.google.ar.core.Trackable trackable = hit.getTrackable();
-            if (trackable instanceof com.google.ar.core.Plane) {
-                com.google.ar.core.Plane plane = (com.google.ar.core.Plane) trackable;
-                // Only accept horizontal, upward-facing planes
-                if (plane.getType() != com.google.ar.core.Plane.Type.HORIZONTAL_UPWARD_FACING) continue;
-                if (!plane.isPoseInPolygon(hit.getHitPose())) continue;
-
-                // On first point, try to capture current GPS fix to anchor the map origin
-                if (anchors.isEmpty()) {
-                    if (ContextCompat.checkSelfPermission(this, Manifest.permission.ACCESS_FINE_LOCATION) == PackageManager.PERMISSION_GRANTED
-                            || ContextCompat.checkSelfPermission(this, Manifest.permission.ACCESS_COARSE_LOCATION) == PackageManager.PERMISSION_GRANTED) {
-                        try {
-                            fusedLocationClient.getCurrentLocation(Priority.PRIORITY_HIGH_ACCURACY, null)
-                                    .addOnSuccessListener(location -> {
-                                        if (location != null) {
-                                            originLat = location.getLatitude();
-                                            originLng = location.getLongitude();
-                                        }
-                                    });
-                        } catch (Exception ignore) {}
-                    } else {
-                        tryCaptureOriginLocation();
-                    }
+        ArHit hit;
+        long tHit = PerfTelemetry.begin(PerfTelemetry.HIT_TEST);
+        try {
+            // Only accept horizontal, upward-facing planes (same rule as offline replays)
+            hit = MeasurementPipeline.selectPlacementHit(frame.hitTest(cx, cy));
+        } finally {
+            PerfTelemetry.end(PerfTelemetry.HIT_TEST, tHit);
+        }
+        if (hit != null) {
+            // On first point, try to capture current GPS fix to anchor the map origin
+            if (measurement.isEmpty()) {
+                if (ContextCompat.checkSelfPermission(this, Manifest.permission.ACCESS_FINE_LOCATION) == PackageManager.PERMISSION_GRANTED
+                        || ContextCompat.checkSelfPermission(this, Manifest.permission.ACCESS_COARSE_LOCATION) == PackageManager.PERMISSION_GRANTED) {
+                    try {
+                        fusedLocationClient.getCurrentLocation(Priority.PRIORITY_HIGH_ACCURACY, null)
+                                .addOnSuccessListener(location -> {
+                                    if (location != null) measurement.setOrigin(location);
+                                });
+                    } catch (Exception ignore) {}
+                } else {
+                    tryCaptureOriginLocation();
                 }
+            }
 
-                // Create AR anchor at hit point
-                com.google.ar.core.Anchor anchor = hit.createAnchor();
-                anchors.add(anchor);
+            // Create AR anchor at hit point
+            measurement.addPoint(hit);
 
-                // Capture origin GPS on first point
-                if (anchors.size() == 1) {
-                    // Capture heading at first point
-                    headingAtFirstAnchorRad = lastAzimuthRad;
-                    if (originLat == null || originLng == null) {
-                        tryCaptureOriginLocation();
-                    }
+            // Capture origin GPS on first point
+            if (measurement.rings.pointCount() == 1 && measurement.rings.closedRingCount() == 0) {
+                // Capture filtered heading at first point so a single noisy sample can't rotate the map
+                measurement.setHeadingAtFirstAnchor(headingFilter.headingRad(), headingFilter.varianceRad2());
+                if (measurement.originLat == null || measurement.originLng == null) {
+                    tryCaptureOriginLocation();
                 }
-
-                // Create visual marker (cyan sphere) at anchor location
-                com.google.ar.sceneform.AnchorNode anchorNode =
-                        new com.google.ar.sceneform.AnchorNode(anchor);
-                anchorNode.setParent(arFragment.getArSceneView().getScene());
-
-                com.google.ar.sceneform.rendering.MaterialFactory
-                        .makeOpaqueWithColor(this,
-                                new com.google.ar.sceneform.rendering.Color(android.graphics.Color.CYAN))
-                        .thenAccept(material -> {
-                            com.google.ar.sceneform.rendering.ModelRenderable sphere =
-                                    com.google.ar.sceneform.rendering.ShapeFactory.makeSphere(
-                                            0.02f, new com.google.ar.sceneform.math.Vector3(0f, 0f, 0f), material);
-                            com.google.ar.sceneform.Node node = new com.google.ar.sceneform.Node();
-                            node.setRenderable(sphere);
-                            node.setParent(anchorNode);
-                            markers.add(node);
-                        });
-
-                updateUIAndMetrics();
-                return;
             }
+
+            updateUIAndMetrics();
+            return;
         }
         android.widget.Toast.makeText(this, "Point not added—scan a flat surface", android.widget.Toast.LENGTH_SHORT).show();
     }
 
     /**
-     * Removes the last placed point and its visual marker
+     * Removes the last placed point
      */
     private void undoLastPoint() {
-        if (anchors.isEmpty()) return;
-        int last = anchors.size() - 1;
+        if (!measurement.rings.canUndo()) return;
+        recordSessionEvent(SessionRecorder.EVENT_UNDO);
+        measurement.undo();
+        updateUIAndMetrics();
+    }
 
-        // Remove and detach the last anchor
-        com.google.ar.core.Anchor a = anchors.remove(last);
-        a.detach();
+    /**
+     * Re-places the most recently undone point at its recorded world position
+     */
+    private void redoPoint() {
+        if (!measurement.rings.canRedo()) return;
+        recordSessionEvent(SessionRecorder.EVENT_REDO);
+        try {
+            measurement.redo();
+        } catch (Exception e) {
+            Log.e(TAG, "Unable to restore anchor", e);
+        }
+        updateUIAndMetrics();
+    }
 
-        // Remove the corresponding visual marker
-        if (last < markers.size()) {
-            com.google.ar.sceneform.Node n = markers.remove(last);
-            if (n.getParent() != null) n.getParent().removeChild(n);
+    /**
+     * Asks whether the next ring is another field or an exclusion zone, then closes the current one
+     */
+    private void promptCloseRing() {
+        if (measurement.rings.pointCount() < 3) {
+            android.widget.Toast.makeText(this, "Need at least 3 points to close this ring", android.widget.Toast.LENGTH_SHORT).show();
+            return;
         }
-        updateUIAndMetrics(); // will be expanded next
+        new androidx.appcompat.app.AlertDialog.Builder(this)
+                .setTitle("Close ring")
+                .setItems(new String[]{"Start another field", "Start exclusion zone (hole)"},
+                        (d, which) -> closeCurrentRing(which == 1))
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    /**
+     * Moves the current anchors into a closed ring and starts an empty one
+     */
+    private void closeCurrentRing(boolean nextIsHole) {
+        recordSessionEvent(nextIsHole ? SessionRecorder.EVENT_CLOSE_RING_HOLE : SessionRecorder.EVENT_CLOSE_RING);
+        measurement.closeCurrentRing(nextIsHole);
+        updateUIAndMetrics();
     }
 
     /**
@@ -421,32 +614,54 @@ public class ARMeasureActivity extends AppCompatActivity {
      */
     private void finishMeasurement() {
         if (btnFinish != null) btnFinish.setEnabled(false);
-        if (anchors.size() < 3) {
+        int count = measurement.rings.pointCount();
+        if (count < 3 && (count > 0 || measurement.rings.closedRingCount() == 0)) {
             android.widget.Toast.makeText(this, "Need at least 3 points", android.widget.Toast.LENGTH_SHORT).show();
             if (btnFinish != null) btnFinish.setEnabled(true);
             return;
         }
-        
-        // Convert 3D anchors to 2D coordinates for area calculation
-        java.util.ArrayList<double[]> coords = new java.util.ArrayList<>();
-        java.util.List<P2> poly = projectAnchorsTo2D();
-        for (P2 p : poly) coords.add(new double[]{p.x, p.y});
-
-        // Calculate perimeter and area
-        double perim = perimeterMeters(poly);
-        double area = areaShoelaceSqMeters(poly);
+        recordSessionEvent(SessionRecorder.EVENT_FINISH);
+
+        // Convert 3D anchors of every ring to 2D coordinates for area calculation
+        java.util.List<double[]> ringList = new java.util.ArrayList<>();
+        java.util.List<Boolean> holeList = new java.util.ArrayList<>();
+        measurement.rings.collectRings2D(ringList, holeList);
+        boolean[] holes = new boolean[holeList.size()];
+        for (int r = 0; r < holes.length; r++) holes[r] = holeList.get(r);
+        java.util.ArrayList<java.util.ArrayList<double[]>> rings2d = new java.util.ArrayList<>();
+        double perim = 0;
+        for (double[] ring : ringList) {
+            java.util.ArrayList<double[]> pts = new java.util.ArrayList<>();
+            for (int k = 0; k < ring.length / 2; k++) pts.add(new double[]{ring[2 * k], ring[2 * k + 1]});
+            rings2d.add(pts);
+            perim += RingMath.perimeter(ring, ring.length / 2);
+        }
+        // First ring is always a field; it stays the single-ring "poly2d" payload
+        java.util.ArrayList<double[]> coords = rings2d.get(0);
+        double area = AreaEngine.netArea(ringList, holes, measurement.rings.mode());
+        pendingRings2d = rings2d;
+        pendingRingHoles = holes;
+        // Surface over anchor heights, triangulated with the same field/hole structure
+        java.util.ArrayList<double[]> heightList = new java.util.ArrayList<>();
+        measurement.rings.collectRingHeights(heightList);
+        double[] heights = new double[0];
+        for (double[] h : heightList) {
+            int at = heights.length;
+            heights = java.util.Arrays.copyOf(heights, at + h.length);
+            System.arraycopy(h, 0, heights, at, h.length);
+        }
+        pendingRingHeights = heightList;
+        pendingSurfaceArea = SurfaceArea.of(AreaEngine.triangulate(ringList, holes), heights);
+        pendingAnchorDrift = measurement.rings.driftSnapshot();
 
-        if (originLat == null || originLng == null) {
+        if (measurement.originLat == null || measurement.originLng == null) {
             // Try to obtain a current high-accuracy location before proceeding
             if (ContextCompat.checkSelfPermission(this, Manifest.permission.ACCESS_FINE_LOCATION) == PackageManager.PERMISSION_GRANTED
                     || ContextCompat.checkSelfPermission(this, Manifest.permission.ACCESS_COARSE_LOCATION) == PackageManager.PERMISSION_GRANTED) {
                 final com.google.android.gms.tasks.CancellationTokenSource cts = new com.google.android.gms.tasks.CancellationTokenSource();
                 fusedLocationClient.getCurrentLocation(Priority.PRIORITY_HIGH_ACCURACY, cts.getToken())
                         .addOnSuccessListener(location -> {
-                            if (location != null) {
-                                originLat = location.getLatitude();
-                                originLng = location.getLongitude();
-                            }
+                            if (location != null) measurement.setOrigin(location);
                             startResult(coords, perim, area);
                         })
                         .addOnFailureListener(e -> startResult(coords, perim, area));
@@ -470,46 +685,56 @@ public class ARMeasureActivity extends AppCompatActivity {
     private void startResult(java.util.ArrayList<double[]> coords, double perim, double area) {
         if (resultStarted) return;
         resultStarted = true;
-        shouldResetAfterResult = true;
+        measurement.resetPending = true;
         android.content.Intent i = new android.content.Intent(this, ResultActivity.class);
         i.putExtra("poly2d", coords);
+        if (pendingRings2d != null && pendingRings2d.size() > 1) {
+            i.putExtra("rings2d", pendingRings2d);
+            i.putExtra("ringHoles", pendingRingHoles);
+        }
         i.putExtra("perimeter", perim);
         i.putExtra("area", area);
+        i.putExtra("areaMode", measurement.rings.mode().name());
+        if (pendingRingHeights != null) {
+            i.putExtra("ringHeights", pendingRingHeights);
+            i.putExtra("surfaceArea", pendingSurfaceArea);
+        }
+        if (pendingAnchorDrift != null) i.putExtra("anchorDrift", pendingAnchorDrift);
         // Stremma: 1000 m² per stremma (Greek land measurement unit)
         i.putExtra("stremma", area / 1000.0);
-        if (headingAtFirstAnchorRad != null) {
-            i.putExtra("headingRad", headingAtFirstAnchorRad.doubleValue());
+        if (measurement.headingAtFirstAnchorRad != null) {
+            i.putExtra("headingRad", measurement.headingAtFirstAnchorRad.doubleValue());
+            if (measurement.headingVarianceAtFirstAnchorRad2 != null) {
+                i.putExtra("headingVarianceRad2", measurement.headingVarianceAtFirstAnchorRad2.doubleValue());
+            }
         } else {
-            i.putExtra("headingRad", (double) lastAzimuthRad);
+            i.putExtra("headingRad", headingFilter.headingRad());
+            i.putExtra("headingVarianceRad2", headingFilter.varianceRad2());
         }
-        if (originLat != null && originLng != null) {
-            i.putExtra("originLat", originLat);
-            i.putExtra("originLng", originLng);
+        if (measurement.originLat != null && measurement.originLng != null) {
+            i.putExtra("originLat", measurement.originLat);
+            i.putExtra("originLng", measurement.originLng);
+            i.putExtra("originAccuracyM", measurement.originAccuracyM);
         }
         startActivity(i);
     }
 
     /**
      * Resets all measurement state when returning from results screen
-     * Clears anchors, markers, and resets UI to initial state
+     * Clears anchors, the outline, and resets UI to initial state
      */
     private void resetMeasurementState() {
+        recordSessionEvent(SessionRecorder.EVENT_RESET);
         try {
-            // Detach and clear all AR anchors
-            for (com.google.ar.core.Anchor a : anchors) {
-                a.detach();
-            }
-            anchors.clear();
-            
-            // Remove all visual markers
-            for (com.google.ar.sceneform.Node n : markers) {
-                if (n.getParent() != null) n.getParent().removeChild(n);
-            }
-            markers.clear();
-            
+            // Detach all AR anchors (every ring) and clear rings, history and heading capture
+            measurement.reset();
+            metricsWorker.submit(measurement.rings.liveInput());
+            pendingAnchorDrift = null;
+            pendingRings2d = null;
+            pendingRingHoles = null;
+
             // Reset orientation tracking
-            headingAtFirstAnchorRad = null;
-            lastAzimuthRad = 0f;
+            headingFilter.reset();
             
             // Reset UI labels to initial state
             if (tvPoints != null) tvPoints.setText("Points: 0");
@@ -517,101 +742,79 @@ public class ARMeasureActivity extends AppCompatActivity {
             if (tvPerimeter != null) tvPerimeter.setText("Perimeter: 0 m");
             if (btnFinish != null) btnFinish.setEnabled(false);
             if (btnUndo != null) btnUndo.setEnabled(false);
+            if (btnRedo != null) btnRedo.setEnabled(false);
         } catch (Exception e) {
             Log.e(TAG, "Error resetting state", e);
         }
     }
 
     /**
-     * Updates basic UI state (point count, button enablement)
-     * Called during initialization and state changes
-     */
-    private void updateUI() {
-        try {
-            if (tvPoints != null) {
-                tvPoints.setText("Points: " + points.size());
-            }
-            if (btnFinish != null) {
-                btnFinish.setEnabled(points.size() >= 3);
-            }
-            if (btnUndo != null) {
-                btnUndo.setEnabled(!points.isEmpty());
-            }
-            // tvArea, tvPerimeter will be updated when geometry is implemented
-        } catch (Exception e) {
-            Log.e(TAG, "Error updating UI: " + e.getMessage());
-        }
-    }
-
-    /**
-     * Projects 3D AR anchors to a local 2D ground plane
-     * Uses the first anchor as origin (0,0) for simplified area calculations
-     * This converts world coordinates to local meters for geometry calculations
+     * Updates UI with current measurement metrics
+     * Displays point count, perimeter, and area in real-time
      */
-    private java.util.List<P2> projectAnchorsTo2D() {
-        java.util.List<P2> pts = new java.util.ArrayList<>();
-        if (anchors.isEmpty()) return pts;
-        
-        // Use first anchor as origin point
-        com.google.ar.core.Pose origin = anchors.get(0).getPose();
-        float ox = origin.tx(), oz = origin.tz();
-        
-        // Project each anchor relative to origin
-        for (com.google.ar.core.Anchor a : anchors) {
-            com.google.ar.core.Pose p = a.getPose();
-            pts.add(new P2(p.tx() - ox, p.tz() - oz)); // local ground-plane coords (x,z)
+    private void updateUIAndMetrics() {
+        int count = measurement.rings.pointCount();
+        int closedCount = measurement.rings.closedRingCount();
+        if (tvPoints != null) {
+            String ring = closedCount == 0 ? "" : " · ring " + (closedCount + 1) + (measurement.rings.currentIsHole() ? " (hole)" : "");
+            tvPoints.setText("Points: " + count + ring);
         }
-        return pts;
-    }
+        if (btnFinish != null) btnFinish.setEnabled(count >= 3 || (count == 0 && closedCount > 0));
+        if (btnUndo != null) btnUndo.setEnabled(count > 0);
+        if (btnRing != null) btnRing.setEnabled(count >= 3);
+        if (btnRedo != null) btnRedo.setEnabled(measurement.rings.canRedo());
+        maybePrefetchTiles();
 
-    /**
-     * Calculates the perimeter of the polygon in meters
-     * Uses Euclidean distance between consecutive vertices
-     */
-    private static double perimeterMeters(java.util.List<P2> pts){
-        if (pts.size() < 2) return 0;
-        double sum = 0;
-        for (int i = 0; i < pts.size(); i++){
-            P2 a = pts.get(i), b = pts.get((i + 1) % pts.size());
-            sum += Math.hypot(a.x - b.x, a.y - b.y);
-        }
-        return sum;
+        // Project on the main thread (anchor poses), compute on the metrics worker
+        metricsWorker.submit(measurement.rings.liveInput());
     }
 
     /**
-     * Calculates the area of the polygon using the Shoelace formula
-     * Returns area in square meters
-     * Shoelace formula: A = 1/2 * |Σ(x_i * y_{i+1} - x_{i+1} * y_i)|
+     * Runs on the metrics worker
      */
-    private static double areaShoelaceSqMeters(java.util.List<P2> pts){
-        if (pts.size() < 3) return 0;
-        double s = 0;
-        for (int i = 0; i < pts.size(); i++){
-            P2 a = pts.get(i), b = pts.get((i + 1) % pts.size());
-            s += a.x * b.y - b.x * a.y;
-        }
-        return Math.abs(s) * 0.5;
+    private static MeasurementPipeline.LiveSnapshot computeLiveMetrics(MeasurementPipeline.LiveInput in, MetricsWorker.Staleness stale) {
+        long t0 = PerfTelemetry.begin(PerfTelemetry.METRICS);
+        try {
+            return MeasurementPipeline.computeLive(in, stale);
+        } finally {
+            PerfTelemetry.end(PerfTelemetry.METRICS, t0);  // Also when it throws: the worker thread lives on
+        }
     }
 
     /**
-     * Updates UI with current measurement metrics
-     * Displays point count, perimeter, and area in real-time
+     * Shows the newest metrics snapshot, once per frame and only when it changed: HUD labels,
+     * then the AR outline from the snapshot's rings and fill (the same triangulation the area
+     * uses), edges and vertex dots of every ring, the current one open until it has 3 points.
+     * Reuses the mesh buffers; the backend draws it with fixed draw calls.
      */
-    private void updateUIAndMetrics() {
-        int count = anchors.size();
-        if (tvPoints != null) tvPoints.setText("Points: " + count);
-        if (btnFinish != null) btnFinish.setEnabled(count >= 3);
-        if (btnUndo != null) btnUndo.setEnabled(count > 0);
-
-        // Calculate and display current metrics
-        java.util.List<P2> poly = projectAnchorsTo2D();
-        double perim = perimeterMeters(poly);
-        double area = areaShoelaceSqMeters(poly);
+    private void applyMetricsSnapshot() {
+        MetricsWorker.Snapshot<MeasurementPipeline.LiveSnapshot> snapshot = metricsWorker.latest();
+        if (snapshot == null || snapshot.version == shownMetricsVersion) return;
+        shownMetricsVersion = snapshot.version;
+        MeasurementPipeline.LiveSnapshot live = snapshot.value;
+        MeasurementPipeline.LiveInput in = live.input;
+        MeasurementPipeline.Metrics m = live.metrics;
+        if (tvPerimeter != null) tvPerimeter.setText(String.format(java.util.Locale.US, "Perimeter: %.2f m", m.perimeter));
+        if (tvArea != null) {
+            // Crossing flag: the ring being placed crosses itself
+            tvArea.setText(String.format(java.util.Locale.US, "Area: %.2f m² · 3D %.2f m²", m.area, m.surface)
+                    + (m.crossing ? "  ⚠ edges cross" : ""));
+        }
 
-        if (tvPerimeter != null) tvPerimeter.setText(String.format(java.util.Locale.US, "Perimeter: %.2f m", perim));
-        if (tvArea != null) tvArea.setText(String.format(java.util.Locale.US, "Area: %.2f m²", area));
+        outlineMesh.clear();
+        ArAnchor originAnchor = measurement.rings.origin();
+        if (originAnchor == null) {
+            ar.updateOutline(outlineMesh, null);
+            return;
+        }
+        if (live.fill != null) outlineMesh.addFill(live.fill, live.fillHeights);
+        for (int r = 0; r < in.closed.size(); r++) {
+            double[] ring = in.closed.get(r);
+            outlineMesh.addOutline(ring, in.heights.get(r), ring.length / 2, true, in.closedHoles[r]);
+        }
+        if (in.count > 0) {
+            outlineMesh.addOutline(in.current, in.currentHeights, in.count, in.count >= 3, in.currentIsHole);
+        }
+        ar.updateOutline(outlineMesh, ArCoreBridge.toPose(originAnchor.pose()));
     }
 }
-
-
-
@@ -0,0 +1,122 @@
+package com.example.fieldviewer;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Follows how far AR anchors move after placement as tracking refines their poses.
+ * Callers feed only the anchors reported as updated this frame (Frame.getUpdatedAnchors()),
+ * so per-frame cost grows with the anchors that moved, not with the ring size. Movement is
+ * summed until it passes the refresh threshold, which tells the UI when the metrics on screen
+ * are stale enough to recompute.
+ *
+ * @param <K> anchor handle (com.google.ar.core.Anchor on device)
+ */
+public final class AnchorDriftMonitor<K> {
+
+    /**
+     * Drift of one anchor, in meters from where it was placed
+     */
+    public static final class Stats {
+        final double x0, y0, z0;  // Pose at placement
+        double x, y, z;           // Latest pose
+        public double maxDrift;
+        public double path;       // Sum of per-update displacements
+        public int updates;
+
+        Stats(double x, double y, double z) {
+            this.x0 = this.x = x;
+            this.y0 = this.y = y;
+            this.z0 = this.z = z;
+        }
+
+        public double finalDrift() {
+            return Math.sqrt(sq(x - x0) + sq(y - y0) + sq(z - z0));
+        }
+    }
+
+    // Values per anchor in snapshot(): max drift, final drift, path length, update count
+    public static final int STATS_STRIDE = 4;
+
+    private final Map<K, Stats> anchors = new HashMap<>();
+    private final double refreshThreshold;
+    private double pending = 0.0;  // Movement since the last refresh
+
+    /**
+     * @param refreshThreshold summed movement (meters) after which consumeRefresh() reports true
+     */
+    public AnchorDriftMonitor(double refreshThreshold) {
+        this.refreshThreshold = refreshThreshold;
+    }
+
+    /**
+     * Starts following an anchor from its placement pose
+     */
+    public void track(K anchor, double x, double y, double z) {
+        anchors.put(anchor, new Stats(x, y, z));
+    }
+
+    public void untrack(K anchor) {
+        anchors.remove(anchor);
+    }
+
+    public void clear() {
+        anchors.clear();
+        pending = 0.0;
+    }
+
+    public boolean isEmpty() {
+        return anchors.isEmpty();
+    }
+
+    /**
+     * Latest pose of an updated anchor; unknown anchors (e.g. other apps' planes) are ignored
+     */
+    public void update(K anchor, double x, double y, double z) {
+        Stats s = anchors.get(anchor);
+        if (s == null) return;
+        double step = Math.sqrt(sq(x - s.x) + sq(y - s.y) + sq(z - s.z));
+        if (step == 0.0) return;
+        s.x = x;
+        s.y = y;
+        s.z = z;
+        s.path += step;
+        s.updates++;
+        s.maxDrift = Math.max(s.maxDrift, s.finalDrift());
+        pending += step;
+    }
+
+    /**
+     * True once if the movement since the last refresh reached the threshold
+     */
+    public boolean consumeRefresh() {
+        if (pending < refreshThreshold) return false;
+        pending = 0.0;
+        return true;
+    }
+
+    public Stats stats(K anchor) {
+        return anchors.get(anchor);
+    }
+
+    /**
+     * STATS_STRIDE values per anchor in the given order (zeros for untracked anchors)
+     */
+    public double[] snapshot(List<K> order) {
+        double[] out = new double[order.size() * STATS_STRIDE];
+        for (int i = 0; i < order.size(); i++) {
+            Stats s = anchors.get(order.get(i));
+            if (s == null) continue;
+            out[i * STATS_STRIDE] = s.maxDrift;
+            out[i * STATS_STRIDE + 1] = s.finalDrift();
+            out[i * STATS_STRIDE + 2] = s.path;
+            out[i * STATS_STRIDE + 3] = s.updates;
+        }
+        return out;
+    }
+
+    private static double sq(double v) {
+        return v * v;
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.fieldviewer;
+
+/**
+ * A tracked point in the world (com.google.ar.core.Anchor on device, a fixed pose in replays)
+ */
+public interface ArAnchor {
+
+    ArPose pose();
+
+    boolean isTracking();
+
+    void detach();
+}
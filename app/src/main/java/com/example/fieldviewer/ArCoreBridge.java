@@ -0,0 +1,221 @@
+package com.example.fieldviewer;
+
+import com.google.ar.core.Anchor;
+import com.google.ar.core.Frame;
+import com.google.ar.core.HitResult;
+import com.google.ar.core.Plane;
+import com.google.ar.core.Pose;
+import com.google.ar.core.TrackingState;
+import com.google.ar.core.Trackable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Adapters from ARCore types to the plain-Java Ar* interfaces used by the measurement pipeline
+ */
+final class ArCoreBridge {
+
+    private ArCoreBridge() {}
+
+    static ArPose pose(Pose p) {
+        return new ArPose(p.tx(), p.ty(), p.tz(), p.qx(), p.qy(), p.qz(), p.qw());
+    }
+
+    static Pose toPose(ArPose p) {
+        return new Pose(new float[]{p.tx, p.ty, p.tz}, new float[]{p.qx, p.qy, p.qz, p.qw});
+    }
+
+    static ArFrame frame(Frame frame) {
+        return new CoreFrame(frame);
+    }
+
+    /**
+     * Copy of what the measuring code reads from a frame, taken on the thread that updated the
+     * session: once update() runs again, the Frame must not be used from another thread. Hits
+     * are kept for one screen point (the crosshair), like a recorded frame.
+     */
+    static ArFrame snapshot(Frame frame, float x, float y) {
+        boolean tracking = frame.getCamera().getTrackingState() == TrackingState.TRACKING;
+        List<ArHit> hits = Collections.emptyList();
+        if (tracking) {
+            List<HitResult> results = frame.hitTest(x, y);
+            hits = new ArrayList<>(results.size());
+            for (HitResult h : results) hits.add(new HitSnapshot(new CoreHit(h)));
+        }
+        return new FrameSnapshot(frame.getTimestamp(), tracking, pose(frame.getCamera().getPose()), hits, x, y);
+    }
+
+    /**
+     * Wraps an ARCore anchor; wrappers of the same anchor are equal, so they work as map keys
+     */
+    static ArAnchor anchor(Anchor anchor) {
+        return new CoreAnchor(anchor);
+    }
+
+    static final class CoreFrame implements ArFrame {
+        final Frame frame;
+
+        CoreFrame(Frame frame) {
+            this.frame = frame;
+        }
+
+        @Override public long timestampNanos() {
+            return frame.getTimestamp();
+        }
+
+        @Override public boolean isTracking() {
+            return frame.getCamera().getTrackingState() == TrackingState.TRACKING;
+        }
+
+        @Override public ArPose cameraPose() {
+            return pose(frame.getCamera().getPose());
+        }
+
+        @Override public List<ArHit> hitTest(float x, float y) {
+            List<HitResult> hits = frame.hitTest(x, y);
+            List<ArHit> out = new ArrayList<>(hits.size());
+            for (HitResult h : hits) out.add(new CoreHit(h));
+            return out;
+        }
+    }
+
+    static final class FrameSnapshot implements ArFrame {
+        private final long ts;
+        private final boolean tracking;
+        private final ArPose camera;
+        private final List<ArHit> hits;
+        private final float qx, qy;
+
+        FrameSnapshot(long ts, boolean tracking, ArPose camera, List<ArHit> hits, float qx, float qy) {
+            this.ts = ts;
+            this.tracking = tracking;
+            this.camera = camera;
+            this.hits = hits;
+            this.qx = qx;
+            this.qy = qy;
+        }
+
+        @Override public long timestampNanos() {
+            return ts;
+        }
+
+        @Override public boolean isTracking() {
+            return tracking;
+        }
+
+        @Override public ArPose cameraPose() {
+            return camera;
+        }
+
+        /**
+         * Only the crosshair was tested; other screen points report no hits
+         */
+        @Override public List<ArHit> hitTest(float x, float y) {
+            return Math.abs(x - qx) <= 1f && Math.abs(y - qy) <= 1f ? hits : Collections.emptyList();
+        }
+    }
+
+    /**
+     * Hit with its pose and plane checks evaluated up front; only anchor creation goes back to ARCore
+     */
+    static final class HitSnapshot implements ArHit {
+        private final CoreHit hit;
+        private final ArPose pose;
+        private final float distance;
+        private final int planeType;
+        private final boolean inPolygon;
+
+        HitSnapshot(CoreHit hit) {
+            this.hit = hit;
+            this.pose = hit.hitPose();
+            this.distance = hit.distance();
+            this.planeType = hit.planeType();
+            this.inPolygon = hit.inPlanePolygon();
+        }
+
+        @Override public ArPose hitPose() {
+            return pose;
+        }
+
+        @Override public float distance() {
+            return distance;
+        }
+
+        @Override public int planeType() {
+            return planeType;
+        }
+
+        @Override public boolean inPlanePolygon() {
+            return inPolygon;
+        }
+
+        @Override public ArAnchor createAnchor() {
+            return hit.createAnchor();
+        }
+    }
+
+    static final class CoreHit implements ArHit {
+        final HitResult hit;
+
+        CoreHit(HitResult hit) {
+            this.hit = hit;
+        }
+
+        @Override public ArPose hitPose() {
+            return pose(hit.getHitPose());
+        }
+
+        @Override public float distance() {
+            return hit.getDistance();
+        }
+
+        @Override public int planeType() {
+            Trackable t = hit.getTrackable();
+            if (!(t instanceof Plane)) return PLANE_NONE;
+            switch (((Plane) t).getType()) {
+                case HORIZONTAL_UPWARD_FACING: return PLANE_HORIZONTAL_UPWARD;
+                case HORIZONTAL_DOWNWARD_FACING: return PLANE_HORIZONTAL_DOWNWARD;
+                default: return PLANE_VERTICAL;
+            }
+        }
+
+        @Override public boolean inPlanePolygon() {
+            Trackable t = hit.getTrackable();
+            return t instanceof Plane && ((Plane) t).isPoseInPolygon(hit.getHitPose());
+        }
+
+        @Override public ArAnchor createAnchor() {
+            return new CoreAnchor(hit.createAnchor());
+        }
+    }
+
+    static final class CoreAnchor implements ArAnchor {
+        final Anchor anchor;
+
+        CoreAnchor(Anchor anchor) {
+            this.anchor = anchor;
+        }
+
+        @Override public ArPose pose() {
+            return ArCoreBridge.pose(anchor.getPose());
+        }
+
+        @Override public boolean isTracking() {
+            return anchor.getTrackingState() == TrackingState.TRACKING;
+        }
+
+        @Override public void detach() {
+            anchor.detach();
+        }
+
+        @Override public boolean equals(Object o) {
+            return o instanceof CoreAnchor && ((CoreAnchor) o).anchor.equals(anchor);
+        }
+
+        @Override public int hashCode() {
+            return anchor.hashCode();
+        }
+    }
+}
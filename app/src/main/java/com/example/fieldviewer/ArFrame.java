@@ -0,0 +1,21 @@
+package com.example.fieldviewer;
+
+import java.util.List;
+
+/**
+ * One camera frame of an AR session: the subset of com.google.ar.core.Frame the measuring
+ * code uses, so it can be fed from a live session or from a recording.
+ */
+public interface ArFrame {
+
+    long timestampNanos();
+
+    boolean isTracking();
+
+    ArPose cameraPose();
+
+    /**
+     * Hits along the ray through screen point (x, y), nearest first
+     */
+    List<ArHit> hitTest(float x, float y);
+}
@@ -0,0 +1,26 @@
+package com.example.fieldviewer;
+
+/**
+ * One hit-test result: where the ray met a trackable and what kind of plane it was.
+ * Mirrors the parts of com.google.ar.core.HitResult/Plane that point placement looks at.
+ */
+public interface ArHit {
+
+    int PLANE_NONE = 0;  // Feature point or other non-plane trackable
+    int PLANE_HORIZONTAL_UPWARD = 1;
+    int PLANE_HORIZONTAL_DOWNWARD = 2;
+    int PLANE_VERTICAL = 3;
+
+    ArPose hitPose();
+
+    float distance();
+
+    int planeType();
+
+    /**
+     * Whether the hit lies inside the detected plane's polygon (false for non-plane hits)
+     */
+    boolean inPlanePolygon();
+
+    ArAnchor createAnchor();
+}
@@ -0,0 +1,30 @@
+package com.example.fieldviewer;
+
+/**
+ * Immutable rigid pose (translation + rotation quaternion) in AR world coordinates.
+ * Plain-Java stand-in for com.google.ar.core.Pose so measurement code can run on the JVM.
+ */
+public final class ArPose {
+
+    public final float tx, ty, tz;
+    public final float qx, qy, qz, qw;
+
+    public ArPose(float tx, float ty, float tz, float qx, float qy, float qz, float qw) {
+        this.tx = tx;
+        this.ty = ty;
+        this.tz = tz;
+        this.qx = qx;
+        this.qy = qy;
+        this.qz = qz;
+        this.qw = qw;
+    }
+
+    public static ArPose translation(float tx, float ty, float tz) {
+        return new ArPose(tx, ty, tz, 0f, 0f, 0f, 1f);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(java.util.Locale.US, "ArPose(%.3f, %.3f, %.3f)", tx, ty, tz);
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.fieldviewer;
+
+import androidx.appcompat.app.AppCompatActivity;
+
+import com.google.ar.core.Anchor;
+import com.google.ar.core.Pose;
+import com.google.ar.core.Session;
+
+import java.util.Collection;
+
+/**
+ * What the AR screen needs from a renderer: the camera background, the measured outline
+ * (fill, edges and vertex dots, see OutlineMesh), and the ARCore session and frames behind them.
+ *
+ * Two implementations: SceneformBackend (ArFragment, the original renderer) and GlBackend
+ * (a GLSurfaceView drawing with two small GLES 2.0 shaders, no Sceneform). The backend is picked
+ * at runtime (long-press the area label); both record their frame interval and time to the first
+ * tracked frame in PerfTelemetry, so they can be compared on the same device.
+ *
+ * All methods are called on the main thread, and FrameListener runs there too.
+ */
+interface ArRenderBackend {
+
+    String SCENEFORM = "sceneform";
+    String GL = "gl";
+
+    interface FrameListener {
+        /**
+         * Once per rendered frame, after ARCore updated it. updatedAnchors holds every anchor
+         * ARCore moved since the previous call, also on frames that were not delivered.
+         */
+        void onFrame(ArFrame frame, Collection<Anchor> updatedAnchors);
+    }
+
+    /**
+     * Creates the backend for an id from the settings; unknown ids fall back to Sceneform
+     */
+    static ArRenderBackend create(String id) {
+        return GL.equals(id) ? new GlBackend() : new SceneformBackend();
+    }
+
+    String id();
+
+    /**
+     * Puts the camera view into the container view and starts delivering frames once running
+     */
+    void attach(AppCompatActivity activity, int containerId, FrameListener listener);
+
+    /**
+     * ARCore is installed and the camera permission granted: the session may be created
+     */
+    void start();
+
+    void onResume();
+
+    void onPause();
+
+    /**
+     * Closes the ARCore session; anchors created in it must be released first
+     * (MeasurementSession.releaseAnchors)
+     */
+    void destroy();
+
+    /**
+     * The ARCore session, or null before it exists
+     */
+    Session session();
+
+    /**
+     * Latest frame, or null before the first one. Callers hit-test the crosshair (view center)
+     * only: a backend rendering off the main thread answers from a snapshot of that point.
+     */
+    ArFrame frame();
+
+    int viewWidth();
+
+    int viewHeight();
+
+    /**
+     * Shows mesh with its local origin at the origin pose's position; an empty mesh or a null
+     * origin hides the outline. Callers may keep reusing one mesh instance.
+     */
+    void updateOutline(OutlineMesh mesh, Pose origin);
+}
@@ -0,0 +1,160 @@
+package com.example.fieldviewer;
+
+import java.util.List;
+
+/**
+ * Selectable area evaluation over rings in local meters (see RingMath for the ring layout).
+ * SHOELACE sums cross products against the coordinate origin; TRIANGULATION clips the rings
+ * (holes included) into triangles with Earcut and sums their areas, which stays stable when
+ * coordinates are far from the origin and also yields a per-triangle breakdown that can be
+ * reused for rendering fills or sampling the surface.
+ */
+public final class AreaEngine {
+
+    public enum Mode {
+        SHOELACE, TRIANGULATION;
+
+        /**
+         * Parses a saved/extra value; unknown or missing values mean SHOELACE
+         */
+        public static Mode fromName(String name) {
+            if (name != null) {
+                for (Mode m : values()) if (m.name().equalsIgnoreCase(name)) return m;
+            }
+            return SHOELACE;
+        }
+
+        public String label() {
+            return this == SHOELACE ? "Shoelace" : "Triangulation";
+        }
+
+        public Mode next() {
+            return values()[(ordinal() + 1) % values().length];
+        }
+    }
+
+    /**
+     * Triangles over all input rings. Vertex indices refer to coords, which holds every input
+     * ring back to back (ring r starts at vertex ringOffset[r]).
+     */
+    public static final class Triangulation {
+        public final double[] coords;
+        public final int[] ringOffset;
+        public final int[] triangles;       // Three vertex indices per triangle
+        public final double[] triangleAreas;
+        public final double area;           // Sum of triangleAreas
+
+        Triangulation(double[] coords, int[] ringOffset, int[] triangles, double[] triangleAreas, double area) {
+            this.coords = coords;
+            this.ringOffset = ringOffset;
+            this.triangles = triangles;
+            this.triangleAreas = triangleAreas;
+            this.area = area;
+        }
+
+        public int triangleCount() {
+            return triangles.length / 3;
+        }
+    }
+
+    private AreaEngine() {}
+
+    /**
+     * Area of a single ring (n vertices)
+     */
+    public static double ringArea(double[] xy, int n, Mode mode) {
+        if (n < 3) return 0.0;
+        if (mode == Mode.SHOELACE) return RingMath.area(xy, n);
+        double[] data = xy.length == 2 * n ? xy : java.util.Arrays.copyOf(xy, 2 * n);
+        int[] tris = Earcut.triangulate(data, null);
+        double sum = 0.0;
+        for (int t = 0; t < tris.length; t += 3) sum += triangleArea(data, tris[t], tris[t + 1], tris[t + 2]);
+        return sum;
+    }
+
+    /**
+     * Fields minus the holes inside them, evaluated with the given mode
+     */
+    public static double netArea(List<double[]> rings, boolean[] holes, Mode mode) {
+        if (mode == Mode.SHOELACE) return RingMath.netArea(rings, holes);
+        return triangulate(rings, holes).area;
+    }
+
+    /**
+     * Triangulates every field together with the holes assigned to it; holes outside all
+     * fields are ignored, as in RingMath.netArea.
+     */
+    public static Triangulation triangulate(List<double[]> rings, boolean[] holes) {
+        int count = rings.size();
+        int[] ringOffset = new int[count];
+        int total = 0;
+        for (int r = 0; r < count; r++) {
+            ringOffset[r] = total;
+            total += rings.get(r).length / 2;
+        }
+        double[] coords = new double[total * 2];
+        for (int r = 0; r < count; r++) {
+            double[] ring = rings.get(r);
+            System.arraycopy(ring, 0, coords, ringOffset[r] * 2, ring.length);
+        }
+
+        int[] parent = RingMath.assignHoles(rings, holes);
+        int[] allTris = new int[0];
+        int triCount = 0;
+        for (int field = 0; field < count; field++) {
+            if (holes[field]) continue;
+            // Flat buffer: field ring, then its holes; local vertex -> global vertex
+            int size = rings.get(field).length / 2;
+            int holeCount = 0;
+            for (int h = 0; h < count; h++) {
+                if (holes[h] && parent[h] == field) {
+                    size += rings.get(h).length / 2;
+                    holeCount++;
+                }
+            }
+            double[] data = new double[size * 2];
+            int[] toGlobal = new int[size];
+            int[] holeIndices = new int[holeCount];
+            int v = appendRing(rings.get(field), ringOffset[field], data, toGlobal, 0);
+            int k = 0;
+            for (int h = 0; h < count; h++) {
+                if (!holes[h] || parent[h] != field) continue;
+                holeIndices[k++] = v;
+                v = appendRing(rings.get(h), ringOffset[h], data, toGlobal, v);
+            }
+            int[] tris = Earcut.triangulate(data, holeIndices);
+            if (triCount * 3 + tris.length > allTris.length) {
+                allTris = java.util.Arrays.copyOf(allTris, Math.max(allTris.length * 2, triCount * 3 + tris.length));
+            }
+            for (int t = 0; t < tris.length; t++) allTris[triCount * 3 + t] = toGlobal[tris[t]];
+            triCount += tris.length / 3;
+        }
+
+        int[] triangles = java.util.Arrays.copyOf(allTris, triCount * 3);
+        double[] areas = new double[triCount];
+        double sum = 0.0;
+        for (int t = 0; t < triCount; t++) {
+            areas[t] = triangleArea(coords, triangles[3 * t], triangles[3 * t + 1], triangles[3 * t + 2]);
+            sum += areas[t];
+        }
+        return new Triangulation(coords, ringOffset, triangles, areas, sum);
+    }
+
+    private static int appendRing(double[] ring, int globalStart, double[] data, int[] toGlobal, int v) {
+        int n = ring.length / 2;
+        System.arraycopy(ring, 0, data, v * 2, ring.length);
+        for (int i = 0; i < n; i++) toGlobal[v + i] = globalStart + i;
+        return v + n;
+    }
+
+    /**
+     * Unsigned triangle area; edge vectors are taken from vertex a, so the result does not
+     * depend on how far the triangle is from the coordinate origin
+     */
+    static double triangleArea(double[] xy, int a, int b, int c) {
+        double ax = xy[2 * a], ay = xy[2 * a + 1];
+        double ux = xy[2 * b] - ax, uy = xy[2 * b + 1] - ay;
+        double vx = xy[2 * c] - ax, vy = xy[2 * c + 1] - ay;
+        return Math.abs(ux * vy - uy * vx) * 0.5;
+    }
+}
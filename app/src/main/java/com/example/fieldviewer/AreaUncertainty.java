@@ -0,0 +1,275 @@
+package com.example.fieldviewer;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Monte Carlo estimate of how far the measured area (and position) can be off, from the error
+ * sources behind a measurement:
+ *
+ * - per-vertex tracking error: an isotropic Gaussian per vertex, 1σ = DEFAULT_VERTEX_SIGMA_M
+ *   combined with the anchor's observed drift (AnchorDriftMonitor) where known
+ * - heading variance: one rotation of the whole shape about the origin per sample
+ * - origin accuracy: one GPS offset of the whole shape per sample
+ *
+ * The last two move the shape without changing its area, so they only widen the position
+ * figure; the area interval comes from the vertices. Rings are in local meters around the
+ * origin (see RingMath for the layout).
+ *
+ * Samples run in parallel on the common fork-join pool in fixed-size chunks. Each chunk has its
+ * own SplittableRandom seeded from the chunk's first sample and its own primitive buffer, so the
+ * result depends only on the seed, not on how chunks land on threads.
+ */
+public final class AreaUncertainty {
+
+    public static final double DEFAULT_VERTEX_SIGMA_M = 0.05;  // ARCore anchors a few meters away
+    public static final int DEFAULT_SAMPLES = 4000;
+    static final long MAX_VERTEX_SAMPLES = 4_000_000L;  // Fewer samples for huge rings, bounded time
+    static final int MIN_SAMPLES = 500;
+    static final int CHUNK = 250;
+
+    /**
+     * What is known about the error sources of a measurement
+     */
+    public static final class Sources {
+        final double[] anchorDrift;  // AnchorDriftMonitor.snapshot over every vertex, or null
+        final double headingSigmaRad;
+        final double originSigmaM;
+        final double vertexSigmaM;
+
+        /**
+         * @param headingVarianceRad2 compass spread at capture, NaN when unknown (no rotation)
+         * @param originAccuracyM     GPS horizontal accuracy (68%), NaN or 0 when unknown
+         */
+        public Sources(double[] anchorDrift, double headingVarianceRad2, double originAccuracyM) {
+            this(anchorDrift, headingVarianceRad2, originAccuracyM, DEFAULT_VERTEX_SIGMA_M);
+        }
+
+        /**
+         * @param vertexSigmaM base 1σ per vertex in place of the AR tracking error (GPS walks:
+         *                     BoundaryTracker's filtered position error), NaN for the default
+         */
+        public Sources(double[] anchorDrift, double headingVarianceRad2, double originAccuracyM, double vertexSigmaM) {
+            this.anchorDrift = anchorDrift;
+            this.vertexSigmaM = vertexSigmaM > 0 ? vertexSigmaM : DEFAULT_VERTEX_SIGMA_M;
+            this.headingSigmaRad = headingVarianceRad2 > 0 && !Double.isInfinite(headingVarianceRad2) ? Math.sqrt(headingVarianceRad2) : 0.0;
+            this.originSigmaM = originAccuracyM > 0 ? originAccuracyM / Math.sqrt(2) : 0.0;  // Radial to per axis
+        }
+
+        /**
+         * 1σ per vertex for rings with n vertices in total; per anchor when the drift snapshot
+         * still matches the vertices, otherwise (map edits) from the mean drift
+         */
+        double[] vertexSigmas(int n) {
+            double[] out = new double[n];
+            int stride = AnchorDriftMonitor.STATS_STRIDE;
+            if (anchorDrift != null && anchorDrift.length == n * stride) {
+                for (int i = 0; i < n; i++) out[i] = Math.hypot(vertexSigmaM, anchorDrift[i * stride]);
+                return out;
+            }
+            double mean = 0.0;
+            int count = anchorDrift != null ? anchorDrift.length / stride : 0;
+            for (int i = 0; i < count; i++) mean += anchorDrift[i * stride] / count;
+            Arrays.fill(out, Math.hypot(vertexSigmaM, mean));
+            return out;
+        }
+    }
+
+    public static final class Result {
+        public final int samples;
+        public final double mean, sd;
+        public final double low, high;     // 95% interval of the area, m²
+        public final double position95M;  // 95% radius of the outer ring's center displacement
+
+        Result(int samples, double mean, double sd, double low, double high, double position95M) {
+            this.samples = samples;
+            this.mean = mean;
+            this.sd = sd;
+            this.low = low;
+            this.high = high;
+            this.position95M = position95M;
+        }
+
+        /**
+         * Half the 95% interval width, shown as ± next to the area
+         */
+        public double halfWidth() {
+            return (high - low) / 2;
+        }
+    }
+
+    /**
+     * Samples the area of rings under sources; null when stale reports newer input midway
+     */
+    public static Result estimate(List<double[]> rings, boolean[] holes, Sources sources, int samples, long seed,
+                                  MetricsWorker.Staleness stale) {
+        int ringCount = rings.size();
+        int[] offsets = new int[ringCount + 1];
+        for (int r = 0; r < ringCount; r++) offsets[r + 1] = offsets[r] + rings.get(r).length / 2;
+        int n = offsets[ringCount];
+        if (n < 3) return null;
+        samples = (int) Math.max(MIN_SAMPLES, Math.min(samples, MAX_VERTEX_SAMPLES / n));
+
+        Model m = new Model();
+        m.xy = new double[2 * n];
+        for (int r = 0; r < ringCount; r++) {
+            double[] ring = rings.get(r);
+            System.arraycopy(ring, 0, m.xy, 2 * offsets[r], 2 * (offsets[r + 1] - offsets[r]));
+        }
+        m.offsets = offsets;
+        m.sign = new int[ringCount];
+        int[] parent = RingMath.assignHoles(rings, holes);  // Small perturbations keep the nesting
+        for (int r = 0; r < ringCount; r++) m.sign[r] = !holes[r] ? 1 : parent[r] >= 0 ? -1 : 0;
+        m.sigma = sources.vertexSigmas(n);
+        m.headingSigma = sources.headingSigmaRad;
+        m.originSigma = sources.originSigmaM;
+        m.seed = seed;
+        m.stale = stale;
+        m.areas = new double[samples];
+        m.shifts = new double[samples];
+        int n0 = offsets[1];
+        for (int i = 0; i < n0; i++) {
+            m.cx += m.xy[2 * i] / n0;
+            m.cy += m.xy[2 * i + 1] / n0;
+        }
+
+        ForkJoinPool.commonPool().invoke(new Batch(m, 0, samples));
+        if (m.cancelled) return null;
+
+        double sum = 0.0, sumSq = 0.0;
+        for (double a : m.areas) sum += a;
+        double mean = sum / samples;
+        for (double a : m.areas) sumSq += (a - mean) * (a - mean);
+        Arrays.sort(m.areas);
+        Arrays.sort(m.shifts);
+        return new Result(samples, mean, Math.sqrt(sumSq / (samples - 1)),
+                percentile(m.areas, 0.025), percentile(m.areas, 0.975), percentile(m.shifts, 0.95));
+    }
+
+    private static double percentile(double[] sorted, double q) {
+        double at = q * (sorted.length - 1);
+        int i = (int) at;
+        if (i + 1 >= sorted.length) return sorted[sorted.length - 1];
+        return sorted[i] + (at - i) * (sorted[i + 1] - sorted[i]);
+    }
+
+    /**
+     * Shared read-only inputs and the per-sample outputs (each chunk writes its own range)
+     */
+    private static final class Model {
+        double[] xy;
+        int[] offsets;
+        int[] sign;  // +1 field, -1 hole inside a field, 0 stray hole
+        double[] sigma;
+        double headingSigma, originSigma;
+        double cx, cy;  // Outer ring center, unperturbed
+        long seed;
+        MetricsWorker.Staleness stale;
+        volatile boolean cancelled;
+        double[] areas, shifts;
+
+        void run(int from, int to) {
+            SplittableRandom rng = new SplittableRandom(seed ^ (from * 0x9E3779B97F4A7C15L));
+            Gaussian g = new Gaussian(rng);
+            double[] p = new double[xy.length];
+            int n = xy.length / 2;
+            int n0 = offsets[1];
+            for (int s = from; s < to; s++) {
+                double theta = headingSigma > 0 ? g.next() * headingSigma : 0.0;
+                double cos = Math.cos(theta), sin = Math.sin(theta);
+                double ox = originSigma > 0 ? g.next() * originSigma : 0.0;
+                double oy = originSigma > 0 ? g.next() * originSigma : 0.0;
+                for (int i = 0; i < n; i++) {
+                    double x = xy[2 * i] + g.next() * sigma[i];
+                    double y = xy[2 * i + 1] + g.next() * sigma[i];
+                    p[2 * i] = x * cos - y * sin + ox;
+                    p[2 * i + 1] = x * sin + y * cos + oy;
+                }
+                double net = 0.0;
+                for (int r = 0; r < sign.length; r++) {
+                    if (sign[r] == 0) continue;
+                    net += sign[r] * Math.abs(signedArea(p, offsets[r], offsets[r + 1]));
+                }
+                areas[s] = Math.max(0.0, net);
+                double mx = 0.0, my = 0.0;
+                for (int i = 0; i < n0; i++) {
+                    mx += p[2 * i];
+                    my += p[2 * i + 1];
+                }
+                shifts[s] = Math.hypot(mx / n0 - cx, my / n0 - cy);
+            }
+        }
+    }
+
+    /**
+     * Shoelace over vertices [from, to) of a flat (x, y) buffer
+     */
+    private static double signedArea(double[] p, int from, int to) {
+        double sum = 0.0;
+        for (int i = from, j = to - 1; i < to; j = i++) {
+            sum += p[2 * j] * p[2 * i + 1] - p[2 * i] * p[2 * j + 1];
+        }
+        return sum / 2;
+    }
+
+    private static final class Batch extends RecursiveAction {
+        private final Model m;
+        private final int from, to;
+
+        Batch(Model m, int from, int to) {
+            this.m = m;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (m.cancelled) return;
+            int chunks = (to - from + CHUNK - 1) / CHUNK;
+            if (chunks > 1) {
+                // Split on chunk boundaries so each chunk's random stream is the same on every run
+                int mid = from + (chunks / 2) * CHUNK;
+                invokeAll(new Batch(m, from, mid), new Batch(m, mid, to));
+                return;
+            }
+            if (m.stale.isStale()) {
+                m.cancelled = true;
+                return;
+            }
+            m.run(from, to);
+        }
+    }
+
+    /**
+     * Standard normal samples by the polar method (SplittableRandom has no nextGaussian here)
+     */
+    private static final class Gaussian {
+        private final SplittableRandom rng;
+        private double spare;
+        private boolean hasSpare = false;
+
+        Gaussian(SplittableRandom rng) {
+            this.rng = rng;
+        }
+
+        double next() {
+            if (hasSpare) {
+                hasSpare = false;
+                return spare;
+            }
+            double u, v, s;
+            do {
+                u = 2 * rng.nextDouble() - 1;
+                v = 2 * rng.nextDouble() - 1;
+                s = u * u + v * v;
+            } while (s >= 1 || s == 0);
+            double f = Math.sqrt(-2 * Math.log(s) / s);
+            spare = v * f;
+            hasSpare = true;
+            return u * f;
+        }
+    }
+}
@@ -0,0 +1,401 @@
+package com.example.fieldviewer;
+
+/**
+ * Turns a stream of GPS fixes, taken while the operator walks a field boundary, into a ring.
+ * Each fix goes through three stages, in O(1) time and without allocation:
+ *
+ * - accuracy gate: fixes whose reported accuracy is worse than maxAccuracyM, or that arrive out
+ *   of order, are dropped
+ * - Kalman filter: constant velocity, one (position, velocity) filter per axis in local meters
+ *   east/north of the first fix, with white-noise acceleration. A fix whose innovation is
+ *   implausible for its accuracy (a multipath jump) is dropped too, unless several in a row
+ *   disagree, in which case the filter restarts on the new position
+ * - simplifier: sleeve (cone) simplification of the filtered track. A vertex is kept only where
+ *   the track stops fitting within tolerance of a straight line from the previous vertex
+ *
+ * Vertices live in fixed arrays of maxVertices. When a long walk fills them, the tolerance is
+ * doubled and the kept vertices are simplified again in place, so memory stays bounded however
+ * long the walk is.
+ *
+ * Not thread-safe: feed it from one thread (WalkMeasureActivity uses its location looper).
+ */
+public final class BoundaryTracker {
+
+    public static final double DEFAULT_MAX_ACCURACY_M = 25.0;
+    public static final double DEFAULT_TOLERANCE_M = 2.5;  // Above the filtered GPS noise (1–2 m), below a field edge kink
+    public static final int DEFAULT_MAX_VERTICES = 1000;
+
+    static final double ACCEL_SIGMA = 0.7;           // m/s², walking pace changes and turns
+    static final double INITIAL_SPEED_SIGMA = 2.0;   // m/s, unknown direction at the first fix
+    static final double GATE_CHI2 = 13.82;           // 99.9% of a 2-dof chi-square
+    static final int RESTART_AFTER_REJECTS = 5;
+
+    // Outcome of fix()
+    public static final int ACCEPTED = 0;
+    public static final int REJECTED_ACCURACY = 1;
+    public static final int REJECTED_ORDER = 2;
+    public static final int REJECTED_JUMP = 3;
+
+    private final double maxAccuracyM;
+    private final int maxVertices;
+    private double tolerance;
+
+    // Local frame: first accepted fix
+    private double originLat = Double.NaN, originLng = Double.NaN, originAccuracyM = Double.NaN;
+    private double mPerDegLng;
+
+    // Per-axis filter state: position, velocity and covariance [[a, b], [b, c]]
+    private final Axis east = new Axis(), north = new Axis();
+    private long lastTimeMs = Long.MIN_VALUE;
+    private int consecutiveJumps = 0;
+
+    // Kept vertices (x, y interleaved) and each vertex's 1σ position error
+    private final double[] xy;
+    private final double[] sigma;
+    private int count = 0;
+
+    // Sleeve from the last kept vertex: allowed directions [lo, hi] relative to ref
+    private boolean hasCone = false;
+    private double ref, lo, hi, maxDist;
+    private boolean hasLast = false;
+    private double lastX, lastY, lastSigma;
+
+    private long accepted, rejectedAccuracy, rejectedOrder, rejectedJump, restarts, recompactions;
+    private double keptLengthM = 0.0;  // Along the kept vertices
+
+    public BoundaryTracker() {
+        this(DEFAULT_MAX_ACCURACY_M, DEFAULT_TOLERANCE_M, DEFAULT_MAX_VERTICES);
+    }
+
+    public BoundaryTracker(double maxAccuracyM, double toleranceM, int maxVertices) {
+        if (!(toleranceM > 0)) throw new IllegalArgumentException("toleranceM must be > 0");
+        if (maxVertices < 8) throw new IllegalArgumentException("maxVertices must be >= 8");
+        this.maxAccuracyM = maxAccuracyM;
+        this.tolerance = toleranceM;
+        this.maxVertices = maxVertices;
+        this.xy = new double[2 * maxVertices];
+        this.sigma = new double[maxVertices];
+    }
+
+    /**
+     * Feeds one fix; returns ACCEPTED or the REJECTED_* reason
+     *
+     * @param accuracyM horizontal accuracy (68% radius) as reported by the location provider
+     */
+    public int fix(long timeMs, double lat, double lng, double accuracyM) {
+        if (!(accuracyM > 0) || accuracyM > maxAccuracyM || Double.isNaN(lat) || Double.isNaN(lng)) {
+            rejectedAccuracy++;
+            return REJECTED_ACCURACY;
+        }
+        if (timeMs <= lastTimeMs) {
+            rejectedOrder++;
+            return REJECTED_ORDER;
+        }
+        double r = accuracyM * accuracyM / 2;  // Radial to per-axis variance
+        if (Double.isNaN(originLat)) {
+            originLat = lat;
+            originLng = lng;
+            originAccuracyM = accuracyM;
+            mPerDegLng = ResultMetrics.METERS_PER_DEG_LAT * Math.cos(Math.toRadians(lat));
+        }
+        double x = (lng - originLng) * mPerDegLng;
+        double y = (lat - originLat) * ResultMetrics.METERS_PER_DEG_LAT;
+
+        if (lastTimeMs == Long.MIN_VALUE) {
+            east.reset(x, r);
+            north.reset(y, r);
+        } else {
+            double dt = (timeMs - lastTimeMs) / 1000.0;
+            east.predict(dt);
+            north.predict(dt);
+            double se = east.a + r, sn = north.a + r;
+            double ye = x - east.p, yn = y - north.p;
+            if (ye * ye / se + yn * yn / sn > GATE_CHI2) {
+                if (++consecutiveJumps < RESTART_AFTER_REJECTS) {
+                    // Keep the prediction but not the time: the next fix predicts from the last good one
+                    east.undo();
+                    north.undo();
+                    rejectedJump++;
+                    return REJECTED_JUMP;
+                }
+                // The fixes agree with each other, not with the filter: it was the filter that went wrong
+                east.reset(x, r);
+                north.reset(y, r);
+                restarts++;
+            } else {
+                east.update(ye, se, r);
+                north.update(yn, sn, r);
+            }
+        }
+        consecutiveJumps = 0;
+        lastTimeMs = timeMs;
+        accepted++;
+
+        simplify(east.p, north.p, Math.sqrt((east.a + north.a) / 2));
+        return ACCEPTED;
+    }
+
+    private void simplify(double x, double y, double s) {
+        if (count == 0) {
+            keep(x, y, s);
+            return;
+        }
+        double ax = xy[2 * count - 2], ay = xy[2 * count - 1];
+        double d = Math.hypot(x - ax, y - ay);
+        double rel = hasCone && d > tolerance ? wrap(Math.atan2(y - ay, x - ax) - ref) : 0.0;
+        if (hasCone && (rel < lo || rel > hi || d < maxDist - tolerance)) {
+            // Off the sleeve or heading back: the previous point ends a straight stretch
+            keep(lastX, lastY, lastSigma);
+            hasLast = false;
+            simplify(x, y, s);
+            return;
+        }
+        if (d > tolerance) {
+            double half = Math.asin(Math.min(1.0, tolerance / d));
+            if (!hasCone) {
+                hasCone = true;
+                ref = Math.atan2(y - ay, x - ax);
+                lo = -half;
+                hi = half;
+                maxDist = d;
+            } else {
+                lo = Math.max(lo, rel - half);
+                hi = Math.min(hi, rel + half);
+                maxDist = Math.max(maxDist, d);
+            }
+        }
+        hasLast = true;
+        lastX = x;
+        lastY = y;
+        lastSigma = s;
+    }
+
+    private void keep(double x, double y, double s) {
+        if (count == maxVertices) recompact();
+        if (count > 0) keptLengthM += Math.hypot(x - xy[2 * count - 2], y - xy[2 * count - 1]);
+        xy[2 * count] = x;
+        xy[2 * count + 1] = y;
+        sigma[count] = s;
+        count++;
+        hasCone = false;
+    }
+
+    /**
+     * Doubles the tolerance and re-simplifies the kept vertices in place (first and last stay,
+     * so the open sleeve is still valid). Repeats until at least a quarter of the space is free.
+     */
+    private void recompact() {
+        while (count > maxVertices * 3 / 4) {
+            tolerance *= 2;
+            recompactions++;
+            int write = 1;
+            int anchor = 0;
+            for (int i = 1; i < count - 1; i++) {
+                // Keep i when some vertex between the anchor and i + 1 strays from the chord
+                if (maxDeviation(anchor, i + 1) > tolerance) {
+                    xy[2 * write] = xy[2 * i];
+                    xy[2 * write + 1] = xy[2 * i + 1];
+                    sigma[write] = sigma[i];
+                    anchor = i;
+                    write++;
+                }
+            }
+            xy[2 * write] = xy[2 * count - 2];
+            xy[2 * write + 1] = xy[2 * count - 1];
+            sigma[write] = sigma[count - 1];
+            count = write + 1;
+        }
+        keptLengthM = 0.0;
+        for (int i = 1; i < count; i++) keptLengthM += Math.hypot(xy[2 * i] - xy[2 * i - 2], xy[2 * i + 1] - xy[2 * i - 1]);
+    }
+
+    /**
+     * Largest distance of the original vertices strictly between from and to from the chord
+     * from–to. Reads indices at or after from, which the in-place compaction has not overwritten.
+     */
+    private double maxDeviation(int from, int to) {
+        double ax = xy[2 * from], ay = xy[2 * from + 1];
+        double dx = xy[2 * to] - ax, dy = xy[2 * to + 1] - ay;
+        double len = Math.hypot(dx, dy);
+        double max = 0.0;
+        for (int k = from + 1; k < to; k++) {
+            double px = xy[2 * k] - ax, py = xy[2 * k + 1] - ay;
+            double dev = len > 0 ? Math.abs(px * dy - py * dx) / len : Math.hypot(px, py);
+            max = Math.max(max, dev);
+        }
+        return max;
+    }
+
+    private static double wrap(double a) {
+        while (a > Math.PI) a -= 2 * Math.PI;
+        while (a <= -Math.PI) a += 2 * Math.PI;
+        return a;
+    }
+
+    /**
+     * The walked ring, closed back to the start: the current position becomes the last vertex
+     * and trailing vertices within a few tolerances of the first are dropped. Null with fewer
+     * than 3 vertices or no area. The tracker can keep going afterwards.
+     */
+    public Ring finish() {
+        int n = count;
+        double[] outXy = new double[2 * (n + 1)];
+        double[] outSigma = new double[n + 1];
+        System.arraycopy(xy, 0, outXy, 0, 2 * n);
+        System.arraycopy(sigma, 0, outSigma, 0, n);
+        if (hasLast) {
+            outXy[2 * n] = lastX;
+            outXy[2 * n + 1] = lastY;
+            outSigma[n] = lastSigma;
+            n++;
+        }
+        double close = 3 * tolerance;
+        while (n > 3 && Math.hypot(outXy[2 * n - 2] - outXy[0], outXy[2 * n - 1] - outXy[1]) <= close) n--;
+        if (n < 3 || RingMath.area(outXy, n) <= 0) return null;
+        return new Ring(java.util.Arrays.copyOf(outXy, 2 * n), java.util.Arrays.copyOf(outSigma, n),
+                originLat, originLng, originAccuracyM);
+    }
+
+    public int vertexCount() {
+        return count + (hasLast ? 1 : 0);
+    }
+
+    public double toleranceM() {
+        return tolerance;
+    }
+
+    /**
+     * Length walked so far along the simplified track, up to the filtered position
+     */
+    public double pathLengthM() {
+        if (count == 0) return 0.0;
+        return keptLengthM + Math.hypot(east.p - xy[2 * count - 2], north.p - xy[2 * count - 1]);
+    }
+
+    /**
+     * Distance from the filtered position back to the first vertex (NaN before the first fix),
+     * so the operator knows when the loop is closed
+     */
+    public double distanceToStartM() {
+        if (count == 0) return Double.NaN;
+        return Math.hypot(east.p - xy[0], north.p - xy[1]);
+    }
+
+    /**
+     * 1σ of the filtered position (NaN before the first fix)
+     */
+    public double positionSigmaM() {
+        return count == 0 ? Double.NaN : Math.sqrt((east.a + north.a) / 2);
+    }
+
+    public long acceptedCount() {
+        return accepted;
+    }
+
+    public long rejectedAccuracyCount() {
+        return rejectedAccuracy;
+    }
+
+    public long rejectedOrderCount() {
+        return rejectedOrder;
+    }
+
+    public long rejectedJumpCount() {
+        return rejectedJump;
+    }
+
+    public long restartCount() {
+        return restarts;
+    }
+
+    public long recompactionCount() {
+        return recompactions;
+    }
+
+    /**
+     * A finished walk: vertices in meters east/north of the origin (the first accepted fix)
+     */
+    public static final class Ring {
+        public final double[] xy;
+        public final double[] sigmaM;  // 1σ position error of each vertex after filtering
+        public final double originLat, originLng, originAccuracyM;
+
+        Ring(double[] xy, double[] sigmaM, double originLat, double originLng, double originAccuracyM) {
+            this.xy = xy;
+            this.sigmaM = sigmaM;
+            this.originLat = originLat;
+            this.originLng = originLng;
+            this.originAccuracyM = originAccuracyM;
+        }
+
+        public int size() {
+            return xy.length / 2;
+        }
+
+        public double area() {
+            return RingMath.area(xy, size());
+        }
+
+        public double perimeter() {
+            return RingMath.perimeter(xy, size());
+        }
+
+        public double meanSigmaM() {
+            double sum = 0.0;
+            for (double s : sigmaM) sum += s;
+            return sum / sigmaM.length;
+        }
+    }
+
+    /**
+     * Constant-velocity Kalman filter along one axis
+     */
+    private static final class Axis {
+        double p, v;
+        double a, b, c;
+        private double p0, v0, a0, b0, c0;
+
+        void reset(double z, double r) {
+            p = z;
+            v = 0.0;
+            a = r;
+            b = 0.0;
+            c = INITIAL_SPEED_SIGMA * INITIAL_SPEED_SIGMA;
+        }
+
+        void predict(double dt) {
+            p0 = p;
+            v0 = v;
+            a0 = a;
+            b0 = b;
+            c0 = c;
+            double q = ACCEL_SIGMA * ACCEL_SIGMA;
+            p += v * dt;
+            a += 2 * b * dt + c * dt * dt + q * dt * dt * dt / 3;
+            b += c * dt + q * dt * dt / 2;
+            c += q * dt;
+        }
+
+        void undo() {
+            p = p0;
+            v = v0;
+            a = a0;
+            b = b0;
+            c = c0;
+        }
+
+        /**
+         * @param y innovation (fix minus predicted position), s its variance (a + r)
+         */
+        void update(double y, double s, double r) {
+            double k0 = a / s, k1 = b / s;
+            p += k0 * y;
+            v += k1 * y;
+            double na = a * r / s;  // (1 - k0) a
+            double nb = b * r / s;  // (1 - k0) b
+            c -= k1 * b;
+            a = na;
+            b = nb;
+        }
+    }
+}
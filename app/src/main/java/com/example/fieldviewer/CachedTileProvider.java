@@ -0,0 +1,51 @@
+package com.example.fieldviewer;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.google.android.gms.maps.model.Tile;
+import com.google.android.gms.maps.model.TileProvider;
+
+/**
+ * Google Maps TileProvider backed by OfflineTiles. Maps calls getTile on its own worker
+ * threads, so the disk/network work here never blocks the UI.
+ */
+public class CachedTileProvider implements TileProvider {
+
+    private static final String TAG = "CachedTileProvider";
+    private static final int TILE_SIZE_PX = 256;
+
+    private final OfflineTiles tiles;
+
+    public CachedTileProvider(OfflineTiles tiles) {
+        this.tiles = tiles;
+    }
+
+    /**
+     * The app's tile cache for the configured imagery source (R.string.satellite_tile_url),
+     * or null when no source is configured
+     */
+    public static OfflineTiles offlineTiles(Context context) {
+        String template = context.getString(R.string.satellite_tile_url);
+        if (template == null || template.trim().isEmpty()) return null;
+        try {
+            return OfflineTiles.forDirectory(new java.io.File(context.getExternalFilesDir(null), "tiles"), template.trim());
+        } catch (Exception e) {
+            Log.e(TAG, "Tile cache unavailable", e);
+            return null;
+        }
+    }
+
+    @Override
+    public Tile getTile(int x, int y, int zoom) {
+        long t0 = PerfTelemetry.begin(PerfTelemetry.TILE);
+        try {
+            byte[] data = tiles.tile(zoom, x, y);
+            return data != null ? new Tile(TILE_SIZE_PX, TILE_SIZE_PX, data) : NO_TILE;
+        } catch (java.io.IOException e) {
+            return null;  // Not cached and offline; Maps asks again later
+        } finally {
+            PerfTelemetry.end(PerfTelemetry.TILE, t0);
+        }
+    }
+}
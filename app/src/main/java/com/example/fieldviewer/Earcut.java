@@ -0,0 +1,524 @@
+package com.example.fieldviewer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Polygon triangulation by ear clipping with z-order hashing (after Mapbox earcut).
+ * Vertices live in a circular linked list; for larger polygons every vertex also gets a
+ * Morton (z-order) code and the "is anything inside this ear?" test only walks the z-ordered
+ * neighbourhood of the ear's bounding box, which keeps typical rings close to O(n log n).
+ * Holes are bridged into the outer ring first. Input is a flat (x, y) array; holeIndices
+ * lists the first vertex of every hole. Output is vertex indices, three per triangle.
+ */
+public final class Earcut {
+
+    private Earcut() {}
+
+    private static final class Node {
+        final int i;        // Vertex index in the input
+        final double x, y;
+        Node prev, next;
+        int z;              // Z-order code
+        Node prevZ, nextZ;  // Neighbours in z-order
+        boolean steiner;
+
+        Node(int i, double x, double y) {
+            this.i = i;
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+    /**
+     * Growable int list for the output
+     */
+    private static final class IntList {
+        int[] a = new int[48];
+        int n = 0;
+
+        void add(int v) {
+            if (n == a.length) a = Arrays.copyOf(a, n * 2);
+            a[n++] = v;
+        }
+    }
+
+    public static int[] triangulate(double[] data, int[] holeIndices) {
+        boolean hasHoles = holeIndices != null && holeIndices.length > 0;
+        int outerLen = hasHoles ? holeIndices[0] * 2 : data.length;
+        Node outerNode = linkedList(data, 0, outerLen, true);
+        IntList triangles = new IntList();
+        if (outerNode == null || outerNode.next == outerNode.prev) return new int[0];
+
+        double minX = 0, minY = 0, invSize = 0;
+        if (hasHoles) outerNode = eliminateHoles(data, holeIndices, outerNode);
+
+        // Only hash larger polygons; for small ones the plain scan is faster
+        if (data.length > 80 * 2) {
+            minX = Double.POSITIVE_INFINITY;
+            minY = Double.POSITIVE_INFINITY;
+            double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < outerLen; i += 2) {
+                double x = data[i], y = data[i + 1];
+                if (x < minX) minX = x;
+                if (y < minY) minY = y;
+                if (x > maxX) maxX = x;
+                if (y > maxY) maxY = y;
+            }
+            invSize = Math.max(maxX - minX, maxY - minY);
+            invSize = invSize != 0 ? 32767 / invSize : 0;
+        }
+
+        earcutLinked(outerNode, triangles, minX, minY, invSize, 0);
+        return Arrays.copyOf(triangles.a, triangles.n);
+    }
+
+    /**
+     * Circular list from a ring, in the requested winding
+     */
+    private static Node linkedList(double[] data, int start, int end, boolean clockwise) {
+        Node last = null;
+        if (clockwise == (signedArea(data, start, end) > 0)) {
+            for (int i = start; i < end; i += 2) last = insertNode(i / 2, data[i], data[i + 1], last);
+        } else {
+            for (int i = end - 2; i >= start; i -= 2) last = insertNode(i / 2, data[i], data[i + 1], last);
+        }
+        if (last != null && equals(last, last.next)) {
+            removeNode(last);
+            last = last.next;
+        }
+        return last;
+    }
+
+    /**
+     * Removes duplicate and collinear points
+     */
+    private static Node filterPoints(Node start, Node end) {
+        if (start == null) return null;
+        if (end == null) end = start;
+        Node p = start;
+        boolean again;
+        do {
+            again = false;
+            if (!p.steiner && (equals(p, p.next) || area(p.prev, p, p.next) == 0)) {
+                removeNode(p);
+                p = end = p.prev;
+                if (p == p.next) break;
+                again = true;
+            } else {
+                p = p.next;
+            }
+        } while (again || p != end);
+        return end;
+    }
+
+    private static void earcutLinked(Node ear, IntList triangles, double minX, double minY, double invSize, int pass) {
+        if (ear == null) return;
+        if (pass == 0 && invSize != 0) indexCurve(ear, minX, minY, invSize);
+
+        Node stop = ear;
+        while (ear.prev != ear.next) {
+            Node prev = ear.prev;
+            Node next = ear.next;
+            if (invSize != 0 ? isEarHashed(ear, minX, minY, invSize) : isEar(ear)) {
+                triangles.add(prev.i);
+                triangles.add(ear.i);
+                triangles.add(next.i);
+                removeNode(ear);
+                // Skipping the next vertex leads to fewer sliver triangles
+                ear = next.next;
+                stop = next.next;
+                continue;
+            }
+            ear = next;
+            if (ear == stop) {
+                // No ears found: clean up, then cure local self-intersections, then split
+                if (pass == 0) {
+                    earcutLinked(filterPoints(ear, null), triangles, minX, minY, invSize, 1);
+                } else if (pass == 1) {
+                    ear = cureLocalIntersections(filterPoints(ear, null), triangles);
+                    earcutLinked(ear, triangles, minX, minY, invSize, 2);
+                } else if (pass == 2) {
+                    splitEarcut(ear, triangles, minX, minY, invSize);
+                }
+                break;
+            }
+        }
+    }
+
+    private static boolean isEar(Node ear) {
+        Node a = ear.prev, b = ear, c = ear.next;
+        if (area(a, b, c) >= 0) return false;  // Reflex
+        double x0 = Math.min(a.x, Math.min(b.x, c.x)), y0 = Math.min(a.y, Math.min(b.y, c.y));
+        double x1 = Math.max(a.x, Math.max(b.x, c.x)), y1 = Math.max(a.y, Math.max(b.y, c.y));
+        Node p = c.next;
+        while (p != a) {
+            if (p.x >= x0 && p.x <= x1 && p.y >= y0 && p.y <= y1
+                    && pointInTriangle(a.x, a.y, b.x, b.y, c.x, c.y, p.x, p.y)
+                    && area(p.prev, p, p.next) >= 0) return false;
+            p = p.next;
+        }
+        return true;
+    }
+
+    private static boolean isEarHashed(Node ear, double minX, double minY, double invSize) {
+        Node a = ear.prev, b = ear, c = ear.next;
+        if (area(a, b, c) >= 0) return false;
+        double x0 = Math.min(a.x, Math.min(b.x, c.x)), y0 = Math.min(a.y, Math.min(b.y, c.y));
+        double x1 = Math.max(a.x, Math.max(b.x, c.x)), y1 = Math.max(a.y, Math.max(b.y, c.y));
+        int minZ = zOrder(x0, y0, minX, minY, invSize);
+        int maxZ = zOrder(x1, y1, minX, minY, invSize);
+
+        // Walk both directions of the z-ordered list at once
+        Node p = ear.prevZ, n = ear.nextZ;
+        while (p != null && p.z >= minZ && n != null && n.z <= maxZ) {
+            if (blocks(p, a, b, c, x0, y0, x1, y1)) return false;
+            p = p.prevZ;
+            if (blocks(n, a, b, c, x0, y0, x1, y1)) return false;
+            n = n.nextZ;
+        }
+        while (p != null && p.z >= minZ) {
+            if (blocks(p, a, b, c, x0, y0, x1, y1)) return false;
+            p = p.prevZ;
+        }
+        while (n != null && n.z <= maxZ) {
+            if (blocks(n, a, b, c, x0, y0, x1, y1)) return false;
+            n = n.nextZ;
+        }
+        return true;
+    }
+
+    private static boolean blocks(Node p, Node a, Node b, Node c, double x0, double y0, double x1, double y1) {
+        return p.x >= x0 && p.x <= x1 && p.y >= y0 && p.y <= y1 && p != a && p != c
+                && pointInTriangle(a.x, a.y, b.x, b.y, c.x, c.y, p.x, p.y)
+                && area(p.prev, p, p.next) >= 0;
+    }
+
+    /**
+     * Clips "bow-tie" corners where two adjacent edges cross
+     */
+    private static Node cureLocalIntersections(Node start, IntList triangles) {
+        Node p = start;
+        do {
+            Node a = p.prev, b = p.next.next;
+            if (!equals(a, b) && intersects(a, p, p.next, b) && locallyInside(a, b) && locallyInside(b, a)) {
+                triangles.add(a.i);
+                triangles.add(p.i);
+                triangles.add(b.i);
+                removeNode(p);
+                removeNode(p.next);
+                p = start = b;
+            }
+            p = p.next;
+        } while (p != start);
+        return filterPoints(p, null);
+    }
+
+    /**
+     * Last resort: split along a valid diagonal and triangulate both halves
+     */
+    private static void splitEarcut(Node start, IntList triangles, double minX, double minY, double invSize) {
+        Node a = start;
+        do {
+            Node b = a.next.next;
+            while (b != a.prev) {
+                if (a.i != b.i && isValidDiagonal(a, b)) {
+                    Node c = splitPolygon(a, b);
+                    a = filterPoints(a, a.next);
+                    c = filterPoints(c, c.next);
+                    earcutLinked(a, triangles, minX, minY, invSize, 0);
+                    earcutLinked(c, triangles, minX, minY, invSize, 0);
+                    return;
+                }
+                b = b.next;
+            }
+            a = a.next;
+        } while (a != start);
+    }
+
+    /**
+     * Links every hole into the outer ring through a bridge edge, leftmost holes first
+     */
+    private static Node eliminateHoles(double[] data, int[] holeIndices, Node outerNode) {
+        List<Node> queue = new ArrayList<>();
+        for (int i = 0; i < holeIndices.length; i++) {
+            int start = holeIndices[i] * 2;
+            int end = i < holeIndices.length - 1 ? holeIndices[i + 1] * 2 : data.length;
+            Node list = linkedList(data, start, end, false);
+            if (list == null) continue;
+            if (list == list.next) list.steiner = true;
+            queue.add(getLeftmost(list));
+        }
+        queue.sort((a, b) -> a.x != b.x ? Double.compare(a.x, b.x) : Double.compare(a.y, b.y));
+        for (Node hole : queue) outerNode = eliminateHole(hole, outerNode);
+        return outerNode;
+    }
+
+    private static Node eliminateHole(Node hole, Node outerNode) {
+        Node bridge = findHoleBridge(hole, outerNode);
+        if (bridge == null) return outerNode;
+        Node bridgeReverse = splitPolygon(bridge, hole);
+        filterPoints(bridgeReverse, bridgeReverse.next);
+        return filterPoints(bridge, bridge.next);
+    }
+
+    /**
+     * David Eberly's algorithm for a vertex of the outer ring visible from the hole's leftmost point
+     */
+    private static Node findHoleBridge(Node hole, Node outerNode) {
+        Node p = outerNode;
+        double hx = hole.x, hy = hole.y;
+        double qx = Double.NEGATIVE_INFINITY;
+        Node m = null;
+
+        // Ray to the left from the hole point: nearest outer edge it hits
+        do {
+            if (hy <= p.y && hy >= p.next.y && p.next.y != p.y) {
+                double x = p.x + (hy - p.y) * (p.next.x - p.x) / (p.next.y - p.y);
+                if (x <= hx && x > qx) {
+                    qx = x;
+                    m = p.x < p.next.x ? p : p.next;
+                    if (x == hx) return m;  // Hole touches the outer segment
+                }
+            }
+            p = p.next;
+        } while (p != outerNode);
+        if (m == null) return null;
+
+        // Reflex vertices inside the (hole point, hit point, m) triangle may block the view;
+        // take the one with the smallest angle to the ray
+        Node stop = m;
+        double mx = m.x, my = m.y;
+        double tanMin = Double.POSITIVE_INFINITY;
+        p = m;
+        do {
+            if (hx >= p.x && p.x >= mx && hx != p.x
+                    && pointInTriangle(hy < my ? hx : qx, hy, mx, my, hy < my ? qx : hx, hy, p.x, p.y)) {
+                double tan = Math.abs(hy - p.y) / (hx - p.x);
+                if (locallyInside(p, hole)
+                        && (tan < tanMin || (tan == tanMin && (p.x > m.x || (p.x == m.x && sectorContainsSector(m, p)))))) {
+                    m = p;
+                    tanMin = tan;
+                }
+            }
+            p = p.next;
+        } while (p != stop);
+        return m;
+    }
+
+    private static boolean sectorContainsSector(Node m, Node p) {
+        return area(m.prev, m, p.prev) < 0 && area(p.next, m, m.next) < 0;
+    }
+
+    private static void indexCurve(Node start, double minX, double minY, double invSize) {
+        Node p = start;
+        do {
+            p.z = zOrder(p.x, p.y, minX, minY, invSize);
+            p.prevZ = p.prev;
+            p.nextZ = p.next;
+            p = p.next;
+        } while (p != start);
+        p.prevZ.nextZ = null;
+        p.prevZ = null;
+        sortLinked(p);
+    }
+
+    /**
+     * Bottom-up merge sort of the z-order list
+     */
+    private static Node sortLinked(Node list) {
+        int inSize = 1;
+        int numMerges;
+        do {
+            Node p = list;
+            list = null;
+            Node tail = null;
+            numMerges = 0;
+            while (p != null) {
+                numMerges++;
+                Node q = p;
+                int pSize = 0;
+                for (int i = 0; i < inSize; i++) {
+                    pSize++;
+                    q = q.nextZ;
+                    if (q == null) break;
+                }
+                int qSize = inSize;
+                while (pSize > 0 || (qSize > 0 && q != null)) {
+                    Node e;
+                    if (pSize != 0 && (qSize == 0 || q == null || p.z <= q.z)) {
+                        e = p;
+                        p = p.nextZ;
+                        pSize--;
+                    } else {
+                        e = q;
+                        q = q.nextZ;
+                        qSize--;
+                    }
+                    if (tail != null) tail.nextZ = e; else list = e;
+                    e.prevZ = tail;
+                    tail = e;
+                }
+                p = q;
+            }
+            tail.nextZ = null;
+            inSize *= 2;
+        } while (numMerges > 1);
+        return list;
+    }
+
+    /**
+     * Morton code of a point scaled into 15-bit integer coordinates
+     */
+    private static int zOrder(double px, double py, double minX, double minY, double invSize) {
+        int x = (int) ((px - minX) * invSize);
+        int y = (int) ((py - minY) * invSize);
+        x = (x | (x << 8)) & 0x00FF00FF;
+        x = (x | (x << 4)) & 0x0F0F0F0F;
+        x = (x | (x << 2)) & 0x33333333;
+        x = (x | (x << 1)) & 0x55555555;
+        y = (y | (y << 8)) & 0x00FF00FF;
+        y = (y | (y << 4)) & 0x0F0F0F0F;
+        y = (y | (y << 2)) & 0x33333333;
+        y = (y | (y << 1)) & 0x55555555;
+        return x | (y << 1);
+    }
+
+    private static Node getLeftmost(Node start) {
+        Node p = start, leftmost = start;
+        do {
+            if (p.x < leftmost.x || (p.x == leftmost.x && p.y < leftmost.y)) leftmost = p;
+            p = p.next;
+        } while (p != start);
+        return leftmost;
+    }
+
+    private static boolean pointInTriangle(double ax, double ay, double bx, double by, double cx, double cy, double px, double py) {
+        return (cx - px) * (ay - py) >= (ax - px) * (cy - py)
+                && (ax - px) * (by - py) >= (bx - px) * (ay - py)
+                && (bx - px) * (cy - py) >= (cx - px) * (by - py);
+    }
+
+    /**
+     * Whether a diagonal a-b lies inside the polygon and crosses no edge
+     */
+    private static boolean isValidDiagonal(Node a, Node b) {
+        return a.next.i != b.i && a.prev.i != b.i && !intersectsPolygon(a, b)
+                && (locallyInside(a, b) && locallyInside(b, a) && middleInside(a, b)
+                        && (area(a.prev, a, b.prev) != 0 || area(a, b.prev, b) != 0)
+                    || equals(a, b) && area(a.prev, a, a.next) > 0 && area(b.prev, b, b.next) > 0);
+    }
+
+    private static double area(Node p, Node q, Node r) {
+        return (q.y - p.y) * (r.x - q.x) - (q.x - p.x) * (r.y - q.y);
+    }
+
+    private static boolean equals(Node p1, Node p2) {
+        return p1.x == p2.x && p1.y == p2.y;
+    }
+
+    private static boolean intersects(Node p1, Node q1, Node p2, Node q2) {
+        int o1 = sign(area(p1, q1, p2));
+        int o2 = sign(area(p1, q1, q2));
+        int o3 = sign(area(p2, q2, p1));
+        int o4 = sign(area(p2, q2, q1));
+        if (o1 != o2 && o3 != o4) return true;
+        if (o1 == 0 && onSegment(p1, p2, q1)) return true;
+        if (o2 == 0 && onSegment(p1, q2, q1)) return true;
+        if (o3 == 0 && onSegment(p2, p1, q2)) return true;
+        return o4 == 0 && onSegment(p2, q1, q2);
+    }
+
+    /**
+     * For collinear p, q, r: whether q lies on segment p-r
+     */
+    private static boolean onSegment(Node p, Node q, Node r) {
+        return q.x <= Math.max(p.x, r.x) && q.x >= Math.min(p.x, r.x)
+                && q.y <= Math.max(p.y, r.y) && q.y >= Math.min(p.y, r.y);
+    }
+
+    private static int sign(double v) {
+        return v > 0 ? 1 : v < 0 ? -1 : 0;
+    }
+
+    private static boolean intersectsPolygon(Node a, Node b) {
+        Node p = a;
+        do {
+            if (p.i != a.i && p.next.i != a.i && p.i != b.i && p.next.i != b.i && intersects(p, p.next, a, b)) return true;
+            p = p.next;
+        } while (p != a);
+        return false;
+    }
+
+    private static boolean locallyInside(Node a, Node b) {
+        return area(a.prev, a, a.next) < 0
+                ? area(a, b, a.next) >= 0 && area(a, a.prev, b) >= 0
+                : area(a, b, a.prev) < 0 || area(a, a.next, b) < 0;
+    }
+
+    /**
+     * Whether the midpoint of a diagonal lies inside the polygon (even-odd)
+     */
+    private static boolean middleInside(Node a, Node b) {
+        Node p = a;
+        boolean inside = false;
+        double px = (a.x + b.x) / 2, py = (a.y + b.y) / 2;
+        do {
+            if (((p.y > py) != (p.next.y > py)) && p.next.y != p.y
+                    && (px < (p.next.x - p.x) * (py - p.y) / (p.next.y - p.y) + p.x)) inside = !inside;
+            p = p.next;
+        } while (p != a);
+        return inside;
+    }
+
+    /**
+     * Splits the list along diagonal a-b into two; returns the new node on b's side
+     */
+    private static Node splitPolygon(Node a, Node b) {
+        Node a2 = new Node(a.i, a.x, a.y), b2 = new Node(b.i, b.x, b.y);
+        Node an = a.next, bp = b.prev;
+        a.next = b;
+        b.prev = a;
+        a2.next = an;
+        an.prev = a2;
+        b2.next = a2;
+        a2.prev = b2;
+        bp.next = b2;
+        b2.prev = bp;
+        return b2;
+    }
+
+    private static Node insertNode(int i, double x, double y, Node last) {
+        Node p = new Node(i, x, y);
+        if (last == null) {
+            p.prev = p;
+            p.next = p;
+        } else {
+            p.next = last.next;
+            p.prev = last;
+            last.next.prev = p;
+            last.next = p;
+        }
+        return p;
+    }
+
+    private static void removeNode(Node p) {
+        p.next.prev = p.prev;
+        p.prev.next = p.next;
+        if (p.prevZ != null) p.prevZ.nextZ = p.nextZ;
+        if (p.nextZ != null) p.nextZ.prevZ = p.prevZ;
+    }
+
+    /**
+     * Signed area term in earcut's convention (positive = clockwise in y-up coordinates)
+     */
+    private static double signedArea(double[] data, int start, int end) {
+        double sum = 0;
+        for (int i = start, j = end - 2; i < end; i += 2) {
+            sum += (data[j] - data[i]) * (data[i + 1] + data[j + 1]);
+            j = i;
+        }
+        return sum;
+    }
+}
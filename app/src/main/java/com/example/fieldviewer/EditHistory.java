@@ -0,0 +1,103 @@
+package com.example.fieldviewer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Linear undo/redo history of immutable states.
+ * States are expected to be persistent values (e.g. PersistentVertexList) so keeping
+ * every revision only costs what each edit actually changed. History is unlimited;
+ * committing after an undo drops the redo branch, like a text editor.
+ */
+public class EditHistory<T> {
+
+    private final List<T> states = new ArrayList<>();
+    private final List<String> labels = new ArrayList<>();
+    private int cursor = -1;  // Index of the current revision
+
+    /**
+     * Starts a fresh history whose only revision is initial
+     */
+    public void reset(T initial, String label) {
+        states.clear();
+        labels.clear();
+        states.add(initial);
+        labels.add(label);
+        cursor = 0;
+    }
+
+    /**
+     * Records a new revision after the current one and makes it current
+     */
+    public void commit(T state, String label) {
+        if (cursor < 0) {
+            reset(state, label);
+            return;
+        }
+        // Drop any redo branch
+        while (states.size() > cursor + 1) {
+            states.remove(states.size() - 1);
+            labels.remove(labels.size() - 1);
+        }
+        states.add(state);
+        labels.add(label);
+        cursor++;
+    }
+
+    /**
+     * Replaces the current revision in place (e.g. to fold a continuous drag into one step)
+     */
+    public void amend(T state) {
+        if (cursor < 0) throw new IllegalStateException("empty history");
+        states.set(cursor, state);
+    }
+
+    public boolean canUndo() {
+        return cursor > 0;
+    }
+
+    public boolean canRedo() {
+        return cursor >= 0 && cursor < states.size() - 1;
+    }
+
+    /**
+     * Steps back one revision and returns it, or null if there is nothing to undo
+     */
+    public T undo() {
+        if (!canUndo()) return null;
+        return states.get(--cursor);
+    }
+
+    /**
+     * Steps forward one revision and returns it, or null if there is nothing to redo
+     */
+    public T redo() {
+        if (!canRedo()) return null;
+        return states.get(++cursor);
+    }
+
+    /**
+     * Makes revision index current without discarding anything, and returns it
+     */
+    public T jumpTo(int revision) {
+        if (revision < 0 || revision >= states.size()) throw new IndexOutOfBoundsException("revision " + revision);
+        cursor = revision;
+        return states.get(cursor);
+    }
+
+    public T current() {
+        return cursor >= 0 ? states.get(cursor) : null;
+    }
+
+    public int currentRevision() {
+        return cursor;
+    }
+
+    public int revisionCount() {
+        return states.size();
+    }
+
+    public String label(int revision) {
+        return labels.get(revision);
+    }
+}
@@ -0,0 +1,462 @@
+package com.example.fieldviewer;
+
+import android.opengl.GLES11Ext;
+import android.opengl.GLES20;
+import android.opengl.GLSurfaceView;
+import android.opengl.Matrix;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+
+import androidx.appcompat.app.AppCompatActivity;
+
+import com.google.ar.core.Anchor;
+import com.google.ar.core.Camera;
+import com.google.ar.core.Config;
+import com.google.ar.core.Coordinates2d;
+import com.google.ar.core.Frame;
+import com.google.ar.core.Pose;
+import com.google.ar.core.Session;
+import com.google.ar.core.TrackingState;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.microedition.khronos.egl.EGLConfig;
+import javax.microedition.khronos.opengles.GL10;
+
+/**
+ * Lightweight renderer without Sceneform: a GLSurfaceView that owns the ARCore session, draws
+ * the camera image as a full-screen quad and the OutlineMesh with one flat-color shader (three
+ * draw calls). No scene graph, model loading or plane visualization, so it starts faster and
+ * does less work per frame.
+ *
+ * session.update() and drawing run on the GL thread. The main thread never touches a Frame: it
+ * gets a snapshot taken right after the update (camera pose and crosshair hits, see
+ * ArCoreBridge.snapshot), dropped if the previous one was not consumed yet. Anchors ARCore
+ * updated are collected on the GL thread until the next delivery, so skipped frames lose none.
+ * Outline updates are copied under a lock and uploaded by the GL thread on its next frame.
+ *
+ * The session is closed in destroy(), also when the screen is only recreated: the measurement
+ * rebuilds its anchors in the next session (MeasurementSession.bind).
+ */
+final class GlBackend implements ArRenderBackend, GLSurfaceView.Renderer {
+
+    private static final String TAG = "GlBackend";
+
+    private static final String CAMERA_VERTEX =
+            "attribute vec4 a_Position;\n"
+                    + "attribute vec2 a_TexCoord;\n"
+                    + "varying vec2 v_TexCoord;\n"
+                    + "void main() {\n"
+                    + "  gl_Position = a_Position;\n"
+                    + "  v_TexCoord = a_TexCoord;\n"
+                    + "}\n";
+    private static final String CAMERA_FRAGMENT =
+            "#extension GL_OES_EGL_image_external : require\n"
+                    + "precision mediump float;\n"
+                    + "varying vec2 v_TexCoord;\n"
+                    + "uniform samplerExternalOES u_Texture;\n"
+                    + "void main() {\n"
+                    + "  gl_FragColor = texture2D(u_Texture, v_TexCoord);\n"
+                    + "}\n";
+    private static final String OUTLINE_VERTEX =
+            "uniform mat4 u_Mvp;\n"
+                    + "attribute vec3 a_Position;\n"
+                    + "void main() {\n"
+                    + "  gl_Position = u_Mvp * vec4(a_Position, 1.0);\n"
+                    + "}\n";
+    private static final String OUTLINE_FRAGMENT =
+            "precision mediump float;\n"
+                    + "uniform vec4 u_Color;\n"
+                    + "void main() {\n"
+                    + "  gl_FragColor = u_Color;\n"
+                    + "}\n";
+
+    // Same colors as the Sceneform outline materials (FILL, EDGE, HOLE_EDGE)
+    private static final float[][] PART_COLORS = {
+            {0f, 0.74f, 0.83f, 0.3f},
+            {0f, 1f, 1f, 1f},
+            {0.957f, 0.263f, 0.212f, 1f}
+    };
+
+    private static final float[] QUAD_NDC = {-1f, -1f, 1f, -1f, -1f, 1f, 1f, 1f};
+
+    private AppCompatActivity activity;
+    private GLSurfaceView view;
+    private FrameListener listener;
+    private final Handler main = new Handler(Looper.getMainLooper());
+    private boolean started = false;
+    private boolean resumed = false;
+    private long attachNanos;
+
+    private volatile Session session;
+    private volatile ArFrame latest;
+    // Anchors ARCore updated since the last delivered frame; guarded by itself
+    private final Set<Anchor> updatedAnchors = new LinkedHashSet<>();
+    private final AtomicBoolean framePosted = new AtomicBoolean(false);
+    private final Runnable deliverFrame = () -> {
+        framePosted.set(false);
+        ArFrame f = latest;
+        if (f == null || !resumed) return;
+        List<Anchor> updated;
+        synchronized (updatedAnchors) {
+            updated = new ArrayList<>(updatedAnchors);
+            updatedAnchors.clear();
+        }
+        listener.onFrame(f, updated);
+    };
+
+    // Outline handed over from the main thread; guarded by outlineLock
+    private final Object outlineLock = new Object();
+    private float[] outlinePositions = new float[3 * 64];
+    private int outlineVertexCount = 0;
+    private int[] outlineIndices = new int[3 * 64];
+    private final int[] partCounts = new int[OutlineMesh.PART_COUNT];
+    private final float[] outlineOrigin = new float[3];
+    private boolean outlineDirty = false;
+
+    // GL thread only
+    private int cameraTexture = -1;
+    private Session textureBoundTo;
+    private int cameraProgram, cameraPosition, cameraTexCoord, cameraSampler;
+    private int outlineProgram, outlinePosition, outlineMvp, outlineColor;
+    private final FloatBuffer quad = floatBuffer(8);
+    private final FloatBuffer quadTexCoords = floatBuffer(8);
+    private FloatBuffer glPositions = floatBuffer(3 * 64);
+    private IntBuffer glIndices = intBuffer(3 * 64);
+    private final int[] glPartOffsets = new int[OutlineMesh.PART_COUNT];
+    private final int[] glPartCounts = new int[OutlineMesh.PART_COUNT];
+    private boolean glOutlineVisible = false;
+    private final float[] projection = new float[16];
+    private final float[] viewMatrix = new float[16];
+    private final float[] model = new float[16];
+    private final float[] viewModel = new float[16];
+    private final float[] mvp = new float[16];
+    private int surfaceWidth, surfaceHeight;
+    private boolean geometryChanged = false;
+    private long lastFrameNanos = 0L;
+    private boolean firstTrackedSeen = false;
+
+    @Override
+    public String id() {
+        return GL;
+    }
+
+    @Override
+    public void attach(AppCompatActivity activity, int containerId, FrameListener listener) {
+        this.activity = activity;
+        this.listener = listener;
+        attachNanos = System.nanoTime();
+        // A Sceneform fragment restored from before a backend switch would keep its own session
+        androidx.fragment.app.FragmentManager fm = activity.getSupportFragmentManager();
+        androidx.fragment.app.Fragment stale = fm.findFragmentById(containerId);
+        if (stale != null) fm.beginTransaction().remove(stale).commitNow();
+        view = new GLSurfaceView(activity);
+        view.setPreserveEGLContextOnPause(true);
+        view.setEGLContextClientVersion(3);  // ARCore devices all support ES 3.0 (32-bit indices)
+        view.setEGLConfigChooser(8, 8, 8, 8, 16, 0);
+        view.setRenderer(this);
+        view.setRenderMode(GLSurfaceView.RENDERMODE_CONTINUOUSLY);
+        ViewGroup container = activity.findViewById(containerId);
+        container.addView(view, new FrameLayout.LayoutParams(
+                ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+    }
+
+    @Override
+    public void start() {
+        started = true;
+        if (resumed) resumeSession();
+    }
+
+    @Override
+    public void onResume() {
+        resumed = true;
+        if (started) resumeSession();
+        view.onResume();
+    }
+
+    private void resumeSession() {
+        try {
+            if (session == null) {
+                Session s = new Session(activity);
+                Config config = new Config(s);
+                config.setUpdateMode(Config.UpdateMode.LATEST_CAMERA_IMAGE);
+                config.setPlaneFindingMode(Config.PlaneFindingMode.HORIZONTAL);
+                config.setFocusMode(Config.FocusMode.AUTO);
+                s.configure(config);
+                session = s;
+            }
+            session.resume();
+        } catch (Exception e) {
+            Log.e(TAG, "Unable to start the AR session", e);
+            android.widget.Toast.makeText(activity, "Camera unavailable", android.widget.Toast.LENGTH_LONG).show();
+        }
+    }
+
+    @Override
+    public void onPause() {
+        resumed = false;
+        view.onPause();  // Returns once the GL thread stopped drawing
+        if (session != null) session.pause();
+        lastFrameNanos = 0L;
+    }
+
+    @Override
+    public void destroy() {
+        main.removeCallbacks(deliverFrame);
+        // onPause() stopped the GL thread, so nothing uses the session any more
+        latest = null;
+        synchronized (updatedAnchors) {
+            updatedAnchors.clear();
+        }
+        if (session != null) {
+            session.close();
+            session = null;
+        }
+    }
+
+    @Override
+    public Session session() {
+        return session;
+    }
+
+    @Override
+    public ArFrame frame() {
+        return latest;
+    }
+
+    @Override
+    public int viewWidth() {
+        return view.getWidth();
+    }
+
+    @Override
+    public int viewHeight() {
+        return view.getHeight();
+    }
+
+    @Override
+    public void updateOutline(OutlineMesh mesh, Pose origin) {
+        synchronized (outlineLock) {
+            int n = origin != null ? mesh.vertexCount() : 0;
+            if (outlinePositions.length < 3 * n) outlinePositions = new float[Math.max(3 * n, 2 * outlinePositions.length)];
+            System.arraycopy(mesh.positions(), 0, outlinePositions, 0, 3 * n);
+            outlineVertexCount = n;
+            int total = 0;
+            for (int part = 0; part < OutlineMesh.PART_COUNT; part++) total += n > 0 ? mesh.indexCount(part) : 0;
+            if (outlineIndices.length < total) outlineIndices = Arrays.copyOf(outlineIndices, Math.max(total, 2 * outlineIndices.length));
+            int at = 0;
+            for (int part = 0; part < OutlineMesh.PART_COUNT; part++) {
+                int count = n > 0 ? mesh.indexCount(part) : 0;
+                System.arraycopy(mesh.indices(part), 0, outlineIndices, at, count);
+                partCounts[part] = count;
+                at += count;
+            }
+            if (origin != null) {
+                outlineOrigin[0] = origin.tx();
+                outlineOrigin[1] = origin.ty();
+                outlineOrigin[2] = origin.tz();
+            }
+            outlineDirty = true;
+        }
+    }
+
+    @Override
+    public void onSurfaceCreated(GL10 gl, EGLConfig config) {
+        GLES20.glClearColor(0f, 0f, 0f, 1f);
+        int[] tex = new int[1];
+        GLES20.glGenTextures(1, tex, 0);
+        cameraTexture = tex[0];
+        GLES20.glBindTexture(GLES11Ext.GL_TEXTURE_EXTERNAL_OES, cameraTexture);
+        GLES20.glTexParameteri(GLES11Ext.GL_TEXTURE_EXTERNAL_OES, GLES20.GL_TEXTURE_WRAP_S, GLES20.GL_CLAMP_TO_EDGE);
+        GLES20.glTexParameteri(GLES11Ext.GL_TEXTURE_EXTERNAL_OES, GLES20.GL_TEXTURE_WRAP_T, GLES20.GL_CLAMP_TO_EDGE);
+        GLES20.glTexParameteri(GLES11Ext.GL_TEXTURE_EXTERNAL_OES, GLES20.GL_TEXTURE_MIN_FILTER, GLES20.GL_LINEAR);
+        GLES20.glTexParameteri(GLES11Ext.GL_TEXTURE_EXTERNAL_OES, GLES20.GL_TEXTURE_MAG_FILTER, GLES20.GL_LINEAR);
+        textureBoundTo = null;
+
+        cameraProgram = program(CAMERA_VERTEX, CAMERA_FRAGMENT);
+        cameraPosition = GLES20.glGetAttribLocation(cameraProgram, "a_Position");
+        cameraTexCoord = GLES20.glGetAttribLocation(cameraProgram, "a_TexCoord");
+        cameraSampler = GLES20.glGetUniformLocation(cameraProgram, "u_Texture");
+        outlineProgram = program(OUTLINE_VERTEX, OUTLINE_FRAGMENT);
+        outlinePosition = GLES20.glGetAttribLocation(outlineProgram, "a_Position");
+        outlineMvp = GLES20.glGetUniformLocation(outlineProgram, "u_Mvp");
+        outlineColor = GLES20.glGetUniformLocation(outlineProgram, "u_Color");
+        quad.put(QUAD_NDC).position(0);
+        synchronized (outlineLock) {
+            outlineDirty = true;  // Re-upload into the new context
+        }
+    }
+
+    @Override
+    public void onSurfaceChanged(GL10 gl, int width, int height) {
+        GLES20.glViewport(0, 0, width, height);
+        surfaceWidth = width;
+        surfaceHeight = height;
+        geometryChanged = true;
+    }
+
+    @Override
+    public void onDrawFrame(GL10 gl) {
+        GLES20.glClear(GLES20.GL_COLOR_BUFFER_BIT | GLES20.GL_DEPTH_BUFFER_BIT);
+        Session s = session;
+        if (s == null) return;
+        long now = System.nanoTime();
+        if (lastFrameNanos != 0L) PerfTelemetry.record(PerfTelemetry.GL_FRAME, now - lastFrameNanos);
+        lastFrameNanos = now;
+        long t0 = PerfTelemetry.begin(PerfTelemetry.GL_DRAW);
+        try {
+            if (textureBoundTo != s) {
+                s.setCameraTextureName(cameraTexture);
+                textureBoundTo = s;
+            }
+            if (geometryChanged) {
+                s.setDisplayGeometry(activity.getWindowManager().getDefaultDisplay().getRotation(), surfaceWidth, surfaceHeight);
+                geometryChanged = false;
+            }
+            Frame frame = s.update();
+            Collection<Anchor> changed = frame.getUpdatedAnchors();
+            if (!changed.isEmpty()) {
+                synchronized (updatedAnchors) {
+                    updatedAnchors.addAll(changed);
+                }
+            }
+            if (frame.getTimestamp() == 0) return;  // No camera image yet
+            drawCamera(frame);
+            Camera camera = frame.getCamera();
+            if (camera.getTrackingState() == TrackingState.TRACKING) {
+                if (!firstTrackedSeen) {
+                    firstTrackedSeen = true;
+                    PerfTelemetry.record(PerfTelemetry.AR_STARTUP, now - attachNanos);
+                }
+                camera.getProjectionMatrix(projection, 0, 0.05f, 200f);
+                camera.getViewMatrix(viewMatrix, 0);
+                drawOutline();
+            }
+            latest = ArCoreBridge.snapshot(frame, surfaceWidth / 2f, surfaceHeight / 2f);
+            if (framePosted.compareAndSet(false, true)) main.post(deliverFrame);
+        } catch (Exception e) {
+            // Paused or camera lost mid-frame; the next resume starts over
+            Log.w(TAG, "Frame update failed", e);
+        } finally {
+            PerfTelemetry.end(PerfTelemetry.GL_DRAW, t0);
+        }
+    }
+
+    private void drawCamera(Frame frame) {
+        if (frame.hasDisplayGeometryChanged()) {
+            quad.position(0);
+            quadTexCoords.position(0);
+            frame.transformCoordinates2d(Coordinates2d.OPENGL_NORMALIZED_DEVICE_COORDINATES, quad,
+                    Coordinates2d.TEXTURE_NORMALIZED, quadTexCoords);
+        }
+        quad.position(0);
+        quadTexCoords.position(0);
+        GLES20.glDisable(GLES20.GL_DEPTH_TEST);
+        GLES20.glDepthMask(false);
+        GLES20.glUseProgram(cameraProgram);
+        GLES20.glActiveTexture(GLES20.GL_TEXTURE0);
+        GLES20.glBindTexture(GLES11Ext.GL_TEXTURE_EXTERNAL_OES, cameraTexture);
+        GLES20.glUniform1i(cameraSampler, 0);
+        GLES20.glVertexAttribPointer(cameraPosition, 2, GLES20.GL_FLOAT, false, 0, quad);
+        GLES20.glVertexAttribPointer(cameraTexCoord, 2, GLES20.GL_FLOAT, false, 0, quadTexCoords);
+        GLES20.glEnableVertexAttribArray(cameraPosition);
+        GLES20.glEnableVertexAttribArray(cameraTexCoord);
+        GLES20.glDrawArrays(GLES20.GL_TRIANGLE_STRIP, 0, 4);
+        GLES20.glDisableVertexAttribArray(cameraPosition);
+        GLES20.glDisableVertexAttribArray(cameraTexCoord);
+        GLES20.glDepthMask(true);
+    }
+
+    /**
+     * Copies a pending outline into the direct buffers the draw calls read
+     */
+    private void uploadOutline() {
+        synchronized (outlineLock) {
+            if (!outlineDirty) return;
+            outlineDirty = false;
+            int n = outlineVertexCount;
+            glOutlineVisible = n > 0;
+            if (!glOutlineVisible) return;
+            if (glPositions.capacity() < 3 * n) glPositions = floatBuffer(Math.max(3 * n, 2 * glPositions.capacity()));
+            glPositions.clear();
+            glPositions.put(outlinePositions, 0, 3 * n).flip();
+            int total = 0;
+            for (int part = 0; part < OutlineMesh.PART_COUNT; part++) {
+                glPartOffsets[part] = total;
+                glPartCounts[part] = partCounts[part];
+                total += partCounts[part];
+            }
+            if (glIndices.capacity() < total) glIndices = intBuffer(Math.max(total, 2 * glIndices.capacity()));
+            glIndices.clear();
+            glIndices.put(outlineIndices, 0, total).flip();
+            Matrix.setIdentityM(model, 0);
+            Matrix.translateM(model, 0, outlineOrigin[0], outlineOrigin[1], outlineOrigin[2]);
+        }
+    }
+
+    private void drawOutline() {
+        uploadOutline();
+        if (!glOutlineVisible) return;
+        Matrix.multiplyMM(viewModel, 0, viewMatrix, 0, model, 0);
+        Matrix.multiplyMM(mvp, 0, projection, 0, viewModel, 0);
+        GLES20.glUseProgram(outlineProgram);
+        GLES20.glUniformMatrix4fv(outlineMvp, 1, false, mvp, 0);
+        glPositions.position(0);
+        GLES20.glVertexAttribPointer(outlinePosition, 3, GLES20.GL_FLOAT, false, 0, glPositions);
+        GLES20.glEnableVertexAttribArray(outlinePosition);
+        GLES20.glEnable(GLES20.GL_BLEND);
+        GLES20.glBlendFunc(GLES20.GL_SRC_ALPHA, GLES20.GL_ONE_MINUS_SRC_ALPHA);
+        // Fill first so the edges stay on top; the mesh is lifted off the plane, no depth test needed
+        for (int part = 0; part < OutlineMesh.PART_COUNT; part++) {
+            if (glPartCounts[part] == 0) continue;
+            float[] c = PART_COLORS[part];
+            GLES20.glUniform4f(outlineColor, c[0], c[1], c[2], c[3]);
+            glIndices.position(glPartOffsets[part]);
+            GLES20.glDrawElements(GLES20.GL_TRIANGLES, glPartCounts[part], GLES20.GL_UNSIGNED_INT, glIndices);
+        }
+        GLES20.glDisable(GLES20.GL_BLEND);
+        GLES20.glDisableVertexAttribArray(outlinePosition);
+    }
+
+    private static int program(String vertexSource, String fragmentSource) {
+        int program = GLES20.glCreateProgram();
+        GLES20.glAttachShader(program, shader(GLES20.GL_VERTEX_SHADER, vertexSource));
+        GLES20.glAttachShader(program, shader(GLES20.GL_FRAGMENT_SHADER, fragmentSource));
+        GLES20.glLinkProgram(program);
+        int[] status = new int[1];
+        GLES20.glGetProgramiv(program, GLES20.GL_LINK_STATUS, status, 0);
+        if (status[0] == 0) Log.e(TAG, "Program link failed: " + GLES20.glGetProgramInfoLog(program));
+        return program;
+    }
+
+    private static int shader(int type, String source) {
+        int shader = GLES20.glCreateShader(type);
+        GLES20.glShaderSource(shader, source);
+        GLES20.glCompileShader(shader);
+        int[] status = new int[1];
+        GLES20.glGetShaderiv(shader, GLES20.GL_COMPILE_STATUS, status, 0);
+        if (status[0] == 0) Log.e(TAG, "Shader compile failed: " + GLES20.glGetShaderInfoLog(shader));
+        return shader;
+    }
+
+    private static FloatBuffer floatBuffer(int floats) {
+        return ByteBuffer.allocateDirect(4 * floats).order(ByteOrder.nativeOrder()).asFloatBuffer();
+    }
+
+    private static IntBuffer intBuffer(int ints) {
+        return ByteBuffer.allocateDirect(4 * ints).order(ByteOrder.nativeOrder()).asIntBuffer();
+    }
+}
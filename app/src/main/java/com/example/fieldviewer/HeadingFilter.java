@@ -0,0 +1,127 @@
+package com.example.fieldviewer;
+
+/**
+ * Smooths compass heading samples coming from the rotation-vector sensor.
+ * Keeps a sliding window of unit vectors (cos/sin) in preallocated ring buffers so the
+ * circular mean never breaks around ±π, then runs a low-pass filter on top of that mean.
+ * No Android types are used so the math can be unit tested on the JVM.
+ */
+public class HeadingFilter {
+
+    // Sliding window of heading unit vectors, reused for the lifetime of the filter
+    private final double[] cosBuf;
+    private final double[] sinBuf;
+    private int head = 0;
+    private int count = 0;
+    private double sumCos = 0.0, sumSin = 0.0;
+    private int samplesSinceResum = 0;  // Running sums are rebuilt once per window to cancel drift
+
+    // Low-pass state over the windowed circular mean
+    private final double alpha;
+    private double smoothCos = 0.0, smoothSin = 0.0;
+    private boolean primed = false;
+
+    /**
+     * @param windowSize number of raw samples in the sliding window (at least 1)
+     * @param alpha      low-pass smoothing factor in (0, 1]; 1 disables the low-pass stage
+     */
+    public HeadingFilter(int windowSize, double alpha) {
+        if (windowSize < 1) throw new IllegalArgumentException("windowSize must be >= 1");
+        if (!(alpha > 0.0 && alpha <= 1.0)) throw new IllegalArgumentException("alpha must be in (0, 1]");
+        this.cosBuf = new double[windowSize];
+        this.sinBuf = new double[windowSize];
+        this.alpha = alpha;
+    }
+
+    /**
+     * Adds a raw azimuth sample (radians). Allocation-free.
+     */
+    public void addSample(double azimuthRad) {
+        if (Double.isNaN(azimuthRad) || Double.isInfinite(azimuthRad)) return;
+        double c = Math.cos(azimuthRad);
+        double s = Math.sin(azimuthRad);
+        if (count == cosBuf.length) {
+            // Window full: drop the oldest vector from the running sums
+            sumCos -= cosBuf[head];
+            sumSin -= sinBuf[head];
+        } else {
+            count++;
+        }
+        cosBuf[head] = c;
+        sinBuf[head] = s;
+        sumCos += c;
+        sumSin += s;
+        head = (head + 1) % cosBuf.length;
+
+        // Periodically recompute the sums so floating point error does not accumulate
+        if (++samplesSinceResum >= cosBuf.length) {
+            double rc = 0.0, rs = 0.0;
+            for (int i = 0; i < count; i++) { rc += cosBuf[i]; rs += sinBuf[i]; }
+            sumCos = rc;
+            sumSin = rs;
+            samplesSinceResum = 0;
+        }
+
+        // Low-pass the windowed mean direction (as a vector, so wrap-around is handled)
+        double r = Math.hypot(sumCos, sumSin);
+        if (r < 1e-12) return;  // Samples cancel out; keep previous estimate
+        double mc = sumCos / r, ms = sumSin / r;
+        if (!primed) {
+            smoothCos = mc;
+            smoothSin = ms;
+            primed = true;
+        } else {
+            smoothCos += alpha * (mc - smoothCos);
+            smoothSin += alpha * (ms - smoothSin);
+        }
+    }
+
+    /**
+     * Returns true once at least one usable sample has been seen
+     */
+    public boolean hasHeading() {
+        return primed;
+    }
+
+    /**
+     * Filtered heading in radians in (-π, π], or 0 before the first sample
+     */
+    public double headingRad() {
+        if (!primed) return 0.0;
+        return Math.atan2(smoothSin, smoothCos);
+    }
+
+    /**
+     * Estimated angular variance (rad²) of the samples in the window.
+     * Uses the circular variance -2·ln(R) where R is the mean resultant length;
+     * 0 means all samples agree, large values mean the compass is noisy.
+     */
+    public double varianceRad2() {
+        if (count == 0) return Double.NaN;
+        double rBar = Math.hypot(sumCos, sumSin) / count;
+        if (rBar >= 1.0) return 0.0;
+        if (rBar < 1e-12) return Double.POSITIVE_INFINITY;
+        return -2.0 * Math.log(rBar);
+    }
+
+    /**
+     * Number of samples currently held in the window
+     */
+    public int sampleCount() {
+        return count;
+    }
+
+    /**
+     * Clears all samples and filter state
+     */
+    public void reset() {
+        head = 0;
+        count = 0;
+        sumCos = 0.0;
+        sumSin = 0.0;
+        samplesSinceResum = 0;
+        smoothCos = 0.0;
+        smoothSin = 0.0;
+        primed = false;
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.fieldviewer;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free, allocation-free histogram of durations in nanoseconds.
+ * Buckets are log-linear: each power of two is split into 4 sub-buckets, so any
+ * recorded value is reported within ~25% of its true size. Recording is a couple of
+ * atomic increments, cheap enough to leave enabled in release builds.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 2;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    static final int BUCKET_COUNT = 64 * SUB_BUCKETS;
+
+    private final String name;
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sumNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public LatencyHistogram(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Records one duration. Negative values are clamped to 0.
+     */
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        buckets.incrementAndGet(bucketIndex(nanos));
+        count.incrementAndGet();
+        sumNanos.addAndGet(nanos);
+        long prev;
+        while (nanos > (prev = maxNanos.get())) {
+            if (maxNanos.compareAndSet(prev, nanos)) break;
+        }
+    }
+
+    /**
+     * Records the time elapsed since startNanos (from System.nanoTime)
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    public long count() {
+        return count.get();
+    }
+
+    public long maxNanos() {
+        return maxNanos.get();
+    }
+
+    public double meanNanos() {
+        long n = count.get();
+        return n == 0 ? 0.0 : (double) sumNanos.get() / n;
+    }
+
+    /**
+     * Approximate percentile (0..100) in nanoseconds, reported as the upper bound of
+     * the bucket containing it. Reads are not atomic across buckets, which is fine for
+     * monitoring while recording continues.
+     */
+    public long percentileNanos(double percentile) {
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) total += buckets.get(i);
+        if (total == 0) return 0;
+        long rank = (long) Math.ceil(Math.max(0.0, Math.min(100.0, percentile)) / 100.0 * total);
+        if (rank < 1) rank = 1;
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) return Math.min(bucketUpperBound(i), maxNanos.get());
+        }
+        return maxNanos.get();
+    }
+
+    /**
+     * Copies raw bucket counts into the caller's array (length BUCKET_COUNT)
+     */
+    public void copyBuckets(long[] out) {
+        for (int i = 0; i < BUCKET_COUNT && i < out.length; i++) out[i] = buckets.get(i);
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) buckets.set(i, 0);
+        count.set(0);
+        sumNanos.set(0);
+        maxNanos.set(0);
+    }
+
+    /**
+     * Maps a value to its log-linear bucket
+     */
+    static int bucketIndex(long v) {
+        if (v < SUB_BUCKETS) return (int) v;
+        int msb = 63 - Long.numberOfLeadingZeros(v);
+        int sub = (int) ((v >>> (msb - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1));
+        return (msb - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * Largest value that maps into bucket i
+     */
+    static long bucketUpperBound(int i) {
+        if (i < SUB_BUCKETS) return i;
+        int msb = i / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        int sub = i % SUB_BUCKETS;
+        if (msb >= 62) return Long.MAX_VALUE;
+        long base = (1L << msb) | ((long) sub << (msb - SUB_BUCKET_BITS));
+        return base + (1L << (msb - SUB_BUCKET_BITS)) - 1;
+    }
+}
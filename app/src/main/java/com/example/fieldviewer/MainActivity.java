@@ -21,7 +21,7 @@ import androidx.core.view.WindowInsetsCompat;
  * Features:
  * - Looping background video for visual appeal
  * - GPS warmup countdown before allowing measurements
- * - Navigation to AR measurement and saved measurements
+ * - Navigation to AR measurement, GPS boundary walk and saved measurements
  */
 public class MainActivity extends AppCompatActivity {
 
@@ -75,6 +75,21 @@ public class MainActivity extends AppCompatActivity {
             }
         });
 
+        // GPS-only measurement for fields too large for AR tracking
+        Button btnWalk = findViewById(R.id.btnWalk);
+        if (btnWalk != null) {
+            btnWalk.setOnClickListener(new View.OnClickListener() {
+                @Override
+                public void onClick(View v) {
+                    if (!warmupDone) {
+                        android.widget.Toast.makeText(MainActivity.this, "Please wait for GPS warmup to finish", android.widget.Toast.LENGTH_SHORT).show();
+                        return;
+                    }
+                    startActivity(new Intent(MainActivity.this, WalkMeasureActivity.class));
+                }
+            });
+        }
+
         // Set up button for viewing saved measurements
         Button btnSaved = findViewById(R.id.btnSaved);
         if (btnSaved != null) {
@@ -94,6 +109,55 @@ public class MainActivity extends AppCompatActivity {
                 .setPositiveButton("OK", (d, w) -> startWarmupCountdown())
                 .setCancelable(false)
                 .show();
+
+        // Shown on top of the warmup dialog when the last measurement never finished
+        offerRecovery();
+    }
+
+    /**
+     * Offers the measurements left in crash journals by AR screens whose process died (crash,
+     * low-memory kill, dead battery) before they were finished, one dialog at a time
+     */
+    private void offerRecovery() {
+        final java.io.File current = ARMeasureActivity.journalFile(this);
+        new Thread(() -> {
+            java.io.File found = null;
+            MeasurementJournal.Snapshot snapshot = null;
+            for (java.io.File file : MeasurementJournal.pending(current)) {
+                try {
+                    snapshot = MeasurementJournal.read(file);
+                } catch (java.io.IOException e) {
+                    snapshot = null;
+                }
+                if (snapshot != null && snapshot.isRecoverable()) {
+                    found = file;
+                    break;
+                }
+                file.delete();  // Nothing a result screen could show
+            }
+            if (found == null) return;
+            final java.io.File file = found;
+            final MeasurementJournal.Snapshot s = snapshot;
+            runOnUiThread(() -> {
+                if (isFinishing() || isDestroyed()) return;
+                String when = new java.text.SimpleDateFormat("yyyy-MM-dd HH:mm", java.util.Locale.getDefault())
+                        .format(new java.util.Date(s.createdMs));
+                new androidx.appcompat.app.AlertDialog.Builder(this)
+                        .setTitle("Unfinished measurement")
+                        .setMessage(s.pointCount() + " points measured on " + when + " were not saved. Open them on the map?")
+                        .setPositiveButton("Open", (d, w) -> {
+                            startActivity(ResultActivity.recoveryIntent(this, s));
+                            file.delete();
+                            offerRecovery();
+                        })
+                        .setNegativeButton("Discard", (d, w) -> {
+                            file.delete();
+                            offerRecovery();
+                        })
+                        .setCancelable(false)
+                        .show();
+            });
+        }).start();
     }
 
     /**
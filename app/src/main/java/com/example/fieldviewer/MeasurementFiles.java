@@ -0,0 +1,234 @@
+package com.example.fieldviewer;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Saved measurement files on disk: the JSON layout of the rings, writing a save and indexing it,
+ * reading a file back for the index and the detail screen, and syncing the index with the
+ * directory. No Android dependencies besides org.json, so StorageBenchmark runs the same code
+ * on the JVM.
+ *
+ * Rings are interleaved (lat, lng); the JSON stores [lon, lat] pairs.
+ */
+final class MeasurementFiles {
+
+    private MeasurementFiles() {}
+
+    /**
+     * First ring as coordinates_lonlat; multi-ring measurements also list every ring with its
+     * hole flag under "rings"
+     */
+    static void putRings(JSONObject root, List<double[]> rings, boolean[] holes) throws JSONException {
+        root.put("coordinates_lonlat", lonLatArray(rings.get(0)));
+        if (rings.size() > 1) {
+            JSONArray ringArr = new JSONArray();
+            for (int r = 0; r < rings.size(); r++) {
+                JSONObject ring = new JSONObject();
+                ring.put("hole", holes[r]);
+                ring.put("coordinates_lonlat", lonLatArray(rings.get(r)));
+                ringArr.put(ring);
+            }
+            root.put("rings", ringArr);
+        }
+    }
+
+    /**
+     * [[lon, lat], ...] array for saved JSON
+     */
+    static JSONArray lonLatArray(double[] latLng) throws JSONException {
+        JSONArray coords = new JSONArray();
+        for (int i = 0; i + 1 < latLng.length; i += 2) {
+            JSONArray pair = new JSONArray();
+            pair.put(latLng[i + 1]);
+            pair.put(latLng[i]);
+            coords.put(pair);
+        }
+        return coords;
+    }
+
+    /**
+     * Rings of a saved measurement as interleaved (lat, lng), with their hole flags
+     */
+    static final class Rings {
+        final List<double[]> rings = new ArrayList<>();
+        boolean[] holes = new boolean[0];
+
+        /**
+         * The rings that are not holes
+         */
+        List<double[]> fields() {
+            List<double[]> out = new ArrayList<>();
+            for (int r = 0; r < rings.size(); r++) if (!holes[r]) out.add(rings.get(r));
+            return out;
+        }
+    }
+
+    static Rings readRings(File f) throws IOException, JSONException {
+        return readRings(new JSONObject(readText(f)));
+    }
+
+    /**
+     * Reads what putRings wrote; files with a single ring only have coordinates_lonlat
+     */
+    static Rings readRings(JSONObject root) throws JSONException {
+        Rings out = new Rings();
+        JSONArray ringArr = root.optJSONArray("rings");
+        if (ringArr == null) {
+            JSONArray coords = root.optJSONArray("coordinates_lonlat");
+            if (coords != null) out.rings.add(lonLatToLatLng(coords));
+            out.holes = new boolean[out.rings.size()];
+            return out;
+        }
+        out.holes = new boolean[ringArr.length()];
+        for (int r = 0; r < ringArr.length(); r++) {
+            JSONObject ring = ringArr.getJSONObject(r);
+            JSONArray coords = ring.optJSONArray("coordinates_lonlat");
+            if (coords == null) continue;
+            out.holes[out.rings.size()] = ring.optBoolean("hole", false);
+            out.rings.add(lonLatToLatLng(coords));
+        }
+        if (out.holes.length != out.rings.size()) out.holes = Arrays.copyOf(out.holes, out.rings.size());
+        return out;
+    }
+
+    /**
+     * Interleaved (lat, lng) of a [[lon, lat], ...] array
+     */
+    static double[] lonLatToLatLng(JSONArray coords) throws JSONException {
+        double[] out = new double[coords.length() * 2];
+        for (int i = 0; i < coords.length(); i++) {
+            JSONArray pair = coords.getJSONArray(i);
+            out[2 * i] = pair.getDouble(1);
+            out[2 * i + 1] = pair.getDouble(0);
+        }
+        return out;
+    }
+
+    /**
+     * Writes root to dir/fileName and appends its entry to the directory's index. An index
+     * failure is not a save failure: the saved list re-indexes unknown files on its next sync.
+     * Blocking file I/O, and the first call in a process loads the index: not for the UI thread.
+     */
+    static File save(File dir, String fileName, JSONObject root, long timestamp, double areaM2,
+                     List<double[]> rings, double originLat, double originLng) throws IOException, JSONException {
+        if (!dir.exists()) dir.mkdirs();
+        File jsonFile = new File(dir, fileName);
+        try (FileWriter fw = new FileWriter(jsonFile)) {
+            fw.write(root.toString(2));
+        }
+        double[] bounds = bounds(rings);
+        if (bounds != null) {
+            try {
+                MeasurementIndex.forDirectory(dir).put(new MeasurementIndex.Entry(
+                        jsonFile.getName(), timestamp, jsonFile.lastModified(), areaM2,
+                        bounds[0], bounds[1], bounds[2], bounds[3], originLat, originLng));
+            } catch (IOException ignored) {}
+        }
+        return jsonFile;
+    }
+
+    /**
+     * minLat, minLng, maxLat, maxLng over all rings, or null without coordinates
+     */
+    private static double[] bounds(List<double[]> rings) {
+        double minLat = Double.POSITIVE_INFINITY, minLng = Double.POSITIVE_INFINITY;
+        double maxLat = Double.NEGATIVE_INFINITY, maxLng = Double.NEGATIVE_INFINITY;
+        for (double[] ring : rings) {
+            for (int i = 0; i + 1 < ring.length; i += 2) {
+                minLat = Math.min(minLat, ring[i]);
+                maxLat = Math.max(maxLat, ring[i]);
+                minLng = Math.min(minLng, ring[i + 1]);
+                maxLng = Math.max(maxLng, ring[i + 1]);
+            }
+        }
+        return minLat > maxLat ? null : new double[]{minLat, minLng, maxLat, maxLng};
+    }
+
+    static String readText(File f) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        try (BufferedReader br = new BufferedReader(new FileReader(f))) {
+            String line;
+            while ((line = br.readLine()) != null) sb.append(line).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Brings the index of dir in line with its JSON files (see MeasurementIndex.sync); true if
+     * anything changed
+     */
+    static boolean syncIndex(File dir, MeasurementIndex index) throws IOException {
+        File[] files = dir.listFiles((d, name) -> name.toLowerCase().endsWith(".json"));
+        return index.sync(files != null ? files : new File[0], MeasurementFiles::readIndexEntry);
+    }
+
+    /**
+     * Builds an index entry from a saved JSON file (used once for files the index has not seen)
+     */
+    static MeasurementIndex.Entry readIndexEntry(File f) throws Exception {
+        JSONObject root = new JSONObject(readText(f));
+        double minLat = Double.POSITIVE_INFINITY, minLng = Double.POSITIVE_INFINITY;
+        double maxLat = Double.NEGATIVE_INFINITY, maxLng = Double.NEGATIVE_INFINITY;
+        List<JSONArray> coordArrays = new ArrayList<>();
+        JSONArray ringArr = root.optJSONArray("rings");
+        if (ringArr != null) {
+            for (int r = 0; r < ringArr.length(); r++) {
+                JSONArray c = ringArr.getJSONObject(r).optJSONArray("coordinates_lonlat");
+                if (c != null) coordArrays.add(c);
+            }
+        } else {
+            JSONArray c = root.optJSONArray("coordinates_lonlat");
+            if (c != null) coordArrays.add(c);
+        }
+        for (JSONArray coords : coordArrays) {
+            for (int i = 0; i < coords.length(); i++) {
+                JSONArray pair = coords.getJSONArray(i);
+                double lng = pair.getDouble(0), lat = pair.getDouble(1);
+                minLat = Math.min(minLat, lat);
+                maxLat = Math.max(maxLat, lat);
+                minLng = Math.min(minLng, lng);
+                maxLng = Math.max(maxLng, lng);
+            }
+        }
+        if (minLat > maxLat) {
+            // No coordinates: keep it listable but out of every spatial query
+            minLat = minLng = maxLat = maxLng = Double.NaN;
+        }
+        return new MeasurementIndex.Entry(f.getName(),
+                root.optLong("timestamp", f.lastModified()), f.lastModified(),
+                root.optDouble("area_m2", 0.0),
+                minLat, minLng, maxLat, maxLng,
+                root.optDouble("originLat", Double.NaN), root.optDouble("originLng", Double.NaN));
+    }
+
+    /**
+     * Name and readable time of a saved file's JSON for the detail screen header, or "" when
+     * the content does not parse
+     */
+    static String detailHeader(File f, String content) {
+        try {
+            JSONObject obj = new JSONObject(content);
+            String name = obj.optString("name", f.getName());
+            String pretty = obj.optString("timestamp_local", "");
+            if (pretty.isEmpty()) {
+                long ts = obj.optLong("timestamp", f.lastModified());
+                pretty = new java.text.SimpleDateFormat("yyyy-MM-dd HH:mm", java.util.Locale.getDefault())
+                        .format(new java.util.Date(ts));
+            }
+            return name + "\n" + pretty + "\n\n";
+        } catch (Exception ignore) {
+            return "";
+        }
+    }
+}
@@ -0,0 +1,426 @@
+package com.example.fieldviewer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+
+/**
+ * Persistent spatial/attribute index over saved measurement files.
+ * Keeps one small record per measurement (name, timestamp, area, lat/lng bounds, origin) in
+ * an append-only binary file next to the JSON files, so listing and querying never parse JSON.
+ * Every save appends one record; the log is compacted when stale records pile up.
+ * Each record ends with the CRC32 of its bytes (as in MeasurementJournal). Loading stops at the
+ * first torn or corrupt record and the next write compacts, so garbage never stays in the log.
+ * In memory the records are columns with sorted area/time orders and an R-tree over bounds.
+ */
+public class MeasurementIndex {
+
+    public static final String INDEX_FILE_NAME = ".measurements.idx";
+
+    private static final int MAGIC = 0x46564958;  // "FVIX"
+    private static final int VERSION = 2;  // 2: CRC32 per record
+    private static final byte OP_PUT = 1;
+    private static final byte OP_DELETE = 2;
+
+    /**
+     * Index record for one saved measurement
+     */
+    public static final class Entry {
+        public final String fileName;
+        public final long timestamp;      // Measurement time (ms since epoch)
+        public final long fileModified;   // File lastModified when indexed, to detect external edits
+        public final double areaM2;
+        public final double minLat, minLng, maxLat, maxLng;  // Bounds of all coordinates
+        public final double originLat, originLng;            // NaN when the measurement had no GPS fix
+
+        public Entry(String fileName, long timestamp, long fileModified, double areaM2,
+                     double minLat, double minLng, double maxLat, double maxLng,
+                     double originLat, double originLng) {
+            this.fileName = fileName;
+            this.timestamp = timestamp;
+            this.fileModified = fileModified;
+            this.areaM2 = areaM2;
+            this.minLat = minLat;
+            this.minLng = minLng;
+            this.maxLat = maxLat;
+            this.maxLng = maxLng;
+            this.originLat = originLat;
+            this.originLng = originLng;
+        }
+    }
+
+    /**
+     * Builds an entry for a file the index has not seen (e.g. saved by an older version)
+     */
+    public interface EntryLoader {
+        Entry load(File jsonFile) throws Exception;
+    }
+
+    // One shared instance per directory so every screen sees the same in-memory columns
+    private static final Map<String, MeasurementIndex> INSTANCES = new HashMap<>();
+
+    private final File indexFile;
+    private final List<Entry> entries = new ArrayList<>();
+    private final Map<String, Integer> slotByName = new HashMap<>();
+    private int recordsOnDisk = 0;
+
+    // Derived structures, rebuilt lazily after changes
+    private boolean dirty = true;
+    private int[] byArea = new int[0];
+    private int[] byTime = new int[0];
+    private RTree tree;
+
+    public static synchronized MeasurementIndex forDirectory(File dir) {
+        String key = dir.getAbsolutePath();
+        MeasurementIndex idx = INSTANCES.get(key);
+        if (idx == null) {
+            idx = new MeasurementIndex(new File(dir, INDEX_FILE_NAME));
+            idx.load();
+            INSTANCES.put(key, idx);
+        }
+        return idx;
+    }
+
+    /**
+     * Drops the shared instance of dir, so the next forDirectory() reads the index file again
+     */
+    static synchronized void evict(File dir) {
+        INSTANCES.remove(dir.getAbsolutePath());
+    }
+
+    MeasurementIndex(File indexFile) {
+        this.indexFile = indexFile;
+    }
+
+    /**
+     * Adds or replaces the entry for entry.fileName and appends it to the log
+     */
+    public synchronized void put(Entry entry) throws IOException {
+        applyPut(entry);
+        appendRecord(entry.fileName, entry);
+        maybeCompact();
+    }
+
+    /**
+     * Removes the entry for fileName (if any) and appends a tombstone
+     */
+    public synchronized void remove(String fileName) throws IOException {
+        if (!applyDelete(fileName)) return;
+        appendRecord(fileName, null);
+        maybeCompact();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized Entry get(String fileName) {
+        Integer slot = slotByName.get(fileName);
+        return slot != null ? entries.get(slot) : null;
+    }
+
+    /**
+     * Reconciles the index with the JSON files actually present: drops entries whose file is
+     * gone and loads entries only for new or externally modified files. Returns true if
+     * anything changed.
+     */
+    public synchronized boolean sync(File[] jsonFiles, EntryLoader loader) throws IOException {
+        Set<String> present = new HashSet<>();
+        DataOutputStream out = null;  // Opened on the first change, once for the whole batch
+        try {
+            for (File f : jsonFiles) {
+                present.add(f.getName());
+                Entry e = get(f.getName());
+                if (e != null && e.fileModified == f.lastModified()) continue;
+                Entry loaded;
+                try {
+                    loaded = loader.load(f);
+                } catch (Exception ignored) {
+                    continue;  // Unreadable file: leave it out of the index
+                }
+                if (loaded == null) continue;
+                applyPut(loaded);
+                if (out == null) out = openAppend();
+                writeRecord(out, loaded.fileName, loaded);
+                recordsOnDisk++;
+            }
+            for (String name : new ArrayList<>(slotByName.keySet())) {
+                if (present.contains(name)) continue;
+                applyDelete(name);
+                if (out == null) out = openAppend();
+                writeRecord(out, name, null);
+                recordsOnDisk++;
+            }
+        } finally {
+            if (out != null) out.close();
+        }
+        maybeCompact();
+        return out != null;
+    }
+
+    /**
+     * All entries, newest first
+     */
+    public synchronized List<Entry> newestFirst() {
+        rebuildIfDirty();
+        List<Entry> out = new ArrayList<>(byTime.length);
+        for (int i = byTime.length - 1; i >= 0; i--) out.add(entries.get(byTime[i]));
+        return out;
+    }
+
+    /**
+     * Entries with minM2 <= area <= maxM2, smallest first (binary search on the area column)
+     */
+    public synchronized List<Entry> areaBetween(double minM2, double maxM2) {
+        rebuildIfDirty();
+        int lo = lowerBound(minM2);
+        List<Entry> out = new ArrayList<>();
+        for (int i = lo; i < byArea.length; i++) {
+            Entry e = entries.get(byArea[i]);
+            if (e.areaM2 > maxM2) break;
+            out.add(e);
+        }
+        return out;
+    }
+
+    /**
+     * Entries whose bounds intersect the given lat/lng box
+     */
+    public synchronized List<Entry> overlapping(double minLat, double minLng, double maxLat, double maxLng) {
+        rebuildIfDirty();
+        int[] ids = new int[entries.size()];
+        int found = tree.query(minLng, minLat, maxLng, maxLat, ids);
+        List<Entry> out = new ArrayList<>(found);
+        for (int i = 0; i < found; i++) out.add(entries.get(ids[i]));
+        return out;
+    }
+
+    /**
+     * Entries whose bounds come within km of (lat, lng), nearest first
+     */
+    public synchronized List<Entry> withinKm(double lat, double lng, double km) {
+        double dLat = km * 1000.0 / 111320.0;
+        double dLng = dLat / Math.max(1e-6, Math.cos(Math.toRadians(lat)));
+        List<Entry> candidates = overlapping(lat - dLat, lng - dLng, lat + dLat, lng + dLng);
+        final double[] dist = new double[candidates.size()];
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < candidates.size(); i++) {
+            dist[i] = distanceToBoundsMeters(candidates.get(i), lat, lng);
+            if (dist[i] <= km * 1000.0) order.add(i);
+        }
+        Collections.sort(order, (a, b) -> Double.compare(dist[a], dist[b]));
+        List<Entry> out = new ArrayList<>(order.size());
+        for (int i : order) out.add(candidates.get(i));
+        return out;
+    }
+
+    /**
+     * Distance in meters from a point to the closest point of an entry's bounds (0 if inside)
+     */
+    public static double distanceToBoundsMeters(Entry e, double lat, double lng) {
+        double cLat = Math.max(e.minLat, Math.min(lat, e.maxLat));
+        double cLng = Math.max(e.minLng, Math.min(lng, e.maxLng));
+        double metersPerDegLat = 111320.0;
+        double metersPerDegLng = metersPerDegLat * Math.cos(Math.toRadians(lat));
+        return Math.hypot((cLat - lat) * metersPerDegLat, (cLng - lng) * metersPerDegLng);
+    }
+
+    private int lowerBound(double area) {
+        int lo = 0, hi = byArea.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (entries.get(byArea[mid]).areaM2 < area) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+
+    private void applyPut(Entry e) {
+        Integer slot = slotByName.get(e.fileName);
+        if (slot != null) {
+            entries.set(slot, e);
+        } else {
+            slotByName.put(e.fileName, entries.size());
+            entries.add(e);
+        }
+        dirty = true;
+    }
+
+    private boolean applyDelete(String name) {
+        Integer slot = slotByName.remove(name);
+        if (slot == null) return false;
+        // Swap-remove to keep slots dense
+        int last = entries.size() - 1;
+        if (slot != last) {
+            Entry moved = entries.get(last);
+            entries.set(slot, moved);
+            slotByName.put(moved.fileName, slot);
+        }
+        entries.remove(last);
+        dirty = true;
+        return true;
+    }
+
+    private void rebuildIfDirty() {
+        if (!dirty) return;
+        int n = entries.size();
+        Integer[] a = new Integer[n];
+        Integer[] t = new Integer[n];
+        double[] boxes = new double[n * 4];
+        int[] ids = new int[n];
+        for (int i = 0; i < n; i++) {
+            a[i] = i;
+            t[i] = i;
+            Entry e = entries.get(i);
+            boxes[4 * i] = e.minLng;
+            boxes[4 * i + 1] = e.minLat;
+            boxes[4 * i + 2] = e.maxLng;
+            boxes[4 * i + 3] = e.maxLat;
+            ids[i] = i;
+        }
+        Arrays.sort(a, (x, y) -> Double.compare(entries.get(x).areaM2, entries.get(y).areaM2));
+        Arrays.sort(t, (x, y) -> Long.compare(entries.get(x).timestamp, entries.get(y).timestamp));
+        byArea = new int[n];
+        byTime = new int[n];
+        for (int i = 0; i < n; i++) { byArea[i] = a[i]; byTime[i] = t[i]; }
+        tree = RTree.build(boxes, ids, n);
+        dirty = false;
+    }
+
+    // ---- Persistence ----
+
+    void load() {
+        entries.clear();
+        slotByName.clear();
+        recordsOnDisk = 0;
+        dirty = true;
+        if (!indexFile.exists()) return;
+        try (CheckedInputStream checked = new CheckedInputStream(
+                new BufferedInputStream(new FileInputStream(indexFile)), new CRC32());
+             DataInputStream in = new DataInputStream(checked)) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                // Unknown format: start over, sync() will repopulate from the JSON files
+                indexFile.delete();
+                return;
+            }
+            while (true) {
+                checked.getChecksum().reset();
+                byte op;
+                try {
+                    op = in.readByte();
+                } catch (EOFException eof) {
+                    break;
+                }
+                if (op != OP_PUT && op != OP_DELETE) {
+                    // Corrupt tail (e.g. zeros after a power loss): compact it away on the next write
+                    recordsOnDisk = Integer.MAX_VALUE / 2;
+                    break;
+                }
+                String name = in.readUTF();
+                Entry e = op == OP_PUT ? new Entry(name, in.readLong(), in.readLong(), in.readDouble(),
+                        in.readDouble(), in.readDouble(), in.readDouble(), in.readDouble(),
+                        in.readDouble(), in.readDouble()) : null;
+                int expected = (int) checked.getChecksum().getValue();
+                if (in.readInt() != expected) {
+                    recordsOnDisk = Integer.MAX_VALUE / 2;
+                    break;
+                }
+                if (e != null) {
+                    applyPut(e);
+                } else {
+                    applyDelete(name);
+                }
+                recordsOnDisk++;
+            }
+        } catch (EOFException truncated) {
+            // Crash mid-append: keep everything before the partial record; compaction rewrites it
+            recordsOnDisk = Integer.MAX_VALUE / 2;
+        } catch (IOException e) {
+            recordsOnDisk = Integer.MAX_VALUE / 2;
+        }
+    }
+
+    private void appendRecord(String name, Entry e) throws IOException {
+        try (DataOutputStream out = openAppend()) {
+            writeRecord(out, name, e);
+        }
+        recordsOnDisk++;
+    }
+
+    /**
+     * Stream appending to the index file, with the header written first when the file is new
+     */
+    private DataOutputStream openAppend() throws IOException {
+        boolean fresh = !indexFile.exists() || indexFile.length() == 0;
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile, true)));
+        if (fresh) {
+            try {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+            } catch (IOException e) {
+                out.close();
+                throw e;
+            }
+        }
+        return out;
+    }
+
+    /**
+     * One record: op, name, the entry's fields for a put, then the CRC32 of those bytes
+     */
+    private static void writeRecord(DataOutputStream out, String name, Entry e) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        DataOutputStream rec = new DataOutputStream(bytes);
+        rec.writeByte(e != null ? OP_PUT : OP_DELETE);
+        rec.writeUTF(name);
+        if (e != null) {
+            rec.writeLong(e.timestamp);
+            rec.writeLong(e.fileModified);
+            rec.writeDouble(e.areaM2);
+            rec.writeDouble(e.minLat);
+            rec.writeDouble(e.minLng);
+            rec.writeDouble(e.maxLat);
+            rec.writeDouble(e.maxLng);
+            rec.writeDouble(e.originLat);
+            rec.writeDouble(e.originLng);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray(), 0, bytes.size());
+        bytes.writeTo(out);
+        out.writeInt((int) crc.getValue());
+    }
+
+    /**
+     * Rewrites the log with only live entries once stale records outnumber them
+     */
+    private void maybeCompact() throws IOException {
+        if (recordsOnDisk <= 2 * entries.size() + 32) return;
+        File tmp = new File(indexFile.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            for (Entry e : entries) writeRecord(out, e.fileName, e);
+        }
+        if (!tmp.renameTo(indexFile)) {
+            indexFile.delete();
+            if (!tmp.renameTo(indexFile)) throw new IOException("Unable to replace index file");
+        }
+        recordsOnDisk = entries.size();
+    }
+}
@@ -0,0 +1,360 @@
+package com.example.fieldviewer;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of the measurement in progress, so a crash, low-memory kill or dead
+ * battery does not lose the points placed so far (they otherwise only reach disk when the
+ * result is saved).
+ *
+ * Format (big-endian): header MAGIC, VERSION, long creation time (ms), then fixed-size records
+ * of int type, three doubles and the CRC32 of those 28 bytes. A torn or corrupt record ends the
+ * journal, so a crash mid-write only loses that record.
+ *
+ * append() only copies 32 bytes into a memory buffer; a writer thread commits the buffer and
+ * fsyncs at most every COMMIT_INTERVAL_MS (group commit), so many points share one fsync and
+ * the caller never waits for the disk.
+ */
+public final class MeasurementJournal implements Closeable {
+
+    static final int MAGIC = 0x46564a4c;  // "FVJL"
+    static final short VERSION = 1;
+    static final int HEADER_BYTES = 14;
+    static final int RECORD_BYTES = 32;
+    static final long COMMIT_INTERVAL_MS = 200;
+    static final String RECOVERED_PREFIX = "recovered-";
+
+    public static final int ADD_POINT = 1;   // World (x, y, z) of a placed point
+    public static final int UNDO = 2;        // Removes the last point of the current ring
+    public static final int CLOSE_RING = 3;  // a = 1 when the next ring is an exclusion zone
+    public static final int ORIGIN = 4;      // GPS (lat, lng) of the first point, c = accuracy (m, 0 unknown)
+    public static final int HEADING = 5;     // Heading (rad) and its variance (rad²) at the first point
+
+    private final File file;
+    private final RandomAccessFile raf;
+    private final FileChannel channel;
+    private final ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "measurement-journal");
+        t.setDaemon(true);
+        return t;
+    });
+    private final CRC32 crc = new CRC32();
+
+    // Guarded by this: records not yet handed to the writer
+    private ByteBuffer pending = ByteBuffer.allocate(RECORD_BYTES * 64);
+    private ByteBuffer spare = ByteBuffer.allocate(RECORD_BYTES * 64);
+    private boolean commitScheduled = false;
+    private boolean truncateRequested = false;
+    private boolean closed = false;
+
+    // Writer thread only
+    private long writePosition;
+    private volatile IOException failure;
+
+    private MeasurementJournal(File file) throws IOException {
+        this.file = file;
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists()) parent.mkdirs();
+        raf = new RandomAccessFile(file, "rw");
+        channel = raf.getChannel();
+        raf.setLength(0);
+        raf.writeInt(MAGIC);
+        raf.writeShort(VERSION);
+        raf.writeLong(System.currentTimeMillis());  // Made durable by the first commit
+        writePosition = HEADER_BYTES;
+    }
+
+    /**
+     * Starts a new, empty journal at file. A journal already there that still holds a
+     * recoverable measurement (the process died before MainActivity offered it, and the AR
+     * screen was recreated first) is moved aside with keepUnrecovered, never truncated.
+     */
+    public static MeasurementJournal create(File file) throws IOException {
+        keepUnrecovered(file);
+        return new MeasurementJournal(file);
+    }
+
+    /**
+     * Renames a recoverable journal at file to RECOVERED_PREFIX + its creation time, next to it;
+     * returns the new file, or null when there was nothing worth keeping
+     */
+    static File keepUnrecovered(File file) throws IOException {
+        Snapshot s;
+        try {
+            s = read(file);
+        } catch (IOException e) {
+            s = null;  // Unreadable: nothing a result screen could show
+        }
+        if (s == null || !s.isRecoverable()) return null;
+        File kept = new File(file.getParentFile(), RECOVERED_PREFIX + s.createdMs + ".fvj");
+        for (int i = 1; kept.exists(); i++) {
+            kept = new File(file.getParentFile(), RECOVERED_PREFIX + s.createdMs + "-" + i + ".fvj");
+        }
+        if (!file.renameTo(kept)) throw new IOException("Could not keep unrecovered journal " + file);
+        return kept;
+    }
+
+    /**
+     * Journals that may hold an unrecovered measurement: current and any kept aside next to
+     * it, newest first
+     */
+    public static List<File> pending(File current) {
+        List<File> out = new ArrayList<>();
+        File[] kept = current.getParentFile() != null
+                ? current.getParentFile().listFiles((d, name) -> name.startsWith(RECOVERED_PREFIX) && name.endsWith(".fvj"))
+                : null;
+        if (kept != null) out.addAll(Arrays.asList(kept));
+        if (current.isFile()) out.add(current);
+        out.sort((a, b) -> Long.compare(b.lastModified(), a.lastModified()));
+        return out;
+    }
+
+    public File file() {
+        return file;
+    }
+
+    /**
+     * Last write error of the writer thread, or null
+     */
+    public IOException failure() {
+        return failure;
+    }
+
+    /**
+     * Queues one record; returns immediately, the record is durable within COMMIT_INTERVAL_MS
+     */
+    public synchronized void append(int type, double a, double b, double c) {
+        if (closed) return;
+        if (pending.remaining() < RECORD_BYTES) {
+            ByteBuffer grown = ByteBuffer.allocate(pending.capacity() * 2);
+            pending.flip();
+            grown.put(pending);
+            pending = grown;
+        }
+        int start = pending.position();
+        pending.putInt(type).putDouble(a).putDouble(b).putDouble(c);
+        crc.reset();
+        crc.update(pending.array(), pending.arrayOffset() + start, RECORD_BYTES - 4);
+        pending.putInt((int) crc.getValue());
+        scheduleCommit(COMMIT_INTERVAL_MS);
+    }
+
+    /**
+     * Drops every record (new measurement); records appended afterwards are kept
+     */
+    public synchronized void clear() {
+        if (closed) return;
+        pending.clear();
+        truncateRequested = true;
+        scheduleCommit(0);
+    }
+
+    /**
+     * Commits queued records now instead of waiting for the group-commit interval
+     */
+    public synchronized void flush() {
+        if (closed) return;
+        commitScheduled = false;  // Let an immediate commit overtake a delayed one
+        scheduleCommit(0);
+    }
+
+    private void scheduleCommit(long delayMs) {
+        if (commitScheduled) return;
+        commitScheduled = true;
+        writer.schedule(this::commit, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void commit() {
+        ByteBuffer batch;
+        boolean truncate;
+        synchronized (this) {
+            commitScheduled = false;
+            truncate = truncateRequested;
+            truncateRequested = false;
+            if (pending.position() == 0 && !truncate) return;
+            batch = pending;
+            pending = spare;
+            spare = batch;
+        }
+        batch.flip();
+        try {
+            if (truncate) {
+                channel.truncate(HEADER_BYTES);
+                writePosition = HEADER_BYTES;
+            }
+            while (batch.hasRemaining()) writePosition += channel.write(batch, writePosition);
+            channel.force(false);
+        } catch (IOException e) {
+            failure = e;
+        } finally {
+            batch.clear();
+        }
+    }
+
+    /**
+     * Commits what is queued, fsyncs and closes; the file stays for recovery
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+        }
+        writer.execute(this::commit);
+        writer.shutdown();
+        try {
+            writer.awaitTermination(2, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        raf.close();
+        if (failure != null) throw failure;
+    }
+
+    /**
+     * Closes and deletes the journal (the measurement was finished or abandoned on purpose)
+     */
+    public void discard() {
+        try {
+            close();
+        } catch (IOException ignored) {
+            // Deleted below anyway
+        }
+        file.delete();
+    }
+
+    /**
+     * Measurement state rebuilt from a journal. Rings hold world (x, y, z) per point as placed
+     * in the AR session that wrote them.
+     */
+    public static final class Snapshot {
+        public long createdMs;
+        public int records;  // Valid records replayed
+        public final List<double[]> closedRings = new ArrayList<>();
+        public final List<Boolean> closedHoles = new ArrayList<>();
+        public double[] current = new double[0];
+        public boolean currentIsHole = false;
+        public Double originLat, originLng;
+        public double originAccuracyM = Double.NaN;
+        public Double headingRad, headingVarianceRad2;
+
+        public int pointCount() {
+            int n = current.length / 3;
+            for (double[] ring : closedRings) n += ring.length / 3;
+            return n;
+        }
+
+        /**
+         * True when at least one ring has the 3 points a result needs
+         */
+        public boolean isRecoverable() {
+            return !closedRings.isEmpty() || current.length >= 9;
+        }
+
+        /**
+         * Rings for the result screen (closed rings, then the current one once it has 3 points)
+         * projected like the AR screen does: ground (x, z) and height y relative to the first point
+         */
+        public void collectRings2D(List<double[]> rings, List<Boolean> holes, List<double[]> heights) {
+            List<double[]> all = new ArrayList<>(closedRings);
+            List<Boolean> allHoles = new ArrayList<>(closedHoles);
+            if (current.length >= 9) {
+                all.add(current);
+                allHoles.add(currentIsHole);
+            }
+            if (all.isEmpty()) return;
+            double ox = all.get(0)[0], oy = all.get(0)[1], oz = all.get(0)[2];
+            for (int r = 0; r < all.size(); r++) {
+                double[] ring = all.get(r);
+                int n = ring.length / 3;
+                double[] xy = new double[2 * n];
+                double[] h = new double[n];
+                for (int i = 0; i < n; i++) {
+                    xy[2 * i] = ring[3 * i] - ox;
+                    xy[2 * i + 1] = ring[3 * i + 2] - oz;
+                    h[i] = ring[3 * i + 1] - oy;
+                }
+                rings.add(xy);
+                holes.add(allHoles.get(r));
+                heights.add(h);
+            }
+        }
+    }
+
+    /**
+     * Replays the valid records of a journal; returns null when the file is missing or not a journal
+     */
+    public static Snapshot read(File file) throws IOException {
+        if (!file.isFile() || file.length() < HEADER_BYTES) return null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readShort() != VERSION) return null;
+            Snapshot s = new Snapshot();
+            s.createdMs = in.readLong();
+            byte[] record = new byte[RECORD_BYTES];
+            ByteBuffer view = ByteBuffer.wrap(record);
+            CRC32 check = new CRC32();
+            double[] current = new double[3 * 16];
+            int count = 0;
+            while (true) {
+                try {
+                    in.readFully(record);
+                } catch (EOFException e) {
+                    break;  // Clean end or torn last record
+                }
+                check.reset();
+                check.update(record, 0, RECORD_BYTES - 4);
+                if (view.getInt(RECORD_BYTES - 4) != (int) check.getValue()) break;
+                int type = view.getInt(0);
+                double a = view.getDouble(4), b = view.getDouble(12), c = view.getDouble(20);
+                switch (type) {
+                    case ADD_POINT:
+                        if (3 * count + 3 > current.length) current = Arrays.copyOf(current, current.length * 2);
+                        current[3 * count] = a;
+                        current[3 * count + 1] = b;
+                        current[3 * count + 2] = c;
+                        count++;
+                        break;
+                    case UNDO:
+                        if (count > 0) count--;
+                        break;
+                    case CLOSE_RING:
+                        s.closedRings.add(Arrays.copyOf(current, 3 * count));
+                        s.closedHoles.add(s.currentIsHole);
+                        s.currentIsHole = a != 0;
+                        count = 0;
+                        break;
+                    case ORIGIN:
+                        s.originLat = a;
+                        s.originLng = b;
+                        s.originAccuracyM = c > 0 ? c : Double.NaN;
+                        break;
+                    case HEADING:
+                        s.headingRad = a;
+                        s.headingVarianceRad2 = b;
+                        break;
+                    default:
+                        break;  // Newer record type; skip it
+                }
+                s.records++;
+            }
+            s.current = Arrays.copyOf(current, 3 * count);
+            return s;
+        }
+    }
+}
@@ -0,0 +1,561 @@
+package com.example.fieldviewer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Point placement and live metrics of an AR measuring session, independent of ARCore and the UI.
+ * One instance holds the rings of a measurement: anchors, placement undo/redo, closed fields
+ * and holes, anchor drift and the incremental surface. The AR screen runs it on live frames
+ * (MeasurementSession, with ARCore anchors) and computes the metrics of liveInput() on a worker;
+ * replays run the same code on SessionRecorder logs on the JVM, so placement and metric cost
+ * can be benchmarked per frame without a device.
+ */
+public final class MeasurementPipeline {
+
+    // Anchor poses keep being refined after placement; refresh the HUD once they moved 2 cm in total
+    static final double DRIFT_REFRESH_EPSILON_M = 0.02;
+
+    /**
+     * Creates the anchors for recorded positions (redo, re-anchoring in a new AR session)
+     */
+    public interface AnchorSource {
+        ArAnchor create(ArPose pose);
+    }
+
+    /**
+     * Live HUD figures for the rings placed so far
+     */
+    public static final class Metrics {
+        public double perimeter;  // Closed rings plus the ring being placed, meters
+        public double area;       // Fields minus holes, m²
+        public double surface;    // Slope-aware area, m²
+        public boolean crossing;  // Ring being placed crosses itself
+    }
+
+    /**
+     * First hit on an upward-facing plane inside its detected polygon, or null
+     */
+    public static ArHit selectPlacementHit(List<ArHit> hits) {
+        for (ArHit hit : hits) {
+            if (hit.planeType() != ArHit.PLANE_HORIZONTAL_UPWARD) continue;
+            if (!hit.inPlanePolygon()) continue;
+            return hit;
+        }
+        return null;
+    }
+
+    /**
+     * Perimeter, area and crossing flag from projected rings (surface is left to the caller).
+     * closed holds the finished rings; current is the ring being placed (count vertices), which
+     * joins the area once it has 3 points.
+     */
+    public static void computeMetrics(List<double[]> closed, boolean[] closedHoles, double[] current, int count,
+                                      boolean currentIsHole, AreaEngine.Mode mode, Metrics out) {
+        double perim = RingMath.perimeter(current, count);
+        for (double[] ring : closed) perim += RingMath.perimeter(ring, ring.length / 2);
+        double area;
+        if (closed.isEmpty()) {
+            area = AreaEngine.ringArea(current, count, mode);
+        } else {
+            List<double[]> rings = new ArrayList<>(closed);
+            boolean[] holes = java.util.Arrays.copyOf(closedHoles, closed.size() + (count >= 3 ? 1 : 0));
+            if (count >= 3) {
+                rings.add(current.length == 2 * count ? current : java.util.Arrays.copyOf(current, 2 * count));
+                holes[closed.size()] = currentIsHole;
+            }
+            area = AreaEngine.netArea(rings, holes, mode);
+        }
+        out.perimeter = perim;
+        out.area = area;
+        out.crossing = count >= 4 && !SelfIntersection.isSimple(current, count);
+    }
+
+    /**
+     * Slope-aware surface of finished rings: fields minus the holes inside them. Holes outside
+     * every field don't count, as on the result screen (RingMath.netArea).
+     */
+    public static double closedSurface(List<double[]> rings, boolean[] holes, List<double[]> heights) {
+        int[] parent = RingMath.assignHoles(rings, holes);
+        double sum = 0.0;
+        for (int r = 0; r < rings.size(); r++) {
+            if (holes[r] && parent[r] < 0) continue;
+            double s = SurfaceArea.of(AreaEngine.triangulate(java.util.Collections.singletonList(rings.get(r)),
+                    new boolean[]{false}), heights.get(r));
+            sum += holes[r] ? -s : s;
+        }
+        return sum;
+    }
+
+    /**
+     * How the ring being placed enters the live surface: 1 for a field, -1 for a hole inside a
+     * finished field, 0 for a hole outside all of them (the result would ignore it)
+     */
+    public static int currentSurfaceSign(List<double[]> closed, boolean[] closedHoles, double[] current, int count,
+                                         boolean currentIsHole) {
+        if (!currentIsHole) return 1;
+        if (count == 0) return 0;
+        List<double[]> rings = new ArrayList<>(closed);
+        rings.add(current);
+        boolean[] holes = java.util.Arrays.copyOf(closedHoles, closed.size() + 1);
+        holes[closed.size()] = true;
+        return RingMath.assignHoles(rings, holes)[closed.size()] >= 0 ? -1 : 0;
+    }
+
+    /**
+     * One live metrics run for MetricsWorker: rings projected where the anchor poses can be read
+     * (the main thread), plus the surface the caller keeps incrementally. Never modified after
+     * it is submitted.
+     */
+    public static final class LiveInput {
+        public final List<double[]> closed;
+        public final boolean[] closedHoles;
+        public final double[] current;
+        public final int count;
+        public final boolean currentIsHole;
+        public final AreaEngine.Mode mode;
+        public final List<double[]> heights;   // Per closed ring, then the current one
+        public final double[] currentHeights;  // Current ring, also while it has fewer than 3 points
+        public final double surface;
+
+        public LiveInput(List<double[]> closed, boolean[] closedHoles, double[] current, int count, boolean currentIsHole,
+                         AreaEngine.Mode mode, List<double[]> heights, double[] currentHeights, double surface) {
+            this.closed = closed;
+            this.closedHoles = closedHoles;
+            this.current = current;
+            this.count = count;
+            this.currentIsHole = currentIsHole;
+            this.mode = mode;
+            this.heights = heights;
+            this.currentHeights = currentHeights;
+            this.surface = surface;
+        }
+    }
+
+    /**
+     * Metrics of a LiveInput and the fill triangulation for the outline (null without a ring)
+     */
+    public static final class LiveSnapshot {
+        public final LiveInput input;
+        public final Metrics metrics;
+        public final AreaEngine.Triangulation fill;
+        public final double[] fillHeights;  // Per triangulation vertex
+
+        LiveSnapshot(LiveInput input, Metrics metrics, AreaEngine.Triangulation fill, double[] fillHeights) {
+            this.input = input;
+            this.metrics = metrics;
+            this.fill = fill;
+            this.fillHeights = fillHeights;
+        }
+    }
+
+    /**
+     * Worker side of the live HUD: metrics and crossing check, then the outline fill; gives up
+     * between the two when newer input is waiting
+     */
+    public static LiveSnapshot computeLive(LiveInput in, MetricsWorker.Staleness stale) {
+        Metrics m = new Metrics();
+        computeMetrics(in.closed, in.closedHoles, in.current, in.count, in.currentIsHole, in.mode, m);
+        m.surface = in.surface;
+        if (stale.isStale()) return null;
+        List<double[]> rings = new ArrayList<>(in.closed);
+        boolean[] holes = java.util.Arrays.copyOf(in.closedHoles, in.closed.size() + (in.count >= 3 ? 1 : 0));
+        if (in.count >= 3) {
+            rings.add(in.current);
+            holes[in.closed.size()] = in.currentIsHole;
+        }
+        if (rings.isEmpty()) return new LiveSnapshot(in, m, null, null);
+        // Triangulation vertices are the rings' vertices in order, so the heights line up
+        int total = 0;
+        for (double[] h : in.heights) total += h.length;
+        double[] allHeights = new double[total];
+        int at = 0;
+        for (double[] h : in.heights) {
+            System.arraycopy(h, 0, allHeights, at, h.length);
+            at += h.length;
+        }
+        return new LiveSnapshot(in, m, AreaEngine.triangulate(rings, holes), allHeights);
+    }
+
+    private final List<List<ArAnchor>> closedRings = new ArrayList<>();
+    private final List<Boolean> closedHoles = new ArrayList<>();
+    private final List<PersistentVertexList> closedPositions = new ArrayList<>();  // World (x, y, z) at placement
+    private List<ArAnchor> anchors = new ArrayList<>();
+    private boolean currentIsHole = false;  // First ring is always a field
+    // Placement undo/redo: persistent snapshots of anchor world positions (x, y, z) at placement time
+    private final EditHistory<PersistentVertexList> history = new EditHistory<>();
+    // Slope-aware surface: O(1) fan update per placed/undone point, plus the closed rings' total
+    private final SurfaceArea.Accumulator liveSurface = new SurfaceArea.Accumulator();
+    private double closedSurface = 0.0;
+    private final AnchorDriftMonitor<ArAnchor> drift = new AnchorDriftMonitor<>(DRIFT_REFRESH_EPSILON_M);
+    private AnchorSource source;
+    private boolean released = false;  // Anchors detached ahead of closing their session
+    private AreaEngine.Mode mode;
+    private final Metrics metrics = new Metrics();
+
+    /**
+     * A replay pipeline: redone points get fixed anchors
+     */
+    public MeasurementPipeline(AreaEngine.Mode mode) {
+        this(mode, SessionReplayer.FixedAnchor::new);
+    }
+
+    public MeasurementPipeline(AreaEngine.Mode mode, AnchorSource source) {
+        this.mode = mode;
+        this.source = source;
+        history.reset(PersistentVertexList.empty(3), "Start");
+    }
+
+    public AreaEngine.Mode mode() {
+        return mode;
+    }
+
+    public void setMode(AreaEngine.Mode mode) {
+        this.mode = mode;
+    }
+
+    /**
+     * Applies a recorded SessionRecorder event against the frame it happened on, then refreshes
+     * the metrics
+     */
+    public void apply(int event, ArFrame frame, float x, float y) {
+        switch (event) {
+            case SessionRecorder.EVENT_ADD_POINT: if (frame != null) addPoint(frame, x, y); break;
+            case SessionRecorder.EVENT_UNDO: undo(); break;
+            case SessionRecorder.EVENT_REDO: redo(); break;
+            case SessionRecorder.EVENT_CLOSE_RING: closeRing(false); break;
+            case SessionRecorder.EVENT_CLOSE_RING_HOLE: closeRing(true); break;
+            case SessionRecorder.EVENT_RESET: reset(); break;
+            default: break;  // FINISH only marks the end of a measurement
+        }
+        refreshMetrics();
+    }
+
+    /**
+     * Hit-tests at (x, y) and anchors a point on the first usable plane; false if none
+     */
+    public boolean addPoint(ArFrame frame, float x, float y) {
+        if (!frame.isTracking()) return false;
+        ArHit hit = selectPlacementHit(frame.hitTest(x, y));
+        if (hit == null) return false;
+        addPoint(hit);
+        return true;
+    }
+
+    /**
+     * Anchors a point at a hit (see selectPlacementHit) and records its placement position
+     */
+    public ArAnchor addPoint(ArHit hit) {
+        ArAnchor anchor = hit.createAnchor();
+        anchors.add(anchor);
+        ArPose p = anchor.pose();
+        drift.track(anchor, p.tx, p.ty, p.tz);
+        history.commit(history.current().append(p.tx, p.ty, p.tz), "Add point");
+        return anchor;
+    }
+
+    public boolean canUndo() {
+        return !anchors.isEmpty() && history.canUndo();
+    }
+
+    public boolean canRedo() {
+        return history.canRedo();
+    }
+
+    public boolean undo() {
+        if (!canUndo()) return false;
+        syncTo(history.undo());
+        return true;
+    }
+
+    public boolean redo() {
+        if (!canRedo()) return false;
+        syncTo(history.redo());
+        return true;
+    }
+
+    /**
+     * Detaches or recreates anchors so they match a placement revision. Revisions only differ
+     * by points at the end, so this pops or re-appends anchors.
+     */
+    private void syncTo(PersistentVertexList target) {
+        while (anchors.size() > target.size()) {
+            ArAnchor a = anchors.remove(anchors.size() - 1);
+            drift.untrack(a);
+            detach(a);
+        }
+        while (anchors.size() < target.size() && source != null) anchors.add(createAnchor(target, anchors.size()));
+    }
+
+    /**
+     * Closes the current ring (3+ points) and starts a field or, with nextIsHole, a hole
+     */
+    public boolean closeRing(boolean nextIsHole) {
+        if (anchors.size() < 3) return false;
+        liveSurface.clear();
+        closedRings.add(anchors);
+        closedHoles.add(currentIsHole);
+        closedPositions.add(history.current());
+        recomputeClosedSurface();  // A new field may contain holes closed before it
+        anchors = new ArrayList<>();
+        currentIsHole = nextIsHole;
+        history.reset(PersistentVertexList.empty(3), "Start");
+        return true;
+    }
+
+    /**
+     * Detaches every anchor and starts an empty measurement
+     */
+    public void reset() {
+        for (List<ArAnchor> ring : closedRings) detachAll(ring);
+        detachAll(anchors);
+        closedRings.clear();
+        closedHoles.clear();
+        closedPositions.clear();
+        anchors = new ArrayList<>();
+        currentIsHole = false;
+        liveSurface.clear();
+        closedSurface = 0.0;
+        drift.clear();
+        history.reset(PersistentVertexList.empty(3), "Start");
+    }
+
+    /**
+     * Anchors are created by source from now on. With recreate, every anchor is replaced by one
+     * at its recorded placement position, e.g. in a new AR session whose world origin differs
+     * (the shape and metrics are kept).
+     */
+    public void setAnchorSource(AnchorSource source, boolean recreate) {
+        this.source = source;
+        if (recreate) {
+            drift.clear();
+            for (int r = 0; r < closedRings.size(); r++) {
+                detachAll(closedRings.get(r));
+                closedRings.set(r, createAnchors(closedPositions.get(r)));
+            }
+            detachAll(anchors);
+            anchors = createAnchors(history.current());
+            liveSurface.clear();
+            recomputeClosedSurface();
+        }
+        released = false;
+    }
+
+    /**
+     * Detaches every anchor while their session is still open; the shape is kept, and
+     * setAnchorSource(..., true) recreates the anchors in the next session
+     */
+    public void releaseAnchors() {
+        for (List<ArAnchor> ring : closedRings) detachAll(ring);
+        detachAll(anchors);
+        released = true;
+    }
+
+    private List<ArAnchor> createAnchors(PersistentVertexList positions) {
+        List<ArAnchor> out = new ArrayList<>(positions.size());
+        for (int i = 0; i < positions.size(); i++) out.add(createAnchor(positions, i));
+        return out;
+    }
+
+    private ArAnchor createAnchor(PersistentVertexList positions, int i) {
+        ArPose pose = ArPose.translation((float) positions.get(i, 0), (float) positions.get(i, 1), (float) positions.get(i, 2));
+        ArAnchor anchor = source.create(pose);
+        drift.track(anchor, pose.tx, pose.ty, pose.tz);
+        return anchor;
+    }
+
+    private void detach(ArAnchor anchor) {
+        // Released anchors belong to a closed session; detaching them again is not allowed
+        if (!released) anchor.detach();
+    }
+
+    private void detachAll(List<ArAnchor> ring) {
+        for (ArAnchor a : ring) detach(a);
+    }
+
+    /**
+     * Feeds anchors the tracker moved to the drift monitor. True once the summed movement is
+     * worth showing; the surface figures cached from the old poses are dropped then.
+     */
+    public boolean anchorsUpdated(Collection<ArAnchor> updated) {
+        if (drift.isEmpty()) return false;
+        for (ArAnchor a : updated) {
+            if (!a.isTracking()) continue;
+            ArPose p = a.pose();
+            drift.update(a, p.tx, p.ty, p.tz);
+        }
+        if (!drift.consumeRefresh()) return false;
+        liveSurface.clear();
+        recomputeClosedSurface();
+        return true;
+    }
+
+    /**
+     * AnchorDriftMonitor.snapshot of the anchors of the rings collectRings2D returns, in order
+     */
+    public double[] driftSnapshot() {
+        List<ArAnchor> ordered = new ArrayList<>();
+        for (List<ArAnchor> ring : closedRings) ordered.addAll(ring);
+        if (anchors.size() >= 3) ordered.addAll(anchors);
+        return drift.snapshot(ordered);
+    }
+
+    /**
+     * Rebuilds the closed rings' surface total from the current anchor poses
+     */
+    private void recomputeClosedSurface() {
+        List<double[]> rings = new ArrayList<>(closedRings.size());
+        List<double[]> ringHeights = new ArrayList<>(closedRings.size());
+        boolean[] holes = new boolean[closedRings.size()];
+        for (int r = 0; r < holes.length; r++) {
+            rings.add(project(closedRings.get(r)));
+            ringHeights.add(heights(closedRings.get(r)));
+            holes[r] = closedHoles.get(r);
+        }
+        closedSurface = closedSurface(rings, holes, ringHeights);
+    }
+
+    /**
+     * The part of a metrics run that reads anchor poses: every ring projected, and the surface
+     * fan brought in step with the current ring (one add/remove per placed/undone point).
+     * computeLive does the rest, on a worker or inline.
+     */
+    public LiveInput liveInput() {
+        int count = anchors.size();
+        ArAnchor o = origin();
+        List<double[]> closed = new ArrayList<>(closedRings.size());
+        List<double[]> heights = new ArrayList<>(closedRings.size() + 1);
+        boolean[] holes = new boolean[closedRings.size()];
+        for (int r = 0; r < holes.length; r++) {
+            closed.add(project(closedRings.get(r), o));
+            heights.add(heights(closedRings.get(r), o));
+            holes[r] = closedHoles.get(r);
+        }
+        double[] current = project(anchors, o);
+        double[] currentHeights = heights(anchors, o);
+        if (count >= 3) heights.add(currentHeights);
+        while (liveSurface.size() > count) liveSurface.removeLast();
+        if (liveSurface.size() < count) {
+            ArPose origin = o.pose();
+            while (liveSurface.size() < count) {
+                ArPose p = anchors.get(liveSurface.size()).pose();
+                liveSurface.add(p.tx - origin.tx, p.tz - origin.tz, p.ty - origin.ty);
+            }
+        }
+        int sign = currentSurfaceSign(closed, holes, current, count, currentIsHole);
+        double surface = Math.max(0.0, closedSurface + sign * liveSurface.surfaceArea());
+        return new LiveInput(closed, holes, current, count, currentIsHole, mode, heights, currentHeights, surface);
+    }
+
+    /**
+     * Recomputes the HUD figures inline (replays; the AR screen runs liveInput() on a worker)
+     */
+    public Metrics refreshMetrics() {
+        LiveInput in = liveInput();
+        computeMetrics(in.closed, in.closedHoles, in.current, in.count, in.currentIsHole, in.mode, metrics);
+        metrics.surface = in.surface;
+        return metrics;
+    }
+
+    public Metrics metrics() {
+        return metrics;
+    }
+
+    public int pointCount() {
+        return anchors.size();
+    }
+
+    public int closedRingCount() {
+        return closedRings.size();
+    }
+
+    public boolean isEmpty() {
+        return anchors.isEmpty() && closedRings.isEmpty();
+    }
+
+    public boolean currentIsHole() {
+        return currentIsHole;
+    }
+
+    /**
+     * Placement positions of the ring being placed
+     */
+    public PersistentVertexList placement() {
+        return history.current();
+    }
+
+    /**
+     * Projects every closed ring plus the current one (once it has 3+ points)
+     */
+    public void collectRings2D(List<double[]> rings, List<Boolean> holes) {
+        ArAnchor o = origin();
+        for (int r = 0; r < closedRings.size(); r++) {
+            rings.add(project(closedRings.get(r), o));
+            holes.add(closedHoles.get(r));
+        }
+        if (anchors.size() >= 3) {
+            rings.add(project(anchors, o));
+            holes.add(currentIsHole);
+        }
+    }
+
+    /**
+     * Heights for the rings collectRings2D returns, in the same order
+     */
+    public void collectRingHeights(List<double[]> out) {
+        ArAnchor o = origin();
+        for (List<ArAnchor> ring : closedRings) out.add(heights(ring, o));
+        if (anchors.size() >= 3) out.add(heights(anchors, o));
+    }
+
+    /**
+     * First anchor of the measurement; every ring is projected relative to it (null while empty)
+     */
+    ArAnchor origin() {
+        return origin(closedRings.isEmpty() ? null : closedRings.get(0), anchors);
+    }
+
+    private double[] project(List<ArAnchor> ring) {
+        return project(ring, origin());
+    }
+
+    private double[] heights(List<ArAnchor> ring) {
+        return heights(ring, origin());
+    }
+
+    /**
+     * First anchor of a measurement, which every ring is projected around: the first closed
+     * ring's (firstClosed, null without one), else the current ring's; null while empty
+     */
+    static ArAnchor origin(List<ArAnchor> firstClosed, List<ArAnchor> current) {
+        if (firstClosed != null) return firstClosed.get(0);
+        return current.isEmpty() ? null : current.get(0);
+    }
+
+    /**
+     * Interleaved local (x, z) meters around the origin anchor
+     */
+    static double[] project(List<ArAnchor> ring, ArAnchor o) {
+        double[] xy = new double[ring.size() * 2];
+        if (o == null) return xy;
+        ArPose origin = o.pose();
+        for (int k = 0; k < ring.size(); k++) {
+            ArPose p = ring.get(k).pose();
+            xy[2 * k] = p.tx - origin.tx;
+            xy[2 * k + 1] = p.tz - origin.tz;
+        }
+        return xy;
+    }
+
+    /**
+     * Anchor heights (world up, y) relative to the origin anchor; the ground-plane projection drops them
+     */
+    static double[] heights(List<ArAnchor> ring, ArAnchor o) {
+        double[] h = new double[ring.size()];
+        if (o == null) return h;
+        float oy = o.pose().ty;
+        for (int k = 0; k < ring.size(); k++) h[k] = ring.get(k).pose().ty - oy;
+        return h;
+    }
+}
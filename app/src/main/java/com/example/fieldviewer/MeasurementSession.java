@@ -0,0 +1,156 @@
+package com.example.fieldviewer;
+
+import androidx.lifecycle.ViewModel;
+
+import com.google.ar.core.Session;
+
+/**
+ * Measurement state of the AR screen, held in a ViewModel so it outlives the activity.
+ * Only ARCore anchors and plain data live here; the outline belongs to the activity's render
+ * backend and is rebuilt by the activity after recreation. Rings, undo/redo and live metrics
+ * are a MeasurementPipeline, the code session replays run too.
+ *
+ * ARMeasureActivity handles rotation itself (configChanges), so the render backend and its ARCore
+ * session normally stay up. If the activity is recreated anyway (or switches backend), the backend
+ * closes its session; releaseAnchors() detaches the anchors before that, and once a new session
+ * tracks, bind() recreates every anchor at its recorded placement position in it.
+ * Anchors are detached in reset() and onCleared(), so leaving the screen never leaks them.
+ *
+ * Every change that shapes the result is also appended to a MeasurementJournal, so a process
+ * that dies mid-walk can be recovered from disk on the next launch.
+ */
+public class MeasurementSession extends ViewModel {
+
+    // Anchors (ARCore, see ArCoreBridge), closed fields and holes, placement history, surface
+    final MeasurementPipeline rings = new MeasurementPipeline(AreaEngine.Mode.SHOELACE, null);
+
+    // Georeferencing
+    Double originLat = null, originLng = null;  // GPS coordinates of first point
+    double originAccuracyM = Double.NaN;  // GPS horizontal accuracy of the origin (68%), NaN when unknown
+    Float headingAtFirstAnchorRad = null;  // Captured when first anchor placed for map alignment
+    Double headingVarianceAtFirstAnchorRad2 = null;  // Compass spread when the heading was captured
+    boolean tilePrefetchStarted = false;  // Satellite tiles around the origin, once per session
+    boolean resetPending = false;  // Results were shown; start over when the AR screen comes back
+
+    private Session arSession;  // Session the anchors were created in
+    MeasurementJournal journal;  // Crash journal of this measurement; null when it could not be opened
+
+    /**
+     * Appends a record to the crash journal, if there is one (microseconds, no disk wait)
+     */
+    void journal(int type, double a, double b, double c) {
+        if (journal != null) journal.append(type, a, b, c);
+    }
+
+    void setOrigin(android.location.Location location) {
+        originLat = location.getLatitude();
+        originLng = location.getLongitude();
+        originAccuracyM = location.hasAccuracy() ? location.getAccuracy() : Double.NaN;
+        journal(MeasurementJournal.ORIGIN, originLat, originLng, Double.isNaN(originAccuracyM) ? 0 : originAccuracyM);
+    }
+
+    void setHeadingAtFirstAnchor(double rad, double varianceRad2) {
+        headingAtFirstAnchorRad = (float) rad;
+        headingVarianceAtFirstAnchorRad2 = varianceRad2;
+        journal(MeasurementJournal.HEADING, rad, varianceRad2, 0);
+    }
+
+    boolean isEmpty() {
+        return rings.isEmpty();
+    }
+
+    /**
+     * Makes current the session anchors live in. Returns true when it differs from the one the
+     * existing anchors were created in; they are then recreated at their recorded positions
+     * (the shape and metrics are kept, the new session's world origin is not the old one).
+     * Call while the camera is tracking.
+     */
+    boolean bind(Session session) {
+        if (session == null || session == arSession) return false;
+        Session previous = arSession;
+        arSession = session;
+        boolean recreate = previous != null && !isEmpty();
+        rings.setAnchorSource(pose -> ArCoreBridge.anchor(session.createAnchor(ArCoreBridge.toPose(pose))), recreate);
+        return recreate;
+    }
+
+    /**
+     * Anchors a point at a placement hit
+     */
+    ArAnchor addPoint(ArHit hit) {
+        ArAnchor anchor = rings.addPoint(hit);
+        ArPose p = anchor.pose();
+        journal(MeasurementJournal.ADD_POINT, p.tx, p.ty, p.tz);
+        return anchor;
+    }
+
+    void undo() {
+        int before = rings.pointCount();
+        if (rings.undo()) journalSync(before);
+    }
+
+    /**
+     * Re-places the most recently undone point at its recorded world position
+     */
+    void redo() {
+        int before = rings.pointCount();
+        try {
+            rings.redo();
+        } finally {
+            journalSync(before);  // Also the points placed before an anchor could not be created
+        }
+    }
+
+    /**
+     * Journals the points undo/redo removed or re-placed, one record per point
+     */
+    private void journalSync(int before) {
+        int after = rings.pointCount();
+        for (int i = after; i < before; i++) journal(MeasurementJournal.UNDO, 0, 0, 0);
+        PersistentVertexList placed = rings.placement();
+        for (int i = before; i < after; i++) {
+            journal(MeasurementJournal.ADD_POINT, placed.get(i, 0), placed.get(i, 1), placed.get(i, 2));
+        }
+    }
+
+    /**
+     * Moves the current anchors into a closed ring and starts an empty one
+     */
+    void closeCurrentRing(boolean nextIsHole) {
+        if (rings.closeRing(nextIsHole)) journal(MeasurementJournal.CLOSE_RING, nextIsHole ? 1 : 0, 0, 0);
+    }
+
+    /**
+     * Detaches every anchor and starts a new measurement; the GPS origin is kept
+     */
+    void reset() {
+        rings.reset();
+        tilePrefetchStarted = false;
+        headingAtFirstAnchorRad = null;
+        headingVarianceAtFirstAnchorRad2 = null;
+        if (journal != null) {
+            journal.clear();
+            // The origin outlives the reset, so the next measurement's journal needs it too
+            if (originLat != null && originLng != null) {
+                journal(MeasurementJournal.ORIGIN, originLat, originLng, Double.isNaN(originAccuracyM) ? 0 : originAccuracyM);
+            }
+        }
+    }
+
+    /**
+     * Detaches every anchor while their session is still open; the shape is kept, and bind()
+     * recreates the anchors in the next session. Call before the render backend closes it.
+     */
+    void releaseAnchors() {
+        rings.releaseAnchors();
+    }
+
+    @Override
+    protected void onCleared() {
+        rings.reset();
+        arSession = null;
+        // Leaving the screen ends the measurement on purpose; only a dead process leaves a journal behind
+        if (journal != null) journal.discard();
+        journal = null;
+    }
+}
@@ -0,0 +1,213 @@
+package com.example.fieldviewer;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Computes metrics off the UI thread: the UI submits immutable inputs (vertex updates) and
+ * reads the latest published snapshot once per frame, without locks on either side.
+ *
+ * Only the newest pending input is kept, so inputs that arrive while a computation runs replace
+ * each other and are never computed. A running computation can also poll isStale() between its
+ * heavy stages (validity checks, triangulation) and give up by returning null; to keep the
+ * display moving during a long drag, work only counts as stale once a snapshot was published
+ * within the last maxLagNanos.
+ *
+ * A computation that throws is logged and counted, and the worker moves on to the next input.
+ * A background thread that needs the result of a particular submit (a save) can block in
+ * awaitHandled() until the worker is done with it.
+ *
+ * @param <I> immutable input, built on the submitting thread
+ * @param <S> snapshot, never modified after it is published
+ */
+public final class MetricsWorker<I, S> {
+
+    private static final Logger LOG = Logger.getLogger("MetricsWorker");
+
+    public interface Computation<I, S> {
+        /**
+         * Snapshot for input, or null when it gave up because stale.isStale() said so
+         */
+        S compute(I input, Staleness stale);
+    }
+
+    public interface Staleness {
+        boolean isStale();
+    }
+
+    /**
+     * A published snapshot and the submit() version it was computed from
+     */
+    public static final class Snapshot<S> {
+        public final long version;
+        public final S value;
+
+        Snapshot(long version, S value) {
+            this.version = version;
+            this.value = value;
+        }
+    }
+
+    private static final class Pending<I> {
+        final long version;
+        final I input;
+
+        Pending(long version, I input) {
+            this.version = version;
+            this.input = input;
+        }
+    }
+
+    private final Executor executor;
+    private final Computation<I, S> computation;
+    private final Runnable onPublish;
+    private final long maxLagNanos;
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicReference<Pending<I>> pending = new AtomicReference<>();
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final AtomicReference<Snapshot<S>> latest = new AtomicReference<>();
+    private volatile long lastPublishNanos = System.nanoTime();
+    private final Object handledLock = new Object();
+    private long handled = 0L;  // Newest version computed, abandoned or failed; guarded by handledLock
+
+    // Counters for tests and the perf overlay
+    private final AtomicLong computed = new AtomicLong();
+    private final AtomicLong superseded = new AtomicLong();  // Replaced before they were computed
+    private final AtomicLong abandoned = new AtomicLong();   // Gave up mid-computation
+    private final AtomicLong failed = new AtomicLong();      // Threw; logged and skipped
+
+    /**
+     * @param onPublish runs on the worker thread after each publication (may be null)
+     */
+    public MetricsWorker(Executor executor, Computation<I, S> computation, long maxLagNanos, Runnable onPublish) {
+        this.executor = executor;
+        this.computation = computation;
+        this.maxLagNanos = maxLagNanos;
+        this.onPublish = onPublish;
+    }
+
+    /**
+     * Single daemon thread named threadName
+     */
+    public static ExecutorService newExecutor(String threadName) {
+        return Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, threadName);
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Replaces any input that is still waiting and makes sure the worker runs; returns the
+     * version the resulting snapshot will carry
+     */
+    public long submit(I input) {
+        long version = submitted.incrementAndGet();
+        if (pending.getAndSet(new Pending<>(version, input)) != null) superseded.incrementAndGet();
+        if (draining.compareAndSet(false, true)) executor.execute(this::drain);
+        return version;
+    }
+
+    private void drain() {
+        boolean idle = false;
+        try {
+            while (true) {
+                Pending<I> p = pending.getAndSet(null);
+                if (p == null) {
+                    draining.set(false);
+                    idle = true;
+                    // A submit between getAndSet and set(false) saw draining and did not schedule
+                    if (pending.get() == null || !draining.compareAndSet(false, true)) return;
+                    idle = false;
+                    continue;
+                }
+                final long version = p.version;
+                S value;
+                try {
+                    value = computation.compute(p.input, () -> submitted.get() != version
+                            && System.nanoTime() - lastPublishNanos < maxLagNanos);
+                } catch (RuntimeException e) {
+                    // One bad input (a degenerate ring) must not stop the inputs after it
+                    failed.incrementAndGet();
+                    LOG.log(Level.WARNING, "Metrics computation failed for version " + version, e);
+                    markHandled(version);
+                    continue;
+                }
+                if (value == null) {
+                    abandoned.incrementAndGet();
+                    markHandled(version);
+                    continue;
+                }
+                computed.incrementAndGet();
+                latest.set(new Snapshot<>(version, value));
+                lastPublishNanos = System.nanoTime();
+                markHandled(version);
+                if (onPublish != null) onPublish.run();
+            }
+        } finally {
+            // Anything else thrown (onPublish, an Error) ends this run; the next submit starts another
+            if (!idle) draining.set(false);
+        }
+    }
+
+    private void markHandled(long version) {
+        synchronized (handledLock) {
+            handled = version;
+            handledLock.notifyAll();
+        }
+    }
+
+    /**
+     * Blocks until the worker is done with the input of version or a newer one, or timeoutMs
+     * passed, and returns the newest snapshot; its version tells whether it belongs to version
+     * (a newer input, or an input that failed, leaves it to the caller). Not for the UI thread.
+     */
+    public Snapshot<S> awaitHandled(long version, long timeoutMs) throws InterruptedException {
+        long deadline = System.nanoTime() + timeoutMs * 1_000_000L;
+        synchronized (handledLock) {
+            while (handled < version) {
+                long leftMs = (deadline - System.nanoTime()) / 1_000_000L;
+                if (leftMs <= 0) break;
+                handledLock.wait(leftMs);
+            }
+        }
+        return latest.get();
+    }
+
+    /**
+     * Newest published snapshot, or null before the first one
+     */
+    public Snapshot<S> latest() {
+        return latest.get();
+    }
+
+    /**
+     * Version of the newest submit(); equal to latest().version once the worker caught up
+     */
+    public long submittedVersion() {
+        return submitted.get();
+    }
+
+    public long computedCount() {
+        return computed.get();
+    }
+
+    public long supersededCount() {
+        return superseded.get();
+    }
+
+    public long abandonedCount() {
+        return abandoned.get();
+    }
+
+    public long failedCount() {
+        return failed.get();
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.fieldviewer;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Satellite tiles for fields with poor coverage: a TileCache in front of a TileSource, plus a
+ * background prefetch of the zoom 15-20 pyramid around the measurement origin so the result
+ * map works offline by the time the user gets there.
+ */
+public final class OfflineTiles {
+
+    public static final String CACHE_FILE_NAME = "satellite.tiles";
+    public static final long DEFAULT_MAX_BYTES = 128L * 1024 * 1024;
+    public static final int PREFETCH_MIN_ZOOM = 15;
+    public static final int PREFETCH_MAX_ZOOM = 20;
+    public static final double PREFETCH_RADIUS_M = 250.0;
+    private static final int MAX_CONSECUTIVE_FAILURES = 5;  // Give up early when offline
+
+    // One instance per cache file; the result map and the AR prefetch share it
+    private static final Map<String, OfflineTiles> INSTANCES = new HashMap<>();
+
+    private final TileCache cache;
+    private final TileSource source;
+    private final ExecutorService prefetcher = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "tile-prefetch");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
+    private Future<Integer> prefetch;
+    private long prefetchOriginKey = -1L;  // Finest-zoom tile of the last prefetch origin
+    private final AtomicLong downloaded = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    OfflineTiles(TileCache cache, TileSource source) {
+        this.cache = cache;
+        this.source = source;
+    }
+
+    /**
+     * Shared instance for a cache directory and URL template
+     */
+    public static synchronized OfflineTiles forDirectory(File dir, String urlTemplate) throws IOException {
+        String id = new File(dir, CACHE_FILE_NAME).getAbsolutePath() + "|" + urlTemplate;
+        OfflineTiles tiles = INSTANCES.get(id);
+        if (tiles == null) {
+            tiles = new OfflineTiles(new TileCache(new File(dir, CACHE_FILE_NAME), DEFAULT_MAX_BYTES),
+                    new TileSource(urlTemplate));
+            INSTANCES.put(id, tiles);
+        }
+        return tiles;
+    }
+
+    /**
+     * Cached tile, downloaded and cached on a miss; null if the server has none.
+     * Throws when the tile is not cached and cannot be downloaded (offline).
+     */
+    public byte[] tile(int z, int x, int y) throws IOException {
+        long key = TileMath.key(z, x, y);
+        byte[] data = cache.get(key);
+        if (data != null) return data;
+        data = download(z, x, y);
+        if (data != null) cache.put(key, data);
+        return data;
+    }
+
+    private byte[] download(int z, int x, int y) throws IOException {
+        try {
+            byte[] data = source.fetch(z, x, y);
+            downloaded.incrementAndGet();
+            return data;
+        } catch (IOException e) {
+            failures.incrementAndGet();
+            throw e;
+        }
+    }
+
+    /**
+     * Starts (or restarts) downloading the tiles around an origin that are not cached yet.
+     * A request for the same spot while one is running is ignored. The future yields the
+     * number of tiles stored.
+     */
+    public synchronized Future<Integer> prefetchAround(double lat, double lng) {
+        long originKey = TileMath.key(PREFETCH_MAX_ZOOM, TileMath.tileX(lng, PREFETCH_MAX_ZOOM), TileMath.tileY(lat, PREFETCH_MAX_ZOOM));
+        if (prefetch != null && !prefetch.isDone() && originKey == prefetchOriginKey) return prefetch;
+        if (prefetch != null) prefetch.cancel(true);
+        prefetchOriginKey = originKey;
+        final long[] keys = TileMath.pyramid(lat, lng, PREFETCH_RADIUS_M, PREFETCH_MIN_ZOOM, PREFETCH_MAX_ZOOM);
+        prefetch = prefetcher.submit(() -> {
+            int stored = 0, failedInRow = 0;
+            for (long key : keys) {
+                if (Thread.currentThread().isInterrupted()) break;
+                if (cache.contains(key)) continue;
+                try {
+                    byte[] data = download(TileMath.zoom(key), TileMath.x(key), TileMath.y(key));
+                    failedInRow = 0;
+                    if (data == null) continue;
+                    cache.put(key, data);
+                    stored++;
+                } catch (IOException e) {
+                    if (++failedInRow >= MAX_CONSECUTIVE_FAILURES) break;
+                }
+            }
+            return stored;
+        });
+        return prefetch;
+    }
+
+    public synchronized void cancelPrefetch() {
+        if (prefetch != null) prefetch.cancel(true);
+    }
+
+    public TileCache cache() {
+        return cache;
+    }
+
+    public long downloads() {
+        return downloaded.get();
+    }
+
+    public long failures() {
+        return failures.get();
+    }
+
+    /**
+     * One-line cache summary for the perf overlay
+     */
+    public String formatStats() {
+        long hits = cache.hits(), misses = cache.misses();
+        double rate = hits + misses == 0 ? 0.0 : 100.0 * hits / (hits + misses);
+        return String.format(Locale.US, "tiles: %d cached (%.1f MB), hit %d / miss %d (%.0f%%), evicted %d, dl %d, err %d",
+                cache.size(), cache.liveBytes() / (1024.0 * 1024.0), hits, misses, rate,
+                cache.evictions(), downloaded.get(), failures.get());
+    }
+
+    /**
+     * Stats of every open instance, or null when none is open
+     */
+    public static synchronized String formatAllStats() {
+        if (INSTANCES.isEmpty()) return null;
+        StringBuilder sb = new StringBuilder();
+        for (OfflineTiles t : INSTANCES.values()) {
+            if (sb.length() > 0) sb.append('\n');
+            sb.append(t.formatStats());
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.fieldviewer;
+
+import java.util.Arrays;
+
+/**
+ * Geometry of the AR outline: a translucent fill, edge ribbons and vertex dots for every ring,
+ * all in one vertex array with one index list per material, so the renderer draws any number
+ * of vertices with a fixed number of draw calls.
+ *
+ * Coordinates follow the measurement projection: ring (x, y) are local meters on the ground
+ * (world x, z relative to the origin anchor) and heights are world y relative to it. Output
+ * positions are (x, height, y), ready for a node placed at the origin anchor. Every triangle
+ * faces up (+y). Buffers grow by doubling and are reused across rebuilds.
+ */
+public final class OutlineMesh {
+
+    public static final int FILL = 0;       // Fields minus holes
+    public static final int EDGE = 1;       // Field outlines and vertex dots
+    public static final int HOLE_EDGE = 2;  // Exclusion zone outlines and vertex dots
+    public static final int PART_COUNT = 3;
+
+    private final float edgeWidth, dotSize, lift;
+    private float[] positions = new float[3 * 64];
+    private int vertexCount = 0;
+    private final int[][] indices = {new int[96], new int[96], new int[96]};
+    private final int[] indexCount = new int[PART_COUNT];
+
+    /**
+     * @param edgeWidth ribbon width in meters
+     * @param dotSize   side of the square drawn at each vertex
+     * @param lift      offset above the vertices, keeps the mesh out of the detected plane
+     */
+    public OutlineMesh(float edgeWidth, float dotSize, float lift) {
+        this.edgeWidth = edgeWidth;
+        this.dotSize = dotSize;
+        this.lift = lift;
+    }
+
+    public void clear() {
+        vertexCount = 0;
+        Arrays.fill(indexCount, 0);
+    }
+
+    public int vertexCount() {
+        return vertexCount;
+    }
+
+    /**
+     * Interleaved (x, y, z) of vertexCount() vertices; the array may be longer
+     */
+    public float[] positions() {
+        return positions;
+    }
+
+    public int indexCount(int part) {
+        return indexCount[part];
+    }
+
+    /**
+     * Triangle vertex indices of one part (indexCount(part) entries are valid)
+     */
+    public int[] indices(int part) {
+        return indices[part];
+    }
+
+    /**
+     * Adds the fill of a triangulation (AreaEngine.triangulate); heights[v] belongs to vertex v
+     * of t.coords
+     */
+    public void addFill(AreaEngine.Triangulation t, double[] heights) {
+        int base = vertexCount;
+        int n = t.coords.length / 2;
+        for (int v = 0; v < n; v++) addVertex(t.coords[2 * v], heights[v], t.coords[2 * v + 1]);
+        int[] tri = t.triangles;
+        for (int k = 0; k < tri.length; k += 3) addTriangle(FILL, base + tri[k], base + tri[k + 1], base + tri[k + 2]);
+    }
+
+    /**
+     * Adds the outline of one ring (n vertices). Open rings (still being placed) get no closing edge.
+     */
+    public void addOutline(double[] xy, double[] heights, int n, boolean closed, boolean hole) {
+        int part = hole ? HOLE_EDGE : EDGE;
+        float half = edgeWidth / 2;
+        int edges = closed && n >= 3 ? n : n - 1;
+        for (int i = 0; i < edges; i++) {
+            int j = (i + 1) % n;
+            double x0 = xy[2 * i], y0 = xy[2 * i + 1], x1 = xy[2 * j], y1 = xy[2 * j + 1];
+            double len = Math.hypot(x1 - x0, y1 - y0);
+            if (len == 0) continue;
+            double ox = -(y1 - y0) / len * half, oy = (x1 - x0) / len * half;
+            int v = vertexCount;
+            addVertex(x0 + ox, heights[i], y0 + oy);
+            addVertex(x0 - ox, heights[i], y0 - oy);
+            addVertex(x1 + ox, heights[j], y1 + oy);
+            addVertex(x1 - ox, heights[j], y1 - oy);
+            addTriangle(part, v, v + 1, v + 2);
+            addTriangle(part, v + 2, v + 1, v + 3);
+        }
+        float d = dotSize / 2;
+        for (int i = 0; i < n; i++) {
+            double x = xy[2 * i], y = xy[2 * i + 1], h = heights[i];
+            int v = vertexCount;
+            addVertex(x - d, h, y - d);
+            addVertex(x + d, h, y - d);
+            addVertex(x + d, h, y + d);
+            addVertex(x - d, h, y + d);
+            addTriangle(part, v, v + 1, v + 2);
+            addTriangle(part, v, v + 2, v + 3);
+        }
+    }
+
+    private void addVertex(double x, double h, double y) {
+        if (3 * vertexCount + 3 > positions.length) positions = Arrays.copyOf(positions, positions.length * 2);
+        positions[3 * vertexCount] = (float) x;
+        positions[3 * vertexCount + 1] = (float) (h + lift);
+        positions[3 * vertexCount + 2] = (float) y;
+        vertexCount++;
+    }
+
+    /**
+     * Appends a triangle wound counter-clockwise seen from above, so back-face culling keeps it
+     */
+    private void addTriangle(int part, int a, int b, int c) {
+        float ax = positions[3 * a], az = positions[3 * a + 2];
+        float ux = positions[3 * b] - ax, uz = positions[3 * b + 2] - az;
+        float vx = positions[3 * c] - ax, vz = positions[3 * c + 2] - az;
+        // y of (b - a) x (c - a); positive means the normal points up
+        if (uz * vx - ux * vz < 0) {
+            int tmp = b;
+            b = c;
+            c = tmp;
+        }
+        int[] list = indices[part];
+        int at = indexCount[part];
+        if (at + 3 > list.length) list = indices[part] = Arrays.copyOf(list, list.length * 2);
+        list[at] = a;
+        list[at + 1] = b;
+        list[at + 2] = c;
+        indexCount[part] = at + 3;
+    }
+}
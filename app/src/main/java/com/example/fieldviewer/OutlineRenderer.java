@@ -0,0 +1,141 @@
+package com.example.fieldviewer;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.google.ar.sceneform.Node;
+import com.google.ar.sceneform.Scene;
+import com.google.ar.sceneform.math.Vector3;
+import com.google.ar.sceneform.rendering.Color;
+import com.google.ar.sceneform.rendering.Material;
+import com.google.ar.sceneform.rendering.MaterialFactory;
+import com.google.ar.sceneform.rendering.ModelRenderable;
+import com.google.ar.sceneform.rendering.RenderableDefinition;
+import com.google.ar.sceneform.rendering.Vertex;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Draws an OutlineMesh as a single Sceneform node with one renderable that has a submesh per
+ * mesh part, so the shape costs three draw calls whether it has 4 or 1000 vertices.
+ * Rebuilds reuse the Vertex objects and index lists and update the renderable in place
+ * (updateFromDefinition) rather than creating nodes or renderables per point.
+ * Must be used on the main thread (Sceneform completes its futures there).
+ */
+final class OutlineRenderer {
+
+    private static final String TAG = "OutlineRenderer";
+
+    private final Node node = new Node();
+    private final Material[] materials = new Material[OutlineMesh.PART_COUNT];
+    private int materialsPending = OutlineMesh.PART_COUNT;
+    private ModelRenderable renderable;
+    private boolean building = false;  // First renderable is being created
+
+    private final List<Vertex> vertexPool = new ArrayList<>();
+    private final List<List<Integer>> indexLists = new ArrayList<>();
+    private final List<RenderableDefinition.Submesh> submeshes = new ArrayList<>();
+    private RenderableDefinition definition;
+
+    // Latest request; applied once materials (and the first renderable) are ready
+    private OutlineMesh latest;
+    private Vector3 latestOrigin;
+
+    OutlineRenderer(Context context, Scene scene) {
+        node.setParent(scene);
+        node.setEnabled(false);
+        for (int part = 0; part < OutlineMesh.PART_COUNT; part++) indexLists.add(new ArrayList<>());
+        MaterialFactory.makeTransparentWithColor(context, new Color(0f, 0.74f, 0.83f, 0.3f))
+                .thenAccept(m -> onMaterial(OutlineMesh.FILL, m));
+        MaterialFactory.makeOpaqueWithColor(context, new Color(android.graphics.Color.CYAN))
+                .thenAccept(m -> onMaterial(OutlineMesh.EDGE, m));
+        MaterialFactory.makeOpaqueWithColor(context, new Color(0xFFF44336))
+                .thenAccept(m -> onMaterial(OutlineMesh.HOLE_EDGE, m));
+    }
+
+    private void onMaterial(int part, Material material) {
+        materials[part] = material;
+        materialsPending--;
+        apply();
+    }
+
+    /**
+     * Shows mesh with its local origin at the given world position; an empty mesh hides the outline.
+     * The mesh is read when the update is applied, so callers may keep reusing one instance.
+     */
+    void update(OutlineMesh mesh, Vector3 origin) {
+        latest = mesh;
+        latestOrigin = origin;
+        apply();
+    }
+
+    private void apply() {
+        if (latest == null || materialsPending > 0 || building) return;
+        if (latest.vertexCount() == 0 || latestOrigin == null) {
+            node.setEnabled(false);
+            return;
+        }
+        node.setWorldPosition(latestOrigin);
+        fillDefinition(latest);
+        node.setEnabled(true);
+        if (renderable != null) {
+            renderable.updateFromDefinition(definition);
+            return;
+        }
+        building = true;
+        ModelRenderable.builder().setSource(definition).build()
+                .thenAccept(r -> {
+                    building = false;
+                    r.setShadowCaster(false);
+                    r.setShadowReceiver(false);
+                    renderable = r;
+                    node.setRenderable(r);
+                    apply();  // Catch up with updates requested while building
+                })
+                .exceptionally(t -> {
+                    building = false;
+                    Log.e(TAG, "Unable to build outline renderable", t);
+                    return null;
+                });
+    }
+
+    private void fillDefinition(OutlineMesh mesh) {
+        int n = mesh.vertexCount();
+        float[] p = mesh.positions();
+        while (vertexPool.size() < n) {
+            vertexPool.add(Vertex.builder()
+                    .setPosition(new Vector3())
+                    .setNormal(Vector3.up())
+                    .setUvCoordinate(new Vertex.UvCoordinate(0f, 0f))
+                    .build());
+        }
+        for (int i = 0; i < n; i++) vertexPool.get(i).getPosition().set(p[3 * i], p[3 * i + 1], p[3 * i + 2]);
+
+        submeshes.clear();
+        for (int part = 0; part < OutlineMesh.PART_COUNT; part++) {
+            List<Integer> list = indexLists.get(part);
+            list.clear();
+            int[] idx = mesh.indices(part);
+            int count = mesh.indexCount(part);
+            for (int k = 0; k < count; k++) list.add(idx[k]);
+            if (count == 0) {
+                // Keep the submesh (and its material slot) with a degenerate triangle
+                list.add(0);
+                list.add(0);
+                list.add(0);
+            }
+            submeshes.add(RenderableDefinition.Submesh.builder()
+                    .setTriangleIndices(list)
+                    .setMaterial(materials[part])
+                    .build());
+        }
+        List<Vertex> vertices = vertexPool.subList(0, n);
+        if (definition == null) {
+            definition = RenderableDefinition.builder().setVertices(vertices).setSubmeshes(submeshes).build();
+        } else {
+            definition.setVertices(vertices);
+            definition.setSubmeshes(submeshes);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.fieldviewer;
+
+import android.app.Activity;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.View;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import java.io.File;
+
+/**
+ * Debug overlay that shows PerfTelemetry histograms on top of an activity.
+ * Long-press the toggle view to show/hide it; tap the overlay to dump stats to a file
+ * under getExternalFilesDir("telemetry"). Refreshes twice per second while visible.
+ */
+public class PerfOverlay {
+
+    private static final long REFRESH_MS = 500;
+
+    private final Activity activity;
+    private final TextView overlay;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private boolean resumed = false;
+
+    private final Runnable refresh = new Runnable() {
+        @Override public void run() {
+            if (!resumed || overlay.getVisibility() != View.VISIBLE) return;
+            overlay.setText(PerfTelemetry.formatSummary() + "\n(tap to dump)");
+            handler.postDelayed(this, REFRESH_MS);
+        }
+    };
+
+    public PerfOverlay(Activity activity, TextView overlay, View toggle) {
+        this.activity = activity;
+        this.overlay = overlay;
+        if (toggle != null) {
+            toggle.setOnLongClickListener(v -> {
+                toggle();
+                return true;
+            });
+        }
+        overlay.setOnClickListener(v -> dump());
+    }
+
+    /**
+     * Shows or hides the overlay
+     */
+    public void toggle() {
+        boolean show = overlay.getVisibility() != View.VISIBLE;
+        overlay.setVisibility(show ? View.VISIBLE : View.GONE);
+        handler.removeCallbacks(refresh);
+        if (show) handler.post(refresh);
+    }
+
+    public void onResume() {
+        resumed = true;
+        handler.removeCallbacks(refresh);
+        if (overlay.getVisibility() == View.VISIBLE) handler.post(refresh);
+    }
+
+    public void onPause() {
+        resumed = false;
+        handler.removeCallbacks(refresh);
+    }
+
+    private void dump() {
+        try {
+            File out = PerfTelemetry.dumpToFile(new File(activity.getExternalFilesDir(null), "telemetry"));
+            Toast.makeText(activity, "Perf stats saved: " + out.getAbsolutePath(), Toast.LENGTH_LONG).show();
+        } catch (Exception e) {
+            Toast.makeText(activity, "Perf dump failed", Toast.LENGTH_SHORT).show();
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.fieldviewer;
+
+import android.os.Debug;
+import android.os.Trace;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.util.Locale;
+
+/**
+ * App-wide performance telemetry.
+ * Each measured operation gets a systrace/Perfetto section (android.os.Trace) and an
+ * in-memory LatencyHistogram. Recording is lock-free and allocation-free, so it stays on
+ * in release builds; formatting and dumping only happen when the debug overlay asks.
+ *
+ * Usage: long t0 = PerfTelemetry.begin(PerfTelemetry.HIT_TEST); ... PerfTelemetry.end(PerfTelemetry.HIT_TEST, t0);
+ * begin/end must be called on the same thread because Trace sections are per-thread, and end
+ * belongs in a finally block so a throwing operation cannot leave its section open.
+ */
+public final class PerfTelemetry {
+
+    // Metric ids (index into HISTOGRAMS / TRACE_NAMES)
+    public static final int SCENE_FRAME = 0;   // Interval between Sceneform scene updates
+    public static final int HIT_TEST = 1;      // Frame.hitTest at the crosshair
+    public static final int ADD_POINT = 2;     // +Point end-to-end (hit test, anchor, marker, metrics)
+    public static final int METRICS = 3;       // Perimeter/area recompute
+    public static final int SAVE = 4;          // JSON save, save thread (metrics wait, JSON, file, index, outbox)
+    public static final int EXPORT = 5;        // KML export
+    public static final int TILE = 6;          // Satellite tile request from the map (cache or download)
+    public static final int CLIP = 7;          // Measurement vs reference boundary clipping
+    public static final int SNAP = 8;          // Dragged vertex snapped onto saved/imported boundaries
+    public static final int REPORT = 9;        // One measurement report (read, layout, PNG/PDF written)
+    public static final int GL_FRAME = 10;     // Interval between GlBackend frames (compare with SCENE_FRAME)
+    public static final int GL_DRAW = 11;      // GlBackend session update + camera + outline draw, GL thread
+    public static final int AR_STARTUP = 12;   // AR screen created to first tracked frame, either backend
+    public static final int UNCERTAINTY = 13;  // Monte Carlo area interval (AreaUncertainty), metrics worker
+    public static final int WALK_FIXES = 14;   // One batch of GPS walk fixes through BoundaryTracker
+
+    private static final String[] TRACE_NAMES = {
+            "FV.sceneFrame", "FV.hitTest", "FV.addPoint", "FV.metrics", "FV.save", "FV.export", "FV.tile", "FV.clip", "FV.snap",
+            "FV.report", "FV.glFrame", "FV.glDraw", "FV.arStartup", "FV.uncertainty", "FV.walkFixes"
+    };
+
+    private static final LatencyHistogram[] HISTOGRAMS = {
+            new LatencyHistogram("scene frame"),
+            new LatencyHistogram("hitTest"),
+            new LatencyHistogram("addPoint"),
+            new LatencyHistogram("metrics"),
+            new LatencyHistogram("save"),
+            new LatencyHistogram("export"),
+            new LatencyHistogram("tile"),
+            new LatencyHistogram("clip"),
+            new LatencyHistogram("snap"),
+            new LatencyHistogram("report"),
+            new LatencyHistogram("gl frame"),
+            new LatencyHistogram("gl draw"),
+            new LatencyHistogram("ar startup"),
+            new LatencyHistogram("uncertainty"),
+            new LatencyHistogram("walk fixes")
+    };
+
+    // Global switch; recording is cheap so this defaults to on
+    private static volatile boolean enabled = true;
+
+    // GC counters at the last reset, so the overlay shows GCs since then
+    private static long gcCountAtReset = readGcCount();
+    private static long gcTimeMsAtReset = readGcTimeMs();
+
+    private PerfTelemetry() {}
+
+    public static void setEnabled(boolean on) {
+        enabled = on;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Opens a trace section and returns the start timestamp for end(), or 0 when disabled (no
+     * section opened)
+     */
+    public static long begin(int metric) {
+        if (!enabled) return 0L;
+        Trace.beginSection(TRACE_NAMES[metric]);
+        long now = System.nanoTime();
+        return now != 0L ? now : 1L;
+    }
+
+    /**
+     * Closes the trace section opened by begin() and records the elapsed time. Whether there is
+     * a section to close comes from the begin() token, not the switch: toggling telemetry while
+     * a section is open must not leave it unbalanced.
+     */
+    public static void end(int metric, long startNanos) {
+        if (startNanos == 0L) return;
+        HISTOGRAMS[metric].recordSince(startNanos);
+        Trace.endSection();
+    }
+
+    /**
+     * Records an already measured duration without a trace section (e.g. frame intervals)
+     */
+    public static void record(int metric, long nanos) {
+        if (!enabled) return;
+        HISTOGRAMS[metric].record(nanos);
+    }
+
+    public static LatencyHistogram histogram(int metric) {
+        return HISTOGRAMS[metric];
+    }
+
+    /**
+     * Clears all histograms and re-bases GC counters
+     */
+    public static void reset() {
+        for (LatencyHistogram h : HISTOGRAMS) h.reset();
+        gcCountAtReset = readGcCount();
+        gcTimeMsAtReset = readGcTimeMs();
+    }
+
+    /**
+     * Human-readable summary for the debug overlay and dumps (allocates; not for hot paths)
+     */
+    public static String formatSummary() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("metric        n     p50     p95     p99     max  (ms)\n");
+        for (LatencyHistogram h : HISTOGRAMS) {
+            sb.append(String.format(Locale.US, "%-11s %5d %7.2f %7.2f %7.2f %7.2f\n",
+                    h.getName(), h.count(),
+                    h.percentileNanos(50) / 1e6, h.percentileNanos(95) / 1e6,
+                    h.percentileNanos(99) / 1e6, h.maxNanos() / 1e6));
+        }
+        long gcCount = readGcCount();
+        long gcTime = readGcTimeMs();
+        if (gcCount >= 0) {
+            sb.append(String.format(Locale.US, "GC: %d (%d ms) since reset",
+                    gcCount - gcCountAtReset, Math.max(0, gcTime - gcTimeMsAtReset)));
+        }
+        String tiles = OfflineTiles.formatAllStats();
+        if (tiles != null) sb.append('\n').append(tiles);
+        return sb.toString();
+    }
+
+    /**
+     * Writes the summary plus raw bucket counts to a timestamped text file in dir
+     */
+    public static File dumpToFile(File dir) throws Exception {
+        if (!dir.exists()) dir.mkdirs();
+        File out = new File(dir, "perf_" + System.currentTimeMillis() + ".txt");
+        long[] buckets = new long[LatencyHistogram.BUCKET_COUNT];
+        try (FileWriter fw = new FileWriter(out)) {
+            fw.write(formatSummary());
+            fw.write("\n\n# raw buckets: metric, bucketUpperBoundNs, count\n");
+            for (LatencyHistogram h : HISTOGRAMS) {
+                h.copyBuckets(buckets);
+                for (int i = 0; i < buckets.length; i++) {
+                    if (buckets[i] == 0) continue;
+                    fw.write(h.getName() + "," + LatencyHistogram.bucketUpperBound(i) + "," + buckets[i] + "\n");
+                }
+            }
+        }
+        return out;
+    }
+
+    // ART runtime stats (API 23+); -1 when unavailable
+    private static long readGcCount() {
+        return parseRuntimeStat("art.gc.gc-count");
+    }
+
+    private static long readGcTimeMs() {
+        return parseRuntimeStat("art.gc.gc-time");
+    }
+
+    private static long parseRuntimeStat(String key) {
+        try {
+            if (android.os.Build.VERSION.SDK_INT < 23) return -1;
+            String v = Debug.getRuntimeStat(key);
+            return v != null ? Long.parseLong(v) : -1;
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+}
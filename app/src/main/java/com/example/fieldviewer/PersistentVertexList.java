@@ -0,0 +1,206 @@
+package com.example.fieldviewer;
+
+import java.util.Arrays;
+
+/**
+ * Immutable, structurally shared sequence of vertices (2 or 3 doubles each).
+ * Backed by a 32-way trie: set/append/removeLast copy only the path from the root to one
+ * leaf, so each edit costs O(log32 n) time and memory and every older version stays valid.
+ * This lets the edit history keep thousands of revisions of large polygons cheaply.
+ */
+public final class PersistentVertexList {
+
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+
+    private final int dims;    // Doubles per vertex
+    private final int size;    // Number of vertices
+    private final int shift;   // BITS * (tree height - 1); 0 means root is a leaf
+    private final Object root; // double[] leaf when shift == 0, otherwise Object[]
+
+    private PersistentVertexList(int dims, int size, int shift, Object root) {
+        this.dims = dims;
+        this.size = size;
+        this.shift = shift;
+        this.root = root;
+    }
+
+    /**
+     * Empty list holding dims (2 or 3) coordinates per vertex
+     */
+    public static PersistentVertexList empty(int dims) {
+        if (dims < 1) throw new IllegalArgumentException("dims must be >= 1");
+        return new PersistentVertexList(dims, 0, 0, new double[0]);
+    }
+
+    /**
+     * Builds a list from interleaved coordinates (x0, y0, x1, y1, ...) in O(n)
+     */
+    public static PersistentVertexList of(int dims, double[] coords, int vertexCount) {
+        if (vertexCount * dims > coords.length) throw new IllegalArgumentException("coords too short");
+        if (vertexCount == 0) return empty(dims);
+        // Bottom-up build: pack leaves, then group 32 nodes per level until one root remains
+        int leafLen = WIDTH * dims;
+        int leafCount = (vertexCount + MASK) >>> BITS;
+        Object[] level = new Object[leafCount];
+        for (int i = 0; i < leafCount; i++) {
+            int from = i * leafLen;
+            int to = Math.min(from + leafLen, vertexCount * dims);
+            level[i] = Arrays.copyOfRange(coords, from, to);
+        }
+        int shift = 0;
+        while (level.length > 1) {
+            Object[] next = new Object[(level.length + MASK) >>> BITS];
+            for (int i = 0; i < next.length; i++) {
+                int from = i * WIDTH;
+                next[i] = Arrays.copyOfRange(level, from, Math.min(from + WIDTH, level.length));
+            }
+            level = next;
+            shift += BITS;
+        }
+        return new PersistentVertexList(dims, vertexCount, shift, level[0]);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int dims() {
+        return dims;
+    }
+
+    /**
+     * Coordinate d (0-based) of vertex i
+     */
+    public double get(int i, int d) {
+        return leafFor(i)[(i & MASK) * dims + d];
+    }
+
+    public double x(int i) {
+        return get(i, 0);
+    }
+
+    public double y(int i) {
+        return get(i, 1);
+    }
+
+    /**
+     * Copies all coordinates into an interleaved array (length >= size * dims)
+     */
+    public void copyTo(double[] out) {
+        for (int base = 0; base < size; base += WIDTH) {
+            double[] leaf = leafFor(base);
+            System.arraycopy(leaf, 0, out, base * dims, leaf.length);
+        }
+    }
+
+    /**
+     * Returns a new list with vertex i replaced; this list is unchanged
+     */
+    public PersistentVertexList set(int i, double... coords) {
+        checkIndex(i);
+        checkCoords(coords);
+        return new PersistentVertexList(dims, size, shift, doSet(shift, root, i, coords));
+    }
+
+    /**
+     * Returns a new list with a vertex appended at the end
+     */
+    public PersistentVertexList append(double... coords) {
+        checkCoords(coords);
+        int capacity = 1 << (shift + BITS);
+        if (size == capacity) {
+            // Root is full: grow the tree by one level
+            Object[] newRoot = new Object[]{root, newPath(shift, coords)};
+            return new PersistentVertexList(dims, size + 1, shift + BITS, newRoot);
+        }
+        return new PersistentVertexList(dims, size + 1, shift, doAppend(shift, root, size, coords));
+    }
+
+    /**
+     * Returns a new list without its last vertex
+     */
+    public PersistentVertexList removeLast() {
+        if (size == 0) throw new IllegalStateException("empty");
+        if (size == 1) return empty(dims);
+        Object newRoot = doRemoveLast(shift, root, size - 1);
+        int newShift = shift;
+        // Collapse a root that has a single child
+        while (newShift > 0 && ((Object[]) newRoot).length == 1) {
+            newRoot = ((Object[]) newRoot)[0];
+            newShift -= BITS;
+        }
+        return new PersistentVertexList(dims, size - 1, newShift, newRoot);
+    }
+
+    private double[] leafFor(int i) {
+        checkIndex(i);
+        Object node = root;
+        for (int level = shift; level > 0; level -= BITS) {
+            node = ((Object[]) node)[(i >>> level) & MASK];
+        }
+        return (double[]) node;
+    }
+
+    private Object doSet(int level, Object node, int i, double[] coords) {
+        if (level == 0) {
+            double[] leaf = ((double[]) node).clone();
+            System.arraycopy(coords, 0, leaf, (i & MASK) * dims, dims);
+            return leaf;
+        }
+        Object[] children = ((Object[]) node).clone();
+        int idx = (i >>> level) & MASK;
+        children[idx] = doSet(level - BITS, children[idx], i, coords);
+        return children;
+    }
+
+    private Object doAppend(int level, Object node, int i, double[] coords) {
+        if (level == 0) {
+            double[] leaf = Arrays.copyOf((double[]) node, ((i & MASK) + 1) * dims);
+            System.arraycopy(coords, 0, leaf, (i & MASK) * dims, dims);
+            return leaf;
+        }
+        Object[] children = (Object[]) node;
+        int idx = (i >>> level) & MASK;
+        Object[] copy = Arrays.copyOf(children, Math.max(children.length, idx + 1));
+        copy[idx] = idx < children.length
+                ? doAppend(level - BITS, children[idx], i, coords)
+                : newPath(level - BITS, coords);
+        return copy;
+    }
+
+    private Object newPath(int level, double[] coords) {
+        if (level == 0) return Arrays.copyOf(coords, dims);
+        return new Object[]{newPath(level - BITS, coords)};
+    }
+
+    // Removes vertex i (the last one); returns null when the node becomes empty
+    private Object doRemoveLast(int level, Object node, int i) {
+        if (level == 0) {
+            int keep = (i & MASK) * dims;
+            return keep == 0 ? null : Arrays.copyOf((double[]) node, keep);
+        }
+        Object[] children = (Object[]) node;
+        int idx = (i >>> level) & MASK;
+        Object child = doRemoveLast(level - BITS, children[idx], i);
+        if (child == null) {
+            return idx == 0 ? null : Arrays.copyOf(children, idx);
+        }
+        Object[] copy = children.clone();
+        copy[idx] = child;
+        return copy;
+    }
+
+    private void checkIndex(int i) {
+        if (i < 0 || i >= size) throw new IndexOutOfBoundsException("index " + i + ", size " + size);
+    }
+
+    private void checkCoords(double[] coords) {
+        if (coords.length != dims) throw new IllegalArgumentException("expected " + dims + " coordinates");
+    }
+}
@@ -0,0 +1,404 @@
+package com.example.fieldviewer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Boolean operations between two simple rings (interleaved x, y in local meters, see RingMath),
+ * used to compare a measurement with a reference boundary.
+ * Greiner–Hormann: edge crossings are found once, spliced into both vertex cycles and flagged
+ * as entering or leaving the other ring; intersection, A−B and B−A are then walks over the
+ * same cycles that differ only in direction. Candidate edge pairs come from a uniform grid over
+ * the overlap of both bounding boxes, so two rings with thousands of vertices cost
+ * O(n + m + crossings) instead of O(n·m).
+ * Touching vertices and shared edges are degenerate for Greiner–Hormann; ring B is then moved
+ * by a tiny offset (well below a millimeter for field-sized rings) and the crossings are redone.
+ */
+public final class PolygonClip {
+
+    private static final double EPS = 1e-9;     // Crossing parameter this close to an edge end counts as touching
+    private static final double NUDGE = 1e-9;   // First offset for B, relative to the combined extent
+    private static final int MAX_NUDGES = 6;
+
+    private PolygonClip() {}
+
+    /**
+     * Rings produced by one operation. Holes only occur when one input contains the other.
+     */
+    public static final class Shape {
+        public final List<double[]> rings;
+        public final boolean[] holes;
+        public final double area;
+
+        Shape(List<double[]> rings, boolean[] holes) {
+            this.rings = rings;
+            this.holes = holes;
+            double a = 0.0;
+            for (int r = 0; r < rings.size(); r++) {
+                double ra = RingMath.area(rings.get(r), rings.get(r).length / 2);
+                a += holes[r] ? -ra : ra;
+            }
+            this.area = Math.max(0.0, a);
+        }
+
+        static Shape empty() {
+            return new Shape(Collections.<double[]>emptyList(), new boolean[0]);
+        }
+
+        public boolean isEmpty() {
+            return rings.isEmpty();
+        }
+    }
+
+    /**
+     * Overlap of A with B plus the parts covered by only one of them
+     */
+    public static final class Result {
+        public final Shape intersection, onlyA, onlyB;
+        public final double areaA, areaB;
+        public final int crossings;
+
+        Result(Shape intersection, Shape onlyA, Shape onlyB, double areaA, double areaB, int crossings) {
+            this.intersection = intersection;
+            this.onlyA = onlyA;
+            this.onlyB = onlyB;
+            this.areaA = areaA;
+            this.areaB = areaB;
+            this.crossings = crossings;
+        }
+
+        public double symmetricDifference() {
+            return onlyA.area + onlyB.area;
+        }
+
+        /**
+         * Symmetric difference relative to B (the reference), in percent
+         */
+        public double deviationPercent() {
+            return areaB > 0 ? 100.0 * symmetricDifference() / areaB : Double.NaN;
+        }
+    }
+
+    /**
+     * Compares ring A (na vertices) with ring B (nb vertices). Both must be simple; orientation
+     * does not matter. Returns null only if B could not be moved off a degenerate position.
+     */
+    public static Result compare(double[] a, int na, double[] b, int nb) {
+        double[] pa = compact(a, na), pb = compact(b, nb);
+        na = pa.length / 2;
+        nb = pb.length / 2;
+        double areaA = RingMath.area(pa, na), areaB = RingMath.area(pb, nb);
+        if (na < 3 || nb < 3) {
+            return new Result(Shape.empty(), single(pa, na), single(pb, nb), areaA, areaB, 0);
+        }
+        double[] boxA = new double[4], boxB = new double[4];
+        RingMath.bounds(pa, na, boxA);
+        RingMath.bounds(pb, nb, boxB);
+        double extent = Math.max(Math.max(boxA[2], boxB[2]) - Math.min(boxA[0], boxB[0]),
+                Math.max(boxA[3], boxB[3]) - Math.min(boxA[1], boxB[1]));
+        double[] moved = pb;
+        for (int attempt = 0; attempt <= MAX_NUDGES; attempt++) {
+            if (attempt > 0) {
+                // A different direction each time, so an offset along a shared edge is not repeated
+                double d = extent * NUDGE * Math.pow(10, attempt - 1), angle = 0.7 + 2.3 * attempt;
+                moved = translate(pb, d * Math.cos(angle), d * Math.sin(angle));
+                RingMath.bounds(moved, nb, boxB);
+            }
+            Crossings c = Crossings.find(pa, na, moved, nb, boxA, boxB);
+            if (c != null) return c.count == 0 ? disjoint(pa, na, moved, nb, areaA, areaB) : c.clip(areaA, areaB);
+        }
+        return null;
+    }
+
+    /**
+     * Rings without crossings: one contains the other or they are apart
+     */
+    private static Result disjoint(double[] a, int na, double[] b, int nb, double areaA, double areaB) {
+        if (RingMath.contains(b, nb, a[0], a[1])) {
+            return new Result(single(a, na), Shape.empty(), withHole(b, a), areaA, areaB, 0);
+        }
+        if (RingMath.contains(a, na, b[0], b[1])) {
+            return new Result(single(b, nb), withHole(a, b), Shape.empty(), areaA, areaB, 0);
+        }
+        return new Result(Shape.empty(), single(a, na), single(b, nb), areaA, areaB, 0);
+    }
+
+    private static Shape single(double[] ring, int n) {
+        if (n < 3) return Shape.empty();
+        List<double[]> rings = new ArrayList<>(1);
+        rings.add(ring);
+        return new Shape(rings, new boolean[]{false});
+    }
+
+    private static Shape withHole(double[] outer, double[] hole) {
+        List<double[]> rings = new ArrayList<>(2);
+        rings.add(outer);
+        rings.add(hole);
+        return new Shape(rings, new boolean[]{false, true});
+    }
+
+    /**
+     * Copy without repeated consecutive vertices or a closing duplicate of the first vertex
+     */
+    static double[] compact(double[] xy, int n) {
+        double[] out = new double[2 * n];
+        int m = 0;
+        for (int i = 0; i < n; i++) {
+            double x = xy[2 * i], y = xy[2 * i + 1];
+            if (m > 0 && out[2 * m - 2] == x && out[2 * m - 1] == y) continue;
+            out[2 * m] = x;
+            out[2 * m + 1] = y;
+            m++;
+        }
+        while (m > 1 && out[2 * m - 2] == out[0] && out[2 * m - 1] == out[1]) m--;
+        return m == n ? out : Arrays.copyOf(out, 2 * m);
+    }
+
+    private static double[] translate(double[] xy, double dx, double dy) {
+        double[] out = new double[xy.length];
+        for (int i = 0; i < xy.length; i += 2) {
+            out[i] = xy[i] + dx;
+            out[i + 1] = xy[i + 1] + dy;
+        }
+        return out;
+    }
+
+    /**
+     * Proper edge crossings of A and B and the two vertex cycles with the crossings spliced in
+     */
+    private static final class Crossings {
+        final double[] a, b;
+        final int na, nb;
+        int count = 0;
+        int[] edgeA = new int[16], edgeB = new int[16];
+        double[] tA = new double[16], tB = new double[16];
+        double[] px = new double[16], py = new double[16];
+
+        // Cycles: entry >= 0 is crossing id, entry < 0 is vertex -(v + 1)
+        int[] cycleA, cycleB;
+        int[] posA, posB;           // Crossing -> position in cycleA / cycleB
+        boolean[] entersA, entersB; // Crossing -> A enters B there / B enters A there
+
+        private Crossings(double[] a, int na, double[] b, int nb) {
+            this.a = a;
+            this.na = na;
+            this.b = b;
+            this.nb = nb;
+        }
+
+        /**
+         * Null when an edge of A touches B at a vertex or runs along an edge of B
+         */
+        static Crossings find(double[] a, int na, double[] b, int nb, double[] boxA, double[] boxB) {
+            Crossings c = new Crossings(a, na, b, nb);
+            double minX = Math.max(boxA[0], boxB[0]), minY = Math.max(boxA[1], boxB[1]);
+            double maxX = Math.min(boxA[2], boxB[2]), maxY = Math.min(boxA[3], boxB[3]);
+            if (minX > maxX || minY > maxY) return c;
+
+            // Grid over the overlap box with about one cell per edge; B edges go into CSR buckets
+            int g = Math.max(1, Math.min(1024, (int) Math.ceil(Math.sqrt(na + nb))));
+            double cw = (maxX - minX) / g, ch = (maxY - minY) / g;
+            if (!(cw > 0)) cw = 1.0;
+            if (!(ch > 0)) ch = 1.0;
+            int[] start = new int[g * g + 1];
+            int[] range = new int[4];
+            for (int e = 0; e < nb; e++) {
+                if (!cells(b, nb, e, minX, minY, maxX, maxY, cw, ch, g, range)) continue;
+                for (int cy = range[1]; cy <= range[3]; cy++) {
+                    for (int cx = range[0]; cx <= range[2]; cx++) start[cy * g + cx + 1]++;
+                }
+            }
+            for (int i = 0; i < g * g; i++) start[i + 1] += start[i];
+            int[] fill = Arrays.copyOf(start, g * g);
+            int[] bucket = new int[start[g * g]];
+            for (int e = 0; e < nb; e++) {
+                if (!cells(b, nb, e, minX, minY, maxX, maxY, cw, ch, g, range)) continue;
+                for (int cy = range[1]; cy <= range[3]; cy++) {
+                    for (int cx = range[0]; cx <= range[2]; cx++) bucket[fill[cy * g + cx]++] = e;
+                }
+            }
+
+            int[] seen = new int[nb];  // Last A edge that tested each B edge (edges span several cells)
+            for (int ea = 0; ea < na; ea++) {
+                if (!cells(a, na, ea, minX, minY, maxX, maxY, cw, ch, g, range)) continue;
+                for (int cy = range[1]; cy <= range[3]; cy++) {
+                    for (int cx = range[0]; cx <= range[2]; cx++) {
+                        int cell = cy * g + cx;
+                        for (int k = start[cell]; k < start[cell + 1]; k++) {
+                            int eb = bucket[k];
+                            if (seen[eb] == ea + 1) continue;
+                            seen[eb] = ea + 1;
+                            if (!c.test(ea, eb)) return null;
+                        }
+                    }
+                }
+            }
+            if (c.count > 0) c.link();
+            return c;
+        }
+
+        /**
+         * Grid cells covered by edge e's box, clamped to the grid; false if it misses the overlap box
+         */
+        private static boolean cells(double[] xy, int n, int e, double minX, double minY, double maxX, double maxY,
+                                     double cw, double ch, int g, int[] out) {
+            int f = (e + 1) % n;
+            double x0 = Math.min(xy[2 * e], xy[2 * f]), x1 = Math.max(xy[2 * e], xy[2 * f]);
+            double y0 = Math.min(xy[2 * e + 1], xy[2 * f + 1]), y1 = Math.max(xy[2 * e + 1], xy[2 * f + 1]);
+            if (x1 < minX || x0 > maxX || y1 < minY || y0 > maxY) return false;
+            out[0] = clamp((int) ((x0 - minX) / cw), g);
+            out[1] = clamp((int) ((y0 - minY) / ch), g);
+            out[2] = clamp((int) ((x1 - minX) / cw), g);
+            out[3] = clamp((int) ((y1 - minY) / ch), g);
+            return true;
+        }
+
+        private static int clamp(int c, int g) {
+            return c < 0 ? 0 : (c >= g ? g - 1 : c);
+        }
+
+        /**
+         * Records a proper crossing of edge ea (A) and edge eb (B); false if the edges touch
+         */
+        private boolean test(int ea, int eb) {
+            int ea1 = (ea + 1) % na, eb1 = (eb + 1) % nb;
+            double p0x = a[2 * ea], p0y = a[2 * ea + 1];
+            double rx = a[2 * ea1] - p0x, ry = a[2 * ea1 + 1] - p0y;
+            double q0x = b[2 * eb], q0y = b[2 * eb + 1];
+            double sx = b[2 * eb1] - q0x, sy = b[2 * eb1 + 1] - q0y;
+            if (Math.max(p0x, p0x + rx) < Math.min(q0x, q0x + sx) || Math.min(p0x, p0x + rx) > Math.max(q0x, q0x + sx)
+                    || Math.max(p0y, p0y + ry) < Math.min(q0y, q0y + sy) || Math.min(p0y, p0y + ry) > Math.max(q0y, q0y + sy)) {
+                return true;
+            }
+            double qx = q0x - p0x, qy = q0y - p0y;
+            double den = rx * sy - ry * sx;
+            double lenR = Math.hypot(rx, ry), lenS = Math.hypot(sx, sy);
+            if (Math.abs(den) <= EPS * lenR * lenS) {
+                // Parallel: only collinear overlap matters, and that is degenerate
+                return Math.abs(qx * ry - qy * rx) > EPS * lenR * (lenR + Math.hypot(qx, qy));
+            }
+            double t = (qx * sy - qy * sx) / den;
+            double u = (qx * ry - qy * rx) / den;
+            if (t < -EPS || t > 1 + EPS || u < -EPS || u > 1 + EPS) return true;
+            if (t <= EPS || t >= 1 - EPS || u <= EPS || u >= 1 - EPS) return false;
+            if (count == edgeA.length) grow();
+            edgeA[count] = ea;
+            edgeB[count] = eb;
+            tA[count] = t;
+            tB[count] = u;
+            px[count] = p0x + t * rx;
+            py[count] = p0y + t * ry;
+            count++;
+            return true;
+        }
+
+        private void grow() {
+            int cap = count * 2;
+            edgeA = Arrays.copyOf(edgeA, cap);
+            edgeB = Arrays.copyOf(edgeB, cap);
+            tA = Arrays.copyOf(tA, cap);
+            tB = Arrays.copyOf(tB, cap);
+            px = Arrays.copyOf(px, cap);
+            py = Arrays.copyOf(py, cap);
+        }
+
+        /**
+         * Splices crossings into both cycles in edge order and flags entries (phases 1–2)
+         */
+        private void link() {
+            posA = new int[count];
+            posB = new int[count];
+            cycleA = splice(na, edgeA, tA, posA);
+            cycleB = splice(nb, edgeB, tB, posB);
+            entersA = flags(cycleA, !RingMath.contains(b, nb, a[0], a[1]));
+            entersB = flags(cycleB, !RingMath.contains(a, na, b[0], b[1]));
+        }
+
+        private int[] splice(int n, int[] edge, double[] t, int[] pos) {
+            int[] start = new int[n + 1];
+            for (int c = 0; c < count; c++) start[edge[c] + 1]++;
+            for (int e = 0; e < n; e++) start[e + 1] += start[e];
+            int[] fill = Arrays.copyOf(start, n);
+            int[] order = new int[count];
+            for (int c = 0; c < count; c++) order[fill[edge[c]]++] = c;
+            int[] cycle = new int[n + count];
+            int at = 0;
+            for (int e = 0; e < n; e++) {
+                cycle[at++] = -(e + 1);
+                // Insertion sort by edge parameter; an edge rarely has more than a few crossings
+                for (int i = start[e] + 1; i < start[e + 1]; i++) {
+                    int c = order[i];
+                    int j = i - 1;
+                    while (j >= start[e] && t[order[j]] > t[c]) {
+                        order[j + 1] = order[j];
+                        j--;
+                    }
+                    order[j + 1] = c;
+                }
+                for (int i = start[e]; i < start[e + 1]; i++) {
+                    pos[order[i]] = at;
+                    cycle[at++] = order[i];
+                }
+            }
+            return cycle;
+        }
+
+        /**
+         * Crossings alternate between entering and leaving, starting from the outside state of vertex 0
+         */
+        private boolean[] flags(int[] cycle, boolean outside) {
+            boolean[] enters = new boolean[count];
+            for (int node : cycle) {
+                if (node < 0) continue;
+                enters[node] = outside;
+                outside = !outside;
+            }
+            return enters;
+        }
+
+        Result clip(double areaA, double areaB) {
+            return new Result(walk(false, false), walk(true, false), walk(false, true), areaA, areaB, count);
+        }
+
+        /**
+         * Phase 3: from each unused crossing, follow one ring to the next crossing, switch rings and
+         * repeat until back at the start. A ring is followed forward where it enters the other one;
+         * inverting that rule for A gives A−B, for B gives B−A.
+         */
+        private Shape walk(boolean invertA, boolean invertB) {
+            boolean[] used = new boolean[count];
+            List<double[]> rings = new ArrayList<>();
+            double[] buf = new double[64];
+            for (int s = 0; s < count; s++) {
+                if (used[s]) continue;
+                int len = 0;
+                int cur = s;
+                boolean onA = true;
+                do {
+                    used[cur] = true;
+                    if (len + 2 > buf.length) buf = Arrays.copyOf(buf, buf.length * 2);
+                    buf[len++] = px[cur];
+                    buf[len++] = py[cur];
+                    int[] cycle = onA ? cycleA : cycleB;
+                    double[] xy = onA ? a : b;
+                    boolean forward = onA ? entersA[cur] != invertA : entersB[cur] != invertB;
+                    int step = forward ? 1 : cycle.length - 1;
+                    int p = ((onA ? posA[cur] : posB[cur]) + step) % cycle.length;
+                    while (cycle[p] < 0) {
+                        int v = -cycle[p] - 1;
+                        if (len + 2 > buf.length) buf = Arrays.copyOf(buf, buf.length * 2);
+                        buf[len++] = xy[2 * v];
+                        buf[len++] = xy[2 * v + 1];
+                        p = (p + step) % cycle.length;
+                    }
+                    cur = cycle[p];
+                    onA = !onA;
+                } while (cur != s && !used[cur]);
+                if (len >= 6 && RingMath.area(buf, len / 2) > 0) rings.add(Arrays.copyOf(buf, len));
+            }
+            return new Shape(rings, new boolean[rings.size()]);
+        }
+    }
+}
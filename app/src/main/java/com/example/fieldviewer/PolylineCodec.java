@@ -0,0 +1,252 @@
+package com.example.fieldviewer;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+/**
+ * Google encoded polyline format on interleaved (lat, lng) arrays, at a configurable
+ * precision (5 decimals for Google Maps URLs, 6 for some routing APIs).
+ * Encoding writes into caller-provided char buffers; encodedLength() gives the exact size to
+ * allocate, so a path is encoded with one allocation and no StringBuilder growth.
+ *
+ * encodeWithinBudget() simplifies a path with Douglas–Peucker until its URL-escaped encoding
+ * fits a length budget, so large polygons still open in Maps.
+ */
+public final class PolylineCodec {
+
+    public static final int DEFAULT_PRECISION = 5;
+
+    private PolylineCodec() {}
+
+    private static double factor(int precision) {
+        return Math.pow(10, precision);
+    }
+
+    /**
+     * Exact number of chars encode() writes for the first n points
+     */
+    public static int encodedLength(double[] latLng, int n, int precision) {
+        return measure(latLng, n, null, factor(precision), false);
+    }
+
+    /**
+     * Encodes the first n points into out starting at offset; returns the end offset
+     */
+    public static int encode(double[] latLng, int n, int precision, char[] out, int offset) {
+        double f = factor(precision);
+        long lastLat = 0, lastLng = 0;
+        for (int i = 0; i < n; i++) {
+            long lat = Math.round(latLng[2 * i] * f);
+            long lng = Math.round(latLng[2 * i + 1] * f);
+            offset = encodeSigned(lat - lastLat, out, offset);
+            offset = encodeSigned(lng - lastLng, out, offset);
+            lastLat = lat;
+            lastLng = lng;
+        }
+        return offset;
+    }
+
+    public static String encode(double[] latLng, int n, int precision) {
+        char[] out = new char[encodedLength(latLng, n, precision)];
+        encode(latLng, n, precision, out, 0);
+        return new String(out);
+    }
+
+    private static int encodeSigned(long v, char[] out, int offset) {
+        long u = v < 0 ? ~(v << 1) : v << 1;
+        while (u >= 0x20) {
+            out[offset++] = (char) ((0x20 | (u & 0x1f)) + 63);
+            u >>>= 5;
+        }
+        out[offset++] = (char) (u + 63);
+        return offset;
+    }
+
+    /**
+     * Number of points in an encoded path (each value ends with a char below 0x20 + 63)
+     */
+    public static int countPoints(CharSequence encoded) {
+        int values = 0;
+        for (int i = 0; i < encoded.length(); i++) {
+            if (encoded.charAt(i) - 63 < 0x20) values++;
+        }
+        return values / 2;
+    }
+
+    /**
+     * Decodes into out (at least 2 * countPoints doubles); returns the number of points
+     */
+    public static int decode(CharSequence encoded, int precision, double[] out) {
+        double f = factor(precision);
+        long lat = 0, lng = 0;
+        int i = 0, n = 0, len = encoded.length();
+        long[] acc = new long[1];
+        while (i < len) {
+            i = decodeSigned(encoded, i, acc);
+            if (i < 0) break;
+            lat += acc[0];
+            i = decodeSigned(encoded, i, acc);
+            if (i < 0) break;
+            lng += acc[0];
+            out[2 * n] = lat / f;
+            out[2 * n + 1] = lng / f;
+            n++;
+        }
+        return n;
+    }
+
+    public static double[] decode(CharSequence encoded, int precision) {
+        double[] out = new double[2 * countPoints(encoded)];
+        int n = decode(encoded, precision, out);
+        return n * 2 == out.length ? out : Arrays.copyOf(out, 2 * n);
+    }
+
+    /**
+     * Reads one value starting at i into acc[0]; returns the next index, or -1 if truncated
+     */
+    private static int decodeSigned(CharSequence s, int i, long[] acc) {
+        long result = 0;
+        int shift = 0;
+        while (true) {
+            if (i >= s.length()) return -1;
+            int b = s.charAt(i++) - 63;
+            result |= (long) (b & 0x1f) << shift;
+            shift += 5;
+            if (b < 0x20) break;
+        }
+        acc[0] = (result & 1) != 0 ? ~(result >>> 1) : result >>> 1;
+        return i;
+    }
+
+    /**
+     * Chars of the encoded path after URL escaping (URLEncoder turns ?@[\]^`{|}~ into %XX)
+     */
+    public static int urlEscapedLength(double[] latLng, int n, int precision) {
+        return measure(latLng, n, null, factor(precision), true);
+    }
+
+    /**
+     * Encodes the path, dropping the least significant vertices (Douglas–Peucker order) until
+     * the URL-escaped encoding is at most maxUrlChars. The first and last points are always
+     * kept, so a closed ring stays closed. Returns null if even those two do not fit.
+     */
+    public static String encodeWithinBudget(double[] latLng, int n, int precision, int maxUrlChars) {
+        double f = factor(precision);
+        if (measure(latLng, n, null, f, true) <= maxUrlChars) return encode(latLng, n, precision);
+        int[] order = simplificationOrder(latLng, n);
+        boolean[] keep = new boolean[n];
+        // Largest k (points kept in significance order) that fits; length grows with k
+        int lo = Math.min(n, 2), hi = n - 1;
+        markFirst(order, lo, keep);
+        if (measure(latLng, n, keep, f, true) > maxUrlChars) return null;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            markFirst(order, mid, keep);
+            if (measure(latLng, n, keep, f, true) <= maxUrlChars) lo = mid; else hi = mid - 1;
+        }
+        markFirst(order, lo, keep);
+        double[] kept = new double[2 * lo];
+        for (int i = 0, k = 0; i < n; i++) {
+            if (!keep[i]) continue;
+            kept[2 * k] = latLng[2 * i];
+            kept[2 * k + 1] = latLng[2 * i + 1];
+            k++;
+        }
+        return encode(kept, lo, precision);
+    }
+
+    private static void markFirst(int[] order, int k, boolean[] keep) {
+        Arrays.fill(keep, false);
+        for (int i = 0; i < k; i++) keep[order[i]] = true;
+    }
+
+    /**
+     * Vertex indices by significance: the two endpoints, then the order in which a
+     * progressive Douglas–Peucker pass adds vertices (always splitting the segment with the
+     * farthest outlier). Keeping any prefix gives a Douglas–Peucker simplification.
+     * Distances use local meters so longitude is not overweighted away from the equator.
+     */
+    public static int[] simplificationOrder(double[] latLng, int n) {
+        int[] order = new int[n];
+        if (n == 0) return order;
+        order[0] = 0;
+        if (n == 1) return order;
+        order[1] = n - 1;
+        int count = 2;
+        double kx = 111320.0 * Math.cos(Math.toRadians(latLng[0])), ky = 111320.0;
+        // Segment entries: {farthest distance, first, last, farthest index}
+        PriorityQueue<double[]> queue = new PriorityQueue<>((a, b) -> Double.compare(b[0], a[0]));
+        double[] seg = farthest(latLng, 0, n - 1, kx, ky);
+        if (seg != null) queue.add(seg);
+        while (!queue.isEmpty()) {
+            double[] s = queue.poll();
+            int first = (int) s[1], last = (int) s[2], mid = (int) s[3];
+            order[count++] = mid;
+            double[] left = farthest(latLng, first, mid, kx, ky);
+            if (left != null) queue.add(left);
+            double[] right = farthest(latLng, mid, last, kx, ky);
+            if (right != null) queue.add(right);
+        }
+        return order;
+    }
+
+    private static double[] farthest(double[] p, int first, int last, double kx, double ky) {
+        if (last - first < 2) return null;
+        double ax = p[2 * first + 1] * kx, ay = p[2 * first] * ky;
+        double bx = p[2 * last + 1] * kx, by = p[2 * last] * ky;
+        double dx = bx - ax, dy = by - ay, len2 = dx * dx + dy * dy;
+        double best = -1.0;
+        int bestIdx = first + 1;
+        for (int i = first + 1; i < last; i++) {
+            double px = p[2 * i + 1] * kx - ax, py = p[2 * i] * ky - ay;
+            double d;
+            if (len2 == 0.0) {
+                d = px * px + py * py;  // Closed ring: distance to the shared endpoint
+            } else {
+                double t = Math.max(0.0, Math.min(1.0, (px * dx + py * dy) / len2));
+                double ex = px - t * dx, ey = py - t * dy;
+                d = ex * ex + ey * ey;
+            }
+            if (d > best) {
+                best = d;
+                bestIdx = i;
+            }
+        }
+        return new double[]{best, first, last, bestIdx};
+    }
+
+    /**
+     * Encoded (optionally URL-escaped) length of the points selected by keep (all if null)
+     */
+    private static int measure(double[] latLng, int n, boolean[] keep, double f, boolean escaped) {
+        long lastLat = 0, lastLng = 0;
+        int len = 0;
+        for (int i = 0; i < n; i++) {
+            if (keep != null && !keep[i]) continue;
+            long lat = Math.round(latLng[2 * i] * f);
+            long lng = Math.round(latLng[2 * i + 1] * f);
+            len += valueLength(lat - lastLat, escaped) + valueLength(lng - lastLng, escaped);
+            lastLat = lat;
+            lastLng = lng;
+        }
+        return len;
+    }
+
+    private static int valueLength(long v, boolean escaped) {
+        long u = v < 0 ? ~(v << 1) : v << 1;
+        int len = 0;
+        while (u >= 0x20) {
+            len += escaped ? escapedWidth((char) ((0x20 | (u & 0x1f)) + 63)) : 1;
+            u >>>= 5;
+        }
+        return len + (escaped ? escapedWidth((char) (u + 63)) : 1);
+    }
+
+    /**
+     * Polyline chars are 63..126; URLEncoder keeps letters, digits and _ as is
+     */
+    private static int escapedWidth(char c) {
+        boolean plain = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_';
+        return plain ? 1 : 3;
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.fieldviewer;
+
+/**
+ * Static bounding-box R-tree packed with Sort-Tile-Recursive (STR).
+ * Built once from a flat array of boxes (minX, minY, maxX, maxY per item) and stored in
+ * primitive arrays, so queries are O(log n + k) with no allocation. Rebuild it when the
+ * item set changes; building is O(n log n).
+ */
+public final class RTree {
+
+    private static final int NODE_SIZE = 16;
+
+    // Node i covers box nodeBox[4i..4i+3]; children are [childStart[i], childEnd[i]) in the
+    // level below, or item slots when the node is a leaf
+    private final double[] nodeBox;
+    private final int[] childStart;
+    private final int[] childEnd;
+    private final boolean[] leaf;
+    private final int rootIndex;
+    private final double[] itemBox;  // Item boxes in packed order
+    private final int[] itemId;      // Caller ids in packed order
+    private final int[] stack;
+
+    private RTree(double[] nodeBox, int[] childStart, int[] childEnd, boolean[] leaf,
+                  int rootIndex, double[] itemBox, int[] itemId, int depth) {
+        this.nodeBox = nodeBox;
+        this.childStart = childStart;
+        this.childEnd = childEnd;
+        this.leaf = leaf;
+        this.rootIndex = rootIndex;
+        this.itemBox = itemBox;
+        this.itemId = itemId;
+        this.stack = new int[Math.max(1, depth) * NODE_SIZE + 1];
+    }
+
+    /**
+     * Builds a tree over count boxes. ids[i] is reported for boxes[4i..4i+3].
+     */
+    public static RTree build(double[] boxes, int[] ids, int count) {
+        // Sort items with STR: slice by x-center, then sort each slice by y-center
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) order[i] = i;
+        java.util.Arrays.sort(order, (a, b) -> Double.compare(
+                boxes[4 * a] + boxes[4 * a + 2], boxes[4 * b] + boxes[4 * b + 2]));
+        int leafCount = Math.max(1, (count + NODE_SIZE - 1) / NODE_SIZE);
+        int slices = (int) Math.ceil(Math.sqrt(leafCount));
+        int perSlice = slices * NODE_SIZE;
+        for (int s = 0; s < count; s += perSlice) {
+            java.util.Arrays.sort(order, s, Math.min(count, s + perSlice), (a, b) -> Double.compare(
+                    boxes[4 * a + 1] + boxes[4 * a + 3], boxes[4 * b + 1] + boxes[4 * b + 3]));
+        }
+        double[] itemBox = new double[count * 4];
+        int[] itemId = new int[count];
+        for (int i = 0; i < count; i++) {
+            System.arraycopy(boxes, 4 * order[i], itemBox, 4 * i, 4);
+            itemId[i] = ids[order[i]];
+        }
+
+        // Count nodes per level to size the arrays
+        int total = 0;
+        int levelSize = leafCount;
+        int depth = 1;
+        total += levelSize;
+        while (levelSize > 1) {
+            levelSize = (levelSize + NODE_SIZE - 1) / NODE_SIZE;
+            total += levelSize;
+            depth++;
+        }
+        double[] nodeBox = new double[total * 4];
+        int[] childStart = new int[total];
+        int[] childEnd = new int[total];
+        boolean[] leaf = new boolean[total];
+
+        // Leaves over packed items
+        int n = 0;
+        for (int l = 0; l < leafCount; l++, n++) {
+            int from = l * NODE_SIZE, to = Math.min(count, from + NODE_SIZE);
+            leaf[n] = true;
+            childStart[n] = from;
+            childEnd[n] = to;
+            unionInto(nodeBox, n, itemBox, from, to);
+        }
+        // Upper levels over the level below (nodes are already spatially ordered)
+        int levelStart = 0, levelEnd = n;
+        while (levelEnd - levelStart > 1) {
+            int nextStart = n;
+            for (int c = levelStart; c < levelEnd; c += NODE_SIZE, n++) {
+                int to = Math.min(levelEnd, c + NODE_SIZE);
+                childStart[n] = c;
+                childEnd[n] = to;
+                unionInto(nodeBox, n, nodeBox, c, to);
+            }
+            levelStart = nextStart;
+            levelEnd = n;
+        }
+        return new RTree(nodeBox, childStart, childEnd, leaf, n - 1, itemBox, itemId, depth);
+    }
+
+    private static void unionInto(double[] dst, int node, double[] src, int from, int to) {
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for (int i = from; i < to; i++) {
+            minX = Math.min(minX, src[4 * i]);
+            minY = Math.min(minY, src[4 * i + 1]);
+            maxX = Math.max(maxX, src[4 * i + 2]);
+            maxY = Math.max(maxY, src[4 * i + 3]);
+        }
+        dst[4 * node] = minX;
+        dst[4 * node + 1] = minY;
+        dst[4 * node + 2] = maxX;
+        dst[4 * node + 3] = maxY;
+    }
+
+    public int size() {
+        return itemId.length;
+    }
+
+    /**
+     * Writes ids of items whose boxes intersect the query box into out (up to out.length)
+     * and returns how many were found. Not thread-safe (shares a traversal stack).
+     */
+    public int query(double minX, double minY, double maxX, double maxY, int[] out) {
+        if (itemId.length == 0) return 0;
+        int found = 0;
+        int sp = 0;
+        stack[sp++] = rootIndex;
+        while (sp > 0) {
+            int node = stack[--sp];
+            if (!overlaps(nodeBox, node, minX, minY, maxX, maxY)) continue;
+            if (leaf[node]) {
+                for (int i = childStart[node]; i < childEnd[node]; i++) {
+                    if (overlaps(itemBox, i, minX, minY, maxX, maxY)) {
+                        if (found < out.length) out[found] = itemId[i];
+                        found++;
+                    }
+                }
+            } else {
+                for (int c = childStart[node]; c < childEnd[node]; c++) stack[sp++] = c;
+            }
+        }
+        return Math.min(found, out.length);
+    }
+
+    private static boolean overlaps(double[] box, int i, double minX, double minY, double maxX, double maxY) {
+        return box[4 * i] <= maxX && box[4 * i + 2] >= minX && box[4 * i + 1] <= maxY && box[4 * i + 3] >= minY;
+    }
+}
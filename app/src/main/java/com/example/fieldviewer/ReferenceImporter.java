@@ -0,0 +1,408 @@
+package com.example.fieldviewer;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.provider.OpenableColumns;
+import android.util.JsonReader;
+import android.util.JsonToken;
+import android.util.Xml;
+
+import org.xmlpull.v1.XmlPullParser;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Imports reference boundaries from KML/KMZ, GeoJSON or GPX into a ReferenceLayer.
+ * Files are read with pull parsers (XmlPullParser, JsonReader) and every ring is written out
+ * as soon as it is parsed, so memory stays at one feature regardless of file size.
+ * Call from a background thread.
+ */
+final class ReferenceImporter {
+
+    private ReferenceImporter() {}
+
+    /**
+     * Imported layers live next to the saved measurements
+     */
+    static File referencesDir(Context context) {
+        File dir = new File(new File(context.getExternalFilesDir(null), "measurements"), "references");
+        if (!dir.exists()) dir.mkdirs();
+        return dir;
+    }
+
+    static File[] layerFiles(Context context) {
+        File[] files = referencesDir(context).listFiles((d, name) -> name.endsWith(ReferenceLayer.EXTENSION));
+        return files != null ? files : new File[0];
+    }
+
+    /**
+     * What an import wrote
+     */
+    static final class Result {
+        final File file;
+        final int features;
+        final int skippedPoints;  // Point features, which a layer does not store
+
+        Result(File file, int features, int skippedPoints) {
+            this.file = file;
+            this.features = features;
+            this.skippedPoints = skippedPoints;
+        }
+    }
+
+    /**
+     * Parses the document into a new layer
+     */
+    static Result importUri(Context context, Uri uri) throws Exception {
+        String displayName = displayName(context, uri);
+        String base = displayName.replaceAll("\\.[A-Za-z0-9]+$", "").replaceAll("[^A-Za-z0-9._-]", "_");
+        if (base.isEmpty()) base = "reference";
+        File target = uniqueFile(referencesDir(context), base);
+        ReferenceLayer.Writer writer = new ReferenceLayer.Writer(target);
+        try (InputStream raw = context.getContentResolver().openInputStream(uri)) {
+            if (raw == null) throw new IOException("Cannot open " + displayName);
+            parse(new BufferedInputStream(raw, 64 * 1024), displayName.toLowerCase(Locale.US), writer);
+        } catch (Exception e) {
+            writer.abort();
+            throw e;
+        }
+        if (writer.featureCount() == 0) {
+            writer.abort();
+            throw new IOException("No boundaries found in " + displayName);
+        }
+        Result result = new Result(target, writer.featureCount(), writer.skippedCount());
+        writer.close();
+        return result;
+    }
+
+    /**
+     * base.fvref, or base_2.fvref, base_3.fvref, ... when an earlier import took the name
+     */
+    static File uniqueFile(File dir, String base) {
+        File f = new File(dir, base + ReferenceLayer.EXTENSION);
+        for (int i = 2; f.exists() || new File(f.getPath() + ".tmp").exists(); i++) {
+            f = new File(dir, base + "_" + i + ReferenceLayer.EXTENSION);
+        }
+        return f;
+    }
+
+    private static String displayName(Context context, Uri uri) {
+        try (Cursor c = context.getContentResolver().query(uri, new String[]{OpenableColumns.DISPLAY_NAME}, null, null, null)) {
+            if (c != null && c.moveToFirst()) {
+                String name = c.getString(0);
+                if (name != null) return name;
+            }
+        } catch (Exception ignored) {
+        }
+        String last = uri.getLastPathSegment();
+        return last != null ? last : "reference";
+    }
+
+    /**
+     * Picks the parser from the extension, or from the first bytes when the name says nothing
+     */
+    static void parse(BufferedInputStream in, String lowerName, ReferenceLayer.Sink sink) throws Exception {
+        if (lowerName.endsWith(".kmz") || startsWithZip(in)) {
+            java.util.zip.ZipInputStream zip = new java.util.zip.ZipInputStream(in);
+            java.util.zip.ZipEntry e;
+            while ((e = zip.getNextEntry()) != null) {
+                if (e.getName().toLowerCase(Locale.US).endsWith(".kml")) {
+                    parseXml(zip, sink);
+                    return;
+                }
+            }
+            throw new IOException("KMZ without a KML document");
+        }
+        if (lowerName.endsWith(".geojson") || lowerName.endsWith(".json") || firstSignificantByte(in) == '{') {
+            parseGeoJson(new JsonReader(new InputStreamReader(in, StandardCharsets.UTF_8)), sink);
+        } else {
+            parseXml(in, sink);
+        }
+    }
+
+    private static boolean startsWithZip(BufferedInputStream in) throws IOException {
+        in.mark(4);
+        int a = in.read(), b = in.read();
+        in.reset();
+        return a == 'P' && b == 'K';
+    }
+
+    private static int firstSignificantByte(BufferedInputStream in) throws IOException {
+        in.mark(1024);
+        int c;
+        int read = 0;
+        do {
+            c = in.read();
+            read++;
+        } while (c != -1 && read < 1024 && (Character.isWhitespace(c) || c == 0xEF || c == 0xBB || c == 0xBF));
+        in.reset();
+        return c;
+    }
+
+    /**
+     * Growable (lat, lng) buffer reused across rings
+     */
+    private static final class Coords {
+        double[] a = new double[256];
+        int n = 0;
+
+        void add(double lat, double lng) {
+            if (2 * n + 2 > a.length) a = java.util.Arrays.copyOf(a, a.length * 2);
+            a[2 * n] = lat;
+            a[2 * n + 1] = lng;
+            n++;
+        }
+
+        double[] copy() {
+            return java.util.Arrays.copyOf(a, 2 * n);
+        }
+    }
+
+    /**
+     * KML (Placemark LinearRing/LineString coordinates) and GPX (trk/rte points), told apart
+     * by the root element. Only a <name> directly inside the Placemark/trk/rte names it; GPX
+     * points carry their own <name>, and so do documents and folders.
+     */
+    private static void parseXml(InputStream in, ReferenceLayer.Sink sink) throws Exception {
+        XmlPullParser p = Xml.newPullParser();
+        p.setFeature(XmlPullParser.FEATURE_PROCESS_NAMESPACES, false);
+        p.setInput(in, null);
+        Coords coords = new Coords();
+        String name = null;
+        int nameDepth = -1;  // Depth of the owner's own <name>; -1 outside Placemark/trk/rte
+        int unnamed = 0;
+        int kind = ReferenceLayer.KIND_RING;
+        boolean gpx = false;
+        int event = p.getEventType();
+        while (event != XmlPullParser.END_DOCUMENT) {
+            if (event == XmlPullParser.START_TAG) {
+                String tag = localName(p.getName());
+                switch (tag) {
+                    case "gpx": gpx = true; break;
+                    case "Placemark": case "trk": case "rte":
+                        name = null;
+                        nameDepth = p.getDepth() + 1;
+                        break;
+                    case "name":
+                        if (p.getDepth() != nameDepth) break;
+                        String text = p.nextText();
+                        if (text != null && !text.trim().isEmpty()) name = text.trim();
+                        break;
+                    case "LinearRing": kind = ReferenceLayer.KIND_RING; break;
+                    case "LineString": kind = ReferenceLayer.KIND_LINE; break;
+                    case "coordinates":
+                        coords.n = 0;
+                        parseKmlCoordinates(p.nextText(), coords);
+                        sink.add(name != null ? name : "Feature " + (++unnamed), kind, coords.a, coords.n);
+                        break;
+                    case "trkseg": coords.n = 0; break;
+                    case "trkpt": case "rtept":
+                        if (gpx) {
+                            String lat = p.getAttributeValue(null, "lat"), lon = p.getAttributeValue(null, "lon");
+                            if (lat != null && lon != null) coords.add(Double.parseDouble(lat), Double.parseDouble(lon));
+                        }
+                        break;
+                    case "wpt":
+                        // A waypoint is a single point: handed over so the sink counts it as skipped
+                        if (gpx) {
+                            String lat = p.getAttributeValue(null, "lat"), lon = p.getAttributeValue(null, "lon");
+                            if (lat != null && lon != null) {
+                                sink.add("Waypoint", ReferenceLayer.KIND_LINE,
+                                        new double[]{Double.parseDouble(lat), Double.parseDouble(lon)}, 1);
+                            }
+                        }
+                        break;
+                    default: break;
+                }
+                if (tag.equals("rte")) coords.n = 0;
+            } else if (event == XmlPullParser.END_TAG) {
+                String tag = localName(p.getName());
+                if (gpx && (tag.equals("trkseg") || tag.equals("rte"))) {
+                    sink.add(name != null ? name : "Track " + (++unnamed), ReferenceLayer.KIND_LINE, coords.a, coords.n);
+                    coords.n = 0;
+                }
+                if (tag.equals("Placemark") || tag.equals("trk") || tag.equals("rte")) nameDepth = -1;
+            }
+            event = p.next();
+        }
+    }
+
+    private static String localName(String tag) {
+        int colon = tag.indexOf(':');
+        return colon >= 0 ? tag.substring(colon + 1) : tag;
+    }
+
+    /**
+     * "lon,lat[,alt] lon,lat[,alt] ..." without splitting into intermediate strings
+     */
+    static void parseKmlCoordinates(String text, Coords out) {
+        if (text == null) return;
+        int i = 0, len = text.length();
+        double[] tuple = new double[3];
+        while (i < len) {
+            while (i < len && Character.isWhitespace(text.charAt(i))) i++;
+            if (i >= len) break;
+            int values = 0;
+            while (i < len && !Character.isWhitespace(text.charAt(i))) {
+                int start = i;
+                while (i < len && text.charAt(i) != ',' && !Character.isWhitespace(text.charAt(i))) i++;
+                if (values < 3 && i > start) tuple[values++] = Double.parseDouble(text.substring(start, i));
+                if (i < len && text.charAt(i) == ',') i++;
+            }
+            if (values >= 2) out.add(tuple[1], tuple[0]);
+        }
+    }
+
+    /**
+     * GeoJSON FeatureCollection, Feature or bare geometry. Polygon and LineString families are
+     * imported; every position of a Point family geometry goes to the sink on its own, which
+     * counts it as skipped. Members may come in any order, so a feature's rings are
+     * held until its name (properties) is known.
+     */
+    private static void parseGeoJson(JsonReader r, ReferenceLayer.Sink sink) throws IOException {
+        int[] unnamed = {0};
+        readGeoObject(r, sink, null, unnamed);
+    }
+
+    /**
+     * Reads one object; geometry parts go to `parts` when inside a feature, otherwise they are
+     * emitted when the object ends
+     */
+    private static void readGeoObject(JsonReader r, ReferenceLayer.Sink sink, List<Object[]> parts, int[] unnamed)
+            throws IOException {
+        String type = null, name = null;
+        List<double[]> lines = new ArrayList<>();
+        List<Object[]> own = parts != null ? parts : new ArrayList<>();
+        r.beginObject();
+        while (r.hasNext()) {
+            String key = r.nextName();
+            switch (key) {
+                case "type":
+                    type = r.nextString();
+                    break;
+                case "features":
+                    r.beginArray();
+                    while (r.hasNext()) readGeoObject(r, sink, null, unnamed);
+                    r.endArray();
+                    break;
+                case "geometry":
+                case "geometries":
+                    if (r.peek() == JsonToken.NULL) {
+                        r.skipValue();
+                    } else if (r.peek() == JsonToken.BEGIN_ARRAY) {
+                        r.beginArray();
+                        while (r.hasNext()) readGeoObject(r, sink, own, unnamed);
+                        r.endArray();
+                    } else {
+                        readGeoObject(r, sink, own, unnamed);
+                    }
+                    break;
+                case "coordinates":
+                    readCoordinates(r, lines);
+                    break;
+                case "properties":
+                    name = readName(r);
+                    break;
+                default:
+                    r.skipValue();
+                    break;
+            }
+        }
+        r.endObject();
+        if (!lines.isEmpty() && type != null) {
+            if (type.endsWith("Point")) {
+                for (double[] line : lines) {
+                    for (int i = 0; i + 1 < line.length; i += 2) {
+                        own.add(new Object[]{ReferenceLayer.KIND_LINE, new double[]{line[i], line[i + 1]}});
+                    }
+                }
+            } else {
+                int kind = type.endsWith("Polygon") ? ReferenceLayer.KIND_RING
+                        : type.endsWith("LineString") ? ReferenceLayer.KIND_LINE : -1;
+                if (kind >= 0) for (double[] line : lines) own.add(new Object[]{kind, line});
+            }
+        }
+        if (parts == null) {
+            // Top-level feature or geometry: write its rings now
+            String label = name != null ? name : "Feature " + (++unnamed[0]);
+            for (Object[] part : own) {
+                double[] line = (double[]) part[1];
+                sink.add(label, (Integer) part[0], line, line.length / 2);
+            }
+        }
+    }
+
+    /**
+     * "coordinates" of any geometry type; every innermost list of positions becomes a line
+     */
+    private static void readCoordinates(JsonReader r, List<double[]> lines) throws IOException {
+        r.beginArray();
+        if (r.hasNext() && r.peek() == JsonToken.NUMBER) {
+            // A single position (Point)
+            double lng = r.nextDouble();
+            double lat = r.hasNext() && r.peek() == JsonToken.NUMBER ? r.nextDouble() : Double.NaN;
+            while (r.hasNext()) r.skipValue();
+            if (!Double.isNaN(lat)) lines.add(new double[]{lat, lng});
+        } else {
+            readArrayBody(r, lines);
+        }
+        r.endArray();
+    }
+
+    /**
+     * Elements of an already opened array of arrays: either positions (one line) or deeper
+     * nesting (rings of a polygon, polygons of a multipolygon)
+     */
+    private static void readArrayBody(JsonReader r, List<double[]> lines) throws IOException {
+        Coords line = null;
+        while (r.hasNext()) {
+            if (r.peek() != JsonToken.BEGIN_ARRAY) {
+                r.skipValue();
+                continue;
+            }
+            r.beginArray();
+            if (r.hasNext() && r.peek() == JsonToken.NUMBER) {
+                double lng = r.nextDouble();
+                double lat = r.hasNext() && r.peek() == JsonToken.NUMBER ? r.nextDouble() : Double.NaN;
+                while (r.hasNext()) r.skipValue();
+                if (!Double.isNaN(lat)) {
+                    if (line == null) line = new Coords();
+                    line.add(lat, lng);
+                }
+            } else {
+                readArrayBody(r, lines);
+            }
+            r.endArray();
+        }
+        if (line != null) lines.add(line.copy());  // Single positions too: the sink counts them as skipped
+    }
+
+    private static String readName(JsonReader r) throws IOException {
+        if (r.peek() != JsonToken.BEGIN_OBJECT) {
+            r.skipValue();
+            return null;
+        }
+        String name = null;
+        r.beginObject();
+        while (r.hasNext()) {
+            String key = r.nextName().toLowerCase(Locale.US);
+            if (name == null && (key.equals("name") || key.equals("title") || key.equals("id")) && r.peek() != JsonToken.BEGIN_OBJECT
+                    && r.peek() != JsonToken.BEGIN_ARRAY && r.peek() != JsonToken.NULL) {
+                name = r.nextString();
+            } else {
+                r.skipValue();
+            }
+        }
+        r.endObject();
+        return name;
+    }
+}
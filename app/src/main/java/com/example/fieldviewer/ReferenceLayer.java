@@ -0,0 +1,345 @@
+package com.example.fieldviewer;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read-only reference boundaries (cadastral parcels, last season's fields, ...) imported from
+ * KML/GeoJSON/GPX and stored as one packed file per import.
+ *
+ * File layout: MAGIC, VERSION, feature point blocks (lat, lng doubles), then an index (per
+ * feature: offset, point count, kind, bounding box, name), the index offset and MAGIC again.
+ * The Writer streams features to disk as the parser produces them, and a Reader keeps only the
+ * index in memory: geometry is read for features in the viewport and simplified for the zoom,
+ * with a bounded cache, so a large import never has to fit in memory.
+ */
+public final class ReferenceLayer implements Closeable {
+
+    static final int MAGIC = 0x46565246;  // "FVRF"
+    static final short VERSION = 1;
+    public static final String EXTENSION = ".fvref";
+
+    public static final int KIND_RING = 0;  // Closed boundary (polygon ring)
+    public static final int KIND_LINE = 1;  // Open path (GPX track, LineString)
+
+    private static final int CACHE_MAX_POINTS = 200_000;
+
+    /**
+     * Receives features from an import parser
+     */
+    public interface Sink {
+        void add(String name, int kind, double[] latLng, int n) throws IOException;
+    }
+
+    /**
+     * Streams features to a new layer file. Nothing appears under the final name until
+     * close(), so an import that fails halfway leaves no partial layer behind.
+     * Features of fewer than two points (KML/GeoJSON/GPX points) have nothing to draw or snap
+     * to; they are counted in skippedCount() instead of stored.
+     */
+    public static final class Writer implements Sink, Closeable {
+        private final File target, tmp;
+        private final DataOutputStream out;
+        private long offset;
+        private int count = 0;
+        private int skipped = 0;
+        private long[] offsets = new long[64];
+        private int[] sizes = new int[64];
+        private byte[] kinds = new byte[64];
+        private double[] boxes = new double[64 * 4];
+        private final List<String> names = new ArrayList<>();
+
+        public Writer(File target) throws IOException {
+            this.target = target;
+            this.tmp = new File(target.getPath() + ".tmp");
+            this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp), 64 * 1024));
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            offset = 6;
+        }
+
+        @Override
+        public void add(String name, int kind, double[] latLng, int n) throws IOException {
+            if (n < 2) {
+                skipped++;
+                return;
+            }
+            if (count == offsets.length) {
+                int cap = count * 2;
+                offsets = Arrays.copyOf(offsets, cap);
+                sizes = Arrays.copyOf(sizes, cap);
+                kinds = Arrays.copyOf(kinds, cap);
+                boxes = Arrays.copyOf(boxes, cap * 4);
+            }
+            double minLat = Double.POSITIVE_INFINITY, minLng = Double.POSITIVE_INFINITY;
+            double maxLat = Double.NEGATIVE_INFINITY, maxLng = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < n; i++) {
+                double lat = latLng[2 * i], lng = latLng[2 * i + 1];
+                out.writeDouble(lat);
+                out.writeDouble(lng);
+                minLat = Math.min(minLat, lat);
+                maxLat = Math.max(maxLat, lat);
+                minLng = Math.min(minLng, lng);
+                maxLng = Math.max(maxLng, lng);
+            }
+            offsets[count] = offset;
+            sizes[count] = n;
+            kinds[count] = (byte) kind;
+            boxes[4 * count] = minLng;
+            boxes[4 * count + 1] = minLat;
+            boxes[4 * count + 2] = maxLng;
+            boxes[4 * count + 3] = maxLat;
+            names.add(name != null ? name : "");
+            count++;
+            offset += 16L * n;
+        }
+
+        public int featureCount() {
+            return count;
+        }
+
+        public int skippedCount() {
+            return skipped;
+        }
+
+        @Override
+        public void close() throws IOException {
+            long indexOffset = offset;
+            out.writeInt(count);
+            for (int f = 0; f < count; f++) {
+                out.writeLong(offsets[f]);
+                out.writeInt(sizes[f]);
+                out.writeByte(kinds[f]);
+                for (int k = 0; k < 4; k++) out.writeDouble(boxes[4 * f + k]);
+                out.writeUTF(names.get(f).length() > 200 ? names.get(f).substring(0, 200) : names.get(f));
+            }
+            out.writeLong(indexOffset);
+            out.writeInt(MAGIC);
+            out.close();
+            if (target.exists() && !target.delete()) throw new IOException("Cannot replace " + target);
+            if (!tmp.renameTo(target)) throw new IOException("Cannot create " + target);
+        }
+
+        /**
+         * Drops the partial file (failed import)
+         */
+        public void abort() {
+            try {
+                out.close();
+            } catch (IOException ignored) {
+            }
+            tmp.delete();
+        }
+    }
+
+    private final File file;
+    private final RandomAccessFile raf;
+    private final long[] offsets;
+    private final int[] sizes;
+    private final byte[] kinds;
+    private final double[] boxes;  // (minLng, minLat, maxLng, maxLat) per feature
+    private final String[] names;
+    private final RTree tree;
+    private final LinkedHashMap<Long, double[]> cache = new LinkedHashMap<>(256, 0.75f, true);
+    private long cachedPoints = 0L;
+
+    private ReferenceLayer(File file, RandomAccessFile raf, long[] offsets, int[] sizes, byte[] kinds,
+                           double[] boxes, String[] names) {
+        this.file = file;
+        this.raf = raf;
+        this.offsets = offsets;
+        this.sizes = sizes;
+        this.kinds = kinds;
+        this.boxes = boxes;
+        this.names = names;
+        int[] ids = new int[sizes.length];
+        for (int i = 0; i < ids.length; i++) ids[i] = i;
+        this.tree = RTree.build(boxes, ids, ids.length);
+    }
+
+    /**
+     * Opens a layer written by Writer; reads only the index
+     */
+    public static ReferenceLayer open(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            long len = raf.length();
+            if (len < 18) throw new IOException("Not a reference layer");
+            raf.seek(0);
+            if (raf.readInt() != MAGIC || raf.readShort() != VERSION) throw new IOException("Not a reference layer");
+            raf.seek(len - 12);
+            long indexOffset = raf.readLong();
+            if (raf.readInt() != MAGIC || indexOffset < 6 || indexOffset > len - 16) throw new IOException("Incomplete reference layer");
+            raf.seek(indexOffset);
+            java.io.DataInputStream in = new java.io.DataInputStream(new java.io.BufferedInputStream(
+                    new java.io.FileInputStream(raf.getFD()), 64 * 1024));
+            int count = in.readInt();
+            long[] offsets = new long[count];
+            int[] sizes = new int[count];
+            byte[] kinds = new byte[count];
+            double[] boxes = new double[count * 4];
+            String[] names = new String[count];
+            for (int f = 0; f < count; f++) {
+                offsets[f] = in.readLong();
+                sizes[f] = in.readInt();
+                kinds[f] = in.readByte();
+                for (int k = 0; k < 4; k++) boxes[4 * f + k] = in.readDouble();
+                names[f] = in.readUTF();
+            }
+            return new ReferenceLayer(file, raf, offsets, sizes, kinds, boxes, names);
+        } catch (IOException e) {
+            raf.close();
+            throw e;
+        }
+    }
+
+    public File file() {
+        return file;
+    }
+
+    public int featureCount() {
+        return sizes.length;
+    }
+
+    public String name(int feature) {
+        return names[feature];
+    }
+
+    public int kind(int feature) {
+        return kinds[feature];
+    }
+
+    public int pointCount(int feature) {
+        return sizes[feature];
+    }
+
+    /**
+     * Features whose bounding box meets the viewport and spans at least minSpanDeg (features
+     * smaller than a pixel are not worth drawing). Returns how many ids were written to out.
+     */
+    public synchronized int visible(double minLat, double minLng, double maxLat, double maxLng,
+                                    double minSpanDeg, int[] out) {
+        int found = tree.query(minLng, minLat, maxLng, maxLat, out);
+        int kept = 0;
+        for (int i = 0; i < found; i++) {
+            int f = out[i];
+            double span = Math.max(boxes[4 * f + 2] - boxes[4 * f], boxes[4 * f + 3] - boxes[4 * f + 1]);
+            if (span >= minSpanDeg) out[kept++] = f;
+        }
+        return kept;
+    }
+
+    /**
+     * Full-resolution geometry as interleaved (lat, lng)
+     */
+    public synchronized double[] points(int feature) throws IOException {
+        byte[] raw = new byte[sizes[feature] * 16];
+        raf.seek(offsets[feature]);
+        raf.readFully(raw);
+        DoubleBuffer db = ByteBuffer.wrap(raw).asDoubleBuffer();
+        double[] out = new double[sizes[feature] * 2];
+        db.get(out);
+        return out;
+    }
+
+    /**
+     * Geometry simplified so no dropped vertex is farther than toleranceM from the result.
+     * Results are cached per (feature, tolerance) within a fixed point budget.
+     */
+    public synchronized double[] simplified(int feature, double toleranceM) throws IOException {
+        long key = ((long) feature << 32) | (Float.floatToIntBits((float) toleranceM) & 0xFFFFFFFFL);
+        double[] hit = cache.get(key);
+        if (hit != null) return hit;
+        double[] full = points(feature);
+        int n = sizes[feature];
+        double[] out = new double[full.length];
+        int m = simplify(full, n, toleranceM, out);
+        double[] result = m == n ? full : Arrays.copyOf(out, 2 * m);
+        cache.put(key, result);
+        cachedPoints += m;
+        Iterator<Map.Entry<Long, double[]>> it = cache.entrySet().iterator();
+        while (cachedPoints > CACHE_MAX_POINTS && it.hasNext()) {
+            cachedPoints -= it.next().getValue().length / 2;
+            it.remove();
+        }
+        return result;
+    }
+
+    /**
+     * Ground distance covered by one screen pixel (256 px Web Mercator tiles)
+     */
+    public static double metersPerPixel(double lat, double zoom) {
+        return 156543.03392 * Math.cos(Math.toRadians(lat)) / Math.pow(2, zoom);
+    }
+
+    /**
+     * Douglas–Peucker on interleaved (lat, lng) with a tolerance in meters; endpoints are kept.
+     * Writes the kept points to out and returns their count.
+     */
+    public static int simplify(double[] latLng, int n, double toleranceM, double[] out) {
+        if (n <= 2 || toleranceM <= 0) {
+            System.arraycopy(latLng, 0, out, 0, 2 * n);
+            return n;
+        }
+        double ky = 111320.0, kx = 111320.0 * Math.cos(Math.toRadians(latLng[0]));
+        double tol2 = toleranceM * toleranceM;
+        boolean[] keep = new boolean[n];
+        keep[0] = keep[n - 1] = true;
+        int[] stack = new int[64];
+        int sp = 0;
+        stack[sp++] = 0;
+        stack[sp++] = n - 1;
+        while (sp > 0) {
+            int last = stack[--sp], first = stack[--sp];
+            if (last - first < 2) continue;
+            double ax = latLng[2 * first + 1] * kx, ay = latLng[2 * first] * ky;
+            double dx = latLng[2 * last + 1] * kx - ax, dy = latLng[2 * last] * ky - ay;
+            double len2 = dx * dx + dy * dy;
+            double best = -1.0;
+            int bestIdx = -1;
+            for (int i = first + 1; i < last; i++) {
+                double px = latLng[2 * i + 1] * kx - ax, py = latLng[2 * i] * ky - ay;
+                double t = len2 == 0.0 ? 0.0 : Math.max(0.0, Math.min(1.0, (px * dx + py * dy) / len2));
+                double ex = px - t * dx, ey = py - t * dy;
+                double d = ex * ex + ey * ey;
+                if (d > best) {
+                    best = d;
+                    bestIdx = i;
+                }
+            }
+            if (best <= tol2) continue;
+            keep[bestIdx] = true;
+            if (sp + 4 > stack.length) stack = Arrays.copyOf(stack, stack.length * 2);
+            stack[sp++] = first;
+            stack[sp++] = bestIdx;
+            stack[sp++] = bestIdx;
+            stack[sp++] = last;
+        }
+        int m = 0;
+        for (int i = 0; i < n; i++) {
+            if (!keep[i]) continue;
+            out[2 * m] = latLng[2 * i];
+            out[2 * m + 1] = latLng[2 * i + 1];
+            m++;
+        }
+        return m;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        raf.close();
+    }
+}
@@ -0,0 +1,225 @@
+package com.example.fieldviewer;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Page geometry of a measurement report: rings projected to local meters, fitted into a page
+ * rectangle, with one label anchor per edge and a scale bar length. Metrics (net area,
+ * perimeter, stremma) come from the same projection.
+ *
+ * Rings are interleaved (lat, lng) like the saved JSON after parsing; output coordinates are
+ * page units with y pointing down. Buffers grow to the largest report and are reused, so a batch
+ * lays out any number of reports with one instance.
+ */
+public final class ReportLayout {
+
+    static final double METERS_PER_DEG_LAT = 111320.0;
+
+    private float[][] points = new float[4][];  // Page (x, y) per ring
+    private int[] pointCounts = new int[4];
+    private boolean[] holes = new boolean[4];
+    private int ringCount = 0;
+
+    // Edge labels: page anchor (x, y), edge length (m), and a horizontal alignment per label
+    private float[] labelXY = new float[64];
+    private double[] labelMeters = new double[32];
+    private int[] labelAlign = new int[32];
+    private int labelCount = 0;
+
+    private double[] local = new double[64];  // Scratch ring in local meters
+    private final double[] box = new double[4];
+
+    private double areaM2, perimeterM, pixelsPerMeter;
+
+    public static final int ALIGN_LEFT = -1;
+    public static final int ALIGN_CENTER = 0;
+    public static final int ALIGN_RIGHT = 1;
+
+    /**
+     * Projects and fits the rings into the page rectangle.
+     *
+     * @param area      net area to report, or NaN to compute it (Shoelace) from the rings
+     * @param minLabelPx edges shorter than this on the page get no label
+     * @param labelGap  distance of a label anchor from its edge, away from the field
+     */
+    public void layout(List<double[]> latLngRings, boolean[] ringHoles, double area,
+                       float left, float top, float right, float bottom,
+                       float minLabelPx, float labelGap) {
+        ringCount = 0;
+        labelCount = 0;
+        perimeterM = 0;
+        pixelsPerMeter = 0;
+        areaM2 = Double.isNaN(area) ? 0 : area;
+        if (latLngRings.isEmpty() || latLngRings.get(0).length < 2) return;
+
+        double lat0 = latLngRings.get(0)[0], lng0 = latLngRings.get(0)[1];
+        double mPerDegLng = METERS_PER_DEG_LAT * Math.cos(Math.toRadians(lat0));
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        java.util.ArrayList<double[]> localRings = Double.isNaN(area) ? new java.util.ArrayList<>() : null;
+        for (double[] ring : latLngRings) {
+            int n = ring.length / 2;
+            ensureLocal(2 * n);
+            for (int i = 0; i < n; i++) {
+                local[2 * i] = (ring[2 * i + 1] - lng0) * mPerDegLng;
+                local[2 * i + 1] = (ring[2 * i] - lat0) * METERS_PER_DEG_LAT;
+            }
+            RingMath.bounds(local, n, box);
+            minX = Math.min(minX, box[0]);
+            minY = Math.min(minY, box[1]);
+            maxX = Math.max(maxX, box[2]);
+            maxY = Math.max(maxY, box[3]);
+            perimeterM += RingMath.perimeter(local, n);
+            if (localRings != null) localRings.add(Arrays.copyOf(local, 2 * n));
+        }
+        if (localRings != null) {
+            areaM2 = RingMath.netArea(localRings, ringHoles != null ? ringHoles : new boolean[localRings.size()]);
+        }
+
+        double w = Math.max(maxX - minX, 1e-9), h = Math.max(maxY - minY, 1e-9);
+        double scale = Math.min((right - left) / w, (bottom - top) / h);
+        pixelsPerMeter = scale;
+        // Center the drawing in the page rectangle
+        double ox = left + ((right - left) - w * scale) / 2 - minX * scale;
+        double oy = bottom - ((bottom - top) - h * scale) / 2 + minY * scale;
+
+        for (int r = 0; r < latLngRings.size(); r++) {
+            double[] ring = latLngRings.get(r);
+            int n = ring.length / 2;
+            boolean hole = ringHoles != null && r < ringHoles.length && ringHoles[r];
+            ensureLocal(2 * n);
+            for (int i = 0; i < n; i++) {
+                local[2 * i] = (ring[2 * i + 1] - lng0) * mPerDegLng;
+                local[2 * i + 1] = (ring[2 * i] - lat0) * METERS_PER_DEG_LAT;
+            }
+            float[] page = ringBuffer(ringCount, 2 * n);
+            for (int i = 0; i < n; i++) {
+                page[2 * i] = (float) (ox + local[2 * i] * scale);
+                page[2 * i + 1] = (float) (oy - local[2 * i + 1] * scale);
+            }
+            pointCounts[ringCount] = n;
+            holes[ringCount] = hole;
+            ringCount++;
+            addEdgeLabels(local, page, n, hole, minLabelPx, labelGap);
+        }
+    }
+
+    /**
+     * Labels sit at edge midpoints, pushed out of fields and into holes so they never cover the fill
+     */
+    private void addEdgeLabels(double[] xy, float[] page, int n, boolean hole, float minLabelPx, float labelGap) {
+        if (n < 2) return;
+        // Counter-clockwise rings (y up) have their outside to the right of each edge
+        double side = RingMath.signedArea(xy, n) >= 0 ? 1 : -1;
+        if (hole) side = -side;
+        for (int i = 0, j = n - 1; i < n; j = i++) {
+            float px = page[2 * i] - page[2 * j], py = page[2 * i + 1] - page[2 * j + 1];
+            float len = (float) Math.hypot(px, py);
+            if (len < minLabelPx) continue;
+            // Right-hand normal in meters is (dy, -dx); on the page (y down) that is (-py, px)
+            double nx = -side * py / len, ny = side * px / len;
+            ensureLabels(labelCount + 1);
+            labelXY[2 * labelCount] = (page[2 * i] + page[2 * j]) / 2 + (float) (nx * labelGap);
+            labelXY[2 * labelCount + 1] = (page[2 * i + 1] + page[2 * j + 1]) / 2 + (float) (ny * labelGap);
+            labelMeters[labelCount] = Math.hypot(xy[2 * i] - xy[2 * j], xy[2 * i + 1] - xy[2 * j + 1]);
+            labelAlign[labelCount] = nx > 0.5 ? ALIGN_LEFT : nx < -0.5 ? ALIGN_RIGHT : ALIGN_CENTER;
+            labelCount++;
+        }
+    }
+
+    private void ensureLocal(int size) {
+        if (local.length < size) local = new double[Math.max(size, local.length * 2)];
+    }
+
+    private float[] ringBuffer(int r, int size) {
+        if (r >= points.length) {
+            points = Arrays.copyOf(points, points.length * 2);
+            pointCounts = Arrays.copyOf(pointCounts, points.length);
+            holes = Arrays.copyOf(holes, points.length);
+        }
+        if (points[r] == null || points[r].length < size) points[r] = new float[Math.max(size, 64)];
+        return points[r];
+    }
+
+    private void ensureLabels(int count) {
+        if (labelMeters.length >= count) return;
+        int cap = labelMeters.length * 2;
+        labelXY = Arrays.copyOf(labelXY, 2 * cap);
+        labelMeters = Arrays.copyOf(labelMeters, cap);
+        labelAlign = Arrays.copyOf(labelAlign, cap);
+    }
+
+    public int ringCount() {
+        return ringCount;
+    }
+
+    /**
+     * Page (x, y) of ring r; pointCount(r) points are valid
+     */
+    public float[] points(int r) {
+        return points[r];
+    }
+
+    public int pointCount(int r) {
+        return pointCounts[r];
+    }
+
+    public boolean isHole(int r) {
+        return holes[r];
+    }
+
+    public int labelCount() {
+        return labelCount;
+    }
+
+    public float labelX(int i) {
+        return labelXY[2 * i];
+    }
+
+    public float labelY(int i) {
+        return labelXY[2 * i + 1];
+    }
+
+    public double labelMeters(int i) {
+        return labelMeters[i];
+    }
+
+    public int labelAlign(int i) {
+        return labelAlign[i];
+    }
+
+    public double areaM2() {
+        return areaM2;
+    }
+
+    public double perimeterM() {
+        return perimeterM;
+    }
+
+    public double stremma() {
+        return areaM2 / 1000.0;
+    }
+
+    public double pixelsPerMeter() {
+        return pixelsPerMeter;
+    }
+
+    /**
+     * Longest 1, 2 or 5 × 10^k meters that fits in maxPx at the current scale (0 before a layout)
+     */
+    public double scaleBarMeters(float maxPx) {
+        if (pixelsPerMeter <= 0) return 0;
+        double maxM = maxPx / pixelsPerMeter * (1 + 1e-9);  // Round-off must not skip an exact fit
+        double pow = Math.pow(10, Math.floor(Math.log10(maxM)));
+        if (5 * pow <= maxM) return 5 * pow;
+        if (2 * pow <= maxM) return 2 * pow;
+        return pow;
+    }
+
+    public static String formatEdge(double meters) {
+        return meters >= 1000
+                ? String.format(java.util.Locale.US, "%.2f km", meters / 1000)
+                : String.format(java.util.Locale.US, "%.1f m", meters);
+    }
+}
@@ -0,0 +1,327 @@
+package com.example.fieldviewer;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.pdf.PdfDocument;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Renders saved measurements into one-page reports (PNG and/or PDF): the shape with its edge
+ * lengths, a scale bar, and area, perimeter and stremma.
+ *
+ * Both formats go through the same draw(Canvas) pass on A4 page units, onto a pooled bitmap for
+ * PNG and onto the PdfDocument page canvas for PDF. Work runs on one background thread, one
+ * measurement at a time, reusing the bitmap, layout buffers, paints and path, and each file is
+ * streamed to disk before the next is read, so memory stays the same for 1 or 10,000 reports.
+ * Listener callbacks arrive on the main thread.
+ */
+final class ReportRenderer {
+
+    private static final String TAG = "ReportRenderer";
+
+    // A4 in PDF points; PNG pages are rendered at PNG_SCALE (about 144 dpi)
+    static final int PAGE_WIDTH = 595;
+    static final int PAGE_HEIGHT = 842;
+    static final float PNG_SCALE = 2f;
+    private static final float MARGIN = 36f;
+    private static final float DRAWING_TOP = 120f;
+    private static final float DRAWING_BOTTOM = 700f;
+    private static final float LABEL_SPACE = 48f;  // Room around the drawing for edge labels
+
+    interface Listener {
+        /**
+         * After each measurement; output is its last written file, or null if it failed
+         */
+        void onProgress(int done, int total, File output);
+
+        void onFinished(int written, int failed, boolean cancelled);
+    }
+
+    /**
+     * Bitmaps handed out for PNG pages; returned ones are cleared and reused instead of
+     * allocating 8 MB per report
+     */
+    static final class BitmapPool {
+        private final int maxSize;
+        private final ArrayDeque<Bitmap> free = new ArrayDeque<>();
+
+        BitmapPool(int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        synchronized Bitmap acquire(int width, int height) {
+            while (!free.isEmpty()) {
+                Bitmap b = free.pop();
+                if (!b.isRecycled() && b.getWidth() == width && b.getHeight() == height) {
+                    b.eraseColor(Color.WHITE);
+                    return b;
+                }
+                b.recycle();
+            }
+            Bitmap b = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            b.eraseColor(Color.WHITE);
+            return b;
+        }
+
+        synchronized void release(Bitmap b) {
+            if (free.size() < maxSize) free.push(b);
+            else b.recycle();
+        }
+
+        synchronized void clear() {
+            for (Bitmap b : free) b.recycle();
+            free.clear();
+        }
+    }
+
+    /**
+     * What a report shows, read from a saved measurement JSON
+     */
+    static final class Report {
+        final String name;
+        final String when;
+        final List<double[]> rings = new ArrayList<>();  // Interleaved (lat, lng)
+        boolean[] holes;
+        double areaM2 = Double.NaN;                      // Saved net area (NaN: compute)
+
+        Report(String name, String when) {
+            this.name = name;
+            this.when = when;
+        }
+
+        static Report read(File f) throws Exception {
+            org.json.JSONObject root = new org.json.JSONObject(MeasurementFiles.readText(f));
+            String when = root.optString("timestamp_local", "");
+            if (when.isEmpty()) {
+                when = new java.text.SimpleDateFormat("yyyy-MM-dd HH:mm", java.util.Locale.getDefault())
+                        .format(new java.util.Date(root.optLong("timestamp", f.lastModified())));
+            }
+            Report r = new Report(root.optString("name", f.getName()), when);
+            r.areaM2 = root.optDouble("area_m2", Double.NaN);
+            MeasurementFiles.Rings saved = MeasurementFiles.readRings(root);
+            r.rings.addAll(saved.rings);
+            r.holes = saved.holes;
+            return r;
+        }
+    }
+
+    private final File outDir;
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "report-render");
+        t.setDaemon(true);
+        return t;
+    });
+    private final Handler main = new Handler(Looper.getMainLooper());
+    private final AtomicBoolean cancelled = new AtomicBoolean(false);
+    private final BitmapPool bitmaps = new BitmapPool(1);
+
+    // Render thread only: the shared Canvas pipeline state
+    private final ReportLayout layout = new ReportLayout();
+    private final Path shape = new Path();
+    private final Paint fillPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint edgePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint holePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint dotPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint labelPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint titlePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint textPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+    ReportRenderer(File outDir) {
+        this.outDir = outDir;
+        fillPaint.setStyle(Paint.Style.FILL);
+        fillPaint.setColor(0x4D00BCD4);
+        edgePaint.setStyle(Paint.Style.STROKE);
+        edgePaint.setStrokeWidth(1.5f);
+        edgePaint.setColor(0xFF00838F);
+        edgePaint.setStrokeJoin(Paint.Join.ROUND);
+        holePaint.set(edgePaint);
+        holePaint.setColor(0xFFF44336);
+        dotPaint.setStyle(Paint.Style.FILL);
+        dotPaint.setColor(0xFF00838F);
+        labelPaint.setTextSize(8f);
+        labelPaint.setColor(Color.DKGRAY);
+        titlePaint.setTextSize(18f);
+        titlePaint.setFakeBoldText(true);
+        titlePaint.setColor(Color.BLACK);
+        textPaint.setTextSize(11f);
+        textPaint.setColor(Color.BLACK);
+    }
+
+    File outputDir() {
+        return outDir;
+    }
+
+    /**
+     * Queues reports for the given measurements; a later call runs after this batch finishes
+     */
+    void render(List<File> measurements, boolean png, boolean pdf, Listener listener) {
+        final List<File> files = new ArrayList<>(measurements);
+        cancelled.set(false);
+        worker.execute(() -> runBatch(files, png, pdf, listener));
+    }
+
+    /**
+     * Stops the running batch after the current report
+     */
+    void cancel() {
+        cancelled.set(true);
+    }
+
+    /**
+     * Cancels pending work and frees the pooled bitmap; the renderer cannot be used afterwards
+     */
+    void shutdown() {
+        cancel();
+        worker.execute(bitmaps::clear);
+        worker.shutdown();
+    }
+
+    private void runBatch(List<File> files, boolean png, boolean pdf, Listener listener) {
+        if (!outDir.exists()) outDir.mkdirs();
+        int written = 0, failed = 0;
+        for (int i = 0; i < files.size(); i++) {
+            if (cancelled.get()) break;
+            File json = files.get(i);
+            File output = null;
+            long t0 = PerfTelemetry.begin(PerfTelemetry.REPORT);
+            try {
+                Report report = Report.read(json);
+                String base = json.getName().replaceFirst("\\.json$", "");
+                if (png) output = writePng(report, new File(outDir, base + ".png"));
+                if (pdf) output = writePdf(report, new File(outDir, base + ".pdf"));
+                written++;
+            } catch (Exception e) {
+                Log.w(TAG, "Report failed for " + json.getName(), e);
+                output = null;
+                failed++;
+            } finally {
+                PerfTelemetry.end(PerfTelemetry.REPORT, t0);
+            }
+            final int done = i + 1;
+            final File out = output;
+            main.post(() -> listener.onProgress(done, files.size(), out));
+        }
+        final int w = written, f = failed;
+        final boolean stopped = cancelled.get();
+        main.post(() -> listener.onFinished(w, f, stopped));
+    }
+
+    private File writePng(Report report, File out) throws IOException {
+        Bitmap bitmap = bitmaps.acquire((int) (PAGE_WIDTH * PNG_SCALE), (int) (PAGE_HEIGHT * PNG_SCALE));
+        try {
+            Canvas canvas = new Canvas(bitmap);
+            canvas.scale(PNG_SCALE, PNG_SCALE);
+            draw(canvas, report);
+            try (OutputStream os = new BufferedOutputStream(new FileOutputStream(out))) {
+                if (!bitmap.compress(Bitmap.CompressFormat.PNG, 100, os)) throw new IOException("PNG encoding failed");
+            }
+        } finally {
+            bitmaps.release(bitmap);
+        }
+        return out;
+    }
+
+    private File writePdf(Report report, File out) throws IOException {
+        // One document per report: finished pages are held natively until the document is closed
+        PdfDocument doc = new PdfDocument();
+        try {
+            PdfDocument.Page page = doc.startPage(new PdfDocument.PageInfo.Builder(PAGE_WIDTH, PAGE_HEIGHT, 1).create());
+            draw(page.getCanvas(), report);
+            doc.finishPage(page);
+            try (OutputStream os = new BufferedOutputStream(new FileOutputStream(out))) {
+                doc.writeTo(os);
+            }
+        } finally {
+            doc.close();
+        }
+        return out;
+    }
+
+    /**
+     * The shared Canvas pass, in page units (points)
+     */
+    private void draw(Canvas canvas, Report report) {
+        canvas.drawColor(Color.WHITE);
+        float right = PAGE_WIDTH - MARGIN;
+        canvas.drawText(report.name, MARGIN, MARGIN + 18f, titlePaint);
+        canvas.drawText(report.when, MARGIN, MARGIN + 36f, textPaint);
+
+        layout.layout(report.rings, report.holes, report.areaM2,
+                MARGIN + LABEL_SPACE, DRAWING_TOP + LABEL_SPACE / 2,
+                right - LABEL_SPACE, DRAWING_BOTTOM - LABEL_SPACE / 2, 24f, 6f);
+
+        // Fields minus holes in one even-odd path, then outlines and vertex dots
+        shape.rewind();
+        shape.setFillType(Path.FillType.EVEN_ODD);
+        for (int r = 0; r < layout.ringCount(); r++) {
+            float[] p = layout.points(r);
+            int n = layout.pointCount(r);
+            if (n == 0) continue;
+            shape.moveTo(p[0], p[1]);
+            for (int i = 1; i < n; i++) shape.lineTo(p[2 * i], p[2 * i + 1]);
+            shape.close();
+        }
+        canvas.drawPath(shape, fillPaint);
+        canvas.drawPath(shape, edgePaint);
+        for (int r = 0; r < layout.ringCount(); r++) {
+            float[] p = layout.points(r);
+            int n = layout.pointCount(r);
+            if (layout.isHole(r)) {
+                // Redraw hole outlines on top in their own color
+                for (int i = 0, j = n - 1; i < n; j = i++) {
+                    canvas.drawLine(p[2 * j], p[2 * j + 1], p[2 * i], p[2 * i + 1], holePaint);
+                }
+            }
+            for (int i = 0; i < n; i++) canvas.drawCircle(p[2 * i], p[2 * i + 1], 2f, dotPaint);
+        }
+
+        float ascent = -labelPaint.ascent() / 2;
+        for (int i = 0; i < layout.labelCount(); i++) {
+            int align = layout.labelAlign(i);
+            labelPaint.setTextAlign(align == ReportLayout.ALIGN_LEFT ? Paint.Align.LEFT
+                    : align == ReportLayout.ALIGN_RIGHT ? Paint.Align.RIGHT : Paint.Align.CENTER);
+            canvas.drawText(ReportLayout.formatEdge(layout.labelMeters(i)),
+                    layout.labelX(i), layout.labelY(i) + ascent, labelPaint);
+        }
+        labelPaint.setTextAlign(Paint.Align.LEFT);
+
+        // Scale bar and north marker under the drawing
+        double barM = layout.scaleBarMeters(150f);
+        if (barM > 0) {
+            float barPx = (float) (barM * layout.pixelsPerMeter());
+            float y = DRAWING_BOTTOM + 16f;
+            canvas.drawLine(MARGIN, y, MARGIN + barPx, y, edgePaint);
+            canvas.drawLine(MARGIN, y - 4f, MARGIN, y + 4f, edgePaint);
+            canvas.drawLine(MARGIN + barPx, y - 4f, MARGIN + barPx, y + 4f, edgePaint);
+            canvas.drawText(ReportLayout.formatEdge(barM), MARGIN + barPx + 6f, y + 4f, labelPaint);
+        }
+        canvas.drawText("N ↑", right - 24f, DRAWING_TOP, textPaint);
+
+        float y = DRAWING_BOTTOM + 52f;
+        java.util.Locale us = java.util.Locale.US;
+        canvas.drawText(String.format(us, "Area: %.2f m²", layout.areaM2()), MARGIN, y, textPaint);
+        canvas.drawText(String.format(us, "Perimeter: %.2f m", layout.perimeterM()), MARGIN, y + 18f, textPaint);
+        canvas.drawText(String.format(us, "Stremma: %.2f στρ", layout.stremma()), MARGIN, y + 36f, textPaint);
+        int fields = 0;
+        for (int r = 0; r < layout.ringCount(); r++) if (!layout.isHole(r)) fields++;
+        canvas.drawText(String.format(us, "%d field(s), %d exclusion zone(s)", fields, layout.ringCount() - fields),
+                MARGIN, y + 54f, textPaint);
+    }
+}
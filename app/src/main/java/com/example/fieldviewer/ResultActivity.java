@@ -39,21 +39,92 @@ public class ResultActivity extends AppCompatActivity implements OnMapReadyCallb
     private ArrayList<double[]> poly2d;  // 2D polygon coordinates from AR
     private Double originLat, originLng;  // GPS origin for georeferencing
     private Double headingRad;  // Device heading at first point for map alignment
-    private java.util.List<LatLng> latLngs;  // Converted to map coordinates
+    private double headingVarianceRad2 = Double.NaN;  // Compass spread (rad²) behind headingRad
+    private AreaEngine.Mode areaMode = AreaEngine.Mode.SHOELACE;  // Chosen on the AR screen; tap the area to switch
+    private java.util.ArrayList<double[]> ringHeights;  // Per ring, per vertex height from AR (null, or a null ring, when unknown)
+    private double[] anchorDrift;  // AnchorDriftMonitor.snapshot over every placed anchor (null when unknown)
+    private double originAccuracyM = Double.NaN;  // GPS accuracy of the origin (m), NaN when unknown
+    private double vertexSigmaM = Double.NaN;  // GPS walk: filtered position error per vertex (m), NaN for AR
+    private AreaUncertainty.Sources uncertaintySources;  // Behind the ± of the area
+    private java.util.List<LatLng> latLngs;  // Active ring converted to map coordinates (alias into rings)
+
+    // Multi-ring sessions: fields and holes (exclusion zones); ring 0 is always a field
+    private ArrayList<ArrayList<double[]>> rings2d;  // All rings from AR, when more than one
+    private final java.util.List<java.util.List<LatLng>> rings = new java.util.ArrayList<>();
+    private boolean[] ringHoles = new boolean[]{false};
+    private int[] holeParent = new int[]{-1};  // Containing field per hole, -1 for fields/orphans
+    private int activeRing = 0;  // Ring whose vertices have drag markers
+
+    // Tap-to-select index: every ring vertex in local meters around indexOrigin
+    private SpatialGrid vertexGrid;
+    private RTree ringTree;  // Ring bounding boxes for containing-polygon lookups
+    private LatLng indexOrigin;
+    private int[] ringBase;  // Grid id of ring r vertex i is ringBase[r] + i
+    private int[] idRing;    // Grid id -> ring
+    private double[] vertexLocal;  // Grid id -> (x, y) meters
+    private double[] ringBoxes;    // Ring -> (minX, minY, maxX, maxY) meters
 
     // Map and polygon visualization components
     private GoogleMap map;
-    private Polygon polygon;  // The visual polygon on the map
+    private final java.util.List<Polygon> ringPolygons = new java.util.ArrayList<>();  // One map polygon per ring
     private final java.util.List<Marker> vertexMarkers = new java.util.ArrayList<>();  // Draggable vertex markers
     private Marker polygonHandleMarker;  // Orange center handle for moving entire polygon
     private LatLng lastHandleDragLatLng;  // Previous position for move calculations
 
     // Rotation functionality
     private Marker rotationHandleMarker;  // Blue handle for rotating polygon
-    private java.util.List<LatLng> rotateStartLatLngs;  // Original positions before rotation
+    private PersistentVertexList rotateStartVertices;  // Snapshot before rotation (shared with history, no copy)
     private double rotateStartAngleRad;  // Starting angle for rotation
     private double rotationHandleRadiusMeters = 10.0; // Default 10 m radius for rotation handle, not precise
 
+    private PerfOverlay perfOverlay;  // Debug overlay, long-press the area label to toggle
+
+    // Imported reference boundaries: read-only polylines culled to the viewport and simplified for the zoom
+    private static final int MAX_REFERENCE_FEATURES = 1500;
+    private final java.util.List<ReferenceLayer> referenceLayers = new java.util.ArrayList<>();
+    private final java.util.Map<Long, com.google.android.gms.maps.model.Polyline> referenceLines = new java.util.HashMap<>();
+    private final java.util.Map<Long, Double> referenceTolerance = new java.util.HashMap<>();  // Simplification of each drawn line
+    private final java.util.concurrent.ExecutorService referenceExecutor = java.util.concurrent.Executors.newSingleThreadExecutor();
+    private int referenceGeneration = 0;  // Bumped per camera move; older overlay results are dropped
+
+    // Comparison of the active ring with a chosen saved/imported boundary (recomputed on every edit)
+    private double[] compareRefLocal;  // Reference ring in local meters around indexOrigin
+    private String compareRefName;
+    private TextView tvComparison;
+
+    // Area, surface and comparison, computed off the main thread and shown once per frame
+    private final java.util.concurrent.ExecutorService metricsExecutor = MetricsWorker.newExecutor("result-metrics");
+    private final MetricsWorker<ResultMetrics.Input, ResultMetrics.Snapshot> metricsWorker =
+            new MetricsWorker<>(metricsExecutor, ResultActivity::computeMetrics, 100_000_000L, this::onMetricsPublished);
+    // Saves: JSON file, index record and sync outbox, in order, off the main thread
+    private static final long SAVE_METRICS_WAIT_MS = 5000;  // Then the save computes what the worker has not
+    private final java.util.concurrent.ExecutorService saveExecutor = MetricsWorker.newExecutor("result-save");
+    private final java.util.concurrent.atomic.AtomicBoolean metricsFramePending = new java.util.concurrent.atomic.AtomicBoolean();
+    private long shownMetricsVersion = 0;
+    private final java.util.List<Polygon> overlapPolygons = new java.util.ArrayList<>();
+    private final java.util.List<Polygon> measuredOnlyPolygons = new java.util.ArrayList<>();
+    private final java.util.List<Polygon> referenceOnlyPolygons = new java.util.ArrayList<>();
+
+    // Dragged vertices snap onto saved/imported boundaries within SNAP_AREA_METERS of the session
+    private static final double SNAP_AREA_METERS = 2000.0;
+    private static final int MAX_SNAP_FEATURES = 20000;
+    private SnapIndex snapIndex;  // Built on the overlay thread when the map opens
+    private final double[] snapOut = new double[2];
+
+    // Maps intents are URLs; longer ones get truncated or rejected, so paths are simplified to fit
+    private static final int MAPS_URL_MAX_CHARS = 2048;
+
+    // Undo/redo over persistent (lat, lng) snapshots; unchanged vertices are shared between revisions.
+    // One history per ring; editHistory is the active ring's
+    private final java.util.List<EditHistory<PersistentVertexList>> ringHistories = new java.util.ArrayList<>();
+    private EditHistory<PersistentVertexList> editHistory = new EditHistory<>();
+    private Button btnUndoEdit, btnRedoEdit;
+
+    // Self-intersection warning for the active ring (checked on every commit)
+    private android.view.View llIntersections;
+    private TextView tvIntersections;
+    private Marker crossingMarker;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -77,22 +148,52 @@ public class ResultActivity extends AppCompatActivity implements OnMapReadyCallb
         Button btnFlipEW = findViewById(R.id.btnFlipEW);
         Button btnFlipNS = findViewById(R.id.btnFlipNS);
         Button btnSavedSmall = findViewById(R.id.btnSavedSmall);
+        Button btnHistory = findViewById(R.id.btnHistory);
+        btnUndoEdit = findViewById(R.id.btnUndoEdit);
+        btnRedoEdit = findViewById(R.id.btnRedoEdit);
+        llIntersections = findViewById(R.id.llIntersections);
+        tvIntersections = findViewById(R.id.tvIntersections);
+        Button btnRepair = findViewById(R.id.btnRepair);
+        Button btnCompare = findViewById(R.id.btnCompare);
+        tvComparison = findViewById(R.id.tvComparison);
         android.widget.EditText etFileName = findViewById(R.id.etFileName);
 
         // Extract data passed from AR measurement activity
         poly2d = (ArrayList<double[]>) getIntent().getSerializableExtra("poly2d");
+        rings2d = (ArrayList<ArrayList<double[]>>) getIntent().getSerializableExtra("rings2d");
+        boolean[] holesExtra = getIntent().getBooleanArrayExtra("ringHoles");
+        if (rings2d == null || holesExtra == null || holesExtra.length != rings2d.size()) {
+            rings2d = null;
+        } else {
+            ringHoles = holesExtra;
+        }
         double area = getIntent().getDoubleExtra("area", 0.0);
         // Stremma: 1 stremma = 1000 m² (Greek land measurement unit)
         double stremma = area / 1000.0;
         originLat = (Double) getIntent().getSerializableExtra("originLat");
         originLng = (Double) getIntent().getSerializableExtra("originLng");
         headingRad = (Double) getIntent().getDoubleExtra("headingRad", Double.NaN);
+        headingVarianceRad2 = getIntent().getDoubleExtra("headingVarianceRad2", Double.NaN);
+        areaMode = AreaEngine.Mode.fromName(getIntent().getStringExtra("areaMode"));
+        ringHeights = (java.util.ArrayList<double[]>) getIntent().getSerializableExtra("ringHeights");
+        double surfaceArea = getIntent().getDoubleExtra("surfaceArea", Double.NaN);
+        anchorDrift = getIntent().getDoubleArrayExtra("anchorDrift");
+        originAccuracyM = getIntent().getDoubleExtra("originAccuracyM", Double.NaN);
+        vertexSigmaM = getIntent().getDoubleExtra("vertexSigmaM", Double.NaN);
+        uncertaintySources = new AreaUncertainty.Sources(anchorDrift, headingVarianceRad2, originAccuracyM, vertexSigmaM);
 
         // Display initial metrics
-        if (tvAreaFinal != null) tvAreaFinal.setText(String.format(java.util.Locale.US, "Area: %.2f m²", area));
+        if (tvAreaFinal != null) tvAreaFinal.setText(formatArea(area, surfaceArea, null));
         if (tvAcresFinal != null) tvAcresFinal.setText(String.format(java.util.Locale.US, "Stremma: %.2f στρ", stremma));
 
         // Set up button click handlers
+        if (tvAreaFinal != null) {
+            tvAreaFinal.setOnClickListener(v -> {
+                areaMode = areaMode.next();
+                android.widget.Toast.makeText(this, "Area engine: " + areaMode.label(), android.widget.Toast.LENGTH_SHORT).show();
+                updateAreaAndAcresUI();
+            });
+        }
         if (btnNew != null) {
             btnNew.setText("+");
             btnNew.setAllCaps(false);
@@ -120,6 +221,24 @@ public class ResultActivity extends AppCompatActivity implements OnMapReadyCallb
         if (btnFlipNS != null) {
             btnFlipNS.setOnClickListener(v -> flipPolygon(false));
         }
+        if (btnUndoEdit != null) {
+            btnUndoEdit.setOnClickListener(v -> applyVertices(editHistory.undo()));
+        }
+        if (btnRedoEdit != null) {
+            btnRedoEdit.setOnClickListener(v -> applyVertices(editHistory.redo()));
+        }
+        if (btnHistory != null) {
+            btnHistory.setOnClickListener(v -> showHistoryDialog());
+        }
+        if (btnRepair != null) {
+            btnRepair.setOnClickListener(v -> repairActiveRing());
+        }
+        if (btnCompare != null) {
+            btnCompare.setOnClickListener(v -> promptCompareTarget());
+        }
+
+        TextView tvPerf = findViewById(R.id.tvPerfOverlay);
+        if (tvPerf != null) perfOverlay = new PerfOverlay(this, tvPerf, tvAreaFinal);
 
         // Initialize Google Map
         SupportMapFragment mapFragment = (SupportMapFragment) getSupportFragmentManager()
@@ -129,11 +248,103 @@ public class ResultActivity extends AppCompatActivity implements OnMapReadyCallb
         }
     }
 
+    /**
+     * Result screen for a measurement rebuilt from the crash journal, with the same extras the
+     * AR screen sends (rings, heights, heading, GPS origin)
+     */
+    static android.content.Intent recoveryIntent(android.content.Context context, MeasurementJournal.Snapshot s) {
+        java.util.List<double[]> ringList = new java.util.ArrayList<>();
+        java.util.List<Boolean> holeList = new java.util.ArrayList<>();
+        java.util.ArrayList<double[]> heightList = new java.util.ArrayList<>();
+        s.collectRings2D(ringList, holeList, heightList);
+        boolean[] holes = new boolean[holeList.size()];
+        for (int r = 0; r < holes.length; r++) holes[r] = holeList.get(r);
+        ArrayList<ArrayList<double[]>> rings2d = new ArrayList<>();
+        double perim = 0;
+        int total = 0;
+        for (double[] ring : ringList) {
+            ArrayList<double[]> pts = new ArrayList<>();
+            for (int k = 0; k < ring.length / 2; k++) pts.add(new double[]{ring[2 * k], ring[2 * k + 1]});
+            rings2d.add(pts);
+            perim += RingMath.perimeter(ring, ring.length / 2);
+            total += ring.length / 2;
+        }
+        double[] heights = new double[total];
+        int at = 0;
+        for (double[] h : heightList) {
+            System.arraycopy(h, 0, heights, at, h.length);
+            at += h.length;
+        }
+        double area = AreaEngine.netArea(ringList, holes, AreaEngine.Mode.SHOELACE);
+
+        android.content.Intent i = new android.content.Intent(context, ResultActivity.class);
+        i.putExtra("poly2d", rings2d.get(0));
+        if (rings2d.size() > 1) {
+            i.putExtra("rings2d", rings2d);
+            i.putExtra("ringHoles", holes);
+        }
+        i.putExtra("perimeter", perim);
+        i.putExtra("area", area);
+        i.putExtra("areaMode", AreaEngine.Mode.SHOELACE.name());
+        i.putExtra("ringHeights", heightList);
+        i.putExtra("surfaceArea", SurfaceArea.of(AreaEngine.triangulate(ringList, holes), heights));
+        i.putExtra("stremma", area / 1000.0);
+        if (s.headingRad != null) {
+            i.putExtra("headingRad", s.headingRad.doubleValue());
+            if (s.headingVarianceRad2 != null) i.putExtra("headingVarianceRad2", s.headingVarianceRad2.doubleValue());
+        }
+        if (s.originLat != null && s.originLng != null) {
+            i.putExtra("originLat", s.originLat);
+            i.putExtra("originLng", s.originLng);
+            i.putExtra("originAccuracyM", s.originAccuracyM);
+        }
+        return i;
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        if (perfOverlay != null) perfOverlay.onResume();
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        if (perfOverlay != null) perfOverlay.onPause();
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        metricsExecutor.shutdownNow();
+        saveExecutor.shutdown();  // A save already queued still completes
+        // Close on the overlay thread so a running refresh never reads a closed file
+        final java.util.List<ReferenceLayer> layers = new java.util.ArrayList<>(referenceLayers);
+        referenceExecutor.execute(() -> {
+            for (ReferenceLayer layer : layers) {
+                try {
+                    layer.close();
+                } catch (java.io.IOException ignored) {}
+            }
+        });
+        referenceExecutor.shutdown();
+    }
+
     @Override
     public void onMapReady(GoogleMap googleMap) {
         this.map = googleMap;
         // Set Satellite basemap for better field visualization
         googleMap.setMapType(GoogleMap.MAP_TYPE_SATELLITE);
+        // Cached imagery on top where available (works offline); Google's basemap shows through elsewhere
+        OfflineTiles offlineTiles = CachedTileProvider.offlineTiles(this);
+        if (offlineTiles != null) {
+            googleMap.addTileOverlay(new com.google.android.gms.maps.model.TileOverlayOptions()
+                    .tileProvider(new CachedTileProvider(offlineTiles))
+                    .zIndex(-1f));
+            if (originLat != null && originLng != null) offlineTiles.prefetchAround(originLat, originLng);
+        }
+        googleMap.setOnCameraIdleListener(this::refreshReferenceOverlays);
+        loadReferenceLayers();
         
         // Ensure gestures are enabled for interaction
         try {
@@ -154,55 +365,34 @@ public class ResultActivity extends AppCompatActivity implements OnMapReadyCallb
             } catch (SecurityException ignored) {}
         }
 
-        // Project local meters (x,z) to lat/lng degrees around origin if available
-        latLngs = new java.util.ArrayList<>();
-        if (originLat != null && originLng != null) {
-            // Apply true-north-corrected heading so AR local X/Z aligns to East/North
-            double theta = (headingRad != null && !headingRad.isNaN()) ? headingRad : 0.0;
-            double cosT = Math.cos(theta);
-            double sinT = Math.sin(theta);
-            // meters per degree at origin
-            double metersPerDegLat = 111320.0;
-            double metersPerDegLng = metersPerDegLat * Math.cos(Math.toRadians(originLat));
-            for (double[] p : poly2d) {
-                double x = p[0]; // local East-ish (AR X)
-                double y = p[1]; // local North-ish (AR Z)
-                // Rotate by device heading captured at first point
-                double e = x * cosT - y * sinT; // meters East
-                double n = x * sinT + y * cosT; // meters North
-                double dLat = n / metersPerDegLat;
-                double dLng = e / metersPerDegLng;
-                latLngs.add(new LatLng(originLat + dLat, originLng + dLng));
-            }
+        // Project local meters (x,z) of every ring to lat/lng degrees around origin if available
+        rings.clear();
+        ringHistories.clear();
+        if (rings2d != null) {
+            for (ArrayList<double[]> ring : rings2d) rings.add(projectToLatLngs(ring));
         } else {
-            // Fallback demo: around (0,0) if no GPS origin available
-            double scale = 1e-5;
-            for (double[] p : poly2d) {
-                latLngs.add(new LatLng(0 + p[1] * scale, 0 + p[0] * scale));
-            }
+            rings.add(projectToLatLngs(poly2d));
+            ringHoles = new boolean[]{false};
+        }
+        for (java.util.List<LatLng> ring : rings) {
+            EditHistory<PersistentVertexList> h = new EditHistory<>();
+            h.reset(verticesOf(ring), "Initial");
+            ringHistories.add(h);
         }
+        activeRing = 0;
+        latLngs = rings.get(0);
+        editHistory = ringHistories.get(0);
+        updateUndoRedoButtons();
 
-        // Create the visual polygon on the map
-        PolygonOptions polyOpts = new PolygonOptions()
-                .addAll(latLngs)
-                .strokeWidth(4f)
-                .strokeColor(0xFF00BCD4)  // Cyan border
-                .fillColor(0x3300BCD4);   // Semi-transparent cyan fill
-        polygon = googleMap.addPolygon(polyOpts);
-        polygon.setClickable(true);
-
-        // Create draggable markers for refine-on-map
-        for (int i = 0; i < latLngs.size(); i++) {
-            Marker m = googleMap.addMarker(new MarkerOptions()
-                    .position(latLngs.get(i))
-                    .draggable(true)
-                    .zIndex(10f));
-            if (m != null) {
-                m.setDraggable(true);
-                m.setTag(i);
-                vertexMarkers.add(m);
-            }
+        // Create one visual polygon per ring; holes are cut out of their field and outlined in red
+        for (int r = 0; r < rings.size(); r++) {
+            ringPolygons.add(addRingPolygon(rings.get(r), ringHoles[r]));
         }
+        buildRingIndex();
+        refreshHoles();
+
+        // Create draggable markers for refine-on-map (active ring only)
+        createVertexMarkers();
 
         // Add a draggable centroid handle to move the entire polygon, sometimes bugs out and moves out of the polygon
         LatLng centroid = computeCentroid(latLngs);
@@ -234,7 +424,7 @@ public class ResultActivity extends AppCompatActivity implements OnMapReadyCallb
                     // Capture starting angle and original points for rotation
                     LatLng center = computeCentroid(latLngs);
                     rotateStartAngleRad = angleRad(center, marker.getPosition());
-                    rotateStartLatLngs = new java.util.ArrayList<>(latLngs);
+                    rotateStartVertices = editHistory.current();
                     rotationHandleRadiusMeters = distanceMeters(center, marker.getPosition());
                 } else {
                     updateFromVertexMarker(marker);
@@ -256,11 +446,22 @@ public class ResultActivity extends AppCompatActivity implements OnMapReadyCallb
                     dragWholePolygon(marker);
                     // Reposition rotation handle relative to new centroid
                     updateRotationHandlePosition();
+                    commitEdit(verticesOf(latLngs), "Move shape");
                 } else if ("rotate".equals(tag)) {
                     // Snap rotation handle back to fixed radius around centroid at current angle
                     updateRotationHandlePosition();
+                    rotateStartVertices = null;
+                    commitEdit(verticesOf(latLngs), "Rotate shape");
                 } else {
                     updateFromVertexMarker(marker);
+                    // Single-vertex edit: O(log n) path copy of the previous revision
+                    PersistentVertexList cur = editHistory.current();
+                    if (tag instanceof Integer && cur != null && (Integer) tag < cur.size()) {
+                        int idx = (Integer) tag;
+                        LatLng p = latLngs.get(idx);
+                        marker.setPosition(p);  // Settle on the snapped position
+                        commitEdit(cur.set(idx, p.latitude, p.longitude), "Drag vertex " + (idx + 1));
+                    }
                 }
             }
             
@@ -272,8 +473,8 @@ public class ResultActivity extends AppCompatActivity implements OnMapReadyCallb
                 if (!(tag instanceof Integer)) return;
                 int idx = (Integer) tag;
                 if (idx < 0 || idx >= latLngs.size()) return;
-                latLngs.set(idx, marker.getPosition());
-                if (polygon != null) polygon.setPoints(latLngs);
+                latLngs.set(idx, snapped(marker.getPosition()));
+                refreshActiveShape();
                 updateHandlePosition();
                 updateAreaAndAcresUI();
             }
@@ -300,7 +501,7 @@ public class ResultActivity extends AppCompatActivity implements OnMapReadyCallb
                         if (vm != null) vm.setPosition(np);
                     }
                 }
-                if (polygon != null) polygon.setPoints(latLngs);
+                refreshActiveShape();
                 lastHandleDragLatLng = cur;
                 updateAreaAndAcresUI();
             }
@@ -309,13 +510,13 @@ public class ResultActivity extends AppCompatActivity implements OnMapReadyCallb
              * Rotates the entire polygon when the blue rotation handle is dragged
              */
             private void rotateWholePolygon(Marker marker) {
-                if (rotateStartLatLngs == null || rotateStartLatLngs.size() != latLngs.size()) return;
-                LatLng center = computeCentroid(rotateStartLatLngs);
+                if (rotateStartVertices == null || rotateStartVertices.size() != latLngs.size()) return;
+                LatLng center = computeCentroid(rotateStartVertices);
                 double curAngle = angleRad(center, marker.getPosition());
                 double delta = curAngle - rotateStartAngleRad;
                 // Rotate each vertex around center using local meters (ENU)
-                for (int i = 0; i < rotateStartLatLngs.size(); i++) {
-                    LatLng p0 = rotateStartLatLngs.get(i);
+                for (int i = 0; i < rotateStartVertices.size(); i++) {
+                    LatLng p0 = new LatLng(rotateStartVertices.x(i), rotateStartVertices.y(i));
                     double[] en = toLocalMeters(center, p0);
                     double e = en[0], n = en[1];
                     double er = e * Math.cos(delta) - n * Math.sin(delta);
@@ -327,13 +528,17 @@ public class ResultActivity extends AppCompatActivity implements OnMapReadyCallb
                         if (vm != null) vm.setPosition(p1);
                     }
                 }
-                if (polygon != null) polygon.setPoints(latLngs);
+                refreshActiveShape();
                 updateAreaAndAcresUI();
             }
         });
 
-        // Disable adding new points on tap; allow moving existing markers only
-        googleMap.setOnMapClickListener(latLng -> {});
+        // Tap selects the ring under / nearest to the finger (no new points are added on tap)
+        googleMap.setOnMapClickListener(this::selectRingAt);
+        googleMap.setOnPolygonClickListener(pg -> {
+            int r = ringPolygons.indexOf(pg);
+            if (r >= 0) setActiveRing(r);
+        });
 
         googleMap.setOnMarkerClickListener(marker -> true); // consume click to avoid info window interfering
 
@@ -347,41 +552,550 @@ public class ResultActivity extends AppCompatActivity implements OnMapReadyCallb
 
         // Update metrics using map geometry
         updateAreaAndAcresUI();
+        checkSelfIntersections();
+    }
+
+    private Polygon addRingPolygon(java.util.List<LatLng> ring, boolean hole) {
+        PolygonOptions polyOpts = new PolygonOptions()
+                .addAll(ring)
+                .strokeWidth(4f);
+        if (hole) {
+            polyOpts.strokeColor(0xFFF44336).fillColor(0x00000000).zIndex(1f);  // Red outline, no fill
+        } else {
+            polyOpts.strokeColor(0xFF00BCD4)  // Cyan border
+                    .fillColor(0x3300BCD4);   // Semi-transparent cyan fill
+        }
+        Polygon pg = map.addPolygon(polyOpts);
+        pg.setClickable(true);
+        return pg;
     }
 
     /**
      * Updates the area and stremma display based on current polygon geometry
-     * Recalculates metrics whenever polygon is modified
+     * Recalculates metrics whenever polygon is modified: a copy of the rings goes to the metrics
+     * worker, and the labels follow once per frame (see applyMetricsSnapshot)
      */
     private void updateAreaAndAcresUI() {
-        if (latLngs == null || latLngs.size() < 3) return;
-        double areaSqMeters = computeAreaSqMetersFromLatLngs(latLngs);
-        double stremma = areaSqMeters / 1000.0;
-        TextView tvAreaFinal = findViewById(R.id.tvAreaFinal);
-        TextView tvAcresFinal = findViewById(R.id.tvPerimeterFinal);
-        if (tvAreaFinal != null) tvAreaFinal.setText(String.format(java.util.Locale.US, "Area: %.2f m²", areaSqMeters));
-        if (tvAcresFinal != null) tvAcresFinal.setText(String.format(java.util.Locale.US, "Stremma: %.2f στρ", stremma));
+        if (latLngs == null) return;
+        metricsWorker.submit(metricsInput());
     }
 
     /**
-     * Calculates area from lat/lng coordinates using Shoelace formula
-     * Converts to local meters at the origin latitude for accurate calculation
+     * Copy of the rings and settings the metrics depend on
      */
-    private double computeAreaSqMetersFromLatLngs(java.util.List<LatLng> pts) {
-        if (pts == null || pts.size() < 3 || originLat == null || originLng == null) return 0.0;
+    private ResultMetrics.Input metricsInput() {
+        java.util.List<double[]> copy = new java.util.ArrayList<>(rings.size());
+        for (java.util.List<LatLng> ring : rings) {
+            double[] latLng = new double[ring.size() * 2];
+            for (int i = 0; i < ring.size(); i++) {
+                latLng[2 * i] = ring.get(i).latitude;
+                latLng[2 * i + 1] = ring.get(i).longitude;
+            }
+            copy.add(latLng);
+        }
+        // Height arrays are replaced, never written, once loaded
+        java.util.List<double[]> heights = ringHeights != null ? new java.util.ArrayList<>(ringHeights) : null;
+        return new ResultMetrics.Input(copy, ringHoles.clone(), heights, areaMode,
+                originLat != null ? originLat : Double.NaN, originLng != null ? originLng : Double.NaN,
+                activeRing, compareRefLocal, uncertaintySources);
+    }
+
+    /**
+     * Runs on the metrics worker: area and surface, the comparison, then the Monte Carlo area
+     * interval; the whole run is dropped between stages when newer input is already waiting
+     */
+    private static ResultMetrics.Snapshot computeMetrics(ResultMetrics.Input in, MetricsWorker.Staleness stale) {
+        // Sections are ended in finally: a throwing stage is skipped by the worker, whose thread lives on
+        ResultMetrics.Snapshot s;
+        long t0 = PerfTelemetry.begin(PerfTelemetry.METRICS);
+        try {
+            s = ResultMetrics.compute(in, stale);
+        } finally {
+            PerfTelemetry.end(PerfTelemetry.METRICS, t0);
+        }
+        if (s == null) return null;
+        if (in.compareRef != null) {
+            if (stale.isStale()) return null;
+            t0 = PerfTelemetry.begin(PerfTelemetry.CLIP);
+            try {
+                s = s.withComparison(ResultMetrics.compare(in));
+            } finally {
+                PerfTelemetry.end(PerfTelemetry.CLIP, t0);
+            }
+        }
+        if (stale.isStale()) return null;
+        AreaUncertainty.Result u;
+        t0 = PerfTelemetry.begin(PerfTelemetry.UNCERTAINTY);
+        try {
+            u = ResultMetrics.uncertainty(in, stale);
+        } finally {
+            PerfTelemetry.end(PerfTelemetry.UNCERTAINTY, t0);
+        }
+        if (u == null && stale.isStale()) return null;
+        return s.withUncertainty(u);
+    }
+
+    /**
+     * Worker thread: schedules one read of the newest snapshot for the next frame
+     */
+    private void onMetricsPublished() {
+        if (!metricsFramePending.compareAndSet(false, true)) return;
+        runOnUiThread(() -> android.view.Choreographer.getInstance().postFrameCallback(frameTimeNanos -> {
+            metricsFramePending.set(false);
+            applyMetricsSnapshot();
+        }));
+    }
+
+    private void applyMetricsSnapshot() {
+        if (isDestroyed()) return;
+        MetricsWorker.Snapshot<ResultMetrics.Snapshot> snapshot = metricsWorker.latest();
+        if (snapshot == null || snapshot.version == shownMetricsVersion) return;
+        shownMetricsVersion = snapshot.version;
+        ResultMetrics.Snapshot m = snapshot.value;
+        if (m.input.activeCount() >= 3) {
+            double stremma = m.area / 1000.0;
+            TextView tvAreaFinal = findViewById(R.id.tvAreaFinal);
+            TextView tvAcresFinal = findViewById(R.id.tvPerimeterFinal);
+            if (tvAreaFinal != null) tvAreaFinal.setText(formatArea(m.area, m.surface, m.uncertainty));
+            if (tvAcresFinal != null) tvAcresFinal.setText(String.format(java.util.Locale.US, "Stremma: %.2f στρ", stremma));
+        }
+        showComparison(m.comparison);
+    }
+
+    /**
+     * Lists saved measurements and imported boundaries around the active ring and compares
+     * against the one picked. Candidates and geometry are read on the overlay thread.
+     */
+    private void promptCompareTarget() {
+        if (latLngs == null || latLngs.size() < 3 || indexOrigin == null) return;
+        double minLat = Double.POSITIVE_INFINITY, minLng = Double.POSITIVE_INFINITY;
+        double maxLat = Double.NEGATIVE_INFINITY, maxLng = Double.NEGATIVE_INFINITY;
+        for (LatLng p : latLngs) {
+            minLat = Math.min(minLat, p.latitude);
+            maxLat = Math.max(maxLat, p.latitude);
+            minLng = Math.min(minLng, p.longitude);
+            maxLng = Math.max(maxLng, p.longitude);
+        }
+        final double[] box = {minLat, minLng, maxLat, maxLng};
+        final java.util.List<ReferenceLayer> layers = new java.util.ArrayList<>(referenceLayers);
+        final java.io.File dir = new java.io.File(getExternalFilesDir(null), "measurements");
+        referenceExecutor.execute(() -> {
+            java.util.List<String> labels = new java.util.ArrayList<>();
+            java.util.List<java.util.concurrent.Callable<double[]>> loaders = new java.util.ArrayList<>();
+            for (MeasurementIndex.Entry e : MeasurementIndex.forDirectory(dir).overlapping(box[0], box[1], box[2], box[3])) {
+                final java.io.File f = new java.io.File(dir, e.fileName);
+                labels.add(e.fileName.replaceAll("\\.json$", "") + String.format(java.util.Locale.US, " (%.0f m²)", e.areaM2));
+                loaders.add(() -> readSavedOuterRing(f));
+            }
+            int[] ids = new int[256];
+            for (final ReferenceLayer layer : layers) {
+                int n = layer.visible(box[0], box[1], box[2], box[3], 0.0, ids);
+                for (int i = 0; i < n; i++) {
+                    final int feature = ids[i];
+                    if (layer.kind(feature) != ReferenceLayer.KIND_RING) continue;
+                    labels.add(layer.name(feature) + " · " + layer.file().getName().replace(ReferenceLayer.EXTENSION, ""));
+                    loaders.add(() -> layer.points(feature));
+                }
+            }
+            runOnUiThread(() -> {
+                if (isDestroyed()) return;
+                if (labels.isEmpty() && compareRefLocal == null) {
+                    android.widget.Toast.makeText(this, "No saved or imported boundary overlaps this field", android.widget.Toast.LENGTH_SHORT).show();
+                    return;
+                }
+                androidx.appcompat.app.AlertDialog.Builder dialog = new androidx.appcompat.app.AlertDialog.Builder(this)
+                        .setTitle("Compare with")
+                        .setItems(labels.toArray(new String[0]), (d, which) -> loadCompareTarget(labels.get(which), loaders.get(which)))
+                        .setNegativeButton("Close", null);
+                if (compareRefLocal != null) dialog.setNeutralButton("Clear", (d, w) -> setCompareTarget(null, null));
+                dialog.show();
+            });
+        });
+    }
+
+    private void loadCompareTarget(String name, java.util.concurrent.Callable<double[]> loader) {
+        referenceExecutor.execute(() -> {
+            double[] latLng;
+            try {
+                latLng = loader.call();
+            } catch (Exception e) {
+                latLng = null;
+            }
+            final double[] ring = latLng;
+            runOnUiThread(() -> {
+                if (isDestroyed()) return;
+                if (ring == null || ring.length < 6) {
+                    android.widget.Toast.makeText(this, "Could not read " + name, android.widget.Toast.LENGTH_SHORT).show();
+                    return;
+                }
+                setCompareTarget(name, ring);
+            });
+        });
+    }
+
+    /**
+     * Sets (or with null clears) the reference ring, given as interleaved (lat, lng)
+     */
+    private void setCompareTarget(String name, double[] latLng) {
+        compareRefName = name;
+        compareRefLocal = null;
+        if (latLng != null && indexOrigin != null) {
+            compareRefLocal = new double[latLng.length];
+            for (int i = 0; i < latLng.length; i += 2) {
+                double[] en = toLocalMeters(indexOrigin, new LatLng(latLng[i], latLng[i + 1]));
+                compareRefLocal[i] = en[0];
+                compareRefLocal[i + 1] = en[1];
+            }
+        }
+        updateAreaAndAcresUI();
+    }
+
+    /**
+     * Redraws the overlap of the active ring and the reference (green), the parts only in the
+     * measurement (orange) and only in the reference (blue); null hides them. The clip itself runs
+     * on the metrics worker with the area (see ResultMetrics).
+     */
+    private void showComparison(PolygonClip.Result r) {
+        drawClipPieces(overlapPolygons, r != null ? r.intersection : null, 0xFF4CAF50, 0x554CAF50);
+        drawClipPieces(measuredOnlyPolygons, r != null ? r.onlyA : null, 0xFFFF9800, 0x55FF9800);
+        drawClipPieces(referenceOnlyPolygons, r != null ? r.onlyB : null, 0xFF2196F3, 0x552196F3);
+        if (tvComparison == null) return;
+        if (r == null) {
+            tvComparison.setVisibility(android.view.View.GONE);
+            return;
+        }
+        tvComparison.setVisibility(android.view.View.VISIBLE);
+        tvComparison.setText(String.format(java.util.Locale.US,
+                "vs %s: overlap %.1f m² · +%.1f / −%.1f m² · deviation %.1f%%",
+                compareRefName, r.intersection.area, r.onlyA.area, r.onlyB.area, r.deviationPercent()));
+    }
+
+    /**
+     * Shows the outer rings of shape (holes cut out) using a pool of map polygons; null hides the pool
+     */
+    private void drawClipPieces(java.util.List<Polygon> pool, PolygonClip.Shape shape, int stroke, int fill) {
+        int used = 0;
+        if (shape != null && map != null && indexOrigin != null) {
+            java.util.List<java.util.List<LatLng>> holes = new java.util.ArrayList<>();
+            for (int r = 0; r < shape.rings.size(); r++) {
+                if (shape.holes[r]) holes.add(localToLatLngs(shape.rings.get(r)));
+            }
+            for (int r = 0; r < shape.rings.size(); r++) {
+                if (shape.holes[r]) continue;
+                java.util.List<LatLng> pts = localToLatLngs(shape.rings.get(r));
+                if (used < pool.size()) {
+                    Polygon pg = pool.get(used);
+                    pg.setPoints(pts);
+                    pg.setHoles(holes);
+                } else {
+                    pool.add(map.addPolygon(new PolygonOptions()
+                            .addAll(pts)
+                            .strokeWidth(2f)
+                            .strokeColor(stroke)
+                            .fillColor(fill)
+                            .zIndex(2f)));
+                    if (!holes.isEmpty()) pool.get(used).setHoles(holes);
+                }
+                used++;
+            }
+        }
+        while (pool.size() > used) pool.remove(pool.size() - 1).remove();
+    }
+
+    private java.util.List<LatLng> localToLatLngs(double[] xy) {
+        java.util.List<LatLng> out = new java.util.ArrayList<>(xy.length / 2);
+        for (int i = 0; i < xy.length; i += 2) out.add(fromLocalMeters(indexOrigin, xy[i], xy[i + 1]));
+        return out;
+    }
+
+    /**
+     * First field ring of a saved measurement as interleaved (lat, lng)
+     */
+    private static double[] readSavedOuterRing(java.io.File f) throws Exception {
+        java.util.List<double[]> fields = MeasurementFiles.readRings(f).fields();
+        return fields.isEmpty() ? null : fields.get(0);
+    }
+
+    /**
+     * Projects AR local meters (x, z) to lat/lng around the GPS origin, rotated by the captured heading
+     */
+    private java.util.List<LatLng> projectToLatLngs(java.util.List<double[]> pts) {
+        java.util.List<LatLng> out = new java.util.ArrayList<>();
+        if (originLat != null && originLng != null) {
+            // Apply true-north-corrected heading so AR local X/Z aligns to East/North
+            double theta = (headingRad != null && !headingRad.isNaN()) ? headingRad : 0.0;
+            double cosT = Math.cos(theta);
+            double sinT = Math.sin(theta);
+            // meters per degree at origin
+            double metersPerDegLat = 111320.0;
+            double metersPerDegLng = metersPerDegLat * Math.cos(Math.toRadians(originLat));
+            for (double[] p : pts) {
+                double x = p[0]; // local East-ish (AR X)
+                double y = p[1]; // local North-ish (AR Z)
+                // Rotate by device heading captured at first point
+                double e = x * cosT - y * sinT; // meters East
+                double n = x * sinT + y * cosT; // meters North
+                double dLat = n / metersPerDegLat;
+                double dLng = e / metersPerDegLng;
+                out.add(new LatLng(originLat + dLat, originLng + dLng));
+            }
+        } else {
+            // Fallback demo: around (0,0) if no GPS origin available
+            double scale = 1e-5;
+            for (double[] p : pts) {
+                out.add(new LatLng(0 + p[1] * scale, 0 + p[0] * scale));
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Replaces the vertex markers with draggable markers for the active ring
+     */
+    private void createVertexMarkers() {
+        for (Marker m : vertexMarkers) m.remove();
+        vertexMarkers.clear();
+        if (map == null) return;
+        for (int i = 0; i < latLngs.size(); i++) {
+            Marker m = map.addMarker(new MarkerOptions()
+                    .position(latLngs.get(i))
+                    .draggable(true)
+                    .zIndex(10f));
+            if (m != null) {
+                m.setDraggable(true);
+                m.setTag(i);
+                vertexMarkers.add(m);
+            }
+        }
+    }
+
+    /**
+     * Makes ring r the editable one: markers, handles and undo history follow it
+     */
+    private void setActiveRing(int r) {
+        if (r < 0 || r >= rings.size() || r == activeRing) return;
+        activeRing = r;
+        latLngs = rings.get(r);
+        editHistory = ringHistories.get(r);
+        createVertexMarkers();
+        updateHandlePosition();
+        updateUndoRedoButtons();
+        checkSelfIntersections();
+        updateAreaAndAcresUI();
+        android.widget.Toast.makeText(this, (ringHoles[r] ? "Exclusion zone " : "Field ") + (r + 1) + " selected",
+                android.widget.Toast.LENGTH_SHORT).show();
+    }
+
+    /**
+     * Tap handler: selects the ring with a vertex under the finger, else the smallest ring containing the tap.
+     * Both lookups go through the spatial indexes rather than scanning markers.
+     */
+    private void selectRingAt(LatLng tap) {
+        if (vertexGrid == null || map == null) return;
+        double[] q = toLocalMeters(indexOrigin, tap);
+        double tolerance = touchToleranceMeters(tap.latitude, 32);
+        int id = vertexGrid.nearest(q[0], q[1], tolerance, (vid, x, y) -> {
+            double dx = vertexLocal[2 * vid] - x, dy = vertexLocal[2 * vid + 1] - y;
+            return dx * dx + dy * dy;
+        });
+        if (id >= 0) {
+            setActiveRing(idRing[id]);
+            return;
+        }
+        int[] candidates = new int[rings.size()];
+        int found = ringTree.query(q[0], q[1], q[0], q[1], candidates);
+        int best = -1;
+        double bestArea = Double.POSITIVE_INFINITY;
+        for (int c = 0; c < found; c++) {
+            int r = candidates[c];
+            double[] xy = ringLocal(r);
+            int n = rings.get(r).size();
+            if (!RingMath.contains(xy, n, q[0], q[1])) continue;
+            double a = RingMath.area(xy, n);
+            if (a < bestArea) { bestArea = a; best = r; }
+        }
+        if (best >= 0) setActiveRing(best);
+    }
+
+    /**
+     * Touch tolerance of dp density-independent pixels expressed in meters at the current zoom
+     */
+    private double touchToleranceMeters(double latitude, double dp) {
+        double metersPerPixel = 156543.03392 * Math.cos(Math.toRadians(latitude))
+                / Math.pow(2, map.getCameraPosition().zoom);
+        return dp * getResources().getDisplayMetrics().density * metersPerPixel;
+    }
+
+    /**
+     * Snaps a dragged vertex onto the nearest saved/imported vertex, else edge, within ~16dp;
+     * returns p unchanged when nothing is that close
+     */
+    private LatLng snapped(LatLng p) {
+        if (snapIndex == null || indexOrigin == null || map == null) return p;
+        int kind;
+        long t0 = PerfTelemetry.begin(PerfTelemetry.SNAP);
+        try {
+            double[] q = toLocalMeters(indexOrigin, p);
+            kind = snapIndex.snap(q[0], q[1], touchToleranceMeters(p.latitude, 16), snapOut);
+        } finally {
+            PerfTelemetry.end(PerfTelemetry.SNAP, t0);
+        }
+        return kind == SnapIndex.NONE ? p : fromLocalMeters(indexOrigin, snapOut[0], snapOut[1]);
+    }
+
+    /**
+     * Indexes every edge of the saved measurements and imported boundaries within SNAP_AREA_METERS
+     * of the session, on the overlay thread; drags snap once it is ready
+     */
+    private void buildSnapIndex() {
+        if (indexOrigin == null) return;
+        final LatLng origin = indexOrigin;
+        final java.util.List<ReferenceLayer> layers = new java.util.ArrayList<>(referenceLayers);
+        final java.io.File dir = new java.io.File(getExternalFilesDir(null), "measurements");
+        referenceExecutor.execute(() -> {
+            double metersPerDegLat = 111320.0;
+            double metersPerDegLng = metersPerDegLat * Math.cos(Math.toRadians(origin.latitude));
+            double minLat = origin.latitude - SNAP_AREA_METERS / metersPerDegLat;
+            double maxLat = origin.latitude + SNAP_AREA_METERS / metersPerDegLat;
+            double minLng = origin.longitude - SNAP_AREA_METERS / metersPerDegLng;
+            double maxLng = origin.longitude + SNAP_AREA_METERS / metersPerDegLng;
+            SnapIndex.Builder builder = new SnapIndex.Builder();
+            for (MeasurementIndex.Entry e : MeasurementIndex.forDirectory(dir).overlapping(minLat, minLng, maxLat, maxLng)) {
+                try {
+                    for (double[] ring : MeasurementFiles.readRings(new java.io.File(dir, e.fileName)).rings) {
+                        addSnapFeature(builder, origin, ring, true);
+                    }
+                } catch (Exception ignored) {
+                    // Unreadable file; nothing to snap to
+                }
+            }
+            int[] ids = new int[MAX_SNAP_FEATURES];
+            for (ReferenceLayer layer : layers) {
+                int n = layer.visible(minLat, minLng, maxLat, maxLng, 0.0, ids);
+                for (int i = 0; i < n; i++) {
+                    try {
+                        addSnapFeature(builder, origin, layer.points(ids[i]), layer.kind(ids[i]) == ReferenceLayer.KIND_RING);
+                    } catch (java.io.IOException ignored) {}
+                }
+            }
+            final SnapIndex index = builder.build();
+            runOnUiThread(() -> {
+                if (!isDestroyed()) snapIndex = index;
+            });
+        });
+    }
+
+    private static void addSnapFeature(SnapIndex.Builder builder, LatLng origin, double[] latLng, boolean closed) {
         double metersPerDegLat = 111320.0;
-        double metersPerDegLng = metersPerDegLat * Math.cos(Math.toRadians(originLat));
-        double sum = 0.0;
-        for (int i = 0; i < pts.size(); i++) {
-            LatLng a = pts.get(i);
-            LatLng b = pts.get((i + 1) % pts.size());
-            double ax = (a.longitude - originLng) * metersPerDegLng;
-            double ay = (a.latitude - originLat) * metersPerDegLat;
-            double bx = (b.longitude - originLng) * metersPerDegLng;
-            double by = (b.latitude - originLat) * metersPerDegLat;
-            sum += ax * by - bx * ay;
+        double metersPerDegLng = metersPerDegLat * Math.cos(Math.toRadians(origin.latitude));
+        double[] xy = new double[latLng.length];
+        for (int i = 0; i < latLng.length; i += 2) {
+            xy[i] = (latLng[i + 1] - origin.longitude) * metersPerDegLng;
+            xy[i + 1] = (latLng[i] - origin.latitude) * metersPerDegLat;
         }
-        return Math.abs(sum) * 0.5;
+        builder.add(xy, xy.length / 2, closed);
+    }
+
+    /**
+     * Ring r as interleaved local meters around indexOrigin
+     */
+    private double[] ringLocal(int r) {
+        java.util.List<LatLng> ring = rings.get(r);
+        double[] xy = new double[ring.size() * 2];
+        for (int i = 0; i < ring.size(); i++) {
+            double[] en = toLocalMeters(indexOrigin, ring.get(i));
+            xy[2 * i] = en[0];
+            xy[2 * i + 1] = en[1];
+        }
+        return xy;
+    }
+
+    /**
+     * Builds the vertex grid and ring R-tree over all rings
+     */
+    private void buildRingIndex() {
+        indexOrigin = rings.get(0).get(0);
+        int total = 0;
+        ringBase = new int[rings.size()];
+        for (int r = 0; r < rings.size(); r++) {
+            ringBase[r] = total;
+            total += rings.get(r).size();
+        }
+        idRing = new int[total];
+        vertexLocal = new double[total * 2];
+        ringBoxes = new double[rings.size() * 4];
+        vertexGrid = new SpatialGrid(5.0);
+        for (int r = 0; r < rings.size(); r++) reindexRing(r);
+        rebuildRingTree();
+    }
+
+    /**
+     * Refreshes index entries of one ring after it was edited; cost is bounded by that ring
+     */
+    private void reindexRing(int r) {
+        if (vertexGrid == null) return;
+        double[] xy = ringLocal(r);
+        int n = rings.get(r).size();
+        for (int i = 0; i < n; i++) {
+            int id = ringBase[r] + i;
+            idRing[id] = r;
+            vertexLocal[2 * id] = xy[2 * i];
+            vertexLocal[2 * id + 1] = xy[2 * i + 1];
+            vertexGrid.putPoint(id, xy[2 * i], xy[2 * i + 1]);
+        }
+        double[] b = new double[4];
+        RingMath.bounds(xy, n, b);
+        System.arraycopy(b, 0, ringBoxes, 4 * r, 4);
+    }
+
+    private void rebuildRingTree() {
+        int[] ids = new int[rings.size()];
+        for (int r = 0; r < ids.length; r++) ids[r] = r;
+        ringTree = RTree.build(ringBoxes, ids, ids.length);
+    }
+
+    /**
+     * Re-assigns holes to their containing fields and cuts them out of the field polygons
+     */
+    private void refreshHoles() {
+        if (rings.size() < 2) {
+            holeParent = new int[]{-1};
+            return;
+        }
+        java.util.List<double[]> local = new java.util.ArrayList<>();
+        for (int r = 0; r < rings.size(); r++) local.add(ringLocal(r));
+        holeParent = RingMath.assignHoles(local, ringHoles);
+        for (int r = 0; r < rings.size(); r++) {
+            if (ringHoles[r] || r >= ringPolygons.size()) continue;
+            ringPolygons.get(r).setHoles(holesOf(r));
+        }
+    }
+
+    private java.util.List<java.util.List<LatLng>> holesOf(int field) {
+        java.util.List<java.util.List<LatLng>> holes = new java.util.ArrayList<>();
+        for (int h = 0; h < rings.size(); h++) {
+            if (ringHoles[h] && holeParent.length > h && holeParent[h] == field) holes.add(rings.get(h));
+        }
+        return holes;
+    }
+
+    /**
+     * Pushes the active ring's vertices to its map polygon (and its field's cut-out if it is a hole)
+     */
+    private void refreshActiveShape() {
+        if (activeRing < ringPolygons.size()) ringPolygons.get(activeRing).setPoints(latLngs);
+        if (ringHoles[activeRing] && holeParent.length > activeRing && holeParent[activeRing] >= 0) {
+            int field = holeParent[activeRing];
+            ringPolygons.get(field).setHoles(holesOf(field));
+        }
+    }
+
+    private static String formatArea(double area, double surface, AreaUncertainty.Result uncertainty) {
+        String text = uncertainty != null
+                ? String.format(java.util.Locale.US, "Area: %.2f ± %.2f m²", area, uncertainty.halfWidth())
+                : String.format(java.util.Locale.US, "Area: %.2f m²", area);
+        if (!Double.isNaN(surface)) text += String.format(java.util.Locale.US, " · 3D %.2f m²", surface);
+        return text;
     }
 
     /**
@@ -395,6 +1109,168 @@ public class ResultActivity extends AppCompatActivity implements OnMapReadyCallb
         return new LatLng(cx / n, cy / n);
     }
 
+    /**
+     * Centroid of a persistent (lat, lng) snapshot
+     */
+    private LatLng computeCentroid(PersistentVertexList v) {
+        double cx = 0, cy = 0;
+        int n = v.size();
+        for (int i = 0; i < n; i++) { cx += v.x(i); cy += v.y(i); }
+        return new LatLng(cx / n, cy / n);
+    }
+
+    /**
+     * Builds a persistent (lat, lng) snapshot of the given points
+     */
+    private static PersistentVertexList verticesOf(java.util.List<LatLng> pts) {
+        double[] flat = new double[pts.size() * 2];
+        for (int i = 0; i < pts.size(); i++) {
+            flat[2 * i] = pts.get(i).latitude;
+            flat[2 * i + 1] = pts.get(i).longitude;
+        }
+        return PersistentVertexList.of(2, flat, pts.size());
+    }
+
+    /**
+     * Records a finished edit in the undo history
+     */
+    private void commitEdit(PersistentVertexList v, String label) {
+        editHistory.commit(v, label);
+        onActiveRingEdited();
+        updateUndoRedoButtons();
+        checkSelfIntersections();
+    }
+
+    /**
+     * Keeps the selection indexes and hole assignment in step with the edited ring
+     */
+    private void onActiveRingEdited() {
+        reindexRing(activeRing);
+        if (vertexGrid != null) rebuildRingTree();
+        if (rings.size() > 1) refreshHoles();
+    }
+
+    /**
+     * Makes a history revision the visible polygon (markers, outline, handles, metrics)
+     */
+    private void applyVertices(PersistentVertexList v) {
+        if (v == null || latLngs == null) return;
+        for (int i = 0; i < v.size() && i < latLngs.size(); i++) {
+            LatLng p = new LatLng(v.x(i), v.y(i));
+            latLngs.set(i, p);
+            if (i < vertexMarkers.size()) {
+                Marker vm = vertexMarkers.get(i);
+                if (vm != null) vm.setPosition(p);
+            }
+        }
+        refreshActiveShape();
+        onActiveRingEdited();
+        updateHandlePosition();
+        updateAreaAndAcresUI();
+        updateUndoRedoButtons();
+        checkSelfIntersections();
+    }
+
+    /**
+     * Sweep-line crossing check on the active ring; shows the warning row and marks the crossing.
+     * Shoelace area is meaningless for a crossing ring, so the row offers to split it.
+     */
+    private void checkSelfIntersections() {
+        if (vertexGrid == null || latLngs == null) return;
+        double[] hit = new double[4];
+        boolean crossing = SelfIntersection.findCrossing(ringLocal(activeRing), latLngs.size(), hit);
+        if (crossingMarker != null) {
+            crossingMarker.remove();
+            crossingMarker = null;
+        }
+        if (llIntersections != null) llIntersections.setVisibility(crossing ? android.view.View.VISIBLE : android.view.View.GONE);
+        if (!crossing) return;
+        if (tvIntersections != null) {
+            tvIntersections.setText(String.format(java.util.Locale.US,
+                    "⚠ Edges %d and %d cross — area is unreliable", (int) hit[0] + 1, (int) hit[1] + 1));
+        }
+        if (map != null) {
+            crossingMarker = map.addMarker(new MarkerOptions()
+                    .position(fromLocalMeters(indexOrigin, hit[2], hit[3]))
+                    .zIndex(15f)
+                    .icon(BitmapDescriptorFactory.defaultMarker(BitmapDescriptorFactory.HUE_RED))
+                    .title("Self-intersection"));
+        }
+    }
+
+    /**
+     * Splits the active ring at its crossings into simple rings of the same kind (field or hole).
+     * Vertex counts change, so the pieces start fresh edit histories.
+     */
+    private void repairActiveRing() {
+        if (vertexGrid == null || latLngs == null || map == null) return;
+        java.util.List<double[]> pieces = SelfIntersection.splitSimple(ringLocal(activeRing), latLngs.size());
+        if (pieces.isEmpty()) {
+            android.widget.Toast.makeText(this, "Nothing left after repair", android.widget.Toast.LENGTH_SHORT).show();
+            return;
+        }
+        boolean hole = ringHoles[activeRing];
+        boolean[] holes = java.util.Arrays.copyOf(ringHoles, rings.size() + pieces.size() - 1);
+        for (int k = 0; k < pieces.size(); k++) {
+            double[] xy = pieces.get(k);
+            java.util.List<LatLng> ring = new java.util.ArrayList<>();
+            for (int i = 0; i < xy.length / 2; i++) ring.add(fromLocalMeters(indexOrigin, xy[2 * i], xy[2 * i + 1]));
+            EditHistory<PersistentVertexList> h = new EditHistory<>();
+            h.reset(verticesOf(ring), k == 0 ? "Repaired" : "Split off by repair");
+            if (k == 0) {
+                rings.set(activeRing, ring);
+                ringHistories.set(activeRing, h);
+                ringPolygons.get(activeRing).setPoints(ring);
+            } else {
+                holes[rings.size()] = hole;
+                rings.add(ring);
+                ringHistories.add(h);
+                ringPolygons.add(addRingPolygon(ring, hole));
+            }
+        }
+        ringHoles = holes;
+        if (ringHeights != null) {
+            // Pieces have new vertices with no measured height; the other rings keep theirs
+            java.util.ArrayList<double[]> heights = new java.util.ArrayList<>(ringHeights);
+            heights.set(activeRing, null);
+            while (heights.size() < rings.size()) heights.add(null);
+            ringHeights = heights;
+        }
+        latLngs = rings.get(activeRing);
+        editHistory = ringHistories.get(activeRing);
+        buildRingIndex();
+        refreshHoles();
+        createVertexMarkers();
+        updateHandlePosition();
+        updateAreaAndAcresUI();
+        updateUndoRedoButtons();
+        checkSelfIntersections();
+        android.widget.Toast.makeText(this, "Split into " + pieces.size() + " simple ring" + (pieces.size() == 1 ? "" : "s"),
+                android.widget.Toast.LENGTH_SHORT).show();
+    }
+
+    private void updateUndoRedoButtons() {
+        if (btnUndoEdit != null) btnUndoEdit.setEnabled(editHistory.canUndo());
+        if (btnRedoEdit != null) btnRedoEdit.setEnabled(editHistory.canRedo());
+    }
+
+    /**
+     * Lists all revisions and jumps to the chosen one (later revisions stay available for redo)
+     */
+    private void showHistoryDialog() {
+        int n = editHistory.revisionCount();
+        if (n == 0) return;
+        String[] items = new String[n];
+        for (int i = 0; i < n; i++) {
+            items[i] = (i == editHistory.currentRevision() ? "● " : "   ") + i + ". " + editHistory.label(i);
+        }
+        new androidx.appcompat.app.AlertDialog.Builder(this)
+                .setTitle("Edit history")
+                .setItems(items, (d, which) -> applyVertices(editHistory.jumpTo(which)))
+                .setNegativeButton("Close", null)
+                .show();
+    }
+
     /**
      * Updates the position of the orange center handle to match polygon centroi
      * Also updates rotation handle position
@@ -433,9 +1309,10 @@ public class ResultActivity extends AppCompatActivity implements OnMapReadyCallb
                 if (vm != null) vm.setPosition(np);
             }
         }
-        if (polygon != null) polygon.setPoints(latLngs);
+        refreshActiveShape();
         updateHandlePosition();
         updateAreaAndAcresUI();
+        commitEdit(verticesOf(latLngs), eastWest ? "Flip E/W" : "Flip N/S");
     }
 
     /**
@@ -525,19 +1402,22 @@ public class ResultActivity extends AppCompatActivity implements OnMapReadyCallb
 
     /**
      * Saves measurement data as JSON file
-     * Includes coordinates, metrics, timestamps, and metadata
+     * Includes coordinates, metrics, timestamps, and metadata; metrics come from the worker's
+     * snapshot, and the JSON is built and written on the save thread
      */
     private void saveAsJson(String desiredFileName) {
+        if (latLngs == null || latLngs.size() < 3) {
+            android.widget.Toast.makeText(this, "Nothing to save", android.widget.Toast.LENGTH_SHORT).show();
+            return;
+        }
+        String safe = sanitizeFileName(desiredFileName);
+        final String fileName = (safe != null ? safe : "fieldviewer_measurement") + ".json";
+        // Main thread: only the activity state is read here; areas, JSON and disk are the save thread's
+        final ResultMetrics.Input input = metricsInput();
+        final long metricsVersion = metricsWorker.submittedVersion();  // Every edit submits its rings, so this version is of input
+        final long nowMs = System.currentTimeMillis();
+        final org.json.JSONObject root = new org.json.JSONObject();
         try {
-            if (latLngs == null || latLngs.size() < 3) {
-                android.widget.Toast.makeText(this, "Nothing to save", android.widget.Toast.LENGTH_SHORT).show();
-                return;
-            }
-            String safe = sanitizeFileName(desiredFileName);
-            String fileName = (safe != null ? safe : "fieldviewer_measurement") + ".json";
-
-            long nowMs = System.currentTimeMillis();
-            org.json.JSONObject root = new org.json.JSONObject();
             root.put("name", safe != null ? safe : "FieldViewer Measurement");
             root.put("timestamp", nowMs);
             // Add readable timestamp variants for clarity
@@ -547,36 +1427,110 @@ public class ResultActivity extends AppCompatActivity implements OnMapReadyCallb
                     .format(new java.util.Date(nowMs));
             root.put("timestamp_iso", iso);
             root.put("timestamp_local", localPretty);
-            root.put("area_m2", computeAreaSqMetersFromLatLngs(latLngs));
-            root.put("stremma", computeAreaSqMetersFromLatLngs(latLngs) / 1000.0);
+            root.put("area_mode", areaMode.name());
             if (originLat != null && originLng != null) {
                 root.put("originLat", originLat);
                 root.put("originLng", originLng);
+                if (!Double.isNaN(originAccuracyM)) root.put("originAccuracyM", originAccuracyM);
             }
             if (headingRad != null && !headingRad.isNaN()) {
                 root.put("headingRad", headingRad);
             }
-
-            org.json.JSONArray coords = new org.json.JSONArray();
-            for (com.google.android.gms.maps.model.LatLng p : latLngs) {
-                org.json.JSONArray pair = new org.json.JSONArray();
-                pair.put(p.longitude);
-                pair.put(p.latitude);
-                coords.put(pair);
+            if (!Double.isNaN(headingVarianceRad2) && !Double.isInfinite(headingVarianceRad2)) {
+                root.put("headingVarianceRad2", headingVarianceRad2);
             }
-            root.put("coordinates_lonlat", coords);
-
-            java.io.File outDir = new java.io.File(getExternalFilesDir(null), "measurements");
-            if (!outDir.exists()) outDir.mkdirs();
-            java.io.File jsonFile = new java.io.File(outDir, fileName);
-            try (java.io.FileWriter fw = new java.io.FileWriter(jsonFile)) {
-                fw.write(root.toString(2));
+            if (anchorDrift != null && anchorDrift.length > 0) root.put("anchor_drift", anchorDriftJson(anchorDrift));
+            if (!Double.isNaN(vertexSigmaM)) {
+                root.put("capture", "gps_walk");
+                root.put("vertex_sigma_m", vertexSigmaM);
             }
-
-            android.widget.Toast.makeText(this, "Saved: " + jsonFile.getAbsolutePath(), android.widget.Toast.LENGTH_LONG).show();
         } catch (Exception e) {
             android.widget.Toast.makeText(this, "Save failed", android.widget.Toast.LENGTH_SHORT).show();
+            return;
         }
+
+        final java.io.File outDir = new java.io.File(getExternalFilesDir(null), "measurements");
+        final android.content.Context app = getApplicationContext();
+        saveExecutor.execute(() -> {
+            String msg;
+            int length = android.widget.Toast.LENGTH_LONG;
+            long t0 = PerfTelemetry.begin(PerfTelemetry.SAVE);
+            try {
+                ResultMetrics.Snapshot m = metricsForSave(input, metricsVersion);
+                root.put("area_m2", m.area);
+                root.put("stremma", m.area / 1000.0);
+                if (!Double.isNaN(m.surface)) root.put("surface_area_m2", m.surface);
+                if (m.uncertainty != null) root.put("area_uncertainty", uncertaintyJson(m.uncertainty));
+                // First field stays in coordinates_lonlat; multi-ring sessions also list every ring
+                MeasurementFiles.putRings(root, input.rings, input.holes);
+                // The first save of a process also loads the index from disk
+                java.io.File jsonFile = MeasurementFiles.save(outDir, fileName, root, nowMs, m.area, input.rings,
+                        input.originLat, input.originLng);
+                SyncJobService.enqueue(app, jsonFile);
+                msg = "Saved: " + jsonFile.getAbsolutePath();
+            } catch (Exception e) {
+                msg = "Save failed";
+                length = android.widget.Toast.LENGTH_SHORT;
+            } finally {
+                PerfTelemetry.end(PerfTelemetry.SAVE, t0);
+            }
+            final String text = msg;
+            final int duration = length;
+            runOnUiThread(() -> android.widget.Toast.makeText(app, text, duration).show());
+        });
+    }
+
+    /**
+     * Save thread: the metrics the worker computed for version, waiting for them when a drag
+     * just ended; computed here when the worker has no snapshot of it (same seed, so the saved
+     * interval matches what was shown)
+     */
+    private ResultMetrics.Snapshot metricsForSave(ResultMetrics.Input input, long version) throws InterruptedException {
+        MetricsWorker.Snapshot<ResultMetrics.Snapshot> done = metricsWorker.awaitHandled(version, SAVE_METRICS_WAIT_MS);
+        if (done != null && done.version == version) return done.value;
+        return ResultMetrics.compute(input, () -> false).withUncertainty(ResultMetrics.uncertainty(input, () -> false));
+    }
+
+    private static org.json.JSONObject uncertaintyJson(AreaUncertainty.Result u) throws org.json.JSONException {
+        org.json.JSONObject out = new org.json.JSONObject();
+        out.put("ci95_low_m2", u.low);
+        out.put("ci95_high_m2", u.high);
+        out.put("sd_m2", u.sd);
+        out.put("position95_m", u.position95M);
+        out.put("samples", u.samples);
+        return out;
+    }
+
+    /**
+     * Per-anchor drift in placement order (as measured in AR, before any map edits) plus summary
+     */
+    private static org.json.JSONObject anchorDriftJson(double[] drift) throws org.json.JSONException {
+        int stride = AnchorDriftMonitor.STATS_STRIDE;
+        org.json.JSONArray perAnchor = new org.json.JSONArray();
+        double max = 0.0, sumFinal = 0.0;
+        int count = drift.length / stride;
+        for (int i = 0; i < count; i++) {
+            org.json.JSONObject a = new org.json.JSONObject();
+            a.put("max_m", drift[i * stride]);
+            a.put("final_m", drift[i * stride + 1]);
+            a.put("path_m", drift[i * stride + 2]);
+            a.put("updates", (int) drift[i * stride + 3]);
+            perAnchor.put(a);
+            max = Math.max(max, drift[i * stride]);
+            sumFinal += drift[i * stride + 1];
+        }
+        org.json.JSONObject out = new org.json.JSONObject();
+        out.put("max_m", max);
+        out.put("mean_final_m", sumFinal / count);
+        out.put("anchors", perAnchor);
+        return out;
+    }
+
+    /**
+     * First field of the session; what single-path exports (Maps polyline) show
+     */
+    private java.util.List<LatLng> primaryRing() {
+        return rings.isEmpty() ? latLngs : rings.get(0);
     }
 
     /**
@@ -584,6 +1538,18 @@ public class ResultActivity extends AppCompatActivity implements OnMapReadyCallb
      */
     private android.net.Uri exportKmlAndGetUri(String desiredFileName) throws Exception {
         if (latLngs == null || latLngs.size() < 3) throw new Exception("No polygon");
+        long t0 = PerfTelemetry.begin(PerfTelemetry.EXPORT);
+        try {
+            return writeKml(desiredFileName);
+        } finally {
+            PerfTelemetry.end(PerfTelemetry.EXPORT, t0);
+        }
+    }
+
+    /**
+     * Writes the KML export to the cache directory and returns its FileProvider URI
+     */
+    private android.net.Uri writeKml(String desiredFileName) throws Exception {
         StringBuilder sb = new StringBuilder();
         sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
         sb.append("<kml xmlns=\"http://www.opengis.net/kml/2.2\">\n");
@@ -594,14 +1560,17 @@ public class ResultActivity extends AppCompatActivity implements OnMapReadyCallb
         sb.append("    <Placemark>\n");
         sb.append("      <name>").append(title).append("</name>\n");
         sb.append("      <Style><LineStyle><color>ff00bcd4</color><width>4</width></LineStyle><PolyStyle><color>3300bcd4</color></PolyStyle></Style>\n");
-        sb.append("      <Polygon><outerBoundaryIs><LinearRing><coordinates>\n");
-        for (int i = 0; i < latLngs.size(); i++) {
-            com.google.android.gms.maps.model.LatLng p = latLngs.get(i);
-            sb.append(p.longitude).append(',').append(p.latitude).append(',').append("0\n");
+        if (rings.size() <= 1) {
+            appendKmlPolygon(sb, latLngs, java.util.Collections.emptyList());
+        } else {
+            // One Polygon per field with its holes as inner boundaries
+            sb.append("      <MultiGeometry>\n");
+            for (int r = 0; r < rings.size(); r++) {
+                if (ringHoles[r]) continue;
+                appendKmlPolygon(sb, rings.get(r), holesOf(r));
+            }
+            sb.append("      </MultiGeometry>\n");
         }
-        com.google.android.gms.maps.model.LatLng first = latLngs.get(0);
-        sb.append(first.longitude).append(',').append(first.latitude).append(',').append("0\n");
-        sb.append("      </coordinates></LinearRing></outerBoundaryIs></Polygon>\n");
         sb.append("    </Placemark>\n");
         sb.append("  </Document>\n");
         sb.append("</kml>\n");
@@ -620,6 +1589,30 @@ public class ResultActivity extends AppCompatActivity implements OnMapReadyCallb
         );
     }
 
+    /**
+     * Appends a KML Polygon (outer ring plus optional holes), closing each ring explicitly
+     */
+    private void appendKmlPolygon(StringBuilder sb, java.util.List<LatLng> outer, java.util.List<java.util.List<LatLng>> holes) {
+        sb.append("      <Polygon><outerBoundaryIs><LinearRing><coordinates>\n");
+        appendKmlCoordinates(sb, outer);
+        sb.append("      </coordinates></LinearRing></outerBoundaryIs>");
+        for (java.util.List<LatLng> hole : holes) {
+            sb.append("<innerBoundaryIs><LinearRing><coordinates>\n");
+            appendKmlCoordinates(sb, hole);
+            sb.append("      </coordinates></LinearRing></innerBoundaryIs>");
+        }
+        sb.append("</Polygon>\n");
+    }
+
+    private void appendKmlCoordinates(StringBuilder sb, java.util.List<LatLng> ring) {
+        for (int i = 0; i < ring.size(); i++) {
+            LatLng p = ring.get(i);
+            sb.append(p.longitude).append(',').append(p.latitude).append(',').append("0\n");
+        }
+        LatLng first = ring.get(0);
+        sb.append(first.longitude).append(',').append(first.latitude).append(',').append("0\n");
+    }
+
     /**
      * Opens polygon in Google Earth with planned fallback options
      * Tries Google Earth first, then Maps, then generic KML viewer
@@ -671,42 +1664,120 @@ public class ResultActivity extends AppCompatActivity implements OnMapReadyCallb
         }
     }
 
+    /**
+     * Opens imported reference layers (index only) in the background, then draws the visible part
+     * and indexes nearby boundaries for snapping
+     */
+    private void loadReferenceLayers() {
+        final java.io.File[] files = ReferenceImporter.layerFiles(this);
+        referenceExecutor.execute(() -> {
+            java.util.List<ReferenceLayer> opened = new java.util.ArrayList<>();
+            for (java.io.File f : files) {
+                try {
+                    opened.add(ReferenceLayer.open(f));
+                } catch (java.io.IOException ignored) {
+                    // Incomplete or foreign file; skip it
+                }
+            }
+            runOnUiThread(() -> {
+                if (isDestroyed()) return;
+                referenceLayers.addAll(opened);
+                refreshReferenceOverlays();
+                buildSnapIndex();
+            });
+        });
+    }
+
+    /**
+     * Recomputes reference lines for the current camera: features outside the padded viewport
+     * or smaller than a few pixels are dropped, the rest are simplified to about one pixel.
+     * Geometry is read and simplified on the overlay thread; only the diff touches the map.
+     */
+    private void refreshReferenceOverlays() {
+        if (map == null || referenceLayers.isEmpty()) return;
+        final com.google.android.gms.maps.model.LatLngBounds b = map.getProjection().getVisibleRegion().latLngBounds;
+        final double zoom = Math.floor(map.getCameraPosition().zoom);  // Whole zoom levels keep the layer caches warm
+        final int generation = ++referenceGeneration;
+        final java.util.List<ReferenceLayer> layers = new java.util.ArrayList<>(referenceLayers);
+        final java.util.Map<Long, Double> drawn = new java.util.HashMap<>(referenceTolerance);
+        referenceExecutor.execute(() -> {
+            double padLat = (b.northeast.latitude - b.southwest.latitude) * 0.1;
+            double padLng = (b.northeast.longitude - b.southwest.longitude) * 0.1;
+            double centerLat = (b.northeast.latitude + b.southwest.latitude) / 2;
+            double tolerance = ReferenceLayer.metersPerPixel(centerLat, zoom);
+            double minSpanDeg = 3 * tolerance / 111320.0;
+            java.util.Map<Long, java.util.List<LatLng>> changed = new java.util.HashMap<>();
+            java.util.Set<Long> visible = new java.util.HashSet<>();
+            int[] ids = new int[MAX_REFERENCE_FEATURES];
+            for (int l = 0; l < layers.size() && visible.size() < MAX_REFERENCE_FEATURES; l++) {
+                ReferenceLayer layer = layers.get(l);
+                int n = layer.visible(b.southwest.latitude - padLat, b.southwest.longitude - padLng,
+                        b.northeast.latitude + padLat, b.northeast.longitude + padLng, minSpanDeg, ids);
+                for (int i = 0; i < n && visible.size() < MAX_REFERENCE_FEATURES; i++) {
+                    long key = ((long) l << 32) | ids[i];
+                    visible.add(key);
+                    Double had = drawn.get(key);
+                    if (had != null && had == tolerance) continue;
+                    try {
+                        double[] pts = layer.simplified(ids[i], tolerance);
+                        java.util.List<LatLng> line = new java.util.ArrayList<>(pts.length / 2);
+                        for (int k = 0; k < pts.length; k += 2) line.add(new LatLng(pts[k], pts[k + 1]));
+                        changed.put(key, line);
+                    } catch (java.io.IOException ignored) {}
+                }
+            }
+            runOnUiThread(() -> {
+                if (generation != referenceGeneration || map == null || isDestroyed()) return;
+                java.util.Iterator<java.util.Map.Entry<Long, com.google.android.gms.maps.model.Polyline>> it =
+                        referenceLines.entrySet().iterator();
+                while (it.hasNext()) {
+                    java.util.Map.Entry<Long, com.google.android.gms.maps.model.Polyline> e = it.next();
+                    if (visible.contains(e.getKey())) continue;
+                    e.getValue().remove();
+                    referenceTolerance.remove(e.getKey());
+                    it.remove();
+                }
+                for (java.util.Map.Entry<Long, java.util.List<LatLng>> e : changed.entrySet()) {
+                    com.google.android.gms.maps.model.Polyline line = referenceLines.get(e.getKey());
+                    if (line != null) {
+                        line.setPoints(e.getValue());
+                    } else {
+                        referenceLines.put(e.getKey(), map.addPolyline(new com.google.android.gms.maps.model.PolylineOptions()
+                                .addAll(e.getValue())
+                                .color(0xFFFFEB3B)
+                                .width(3f)
+                                .zIndex(-1f)
+                                .clickable(false)));
+                    }
+                    referenceTolerance.put(e.getKey(), tolerance);
+                }
+            });
+        });
+    }
+
     /**
      * Opens polygon in Google Maps as a polyline
-     * Alternative to KML export for quick viewing
+     * Alternative to KML export for quick viewing; large rings are simplified to fit the URL limit
      */
     private boolean openInGoogleMapsPolyline() {
+        final java.util.List<LatLng> ring = primaryRing();
+        if (ring == null || ring.size() < 2) return false;
+        String url;
+        try {
+            url = googleMapsPolylineUrl(ring);
+        } catch (Exception e) {
+            return false;
+        }
+        if (url == null) return false;
+        android.content.Intent intent = new android.content.Intent(android.content.Intent.ACTION_VIEW, android.net.Uri.parse(url));
+        intent.setPackage("com.google.android.apps.maps"); // force Google Maps
         try {
-            if (latLngs == null || latLngs.size() < 2) return false;
-            // Ensure closed ring for visual polygon path
-            java.util.ArrayList<LatLng> path = new java.util.ArrayList<>(latLngs);
-            if (!latLngs.get(0).equals(latLngs.get(latLngs.size() - 1))) {
-                path.add(latLngs.get(0));
-            }
-            String encoded = encodePolyline(path);
-            String encodedEscaped = java.net.URLEncoder.encode(encoded, "UTF-8");
-            LatLng c = computeCentroid(latLngs);
-            String url = "https://www.google.com/maps/dir/?api=1" +
-                    "&map_action=map" +
-                    "&center=" + c.latitude + "," + c.longitude +
-                    "&zoom=18" +
-                    "&path=weight:5%7Ccolor:0x00BCD4FF%7Cenc:" + encodedEscaped;
-
-            android.content.Intent intent = new android.content.Intent(android.content.Intent.ACTION_VIEW, android.net.Uri.parse(url));
-            intent.setPackage("com.google.android.apps.maps"); // force Google Maps
             startActivity(intent);
             return true;
         } catch (Exception e) {
             try {
                 // Fallback: open without forcing package
-                LatLng c = computeCentroid(latLngs);
-                java.util.ArrayList<LatLng> path = new java.util.ArrayList<>(latLngs);
-                if (!latLngs.get(0).equals(latLngs.get(latLngs.size() - 1))) path.add(latLngs.get(0));
-                String encoded = encodePolyline(path);
-                String encodedEscaped = java.net.URLEncoder.encode(encoded, "UTF-8");
-                String url = "https://www.google.com/maps/dir/?api=1&map_action=map&center=" + c.latitude + "," + c.longitude +
-                        "&zoom=18&path=weight:5%7Ccolor:0x00BCD4FF%7Cenc:" + encodedEscaped;
-                android.content.Intent intent = new android.content.Intent(android.content.Intent.ACTION_VIEW, android.net.Uri.parse(url));
+                intent.setPackage(null);
                 startActivity(intent);
                 return true;
             } catch (Exception ignored) {
@@ -716,50 +1787,30 @@ public class ResultActivity extends AppCompatActivity implements OnMapReadyCallb
     }
 
     /**
-     * Encodes polygon coordinates for Google Maps URL
-     * Uses Google's polyline encoding algorithm
-     */
-    private String encodePolyline(java.util.List<LatLng> points) {
-        long lastLat = 0;
-        long lastLng = 0;
-        StringBuilder result = new StringBuilder();
-        for (LatLng point : points) {
-            long lat = Math.round(point.latitude * 1e5);
-            long lng = Math.round(point.longitude * 1e5);
-            long dLat = lat - lastLat;
-            long dLng = lng - lastLng;
-            encodeSignedNumber(dLat, result);
-            encodeSignedNumber(dLng, result);
-            lastLat = lat;
-            lastLng = lng;
-        }
-        return result.toString();
-    }
-
-    /**
-     * Encodes signed numbers for polyline encoding
+     * Maps URL drawing the closed ring, or null if it cannot fit MAPS_URL_MAX_CHARS
      */
-    private void encodeSignedNumber(long num, StringBuilder result) {
-        long sgn_num = num << 1;
-        if (num < 0) {
-            sgn_num = ~sgn_num;
+    private String googleMapsPolylineUrl(java.util.List<LatLng> ring) throws java.io.UnsupportedEncodingException {
+        // Ensure closed ring for visual polygon path
+        boolean closed = ring.get(0).equals(ring.get(ring.size() - 1));
+        int n = closed ? ring.size() : ring.size() + 1;
+        double[] latLng = new double[2 * n];
+        for (int i = 0; i < n; i++) {
+            LatLng p = ring.get(i % ring.size());
+            latLng[2 * i] = p.latitude;
+            latLng[2 * i + 1] = p.longitude;
         }
-        encodeUnsignedNumber(sgn_num, result);
+        LatLng c = computeCentroid(ring);
+        String prefix = "https://www.google.com/maps/dir/?api=1" +
+                "&map_action=map" +
+                "&center=" + c.latitude + "," + c.longitude +
+                "&zoom=18" +
+                "&path=weight:5%7Ccolor:0x00BCD4FF%7Cenc:";
+        String encoded = PolylineCodec.encodeWithinBudget(latLng, n, PolylineCodec.DEFAULT_PRECISION,
+                MAPS_URL_MAX_CHARS - prefix.length());
+        if (encoded == null) return null;
+        return prefix + java.net.URLEncoder.encode(encoded, "UTF-8");
     }
 
-    /**
-     * Encodes unsigned numbers for polyline encoding
-     */
-    private void encodeUnsignedNumber(long num, StringBuilder result) {
-        while (num >= 0x20) {
-            long nextValue = (0x20 | (num & 0x1f)) + 63;
-            result.append((char) (nextValue));
-            num >>= 5;
-        }
-        num += 63;
-        result.append((char) (num));
-    }
-    
     /**
      * Converts lat/lng to local East/North meters relative to origin
      * Used for precise geometric calculations
@@ -0,0 +1,166 @@
+package com.example.fieldviewer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Figures of the result screen (net area, slope-aware surface, comparison against a reference
+ * ring, area uncertainty) from a copy of the edited rings, so they can be computed on a MetricsWorker while the
+ * user keeps dragging vertices.
+ *
+ * Rings are interleaved (lat, lng); local meters are taken relative to the first vertex of the
+ * first ring, like the result screen's vertex index.
+ */
+public final class ResultMetrics {
+
+    static final double METERS_PER_DEG_LAT = 111320.0;
+    static final long UNCERTAINTY_SEED = 0x46564d43L;  // "FVMC"
+
+    /**
+     * Copy of the result screen state; never modified after it is submitted
+     */
+    public static final class Input {
+        final List<double[]> rings;
+        final boolean[] holes;
+        final List<double[]> heights;  // Per ring, per vertex height from AR; null, or a null ring, when unknown
+        final AreaEngine.Mode mode;
+        final double originLat, originLng;  // GPS origin, NaN when unknown
+        final int activeRing;
+        final double[] compareRef;  // Reference ring in local meters, or null
+        final AreaUncertainty.Sources sources;  // Error sources, or null to skip the uncertainty
+
+        public Input(List<double[]> rings, boolean[] holes, List<double[]> heights, AreaEngine.Mode mode,
+                     double originLat, double originLng, int activeRing, double[] compareRef,
+                     AreaUncertainty.Sources sources) {
+            this.rings = rings;
+            this.holes = holes;
+            this.heights = heights;
+            this.mode = mode;
+            this.originLat = originLat;
+            this.originLng = originLng;
+            this.activeRing = activeRing;
+            this.compareRef = compareRef;
+            this.sources = sources;
+        }
+
+        /**
+         * Vertices of the active ring
+         */
+        public int activeCount() {
+            return activeRing < rings.size() ? rings.get(activeRing).length / 2 : 0;
+        }
+    }
+
+    public static final class Snapshot {
+        public final Input input;
+        public final double area;      // m²
+        public final double surface;   // m², NaN when heights are unknown
+        public final PolygonClip.Result comparison;  // See compare()
+        public final AreaUncertainty.Result uncertainty;  // See uncertainty()
+
+        Snapshot(Input input, double area, double surface, PolygonClip.Result comparison, AreaUncertainty.Result uncertainty) {
+            this.input = input;
+            this.area = area;
+            this.surface = surface;
+            this.comparison = comparison;
+            this.uncertainty = uncertainty;
+        }
+
+        public Snapshot withComparison(PolygonClip.Result comparison) {
+            return new Snapshot(input, area, surface, comparison, uncertainty);
+        }
+
+        public Snapshot withUncertainty(AreaUncertainty.Result uncertainty) {
+            return new Snapshot(input, area, surface, comparison, uncertainty);
+        }
+    }
+
+    /**
+     * Worker side: area, then surface, giving up between them when newer input is waiting; the
+     * comparison is left to compare() so callers can time it separately
+     */
+    public static Snapshot compute(Input in, MetricsWorker.Staleness stale) {
+        double area = netArea(in);
+        if (stale.isStale()) return null;
+        return new Snapshot(in, area, surface(in), null, null);
+    }
+
+    /**
+     * Active ring vs the reference ring, or null without a reference or a 3-point active ring
+     */
+    public static PolygonClip.Result compare(Input in) {
+        if (in.compareRef == null || in.activeCount() < 3) return null;
+        return PolygonClip.compare(local(in, in.activeRing), in.activeCount(), in.compareRef, in.compareRef.length / 2);
+    }
+
+    /**
+     * 95% interval of the net area (see AreaUncertainty), null without sources, an origin or a
+     * 3-point ring, or when stale reports newer input midway. A fixed seed keeps the interval
+     * steady while the rings do not change.
+     */
+    public static AreaUncertainty.Result uncertainty(Input in, MetricsWorker.Staleness stale) {
+        if (in.sources == null || Double.isNaN(in.originLat) || in.rings.isEmpty() || in.rings.get(0).length < 6) return null;
+        List<double[]> local = new ArrayList<>();
+        for (int r = 0; r < in.rings.size(); r++) local.add(local(in, r));
+        return AreaUncertainty.estimate(local, in.holes, in.sources, AreaUncertainty.DEFAULT_SAMPLES, UNCERTAINTY_SEED, stale);
+    }
+
+    /**
+     * Net area in m² with the selected engine: fields minus the holes inside them (plain
+     * Shoelace around the GPS origin for a single ring in Shoelace mode); 0 without an origin
+     */
+    public static double netArea(Input in) {
+        if (Double.isNaN(in.originLat) || Double.isNaN(in.originLng) || in.rings.isEmpty()) return 0.0;
+        if (in.mode == AreaEngine.Mode.SHOELACE && in.rings.size() <= 1) {
+            double[] ring = in.rings.get(0);
+            int n = ring.length / 2;
+            if (n < 3) return 0.0;
+            double[] xy = project(ring, in.originLat, in.originLng);
+            return Math.abs(RingMath.signedArea(xy, n));
+        }
+        List<double[]> local = new ArrayList<>();
+        for (int r = 0; r < in.rings.size(); r++) local.add(local(in, r));
+        return AreaEngine.netArea(local, in.holes, in.mode);
+    }
+
+    /**
+     * Slope-aware surface in m² from the AR anchor heights, or NaN when any ring's heights are
+     * unknown or no longer match its vertices
+     */
+    public static double surface(Input in) {
+        if (in.heights == null || in.heights.size() != in.rings.size() || in.rings.isEmpty()) return Double.NaN;
+        List<double[]> local = new ArrayList<>();
+        int total = 0;
+        for (int r = 0; r < in.rings.size(); r++) {
+            double[] h = in.heights.get(r);
+            if (h == null || h.length != in.rings.get(r).length / 2) return Double.NaN;
+            local.add(local(in, r));
+            total += in.heights.get(r).length;
+        }
+        double[] heights = new double[total];
+        int at = 0;
+        for (double[] h : in.heights) {
+            System.arraycopy(h, 0, heights, at, h.length);
+            at += h.length;
+        }
+        return SurfaceArea.of(AreaEngine.triangulate(local, in.holes), heights);
+    }
+
+    private static double[] local(Input in, int r) {
+        double[] first = in.rings.get(0);
+        return project(in.rings.get(r), first[0], first[1]);
+    }
+
+    /**
+     * Interleaved (east, north) meters of an interleaved (lat, lng) ring around (lat0, lng0)
+     */
+    static double[] project(double[] latLng, double lat0, double lng0) {
+        double mPerDegLng = METERS_PER_DEG_LAT * Math.cos(Math.toRadians(lat0));
+        double[] xy = new double[latLng.length];
+        for (int i = 0; i + 1 < latLng.length; i += 2) {
+            xy[i] = (latLng[i + 1] - lng0) * mPerDegLng;
+            xy[i + 1] = (latLng[i] - lat0) * METERS_PER_DEG_LAT;
+        }
+        return xy;
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.fieldviewer;
+
+import java.util.List;
+
+/**
+ * Planar ring geometry on primitive arrays.
+ * A ring is an interleaved coordinate array (x0, y0, x1, y1, ...) in local meters,
+ * implicitly closed (the last vertex connects back to the first).
+ */
+public final class RingMath {
+
+    private RingMath() {}
+
+    /**
+     * Signed Shoelace area: positive for counter-clockwise rings
+     */
+    public static double signedArea(double[] xy, int n) {
+        if (n < 3) return 0.0;
+        double s = 0.0;
+        for (int i = 0, j = n - 1; i < n; j = i++) {
+            s += xy[2 * j] * xy[2 * i + 1] - xy[2 * i] * xy[2 * j + 1];
+        }
+        return s * 0.5;
+    }
+
+    public static double area(double[] xy, int n) {
+        return Math.abs(signedArea(xy, n));
+    }
+
+    /**
+     * Sum of edge lengths including the closing edge
+     */
+    public static double perimeter(double[] xy, int n) {
+        if (n < 2) return 0.0;
+        double sum = 0.0;
+        for (int i = 0, j = n - 1; i < n; j = i++) {
+            sum += Math.hypot(xy[2 * i] - xy[2 * j], xy[2 * i + 1] - xy[2 * j + 1]);
+        }
+        return sum;
+    }
+
+    /**
+     * Even-odd point-in-ring test
+     */
+    public static boolean contains(double[] xy, int n, double px, double py) {
+        boolean inside = false;
+        for (int i = 0, j = n - 1; i < n; j = i++) {
+            double xi = xy[2 * i], yi = xy[2 * i + 1];
+            double xj = xy[2 * j], yj = xy[2 * j + 1];
+            if ((yi > py) != (yj > py) && px < (xj - xi) * (py - yi) / (yj - yi) + xi) {
+                inside = !inside;
+            }
+        }
+        return inside;
+    }
+
+    /**
+     * Writes the ring bounding box into out as (minX, minY, maxX, maxY)
+     */
+    public static void bounds(double[] xy, int n, double[] out) {
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            double x = xy[2 * i], y = xy[2 * i + 1];
+            if (x < minX) minX = x;
+            if (x > maxX) maxX = x;
+            if (y < minY) minY = y;
+            if (y > maxY) maxY = y;
+        }
+        out[0] = minX;
+        out[1] = minY;
+        out[2] = maxX;
+        out[3] = maxY;
+    }
+
+    /**
+     * For each hole ring, finds the index of the outer ring that contains it (or -1).
+     * Outer-ring bounding boxes go through an R-tree so this stays fast with many rings.
+     */
+    public static int[] assignHoles(List<double[]> rings, boolean[] holes) {
+        int count = rings.size();
+        int[] parent = new int[count];
+        java.util.Arrays.fill(parent, -1);
+        int outers = 0;
+        for (int r = 0; r < count; r++) if (!holes[r]) outers++;
+        if (outers == 0) return parent;
+
+        double[] boxes = new double[outers * 4];
+        int[] ids = new int[outers];
+        double[] b = new double[4];
+        int k = 0;
+        for (int r = 0; r < count; r++) {
+            if (holes[r]) continue;
+            double[] ring = rings.get(r);
+            bounds(ring, ring.length / 2, b);
+            System.arraycopy(b, 0, boxes, k * 4, 4);
+            ids[k++] = r;
+        }
+        RTree tree = RTree.build(boxes, ids, outers);
+        int[] candidates = new int[outers];
+        for (int r = 0; r < count; r++) {
+            if (!holes[r] || rings.get(r).length < 2) continue;
+            double[] hole = rings.get(r);
+            double px = hole[0], py = hole[1];
+            int found = tree.query(px, py, px, py, candidates);
+            double bestArea = Double.POSITIVE_INFINITY;
+            for (int c = 0; c < found; c++) {
+                double[] outer = rings.get(candidates[c]);
+                int n = outer.length / 2;
+                if (!contains(outer, n, px, py)) continue;
+                // Nested fields: the smallest containing outer ring owns the hole
+                double a = area(outer, n);
+                if (a < bestArea) {
+                    bestArea = a;
+                    parent[r] = candidates[c];
+                }
+            }
+        }
+        return parent;
+    }
+
+    /**
+     * Total area of outer rings minus the holes that lie inside them
+     */
+    public static double netArea(List<double[]> rings, boolean[] holes) {
+        int[] parent = assignHoles(rings, holes);
+        double sum = 0.0;
+        for (int r = 0; r < rings.size(); r++) {
+            double[] ring = rings.get(r);
+            double a = area(ring, ring.length / 2);
+            if (!holes[r]) sum += a;
+            else if (parent[r] >= 0) sum -= a;
+        }
+        return Math.max(0.0, sum);
+    }
+}
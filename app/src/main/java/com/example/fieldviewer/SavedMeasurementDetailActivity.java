@@ -9,9 +9,7 @@ import androidx.core.graphics.Insets;
 import androidx.core.view.ViewCompat;
 import androidx.core.view.WindowInsetsCompat;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 
 /**
  * Displays the full JSON contents of a saved measurement file.
@@ -43,29 +41,16 @@ public class SavedMeasurementDetailActivity extends AppCompatActivity {
         }
 
         // Read entire JSON file into a string
-        StringBuilder sb = new StringBuilder();
-        try (BufferedReader br = new BufferedReader(new FileReader(f))) {
-            String line;
-            while ((line = br.readLine()) != null) sb.append(line).append('\n');
+        String content;
+        try {
+            content = MeasurementFiles.readText(f);
         } catch (Exception e) {
             tv.setText("Error reading file");
             return;
         }
-        String content = sb.toString();
 
         // Build a small header using name and a readable timestamp from the JSON if available
-        String header = "";
-        try {
-            org.json.JSONObject obj = new org.json.JSONObject(content);
-            String name = obj.optString("name", f.getName());
-            String pretty = obj.optString("timestamp_local", "");
-            if (pretty.isEmpty()) {
-                long ts = obj.optLong("timestamp", f.lastModified());
-                pretty = new java.text.SimpleDateFormat("yyyy-MM-dd HH:mm", java.util.Locale.getDefault())
-                        .format(new java.util.Date(ts));
-            }
-            header = name + "\n" + pretty + "\n\n";
-        } catch (Exception ignore) {}
+        String header = MeasurementFiles.detailHeader(f, content);
 
         // Show header followed by raw JSON contents for transparency/debugging
         tv.setText(header + content);
@@ -2,13 +2,18 @@ package com.example.fieldviewer;
 
 import android.content.Intent;
 import android.os.Bundle;
+import android.text.InputType;
 import android.view.View;
 import android.widget.AdapterView;
 import android.widget.ArrayAdapter;
+import android.widget.EditText;
+import android.widget.LinearLayout;
 import android.widget.ListView;
+import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.activity.EdgeToEdge;
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.graphics.Insets;
 import androidx.core.view.ViewCompat;
@@ -16,17 +21,30 @@ import androidx.core.view.WindowInsetsCompat;
 
 import java.io.File;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 
 /**
  * Displays a list of saved measurement files (JSON) and opens detail view on tap.
  * Files are loaded from app external files directory under "measurements".
+ * The list comes from MeasurementIndex, so opening it and filtering by distance or area
+ * never parses the JSON files (only files saved by older versions are read once).
+ * Report renders the listed measurements to PNG/PDF in the background; long-press an entry to
+ * share its PDF report.
  */
 public class SavedMeasurementsActivity extends AppCompatActivity {
 
-    // Backing list of JSON files shown in the ListView
-    private List<File> jsonFiles = new ArrayList<>();
+    // Entries currently shown in the ListView
+    private List<MeasurementIndex.Entry> shown = new ArrayList<>();
+    private ArrayAdapter<String> adapter;
+    private TextView tvFilter;
+    private File dir;
+    private MeasurementIndex index;  // Set on the UI thread once loaded; null until then
+    private ReportRenderer reports;
+
+    // Reference boundaries (KML/KMZ/GeoJSON/GPX) shown as read-only overlays on the result map
+    private final androidx.activity.result.ActivityResultLauncher<String[]> importLauncher =
+            registerForActivityResult(new androidx.activity.result.contract.ActivityResultContracts.OpenDocument(),
+                    uri -> { if (uri != null) importReference(uri); });
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -47,45 +65,306 @@ public class SavedMeasurementsActivity extends AppCompatActivity {
             finish();
             return;
         }
+        tvFilter = findViewById(R.id.tvFilter);
 
-        // Locate the measurements directory and collect *.json files
-        File dir = new File(getExternalFilesDir(null), "measurements");
-        if (dir.exists() && dir.isDirectory()) {
-            File[] files = dir.listFiles((d, name) -> name.toLowerCase().endsWith(".json"));
-            if (files != null) {
-                // Sort descending by last modified (most recent first)
-                Arrays.sort(files, (a, b) -> Long.compare(b.lastModified(), a.lastModified()));
-                jsonFiles = Arrays.asList(files);
-            }
-        }
-
-        // Build display names with human-readable timestamps
-        List<String> names = new ArrayList<>();
-        for (File f : jsonFiles) {
-            String display = f.getName();
-            try {
-                java.util.Date d = new java.util.Date(f.lastModified());
-                String when = new java.text.SimpleDateFormat("yyyy-MM-dd HH:mm", java.util.Locale.getDefault()).format(d);
-                display = display + "  (" + when + ")";
-            } catch (Exception ignore) {}
-            names.add(display);
-        }
         // Simple adapter using a built-in one-line layout
-        ArrayAdapter<String> adapter = new ArrayAdapter<>(this, android.R.layout.simple_list_item_1, names);
+        adapter = new ArrayAdapter<>(this, android.R.layout.simple_list_item_1, new ArrayList<>());
         listView.setAdapter(adapter);
 
+        listView.setOnItemLongClickListener((parent, view, position, id) -> {
+            if (position < 0 || position >= shown.size()) return false;
+            shareReport(new File(dir, shown.get(position).fileName));
+            return true;
+        });
+
         // Open detail screen when a file is tapped
         listView.setOnItemClickListener(new AdapterView.OnItemClickListener() {
             @Override
             public void onItemClick(AdapterView<?> parent, View view, int position, long id) {
-                if (position < 0 || position >= jsonFiles.size()) return;
-                File f = jsonFiles.get(position);
+                if (position < 0 || position >= shown.size()) return;
+                File f = new File(dir, shown.get(position).fileName);
                 Intent i = new Intent(SavedMeasurementsActivity.this, SavedMeasurementDetailActivity.class);
                 i.putExtra("path", f.getAbsolutePath());
                 startActivity(i);
             }
         });
+
+        View btnAll = findViewById(R.id.btnFilterAll);
+        View btnNear = findViewById(R.id.btnFilterNear);
+        View btnArea = findViewById(R.id.btnFilterArea);
+        if (btnAll != null) btnAll.setOnClickListener(v -> {
+            if (index != null) showEntries(index.newestFirst(), null);
+        });
+        if (btnNear != null) btnNear.setOnClickListener(v -> promptNearMe());
+        if (btnArea != null) btnArea.setOnClickListener(v -> promptAreaRange());
+        View btnImport = findViewById(R.id.btnImportReference);
+        if (btnImport != null) {
+            btnImport.setOnClickListener(v -> importLauncher.launch(new String[]{
+                    "application/vnd.google-earth.kml+xml", "application/vnd.google-earth.kmz",
+                    "application/geo+json", "application/json", "application/gpx+xml",
+                    "application/xml", "text/xml", "application/octet-stream"}));
+            btnImport.setOnLongClickListener(v -> {
+                promptManageReferences();
+                return true;
+            });
+        }
+
+        View btnReports = findViewById(R.id.btnReports);
+        if (btnReports != null) btnReports.setOnClickListener(v -> promptReports());
+
+        // Locate the measurements directory, then load the index and bring it in line with the
+        // files on disk off the UI thread (both read files)
+        dir = new File(getExternalFilesDir(null), "measurements");
+        if (!dir.exists()) dir.mkdirs();
+        reports = new ReportRenderer(new File(getExternalFilesDir(null), "reports"));
+        new Thread(() -> {
+            final MeasurementIndex loaded = MeasurementIndex.forDirectory(dir);
+            final List<MeasurementIndex.Entry> cached = loaded.newestFirst();
+            runOnUiThread(() -> {
+                index = loaded;
+                showEntries(cached, null);
+            });
+            boolean changed = false;
+            try {
+                changed = MeasurementFiles.syncIndex(dir, loaded);
+            } catch (java.io.IOException ignored) {}
+            if (changed) {
+                final List<MeasurementIndex.Entry> synced = loaded.newestFirst();
+                runOnUiThread(() -> showEntries(synced, null));
+            }
+        }, "measurement-index-sync").start();
     }
-}
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (reports != null) reports.shutdown();
+    }
+
+    /**
+     * Replaces the list contents; label describes the active filter (null = all)
+     */
+    private void showEntries(List<MeasurementIndex.Entry> entries, String label) {
+        if (isFinishing()) return;
+        shown = entries;
+        java.text.SimpleDateFormat fmt = new java.text.SimpleDateFormat("yyyy-MM-dd HH:mm", java.util.Locale.getDefault());
+        List<String> names = new ArrayList<>(entries.size());
+        for (MeasurementIndex.Entry e : entries) {
+            String when = fmt.format(new java.util.Date(e.timestamp));
+            names.add(e.fileName + "  (" + when + ", " + String.format(java.util.Locale.US, "%.1f", e.areaM2) + " m²)");
+        }
+        adapter.clear();
+        adapter.addAll(names);
+        adapter.notifyDataSetChanged();
+        if (tvFilter != null) {
+            tvFilter.setText((label != null ? label : "All measurements") + " · " + entries.size());
+        }
+    }
+
+    /**
+     * Asks for a radius and lists measurements within it of the last known location
+     */
+    private void promptNearMe() {
+        if (index == null) return;
+        final EditText et = new EditText(this);
+        et.setInputType(InputType.TYPE_CLASS_NUMBER | InputType.TYPE_NUMBER_FLAG_DECIMAL);
+        et.setHint("Radius (km)");
+        et.setText("5");
+        new AlertDialog.Builder(this)
+                .setTitle("Measurements near me")
+                .setView(et)
+                .setPositiveButton("Search", (d, w) -> {
+                    double km = parseOr(et.getText().toString(), 5.0);
+                    findNearLastLocation(km);
+                })
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
 
+    private void findNearLastLocation(double km) {
+        if (androidx.core.content.ContextCompat.checkSelfPermission(this, android.Manifest.permission.ACCESS_FINE_LOCATION) != android.content.pm.PackageManager.PERMISSION_GRANTED &&
+                androidx.core.content.ContextCompat.checkSelfPermission(this, android.Manifest.permission.ACCESS_COARSE_LOCATION) != android.content.pm.PackageManager.PERMISSION_GRANTED) {
+            Toast.makeText(this, "Location permission required", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        try {
+            com.google.android.gms.location.LocationServices.getFusedLocationProviderClient(this)
+                    .getLastLocation()
+                    .addOnSuccessListener(location -> {
+                        if (location == null) {
+                            Toast.makeText(this, "No location fix yet", Toast.LENGTH_SHORT).show();
+                            return;
+                        }
+                        List<MeasurementIndex.Entry> near = index.withinKm(location.getLatitude(), location.getLongitude(), km);
+                        showEntries(near, String.format(java.util.Locale.US, "Within %.1f km", km));
+                    });
+        } catch (SecurityException ignored) {}
+    }
+
+    /**
+     * Asks for an area range (m²) and lists matching measurements, smallest first
+     */
+    private void promptAreaRange() {
+        if (index == null) return;
+        LinearLayout box = new LinearLayout(this);
+        box.setOrientation(LinearLayout.VERTICAL);
+        final EditText etMin = new EditText(this);
+        etMin.setInputType(InputType.TYPE_CLASS_NUMBER | InputType.TYPE_NUMBER_FLAG_DECIMAL);
+        etMin.setHint("Min area (m²)");
+        final EditText etMax = new EditText(this);
+        etMax.setInputType(InputType.TYPE_CLASS_NUMBER | InputType.TYPE_NUMBER_FLAG_DECIMAL);
+        etMax.setHint("Max area (m²)");
+        box.addView(etMin);
+        box.addView(etMax);
+        new AlertDialog.Builder(this)
+                .setTitle("Filter by area")
+                .setView(box)
+                .setPositiveButton("Filter", (d, w) -> {
+                    double min = parseOr(etMin.getText().toString(), 0.0);
+                    double max = parseOr(etMax.getText().toString(), Double.POSITIVE_INFINITY);
+                    String label = Double.isInfinite(max)
+                            ? String.format(java.util.Locale.US, "Area ≥ %.0f m²", min)
+                            : String.format(java.util.Locale.US, "Area %.0f–%.0f m²", min, max);
+                    showEntries(index.areaBetween(min, max), label);
+                })
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    /**
+     * Parses the picked file into a reference layer off the UI thread
+     */
+    private void importReference(android.net.Uri uri) {
+        Toast.makeText(this, "Importing boundaries…", Toast.LENGTH_SHORT).show();
+        final android.content.Context app = getApplicationContext();
+        new Thread(() -> {
+            String msg;
+            try {
+                ReferenceImporter.Result result = ReferenceImporter.importUri(app, uri);
+                msg = "Imported " + result.features + " boundaries as "
+                        + result.file.getName().replace(ReferenceLayer.EXTENSION, "") + "; they appear on the result map";
+                if (result.skippedPoints > 0) msg += " (" + result.skippedPoints + " points skipped: only lines and areas are imported)";
+            } catch (Exception e) {
+                msg = "Import failed: " + e.getMessage();
+            }
+            final String text = msg;
+            runOnUiThread(() -> Toast.makeText(app, text, Toast.LENGTH_LONG).show());
+        }, "reference-import").start();
+    }
+
+    /**
+     * Lists imported reference layers; tapping one deletes it
+     */
+    private void promptManageReferences() {
+        final File[] layers = ReferenceImporter.layerFiles(this);
+        if (layers.length == 0) {
+            Toast.makeText(this, "No imported boundaries", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        String[] labels = new String[layers.length];
+        for (int i = 0; i < layers.length; i++) {
+            labels[i] = layers[i].getName().replace(ReferenceLayer.EXTENSION, "")
+                    + String.format(java.util.Locale.US, " (%.1f MB)", layers[i].length() / (1024.0 * 1024.0));
+        }
+        new AlertDialog.Builder(this)
+                .setTitle("Imported boundaries (tap to delete)")
+                .setItems(labels, (d, which) -> {
+                    if (layers[which].delete()) Toast.makeText(this, "Deleted " + labels[which], Toast.LENGTH_SHORT).show();
+                })
+                .setNegativeButton("Close", null)
+                .show();
+    }
+
+    /**
+     * Renders reports for every listed measurement, with a progress dialog that can cancel the batch
+     */
+    private void promptReports() {
+        if (shown.isEmpty()) {
+            Toast.makeText(this, "No measurements listed", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        final String[] formats = {"PDF", "PNG", "PDF + PNG"};
+        new AlertDialog.Builder(this)
+                .setTitle("Report for " + shown.size() + " measurement(s)")
+                .setItems(formats, (d, which) -> renderReports(which != 1, which != 0))
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    private void renderReports(boolean pdf, boolean png) {
+        final List<File> files = new ArrayList<>(shown.size());
+        for (MeasurementIndex.Entry e : shown) files.add(new File(dir, e.fileName));
+        final android.widget.ProgressBar bar = new android.widget.ProgressBar(this, null, android.R.attr.progressBarStyleHorizontal);
+        bar.setMax(files.size());
+        int pad = (int) (24 * getResources().getDisplayMetrics().density);
+        bar.setPadding(pad, pad / 2, pad, 0);
+        final AlertDialog progress = new AlertDialog.Builder(this)
+                .setTitle("Rendering reports")
+                .setMessage("0 / " + files.size())
+                .setView(bar)
+                .setCancelable(false)
+                .setNegativeButton("Stop", (d, w) -> reports.cancel())
+                .show();
+        reports.render(files, png, pdf, new ReportRenderer.Listener() {
+            @Override
+            public void onProgress(int done, int total, File output) {
+                bar.setProgress(done);
+                progress.setMessage(done + " / " + total);
+            }
+
+            @Override
+            public void onFinished(int written, int failed, boolean cancelled) {
+                if (isFinishing() || isDestroyed()) return;
+                progress.dismiss();
+                String msg = (cancelled ? "Stopped: " : "") + written + " report(s) in " + reports.outputDir().getAbsolutePath()
+                        + (failed > 0 ? " (" + failed + " failed)" : "");
+                Toast.makeText(SavedMeasurementsActivity.this, msg, Toast.LENGTH_LONG).show();
+            }
+        });
+    }
+
+    /**
+     * Renders one PDF report and opens the share sheet for it
+     */
+    private void shareReport(File measurement) {
+        Toast.makeText(this, "Rendering report…", Toast.LENGTH_SHORT).show();
+        List<File> one = new ArrayList<>();
+        one.add(measurement);
+        reports.render(one, false, true, new ReportRenderer.Listener() {
+            private File pdf;
+
+            @Override
+            public void onProgress(int done, int total, File output) {
+                pdf = output;
+            }
+
+            @Override
+            public void onFinished(int written, int failed, boolean cancelled) {
+                if (isFinishing() || isDestroyed()) return;
+                if (pdf == null) {
+                    Toast.makeText(SavedMeasurementsActivity.this, "Report failed", Toast.LENGTH_SHORT).show();
+                    return;
+                }
+                try {
+                    android.net.Uri uri = androidx.core.content.FileProvider.getUriForFile(
+                            SavedMeasurementsActivity.this, getPackageName() + ".fileprovider", pdf);
+                    Intent send = new Intent(Intent.ACTION_SEND);
+                    send.setType("application/pdf");
+                    send.putExtra(Intent.EXTRA_STREAM, uri);
+                    send.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
+                    startActivity(Intent.createChooser(send, "Share report"));
+                } catch (Exception e) {
+                    Toast.makeText(SavedMeasurementsActivity.this, "Share failed", Toast.LENGTH_SHORT).show();
+                }
+            }
+        });
+    }
+
+    private static double parseOr(String s, double fallback) {
+        try {
+            return Double.parseDouble(s.trim());
+        } catch (Exception e) {
+            return fallback;
+        }
+    }
+}
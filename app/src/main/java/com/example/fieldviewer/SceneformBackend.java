@@ -0,0 +1,129 @@
+package com.example.fieldviewer;
+
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.fragment.app.Fragment;
+import androidx.fragment.app.FragmentManager;
+
+import com.google.ar.core.Frame;
+import com.google.ar.core.Pose;
+import com.google.ar.core.Session;
+import com.google.ar.core.TrackingState;
+import com.google.ar.sceneform.math.Vector3;
+import com.google.ar.sceneform.ux.ArFragment;
+
+/**
+ * The original renderer: Sceneform's ArFragment owns the ARCore session, draws the camera and
+ * plane visualization, and the outline is one OutlineRenderer node in its scene.
+ * The fragment is added in code; its scene view exists from the first onResume on.
+ */
+final class SceneformBackend implements ArRenderBackend {
+
+    private ArFragment fragment;
+    private OutlineRenderer outline;
+    private FrameListener listener;
+    private long attachNanos;
+    private long lastFrameNanos = 0L;
+    private boolean firstTrackedSeen = false;
+
+    // Outline requested before the scene existed
+    private OutlineMesh pendingMesh;
+    private Pose pendingOrigin;
+
+    @Override
+    public String id() {
+        return SCENEFORM;
+    }
+
+    @Override
+    public void attach(AppCompatActivity activity, int containerId, FrameListener listener) {
+        this.listener = listener;
+        attachNanos = System.nanoTime();
+        FragmentManager fm = activity.getSupportFragmentManager();
+        Fragment existing = fm.findFragmentById(containerId);
+        if (existing instanceof ArFragment) {
+            fragment = (ArFragment) existing;  // Restored with the activity
+        } else {
+            fragment = new ArFragment();
+            fm.beginTransaction().replace(containerId, fragment).commitNow();
+        }
+    }
+
+    /**
+     * Hooks the outline and the frame listener into the scene once the fragment has its view
+     */
+    private void ensureScene() {
+        if (outline != null || fragment == null || fragment.getArSceneView() == null
+                || fragment.getArSceneView().getScene() == null) return;
+        outline = new OutlineRenderer(fragment.requireContext(), fragment.getArSceneView().getScene());
+        fragment.getArSceneView().getScene().addOnUpdateListener(frameTime -> {
+            // Record frame-to-frame interval of scene updates
+            long now = System.nanoTime();
+            if (lastFrameNanos != 0L) PerfTelemetry.record(PerfTelemetry.SCENE_FRAME, now - lastFrameNanos);
+            lastFrameNanos = now;
+            Frame frame = fragment.getArSceneView().getArFrame();
+            if (frame == null) return;
+            if (!firstTrackedSeen && frame.getCamera().getTrackingState() == TrackingState.TRACKING) {
+                firstTrackedSeen = true;
+                PerfTelemetry.record(PerfTelemetry.AR_STARTUP, now - attachNanos);
+            }
+            // Scene updates run on the main thread, so the live frame is stable for the listener
+            listener.onFrame(ArCoreBridge.frame(frame), frame.getUpdatedAnchors());
+        });
+        if (pendingMesh != null) {
+            updateOutline(pendingMesh, pendingOrigin);
+            pendingMesh = null;
+            pendingOrigin = null;
+        }
+    }
+
+    @Override
+    public void start() {
+        // ArFragment creates and resumes its own session
+    }
+
+    @Override
+    public void onResume() {
+        ensureScene();
+    }
+
+    @Override
+    public void onPause() {
+        lastFrameNanos = 0L;  // Don't count the paused gap as a frame
+    }
+
+    @Override
+    public void destroy() {
+        // The fragment and its session are destroyed with the activity
+    }
+
+    @Override
+    public Session session() {
+        return fragment != null && fragment.getArSceneView() != null ? fragment.getArSceneView().getSession() : null;
+    }
+
+    @Override
+    public ArFrame frame() {
+        Frame frame = fragment != null && fragment.getArSceneView() != null ? fragment.getArSceneView().getArFrame() : null;
+        return frame != null ? ArCoreBridge.frame(frame) : null;
+    }
+
+    @Override
+    public int viewWidth() {
+        return fragment != null && fragment.getArSceneView() != null ? fragment.getArSceneView().getWidth() : 0;
+    }
+
+    @Override
+    public int viewHeight() {
+        return fragment != null && fragment.getArSceneView() != null ? fragment.getArSceneView().getHeight() : 0;
+    }
+
+    @Override
+    public void updateOutline(OutlineMesh mesh, Pose origin) {
+        if (outline == null) {
+            pendingMesh = mesh;
+            pendingOrigin = origin;
+            return;
+        }
+        outline.update(mesh, origin != null ? new Vector3(origin.tx(), origin.ty(), origin.tz()) : null);
+    }
+}
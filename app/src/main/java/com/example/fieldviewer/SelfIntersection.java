@@ -0,0 +1,286 @@
+package com.example.fieldviewer;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Self-intersection detection and repair for rings (interleaved x, y arrays, implicitly closed).
+ * Detection is a Shamos–Hoey sweep (the test half of Bentley–Ottmann): edges enter and leave
+ * a y-ordered status as a vertical line sweeps left to right, and only status neighbours are
+ * tested, so a 10k-vertex ring costs O(n log n) instead of the O(n²) all-pairs check.
+ * Repair splits the ring at a crossing and repeats on both halves until every piece is simple.
+ * Consecutive duplicate vertices are ignored; edges sharing a ring vertex only count as
+ * crossing when they fold back over each other.
+ */
+public final class SelfIntersection {
+
+    private SelfIntersection() {}
+
+    /**
+     * Finds one crossing. Returns true and writes (edgeA, edgeB, x, y) into out, where edge i
+     * runs from vertex i to vertex i+1 of the input ring.
+     */
+    public static boolean findCrossing(double[] xy, int n, double[] out) {
+        Ring r = Ring.of(xy, n);
+        int[] pair = r.sweep();
+        return r.report(pair, out);
+    }
+
+    public static boolean isSimple(double[] xy, int n) {
+        return !findCrossing(xy, n, new double[4]);
+    }
+
+    /**
+     * Reference all-pairs check with the same crossing rules; O(n²)
+     */
+    public static boolean findCrossingNaive(double[] xy, int n, double[] out) {
+        Ring r = Ring.of(xy, n);
+        return r.report(r.allPairs(), out);
+    }
+
+    /**
+     * Splits a ring into simple rings by cutting it at crossings. Zero-area pieces are dropped.
+     * A simple input comes back as a single (deduplicated) ring.
+     */
+    public static List<double[]> splitSimple(double[] xy, int n) {
+        List<double[]> out = new ArrayList<>();
+        ArrayDeque<double[]> work = new ArrayDeque<>();
+        work.push(Arrays.copyOf(xy, 2 * n));
+        int budget = 4 * n + 16;  // Every split removes a crossing; this only guards degenerate input
+        while (!work.isEmpty()) {
+            Ring r = Ring.of(work.pop(), -1);
+            if (r.m < 3) continue;
+            int[] pair = budget-- > 0 ? r.sweep() : null;
+            if (pair == null) {
+                double[] flat = r.flat();
+                if (RingMath.area(flat, r.m) > 1e-9) out.add(flat);
+                continue;
+            }
+            int a = Math.min(pair[0], pair[1]), b = Math.max(pair[0], pair[1]);
+            double[] p = r.crossingPoint(a, b);
+            // Piece A: P, v[a+1..b]; piece B: P, v[b+1..m-1], v[0..a]
+            double[] pa = new double[2 * (b - a + 1)];
+            pa[0] = p[0];
+            pa[1] = p[1];
+            for (int k = a + 1, j = 1; k <= b; k++, j++) {
+                pa[2 * j] = r.x[k];
+                pa[2 * j + 1] = r.y[k];
+            }
+            double[] pb = new double[2 * (r.m - (b - a) + 1)];
+            pb[0] = p[0];
+            pb[1] = p[1];
+            int j = 1;
+            for (int k = b + 1; k < r.m; k++, j++) {
+                pb[2 * j] = r.x[k];
+                pb[2 * j + 1] = r.y[k];
+            }
+            for (int k = 0; k <= a; k++, j++) {
+                pb[2 * j] = r.x[k];
+                pb[2 * j + 1] = r.y[k];
+            }
+            work.push(pa);
+            work.push(pb);
+        }
+        return out;
+    }
+
+    /**
+     * Deduplicated ring with the sweep state it needs
+     */
+    private static final class Ring {
+        final double[] x, y;
+        final int[] source;  // Compact vertex -> input vertex index
+        final int m;
+        int[] lo, hi;        // Edge endpoints ordered lexicographically by (x, y)
+
+        private Ring(double[] x, double[] y, int[] source, int m) {
+            this.x = x;
+            this.y = y;
+            this.source = source;
+            this.m = m;
+        }
+
+        /**
+         * n < 0 means "whole array"
+         */
+        static Ring of(double[] xy, int n) {
+            if (n < 0) n = xy.length / 2;
+            double[] x = new double[n], y = new double[n];
+            int[] src = new int[n];
+            int m = 0;
+            for (int i = 0; i < n; i++) {
+                double px = xy[2 * i], py = xy[2 * i + 1];
+                if (m > 0 && x[m - 1] == px && y[m - 1] == py) continue;
+                x[m] = px;
+                y[m] = py;
+                src[m++] = i;
+            }
+            while (m > 1 && x[m - 1] == x[0] && y[m - 1] == y[0]) m--;
+            return new Ring(x, y, src, m);
+        }
+
+        double[] flat() {
+            double[] xy = new double[2 * m];
+            for (int i = 0; i < m; i++) {
+                xy[2 * i] = x[i];
+                xy[2 * i + 1] = y[i];
+            }
+            return xy;
+        }
+
+        boolean report(int[] pair, double[] out) {
+            if (pair == null) return false;
+            int a = Math.min(pair[0], pair[1]), b = Math.max(pair[0], pair[1]);
+            double[] p = crossingPoint(a, b);
+            out[0] = source[a];
+            out[1] = source[b];
+            out[2] = p[0];
+            out[3] = p[1];
+            return true;
+        }
+
+        int[] allPairs() {
+            if (m < 3) return null;
+            for (int a = 0; a < m; a++) {
+                for (int b = a + 1; b < m; b++) {
+                    if (intersects(a, b)) return new int[]{a, b};
+                }
+            }
+            return null;
+        }
+
+        int[] sweep() {
+            if (m < 3) return null;
+            lo = new int[m];
+            hi = new int[m];
+            for (int e = 0; e < m; e++) {
+                int u = e, v = (e + 1) % m;
+                boolean uFirst = x[u] < x[v] || (x[u] == x[v] && y[u] <= y[v]);
+                lo[e] = uFirst ? u : v;
+                hi[e] = uFirst ? v : u;
+            }
+            // Events: 2e = edge e enters at lo, 2e+1 = edge e leaves at hi.
+            // Same point: entries before exits so edges touching there meet in the status.
+            Integer[] events = new Integer[2 * m];
+            for (int i = 0; i < events.length; i++) events[i] = i;
+            Arrays.sort(events, (p, q) -> {
+                int vp = (p & 1) == 0 ? lo[p >> 1] : hi[p >> 1];
+                int vq = (q & 1) == 0 ? lo[q >> 1] : hi[q >> 1];
+                int c = Double.compare(x[vp], x[vq]);
+                if (c == 0) c = Double.compare(y[vp], y[vq]);
+                if (c == 0) c = Integer.compare(p & 1, q & 1);
+                return c != 0 ? c : Integer.compare(p, q);
+            });
+
+            TreeSet<Integer> status = new TreeSet<>(this::compareEdges);
+            for (int ev : events) {
+                int e = ev >> 1;
+                if ((ev & 1) == 0) {
+                    status.add(e);
+                    Integer below = status.lower(e), above = status.higher(e);
+                    if (below != null && intersects(e, below)) return new int[]{e, below};
+                    if (above != null && intersects(e, above)) return new int[]{e, above};
+                } else {
+                    Integer below = status.lower(e), above = status.higher(e);
+                    if (!status.remove(e)) {
+                        // Order broke down on degenerate input; fall back to the exact check
+                        return allPairs();
+                    }
+                    if (below != null && above != null && intersects(below, above)) return new int[]{below, above};
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Vertical order of two edges that overlap in x; decided at the later left endpoint
+         */
+        private int compareEdges(int a, int b) {
+            if (a == b) return 0;
+            int la = lo[a], lb = lo[b];
+            boolean aLater = x[la] > x[lb] || (x[la] == x[lb] && y[la] >= y[lb]);
+            int s;
+            if (aLater) {
+                s = side(la, b);
+                if (s == 0) s = side(hi[a], b);
+            } else {
+                s = -side(lb, a);
+                if (s == 0) s = -side(hi[b], a);
+            }
+            return s != 0 ? s : Integer.compare(a, b);
+        }
+
+        /**
+         * +1 if vertex v is above edge e, -1 if below, 0 if on its supporting line. Sorting events
+         * by (x, y) is a sweep under an infinitesimal shear, which leaves orientations unchanged,
+         * so vertical edges need no special case: points left of them count as above.
+         */
+        private int side(int v, int e) {
+            return (int) Math.signum(orient(x[lo[e]], y[lo[e]], x[hi[e]], y[hi[e]], x[v], y[v]));
+        }
+
+        private boolean adjacent(int a, int b) {
+            return (a + 1) % m == b || (b + 1) % m == a;
+        }
+
+        boolean intersects(int a, int b) {
+            if (a == b) return false;
+            int a0 = a, a1 = (a + 1) % m, b0 = b, b1 = (b + 1) % m;
+            if (adjacent(a, b)) {
+                if (m == 3) return false;  // Triangle edges only meet at their shared corners
+                // Shared vertex s; the edges overlap only if they fold back along the same line
+                int s, pa, pb;
+                if (a1 == b0) { s = a1; pa = a0; pb = b1; } else { s = b1; pa = a1; pb = b0; }
+                double o = orient(x[s], y[s], x[pa], y[pa], x[pb], y[pb]);
+                double dot = (x[pa] - x[s]) * (x[pb] - x[s]) + (y[pa] - y[s]) * (y[pb] - y[s]);
+                return o == 0 && dot > 0;
+            }
+            double o1 = orient(x[a0], y[a0], x[a1], y[a1], x[b0], y[b0]);
+            double o2 = orient(x[a0], y[a0], x[a1], y[a1], x[b1], y[b1]);
+            double o3 = orient(x[b0], y[b0], x[b1], y[b1], x[a0], y[a0]);
+            double o4 = orient(x[b0], y[b0], x[b1], y[b1], x[a1], y[a1]);
+            if (((o1 > 0 && o2 < 0) || (o1 < 0 && o2 > 0)) && ((o3 > 0 && o4 < 0) || (o3 < 0 && o4 > 0))) return true;
+            return (o1 == 0 && onSegment(a0, a1, b0)) || (o2 == 0 && onSegment(a0, a1, b1))
+                    || (o3 == 0 && onSegment(b0, b1, a0)) || (o4 == 0 && onSegment(b0, b1, a1));
+        }
+
+        /**
+         * A point shared by intersecting edges a and b (the crossing, or a touching/overlap point)
+         */
+        double[] crossingPoint(int a, int b) {
+            int a0 = a, a1 = (a + 1) % m, b0 = b, b1 = (b + 1) % m;
+            // Touching or overlapping edges: return the exact vertex lying on the other edge so
+            // repaired pieces don't pick up rounding noise next to existing vertices
+            int[][] tries = {{b0, a0, a1}, {b1, a0, a1}, {a0, b0, b1}, {a1, b0, b1}};
+            int shared = adjacent(a, b) ? (a1 == b0 ? a1 : b1) : -1;
+            for (int[] t : tries) {
+                if (t[0] == shared) continue;
+                if (orient(x[t[1]], y[t[1]], x[t[2]], y[t[2]], x[t[0]], y[t[0]]) == 0 && onSegment(t[1], t[2], t[0])) {
+                    return new double[]{x[t[0]], y[t[0]]};
+                }
+            }
+            double rx = x[a1] - x[a0], ry = y[a1] - y[a0];
+            double sx = x[b1] - x[b0], sy = y[b1] - y[b0];
+            double den = rx * sy - ry * sx;
+            if (den == 0) return new double[]{x[a1], y[a1]};
+            double t = ((x[b0] - x[a0]) * sy - (y[b0] - y[a0]) * sx) / den;
+            t = Math.max(0.0, Math.min(1.0, t));
+            return new double[]{x[a0] + t * rx, y[a0] + t * ry};
+        }
+
+        /**
+         * Whether collinear vertex p lies within the bounding box of segment (u, v)
+         */
+        private boolean onSegment(int u, int v, int p) {
+            return Math.min(x[u], x[v]) <= x[p] && x[p] <= Math.max(x[u], x[v])
+                    && Math.min(y[u], y[v]) <= y[p] && y[p] <= Math.max(y[u], y[v]);
+        }
+
+        private static double orient(double ax, double ay, double bx, double by, double cx, double cy) {
+            return (bx - ax) * (cy - ay) - (by - ay) * (cx - ax);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.fieldviewer;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes an AR measuring session to a compact binary log for offline replay.
+ * Per frame it stores the timestamp, tracking state, camera pose and the hit-test results at
+ * the crosshair; user actions (add point, undo, ...) are stored as events between frames.
+ * A frame without hits is 39 bytes (each hit adds 34), so a minute at 30 fps stays under 100 KB.
+ *
+ * Format (big-endian, DataOutputStream): header MAGIC, VERSION, viewport width/height, then
+ * records 'F' (frame) or 'E' (event); see SessionReplayer for the reader.
+ *
+ * Records are encoded on the calling thread (the frame is only valid there) and written to the
+ * stream by a background thread, so the AR frame loop never waits for the disk. A write error
+ * is thrown from the next record call or from close(), which waits for the queued records.
+ */
+public final class SessionRecorder implements Closeable {
+
+    static final int MAGIC = 0x46565253;  // "FVRS"
+    static final short VERSION = 1;
+    static final byte TAG_FRAME = 'F';
+    static final byte TAG_EVENT = 'E';
+
+    // User actions, in the order they happened relative to frames
+    public static final int EVENT_ADD_POINT = 1;
+    public static final int EVENT_UNDO = 2;
+    public static final int EVENT_REDO = 3;
+    public static final int EVENT_CLOSE_RING = 4;       // Next ring is a field
+    public static final int EVENT_CLOSE_RING_HOLE = 5;  // Next ring is an exclusion zone
+    public static final int EVENT_FINISH = 6;
+    public static final int EVENT_RESET = 7;
+
+    private static final long CLOSE_TIMEOUT_MS = 5000;
+
+    private final DataOutputStream out;  // Writer thread only, after the header
+    private final ExecutorService writer = MetricsWorker.newExecutor("session-recorder");
+    private volatile IOException failure;
+    // Calling thread: the record being encoded
+    private final ByteArrayOutputStream record = new ByteArrayOutputStream(256);
+    private final DataOutputStream rec = new DataOutputStream(record);
+    private final float queryX, queryY;
+    private int frames = 0;
+    private long lastTimestamp = 0L;
+
+    /**
+     * Hits are recorded at the viewport center (the crosshair)
+     */
+    public SessionRecorder(OutputStream stream, int viewportWidth, int viewportHeight) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(stream, 16 * 1024));
+        this.queryX = viewportWidth / 2f;
+        this.queryY = viewportHeight / 2f;
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeInt(viewportWidth);
+        out.writeInt(viewportHeight);
+    }
+
+    public void recordFrame(ArFrame frame) throws IOException {
+        throwIfFailed();
+        lastTimestamp = frame.timestampNanos();
+        rec.writeByte(TAG_FRAME);
+        rec.writeLong(lastTimestamp);
+        rec.writeBoolean(frame.isTracking());
+        writePose(frame.cameraPose());
+        List<ArHit> hits = frame.isTracking() ? frame.hitTest(queryX, queryY) : java.util.Collections.emptyList();
+        int count = Math.min(hits.size(), 255);
+        rec.writeByte(count);
+        for (int i = 0; i < count; i++) {
+            ArHit h = hits.get(i);
+            writePose(h.hitPose());
+            rec.writeFloat(h.distance());
+            rec.writeByte(h.planeType());
+            rec.writeBoolean(h.inPlanePolygon());
+        }
+        frames++;
+        enqueue();
+    }
+
+    /**
+     * Stamped with the last recorded frame: actions act on the frame that is on screen
+     */
+    public void recordEvent(int event) throws IOException {
+        throwIfFailed();
+        rec.writeByte(TAG_EVENT);
+        rec.writeLong(lastTimestamp);
+        rec.writeByte(event);
+        enqueue();
+    }
+
+    /**
+     * Hands the encoded record to the writer thread
+     */
+    private void enqueue() {
+        final byte[] bytes = record.toByteArray();
+        record.reset();
+        writer.execute(() -> {
+            if (failure != null) return;
+            try {
+                out.write(bytes);
+            } catch (IOException e) {
+                failure = e;
+            }
+        });
+    }
+
+    private void throwIfFailed() throws IOException {
+        IOException e = failure;
+        if (e != null) throw e;
+    }
+
+    public int frameCount() {
+        return frames;
+    }
+
+    private void writePose(ArPose p) throws IOException {
+        rec.writeFloat(p.tx);
+        rec.writeFloat(p.ty);
+        rec.writeFloat(p.tz);
+        rec.writeFloat(p.qx);
+        rec.writeFloat(p.qy);
+        rec.writeFloat(p.qz);
+        rec.writeFloat(p.qw);
+    }
+
+    /**
+     * Writes the records still queued and closes the stream
+     */
+    @Override
+    public void close() throws IOException {
+        writer.execute(() -> {
+            try {
+                out.close();
+            } catch (IOException e) {
+                if (failure == null) failure = e;
+            }
+        });
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(CLOSE_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                throw new IOException("Session recording still writing after " + CLOSE_TIMEOUT_MS + " ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while closing the session recording");
+        }
+        throwIfFailed();
+    }
+}
@@ -0,0 +1,201 @@
+package com.example.fieldviewer;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Plays back a SessionRecorder log on the JVM. Frames come back as ArFrame instances whose
+ * hitTest answers with the recorded hits at the crosshair, and anchors created from those hits
+ * stay at their recorded pose, so placement and metrics code runs headlessly and
+ * deterministically.
+ */
+public final class SessionReplayer implements Closeable {
+
+    public interface Listener {
+        void onFrame(ArFrame frame);
+
+        /**
+         * A recorded user action; frame is the most recent frame (null before the first)
+         */
+        void onEvent(int event, ArFrame frame);
+    }
+
+    private final DataInputStream in;
+    private final int viewportWidth, viewportHeight;
+
+    public SessionReplayer(InputStream stream) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(stream, 16 * 1024));
+        if (in.readInt() != SessionRecorder.MAGIC) throw new IOException("Not a session recording");
+        short version = in.readShort();
+        if (version != SessionRecorder.VERSION) throw new IOException("Unsupported recording version " + version);
+        viewportWidth = in.readInt();
+        viewportHeight = in.readInt();
+    }
+
+    public float crosshairX() {
+        return viewportWidth / 2f;
+    }
+
+    public float crosshairY() {
+        return viewportHeight / 2f;
+    }
+
+    /**
+     * Feeds every record to the listener in order; returns the number of frames.
+     * A truncated final record (app killed while recording) ends the replay quietly.
+     */
+    public int replay(Listener listener) throws IOException {
+        int frames = 0;
+        ArFrame last = null;
+        while (true) {
+            byte tag;
+            try {
+                tag = in.readByte();
+            } catch (EOFException eof) {
+                break;
+            }
+            try {
+                if (tag == SessionRecorder.TAG_FRAME) {
+                    last = readFrame();
+                    listener.onFrame(last);
+                    frames++;
+                } else if (tag == SessionRecorder.TAG_EVENT) {
+                    in.readLong();
+                    listener.onEvent(in.readUnsignedByte(), last);
+                } else {
+                    throw new IOException("Corrupt recording (tag " + tag + ")");
+                }
+            } catch (EOFException truncated) {
+                break;
+            }
+        }
+        return frames;
+    }
+
+    private ReplayFrame readFrame() throws IOException {
+        long ts = in.readLong();
+        boolean tracking = in.readBoolean();
+        ArPose camera = readPose();
+        int count = in.readUnsignedByte();
+        List<ArHit> hits = count == 0 ? Collections.emptyList() : new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ArPose pose = readPose();
+            float distance = in.readFloat();
+            int planeType = in.readByte();
+            boolean inPolygon = in.readBoolean();
+            hits.add(new ReplayHit(pose, distance, planeType, inPolygon));
+        }
+        return new ReplayFrame(ts, tracking, camera, hits, crosshairX(), crosshairY());
+    }
+
+    private ArPose readPose() throws IOException {
+        return new ArPose(in.readFloat(), in.readFloat(), in.readFloat(),
+                in.readFloat(), in.readFloat(), in.readFloat(), in.readFloat());
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    static final class ReplayFrame implements ArFrame {
+        private final long ts;
+        private final boolean tracking;
+        private final ArPose camera;
+        private final List<ArHit> hits;
+        private final float qx, qy;
+
+        ReplayFrame(long ts, boolean tracking, ArPose camera, List<ArHit> hits, float qx, float qy) {
+            this.ts = ts;
+            this.tracking = tracking;
+            this.camera = camera;
+            this.hits = hits;
+            this.qx = qx;
+            this.qy = qy;
+        }
+
+        @Override public long timestampNanos() {
+            return ts;
+        }
+
+        @Override public boolean isTracking() {
+            return tracking;
+        }
+
+        @Override public ArPose cameraPose() {
+            return camera;
+        }
+
+        /**
+         * Only the crosshair was recorded; other screen points report no hits
+         */
+        @Override public List<ArHit> hitTest(float x, float y) {
+            return Math.abs(x - qx) <= 1f && Math.abs(y - qy) <= 1f ? hits : Collections.emptyList();
+        }
+    }
+
+    static final class ReplayHit implements ArHit {
+        private final ArPose pose;
+        private final float distance;
+        private final int planeType;
+        private final boolean inPolygon;
+
+        ReplayHit(ArPose pose, float distance, int planeType, boolean inPolygon) {
+            this.pose = pose;
+            this.distance = distance;
+            this.planeType = planeType;
+            this.inPolygon = inPolygon;
+        }
+
+        @Override public ArPose hitPose() {
+            return pose;
+        }
+
+        @Override public float distance() {
+            return distance;
+        }
+
+        @Override public int planeType() {
+            return planeType;
+        }
+
+        @Override public boolean inPlanePolygon() {
+            return inPolygon;
+        }
+
+        @Override public ArAnchor createAnchor() {
+            return new FixedAnchor(pose);
+        }
+    }
+
+    /**
+     * Anchor that never moves (replays have no tracking updates for anchors)
+     */
+    public static final class FixedAnchor implements ArAnchor {
+        private final ArPose pose;
+        private boolean detached;
+
+        public FixedAnchor(ArPose pose) {
+            this.pose = pose;
+        }
+
+        @Override public ArPose pose() {
+            return pose;
+        }
+
+        @Override public boolean isTracking() {
+            return !detached;
+        }
+
+        @Override public void detach() {
+            detached = true;
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.example.fieldviewer;
+
+import java.util.Arrays;
+
+/**
+ * Read-only index of boundary edges for snapping a dragged vertex onto neighbouring polygons.
+ * Edges are bucketed into a uniform grid stored as flat arrays (cell -> edge list, CSR), so a
+ * query only visits the cells within the snap radius and never allocates. Built once off the
+ * UI thread; immutable afterwards, so queries are safe from any thread.
+ *
+ * Coordinates are local meters (same frame as the caller's rings).
+ */
+public final class SnapIndex {
+
+    public static final int NONE = 0;
+    public static final int VERTEX = 1;  // Snapped onto an existing vertex
+    public static final int EDGE = 2;    // Snapped onto the closest point of an edge
+
+    private static final int MAX_CELLS = 1 << 20;
+
+    private final double[] xy;      // Vertex coordinates, interleaved
+    private final int[] edgeFrom;   // Edge -> first vertex
+    private final int[] edgeTo;     // Edge -> second vertex
+    private final double minX, minY, cellSize;
+    private final int nx, ny;
+    private final int[] cellStart;  // nx * ny + 1 offsets into cellEdges
+    private final int[] cellEdges;
+
+    /**
+     * Collects rings and polylines, then builds the grid
+     */
+    public static final class Builder {
+        private double[] xy = new double[256];
+        private int vertexCount = 0;
+        private int[] from = new int[128];
+        private int[] to = new int[128];
+        private int edgeCount = 0;
+
+        /**
+         * Adds n vertices of interleaved (x, y); closed rings also get the edge back to the start
+         */
+        public Builder add(double[] coords, int n, boolean closed) {
+            if (n < 2) return this;
+            int base = vertexCount;
+            if (2 * (vertexCount + n) > xy.length) xy = Arrays.copyOf(xy, Math.max(xy.length * 2, 2 * (vertexCount + n)));
+            System.arraycopy(coords, 0, xy, 2 * base, 2 * n);
+            vertexCount += n;
+            int edges = closed && n >= 3 ? n : n - 1;
+            if (edgeCount + edges > from.length) {
+                int cap = Math.max(from.length * 2, edgeCount + edges);
+                from = Arrays.copyOf(from, cap);
+                to = Arrays.copyOf(to, cap);
+            }
+            for (int i = 0; i < edges; i++) {
+                from[edgeCount] = base + i;
+                to[edgeCount] = base + (i + 1) % n;
+                edgeCount++;
+            }
+            return this;
+        }
+
+        public int vertexCount() {
+            return vertexCount;
+        }
+
+        public SnapIndex build() {
+            return new SnapIndex(Arrays.copyOf(xy, 2 * vertexCount),
+                    Arrays.copyOf(from, edgeCount), Arrays.copyOf(to, edgeCount));
+        }
+    }
+
+    private SnapIndex(double[] xy, int[] edgeFrom, int[] edgeTo) {
+        this.xy = xy;
+        this.edgeFrom = edgeFrom;
+        this.edgeTo = edgeTo;
+        int edges = edgeFrom.length;
+        double x0 = Double.POSITIVE_INFINITY, y0 = Double.POSITIVE_INFINITY;
+        double x1 = Double.NEGATIVE_INFINITY, y1 = Double.NEGATIVE_INFINITY;
+        double totalLength = 0;
+        for (int e = 0; e < edges; e++) {
+            int a = edgeFrom[e], b = edgeTo[e];
+            x0 = Math.min(x0, Math.min(xy[2 * a], xy[2 * b]));
+            y0 = Math.min(y0, Math.min(xy[2 * a + 1], xy[2 * b + 1]));
+            x1 = Math.max(x1, Math.max(xy[2 * a], xy[2 * b]));
+            y1 = Math.max(y1, Math.max(xy[2 * a + 1], xy[2 * b + 1]));
+            totalLength += Math.hypot(xy[2 * b] - xy[2 * a], xy[2 * b + 1] - xy[2 * a + 1]);
+        }
+        if (edges == 0) {
+            minX = minY = 0;
+            cellSize = 1;
+            nx = ny = 0;
+            cellStart = new int[1];
+            cellEdges = new int[0];
+            return;
+        }
+        minX = x0;
+        minY = y0;
+        double w = Math.max(x1 - x0, 1e-9), h = Math.max(y1 - y0, 1e-9);
+        // Cells about one mean edge long keep each edge in a few cells; the cap bounds memory
+        double size = Math.max(totalLength / edges, Math.sqrt(w * h / MAX_CELLS));
+        size = Math.max(size, Math.max(w, h) / 4096);
+        cellSize = size;
+        nx = (int) (w / size) + 1;
+        ny = (int) (h / size) + 1;
+
+        int[] counts = new int[nx * ny + 1];
+        for (int e = 0; e < edges; e++) {
+            int a = edgeFrom[e], b = edgeTo[e];
+            int cx0 = cellX(Math.min(xy[2 * a], xy[2 * b])), cx1 = cellX(Math.max(xy[2 * a], xy[2 * b]));
+            int cy0 = cellY(Math.min(xy[2 * a + 1], xy[2 * b + 1])), cy1 = cellY(Math.max(xy[2 * a + 1], xy[2 * b + 1]));
+            for (int cy = cy0; cy <= cy1; cy++) {
+                for (int cx = cx0; cx <= cx1; cx++) counts[cy * nx + cx + 1]++;
+            }
+        }
+        for (int c = 0; c < nx * ny; c++) counts[c + 1] += counts[c];
+        cellStart = counts;
+        cellEdges = new int[counts[nx * ny]];
+        int[] fill = Arrays.copyOf(counts, nx * ny);
+        for (int e = 0; e < edges; e++) {
+            int a = edgeFrom[e], b = edgeTo[e];
+            int cx0 = cellX(Math.min(xy[2 * a], xy[2 * b])), cx1 = cellX(Math.max(xy[2 * a], xy[2 * b]));
+            int cy0 = cellY(Math.min(xy[2 * a + 1], xy[2 * b + 1])), cy1 = cellY(Math.max(xy[2 * a + 1], xy[2 * b + 1]));
+            for (int cy = cy0; cy <= cy1; cy++) {
+                for (int cx = cx0; cx <= cx1; cx++) cellEdges[fill[cy * nx + cx]++] = e;
+            }
+        }
+    }
+
+    public int edgeCount() {
+        return edgeFrom.length;
+    }
+
+    /**
+     * Snaps (x, y) to the nearest vertex within radius, else to the nearest point on an edge
+     * within radius. Writes the snapped position to out[0..1] and returns VERTEX or EDGE;
+     * returns NONE (out untouched) when nothing is close enough.
+     */
+    public int snap(double x, double y, double radius, double[] out) {
+        if (nx == 0 || !(radius > 0)) return NONE;
+        int cx0 = cellX(x - radius), cx1 = cellX(x + radius);
+        int cy0 = cellY(y - radius), cy1 = cellY(y + radius);
+        if (x + radius < minX || y + radius < minY || x - radius > minX + nx * cellSize || y - radius > minY + ny * cellSize) {
+            return NONE;
+        }
+        double r2 = radius * radius;
+        double bestVertex = r2, bestEdge = r2;
+        int vertex = -1;
+        double ex = 0, ey = 0;
+        boolean edge = false;
+        for (int cy = cy0; cy <= cy1; cy++) {
+            for (int cx = cx0; cx <= cx1; cx++) {
+                int c = cy * nx + cx;
+                for (int k = cellStart[c]; k < cellStart[c + 1]; k++) {
+                    int e = cellEdges[k];
+                    int a = edgeFrom[e], b = edgeTo[e];
+                    double ax = xy[2 * a], ay = xy[2 * a + 1], bx = xy[2 * b], by = xy[2 * b + 1];
+                    double da = (ax - x) * (ax - x) + (ay - y) * (ay - y);
+                    if (da <= bestVertex) {
+                        bestVertex = da;
+                        vertex = a;
+                    }
+                    double db = (bx - x) * (bx - x) + (by - y) * (by - y);
+                    if (db <= bestVertex) {
+                        bestVertex = db;
+                        vertex = b;
+                    }
+                    if (vertex >= 0) continue;  // A vertex in range wins over any edge
+                    double dx = bx - ax, dy = by - ay;
+                    double len2 = dx * dx + dy * dy;
+                    double t = len2 > 0 ? ((x - ax) * dx + (y - ay) * dy) / len2 : 0;
+                    t = Math.max(0, Math.min(1, t));
+                    double px = ax + t * dx, py = ay + t * dy;
+                    double d = (px - x) * (px - x) + (py - y) * (py - y);
+                    if (d <= bestEdge) {
+                        bestEdge = d;
+                        ex = px;
+                        ey = py;
+                        edge = true;
+                    }
+                }
+            }
+        }
+        if (vertex >= 0) {
+            out[0] = xy[2 * vertex];
+            out[1] = xy[2 * vertex + 1];
+            return VERTEX;
+        }
+        if (!edge) return NONE;
+        out[0] = ex;
+        out[1] = ey;
+        return EDGE;
+    }
+
+    private int cellX(double x) {
+        return Math.max(0, Math.min(nx - 1, (int) Math.floor((x - minX) / cellSize)));
+    }
+
+    private int cellY(double y) {
+        return Math.max(0, Math.min(ny - 1, (int) Math.floor((y - minY) / cellSize)));
+    }
+}
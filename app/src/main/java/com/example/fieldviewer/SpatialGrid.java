@@ -0,0 +1,198 @@
+package com.example.fieldviewer;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Dynamic uniform-grid index of items with bounding boxes (points are zero-size boxes).
+ * Items are small dense int ids. Each item is registered in every cell its box touches,
+ * so insert/remove/move are O(cells touched) and nearest/box queries only look at the
+ * cells around the query instead of scanning everything.
+ */
+public class SpatialGrid {
+
+    /**
+     * Exact squared distance from (x, y) to item id, supplied by the caller
+     */
+    public interface DistanceFn {
+        double distanceSq(int id, double x, double y);
+    }
+
+    /**
+     * Receives ids from box queries
+     */
+    public interface Visitor {
+        void visit(int id);
+    }
+
+    private final double cellSize;
+    private final HashMap<Long, int[]> cells = new HashMap<>();  // cell key -> [count, id, id, ...]
+    private double[] boxes = new double[64];
+    private boolean[] present = new boolean[16];
+    private int[] stamp = new int[16];  // Dedupes items seen in several cells during one query
+    private int queryStamp = 0;
+    private int itemCount = 0;
+
+    public SpatialGrid(double cellSize) {
+        if (!(cellSize > 0)) throw new IllegalArgumentException("cellSize must be > 0");
+        this.cellSize = cellSize;
+    }
+
+    public double cellSize() {
+        return cellSize;
+    }
+
+    public int size() {
+        return itemCount;
+    }
+
+    public void clear() {
+        cells.clear();
+        Arrays.fill(present, false);
+        itemCount = 0;
+    }
+
+    public boolean contains(int id) {
+        return id >= 0 && id < present.length && present[id];
+    }
+
+    /**
+     * Adds or replaces item id with the given box
+     */
+    public void put(int id, double minX, double minY, double maxX, double maxY) {
+        if (contains(id)) remove(id);
+        ensureCapacity(id + 1);
+        boxes[4 * id] = minX;
+        boxes[4 * id + 1] = minY;
+        boxes[4 * id + 2] = maxX;
+        boxes[4 * id + 3] = maxY;
+        present[id] = true;
+        itemCount++;
+        int cx0 = cell(minX), cx1 = cell(maxX), cy0 = cell(minY), cy1 = cell(maxY);
+        for (int cx = cx0; cx <= cx1; cx++) {
+            for (int cy = cy0; cy <= cy1; cy++) {
+                long key = key(cx, cy);
+                int[] bag = cells.get(key);
+                if (bag == null) {
+                    bag = new int[5];
+                } else if (bag[0] + 1 >= bag.length) {
+                    bag = Arrays.copyOf(bag, bag.length * 2);
+                }
+                bag[++bag[0]] = id;
+                cells.put(key, bag);
+            }
+        }
+    }
+
+    public void putPoint(int id, double x, double y) {
+        put(id, x, y, x, y);
+    }
+
+    /**
+     * Removes item id if present
+     */
+    public void remove(int id) {
+        if (!contains(id)) return;
+        int cx0 = cell(boxes[4 * id]), cx1 = cell(boxes[4 * id + 2]);
+        int cy0 = cell(boxes[4 * id + 1]), cy1 = cell(boxes[4 * id + 3]);
+        for (int cx = cx0; cx <= cx1; cx++) {
+            for (int cy = cy0; cy <= cy1; cy++) {
+                long key = key(cx, cy);
+                int[] bag = cells.get(key);
+                if (bag == null) continue;
+                for (int k = 1; k <= bag[0]; k++) {
+                    if (bag[k] == id) {
+                        bag[k] = bag[bag[0]--];
+                        break;
+                    }
+                }
+                if (bag[0] == 0) cells.remove(key);
+            }
+        }
+        present[id] = false;
+        itemCount--;
+    }
+
+    /**
+     * Visits every item whose box overlaps the query box (each at most once)
+     */
+    public void query(double minX, double minY, double maxX, double maxY, Visitor visitor) {
+        int s = nextStamp();
+        int cx0 = cell(minX), cx1 = cell(maxX), cy0 = cell(minY), cy1 = cell(maxY);
+        for (int cx = cx0; cx <= cx1; cx++) {
+            for (int cy = cy0; cy <= cy1; cy++) {
+                int[] bag = cells.get(key(cx, cy));
+                if (bag == null) continue;
+                for (int k = 1; k <= bag[0]; k++) {
+                    int id = bag[k];
+                    if (stamp[id] == s) continue;
+                    stamp[id] = s;
+                    if (boxes[4 * id] <= maxX && boxes[4 * id + 2] >= minX
+                            && boxes[4 * id + 1] <= maxY && boxes[4 * id + 3] >= minY) {
+                        visitor.visit(id);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the id closest to (x, y) within maxDist according to fn, or -1.
+     * Scans rings of cells outward and stops once no unseen cell can be closer.
+     */
+    public int nearest(double x, double y, double maxDist, DistanceFn fn) {
+        if (itemCount == 0) return -1;
+        int s = nextStamp();
+        int cx = cell(x), cy = cell(y);
+        int maxRing = (int) Math.ceil(maxDist / cellSize) + 1;
+        double bestSq = maxDist * maxDist;
+        int best = -1;
+        for (int r = 0; r <= maxRing; r++) {
+            for (int ix = cx - r; ix <= cx + r; ix++) {
+                boolean edgeColumn = ix == cx - r || ix == cx + r;
+                for (int iy = cy - r; iy <= cy + r; iy += edgeColumn ? 1 : Math.max(1, 2 * r)) {
+                    int[] bag = cells.get(key(ix, iy));
+                    if (bag == null) continue;
+                    for (int k = 1; k <= bag[0]; k++) {
+                        int id = bag[k];
+                        if (stamp[id] == s) continue;
+                        stamp[id] = s;
+                        double d = fn.distanceSq(id, x, y);
+                        if (d <= bestSq) {
+                            bestSq = d;
+                            best = id;
+                        }
+                    }
+                }
+            }
+            // Items not seen yet lie in ring r+1 or beyond, i.e. at least r cells away
+            double reach = r * cellSize;
+            if (best >= 0 && bestSq <= reach * reach) break;
+        }
+        return best;
+    }
+
+    private int nextStamp() {
+        if (++queryStamp == Integer.MAX_VALUE) {
+            Arrays.fill(stamp, 0);
+            queryStamp = 1;
+        }
+        return queryStamp;
+    }
+
+    private void ensureCapacity(int n) {
+        if (n <= present.length) return;
+        int cap = Math.max(n, present.length * 2);
+        boxes = Arrays.copyOf(boxes, cap * 4);
+        present = Arrays.copyOf(present, cap);
+        stamp = Arrays.copyOf(stamp, cap);
+    }
+
+    private int cell(double v) {
+        return (int) Math.floor(v / cellSize);
+    }
+
+    private static long key(int cx, int cy) {
+        return ((long) cx << 32) ^ (cy & 0xffffffffL);
+    }
+}
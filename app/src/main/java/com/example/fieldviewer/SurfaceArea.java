@@ -0,0 +1,97 @@
+package com.example.fieldviewer;
+
+import java.util.Arrays;
+
+/**
+ * Slope-aware (3D) surface area of rings whose vertices carry a height.
+ * Coordinates follow RingMath (x, y in the ground plane) with a separate height per vertex,
+ * so sloped fields and embankments report their real surface next to the planimetric area.
+ */
+public final class SurfaceArea {
+
+    private SurfaceArea() {}
+
+    /**
+     * Surface of triangulated rings; heights[v] belongs to vertex v of t.coords
+     */
+    public static double of(AreaEngine.Triangulation t, double[] heights) {
+        double sum = 0.0;
+        int[] tri = t.triangles;
+        double[] c = t.coords;
+        for (int k = 0; k < tri.length; k += 3) {
+            int a = tri[k], b = tri[k + 1], d = tri[k + 2];
+            sum += triangleArea3D(c[2 * a], c[2 * a + 1], heights[a],
+                    c[2 * b], c[2 * b + 1], heights[b],
+                    c[2 * d], c[2 * d + 1], heights[d]);
+        }
+        return sum;
+    }
+
+    static double triangleArea3D(double ax, double ay, double ah, double bx, double by, double bh,
+                                 double cx, double cy, double ch) {
+        double ux = bx - ax, uy = by - ay, uh = bh - ah;
+        double vx = cx - ax, vy = cy - ay, vh = ch - ah;
+        double nx = uy * vh - uh * vy;
+        double ny = uh * vx - ux * vh;
+        double nh = ux * vy - uy * vx;
+        return 0.5 * Math.sqrt(nx * nx + ny * ny + nh * nh);
+    }
+
+    /**
+     * Live estimate for a ring that grows and shrinks at its end (AR placement, undo/redo).
+     * Uses a fan from the first vertex: each new vertex adds one triangle whose 3D area is
+     * signed by its ground-plane orientation, so overlapping fan triangles of concave rings
+     * cancel as in the Shoelace sum. Prefix sums make add and removeLast O(1).
+     * The final figure should come from a proper triangulation (of()).
+     */
+    public static final class Accumulator {
+        private double[] x = new double[16], y = new double[16], h = new double[16];
+        private double[] planarPrefix = new double[16];   // Signed planar area of fan triangles up to vertex i
+        private double[] surfacePrefix = new double[16];  // Signed 3D area of fan triangles up to vertex i
+        private int n = 0;
+
+        public void add(double px, double py, double ph) {
+            if (n == x.length) {
+                int cap = n * 2;
+                x = Arrays.copyOf(x, cap);
+                y = Arrays.copyOf(y, cap);
+                h = Arrays.copyOf(h, cap);
+                planarPrefix = Arrays.copyOf(planarPrefix, cap);
+                surfacePrefix = Arrays.copyOf(surfacePrefix, cap);
+            }
+            x[n] = px;
+            y[n] = py;
+            h[n] = ph;
+            double planar = 0.0, surface = 0.0;
+            if (n >= 2) {
+                int p = n - 1;
+                double cross = (x[p] - x[0]) * (py - y[0]) - (px - x[0]) * (y[p] - y[0]);
+                planar = cross * 0.5;
+                surface = Math.signum(cross) * triangleArea3D(x[0], y[0], h[0], x[p], y[p], h[p], px, py, ph);
+            }
+            planarPrefix[n] = (n > 0 ? planarPrefix[n - 1] : 0.0) + planar;
+            surfacePrefix[n] = (n > 0 ? surfacePrefix[n - 1] : 0.0) + surface;
+            n++;
+        }
+
+        public void removeLast() {
+            if (n > 0) n--;
+        }
+
+        public void clear() {
+            n = 0;
+        }
+
+        public int size() {
+            return n;
+        }
+
+        public double planarArea() {
+            return n < 3 ? 0.0 : Math.abs(planarPrefix[n - 1]);
+        }
+
+        public double surfaceArea() {
+            return n < 3 ? 0.0 : Math.abs(surfacePrefix[n - 1]);
+        }
+    }
+}
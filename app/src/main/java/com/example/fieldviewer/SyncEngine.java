@@ -0,0 +1,448 @@
+package com.example.fieldviewer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Uploads saved measurement files to a sync server in batches.
+ *
+ * Saves only append the file name to an outbox; a sync run takes the outbox plus every JSON file
+ * whose size or modification time changed since it was last acknowledged (delta sync), hashes
+ * them, and skips files whose SHA-256 the server already acknowledged. The server is asked which
+ * of the remaining hashes it lacks (content dedup across devices and retries), and the rest go
+ * up in gzip-compressed batches. State is persisted after every acknowledged batch, so a run cut
+ * short resumes where it stopped; failed requests are retried with exponential backoff and what
+ * is left goes back to the outbox.
+ *
+ * Server contract (plain HTTP, every request carries X-Device-Id):
+ * POST {base}/measurements/missing  text/plain, one SHA-256 (hex) per line
+ *      -> 200 text/plain, the hashes the server does not have yet
+ * POST {base}/measurements/batch    application/x-ndjson, Content-Encoding: gzip, one
+ *      {"name", "sha256", "body"} object per line (body is the measurement JSON as a string),
+ *      Idempotency-Key: SHA-256 of the uncompressed batch -> 2xx once every line is stored
+ *
+ * State lives in measurements/.sync/ (outbox.txt, state.bin). Not thread-safe; one run at a time.
+ */
+public final class SyncEngine {
+
+    static final String SYNC_DIR = ".sync";
+    static final String OUTBOX_FILE = "outbox.txt";
+    static final String STATE_FILE = "state.bin";
+    private static final int MAGIC = 0x46565359;  // "FVSY"
+    private static final int VERSION = 1;
+    static final int MAX_BATCH_FILES = 50;
+    static final int MAX_BATCH_BYTES = 512 * 1024;  // Uncompressed JSON per request
+    static final int MAX_ATTEMPTS = 4;
+    private static final int TIMEOUT_MS = 20_000;
+
+    // Saves (UI thread) append to the outbox while a run (job thread) takes it
+    private static final Object OUTBOX_LOCK = new Object();
+
+    /**
+     * Outcome of one run
+     */
+    public static final class Result {
+        public int uploaded;      // Sent in a batch and acknowledged
+        public int deduplicated;  // Server already had the content
+        public int unchanged;     // Content hash matched the last acknowledged one
+        public int pending;       // Back in the outbox after a failure
+        public IOException error;
+
+        public boolean needsRetry() {
+            return pending > 0;
+        }
+    }
+
+    private static final class Synced {
+        long size, modified;
+        String sha256;
+    }
+
+    private static final class Item {
+        final String name;
+        final String sha256;
+
+        Item(String name, String sha256) {
+            this.name = name;
+            this.sha256 = sha256;
+        }
+    }
+
+    /**
+     * Server answered with a status code; 4xx other than 429 will not get better by retrying
+     */
+    static final class HttpStatusException extends IOException {
+        final int code;
+
+        HttpStatusException(int code) {
+            super("Sync server answered " + code);
+            this.code = code;
+        }
+
+        boolean retryable() {
+            return code >= 500 || code == 429;
+        }
+    }
+
+    private final File dir;
+    private final String baseUrl;
+    private final long backoffBaseMs;
+    private String deviceId;
+    private final Map<String, Synced> synced = new HashMap<>();
+
+    /**
+     * @param backoffBaseMs wait before the first retry; doubles per attempt, with jitter
+     */
+    public SyncEngine(File measurementsDir, String baseUrl, long backoffBaseMs) {
+        this.dir = measurementsDir;
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.backoffBaseMs = backoffBaseMs;
+    }
+
+    /**
+     * Queues a saved file for the next run (one appended line; no hashing or network here)
+     */
+    public static void enqueue(File measurementsDir, String fileName) throws IOException {
+        File syncDir = new File(measurementsDir, SYNC_DIR);
+        if (!syncDir.exists()) syncDir.mkdirs();
+        synchronized (OUTBOX_LOCK) {
+            try (FileWriter w = new FileWriter(new File(syncDir, OUTBOX_FILE), true)) {
+                w.write(fileName);
+                w.write('\n');
+            }
+        }
+    }
+
+    /**
+     * File names waiting in the outbox (duplicates removed)
+     */
+    public static Set<String> outbox(File measurementsDir) throws IOException {
+        Set<String> names = new LinkedHashSet<>();
+        File f = new File(new File(measurementsDir, SYNC_DIR), OUTBOX_FILE);
+        synchronized (OUTBOX_LOCK) {
+            if (!f.exists()) return names;
+            try (BufferedReader r = new BufferedReader(new FileReader(f))) {
+                String line;
+                while ((line = r.readLine()) != null) {
+                    if (!line.isEmpty()) names.add(line);
+                }
+            }
+        }
+        return names;
+    }
+
+    private static Set<String> takeOutbox(File measurementsDir) throws IOException {
+        synchronized (OUTBOX_LOCK) {
+            Set<String> names = outbox(measurementsDir);
+            new File(new File(measurementsDir, SYNC_DIR), OUTBOX_FILE).delete();
+            return names;
+        }
+    }
+
+    public Result sync() {
+        Result result = new Result();
+        Set<String> candidates;
+        try {
+            loadState();
+            candidates = takeOutbox(dir);
+        } catch (IOException e) {
+            result.error = e;
+            return result;
+        }
+        File[] files = dir.listFiles((d, name) -> name.endsWith(".json"));
+        if (files != null) {
+            for (File f : files) {
+                Synced s = synced.get(f.getName());
+                if (s == null || s.size != f.length() || s.modified != f.lastModified()) candidates.add(f.getName());
+            }
+        }
+
+        // Hash what may have changed; unchanged content only refreshes the stat
+        List<Item> changed = new ArrayList<>();
+        for (String name : candidates) {
+            File f = new File(dir, name);
+            if (!f.isFile()) continue;  // Deleted since it was queued
+            try {
+                String hash = sha256Hex(readFile(f));
+                Synced s = synced.get(name);
+                if (s != null && hash.equals(s.sha256)) {
+                    acknowledge(name, hash);
+                    result.unchanged++;
+                } else {
+                    changed.add(new Item(name, hash));
+                }
+            } catch (IOException e) {
+                // Unreadable right now; try again next run
+                requeue(name, result, e);
+            }
+        }
+
+        try {
+            if (!changed.isEmpty()) {
+                Set<String> missing = missingOnServer(changed);
+                List<Item> upload = new ArrayList<>();
+                for (Item item : changed) {
+                    if (missing.contains(item.sha256)) {
+                        upload.add(item);
+                    } else {
+                        acknowledge(item.name, item.sha256);
+                        result.deduplicated++;
+                    }
+                }
+                saveState();
+                uploadBatches(upload, result);
+            }
+            saveState();
+        } catch (IOException e) {
+            result.error = e;
+            for (Item item : changed) {
+                if (!isAcknowledged(item)) requeue(item.name, result, e);
+            }
+        }
+        return result;
+    }
+
+    private void uploadBatches(List<Item> upload, Result result) throws IOException {
+        int i = 0;
+        while (i < upload.size()) {
+            StringBuilder ndjson = new StringBuilder();
+            List<Item> batch = new ArrayList<>();
+            while (i < upload.size() && batch.size() < MAX_BATCH_FILES
+                    && (batch.isEmpty() || ndjson.length() < MAX_BATCH_BYTES)) {
+                Item item = upload.get(i++);
+                String body;
+                try {
+                    body = new String(readFile(new File(dir, item.name)), StandardCharsets.UTF_8);
+                } catch (IOException e) {
+                    continue;  // Deleted or unreadable since it was hashed; the next run sees it again
+                }
+                // Sent content must match the hash it is stored under
+                Item sent = new Item(item.name, sha256Hex(body.getBytes(StandardCharsets.UTF_8)));
+                ndjson.append("{\"name\":");
+                appendJsonString(ndjson, sent.name);
+                ndjson.append(",\"sha256\":\"").append(sent.sha256).append("\",\"body\":");
+                appendJsonString(ndjson, body);
+                ndjson.append("}\n");
+                batch.add(sent);
+            }
+            if (batch.isEmpty()) continue;
+            byte[] raw = ndjson.toString().getBytes(StandardCharsets.UTF_8);
+            ByteArrayOutputStream zipped = new ByteArrayOutputStream(raw.length / 4 + 64);
+            try (GZIPOutputStream gz = new GZIPOutputStream(zipped)) {
+                gz.write(raw);
+            }
+            post("/measurements/batch", "application/x-ndjson", zipped.toByteArray(), true, sha256Hex(raw));
+            for (Item item : batch) acknowledge(item.name, item.sha256);
+            result.uploaded += batch.size();
+            saveState();  // Resume after this batch if the run dies later
+        }
+    }
+
+    private Set<String> missingOnServer(List<Item> items) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (Item item : items) sb.append(item.sha256).append('\n');
+        byte[] response = post("/measurements/missing", "text/plain", sb.toString().getBytes(StandardCharsets.UTF_8), false, null);
+        Set<String> missing = new HashSet<>();
+        for (String line : new String(response, StandardCharsets.UTF_8).split("\n")) {
+            String hash = line.trim();
+            if (!hash.isEmpty()) missing.add(hash);
+        }
+        return missing;
+    }
+
+    private byte[] post(String path, String contentType, byte[] body, boolean gzip, String idempotencyKey) throws IOException {
+        IOException last = null;
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            if (attempt > 0) {
+                long cap = backoffBaseMs << (attempt - 1);
+                try {
+                    Thread.sleep(cap / 2 + ThreadLocalRandom.current().nextLong(cap / 2 + 1));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Sync interrupted", e);
+                }
+            }
+            try {
+                return postOnce(path, contentType, body, gzip, idempotencyKey);
+            } catch (HttpStatusException e) {
+                if (!e.retryable()) throw e;
+                last = e;
+            } catch (IOException e) {
+                last = e;  // Connection dropped, timeout, DNS: worth another try
+            }
+        }
+        throw last;
+    }
+
+    private byte[] postOnce(String path, String contentType, byte[] body, boolean gzip, String idempotencyKey) throws IOException {
+        HttpURLConnection conn = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+        conn.setConnectTimeout(TIMEOUT_MS);
+        conn.setReadTimeout(TIMEOUT_MS);
+        conn.setRequestMethod("POST");
+        conn.setDoOutput(true);
+        conn.setFixedLengthStreamingMode(body.length);
+        conn.setRequestProperty("Content-Type", contentType);
+        conn.setRequestProperty("User-Agent", "FieldViewer");
+        conn.setRequestProperty("X-Device-Id", deviceId);
+        if (gzip) conn.setRequestProperty("Content-Encoding", "gzip");
+        if (idempotencyKey != null) conn.setRequestProperty("Idempotency-Key", idempotencyKey);
+        try {
+            try (OutputStream out = conn.getOutputStream()) {
+                out.write(body);
+            }
+            int code = conn.getResponseCode();
+            if (code < 200 || code >= 300) throw new HttpStatusException(code);
+            try (InputStream in = conn.getInputStream()) {
+                return readAll(in);
+            }
+        } finally {
+            conn.disconnect();
+        }
+    }
+
+    private void acknowledge(String name, String sha256) {
+        File f = new File(dir, name);
+        Synced s = new Synced();
+        s.size = f.length();
+        s.modified = f.lastModified();
+        s.sha256 = sha256;
+        synced.put(name, s);
+    }
+
+    private boolean isAcknowledged(Item item) {
+        Synced s = synced.get(item.name);
+        return s != null && item.sha256.equals(s.sha256);
+    }
+
+    private void requeue(String name, Result result, IOException e) {
+        try {
+            enqueue(dir, name);
+        } catch (IOException ignored) {
+            // The stat check finds it again next run
+        }
+        result.pending++;
+        if (result.error == null) result.error = e;
+    }
+
+    // ---- Persistence ----
+
+    private void loadState() throws IOException {
+        synced.clear();
+        deviceId = null;
+        File f = new File(new File(dir, SYNC_DIR), STATE_FILE);
+        if (f.exists()) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(f)))) {
+                if (in.readInt() == MAGIC && in.readInt() == VERSION) {
+                    deviceId = in.readUTF();
+                    int n = in.readInt();
+                    for (int i = 0; i < n; i++) {
+                        String name = in.readUTF();
+                        Synced s = new Synced();
+                        s.size = in.readLong();
+                        s.modified = in.readLong();
+                        s.sha256 = in.readUTF();
+                        synced.put(name, s);
+                    }
+                }
+            } catch (IOException e) {
+                // Damaged state: everything is re-hashed and the server dedups what it already has
+                synced.clear();
+            }
+        }
+        if (deviceId == null) deviceId = UUID.randomUUID().toString();
+    }
+
+    private void saveState() throws IOException {
+        File syncDir = new File(dir, SYNC_DIR);
+        if (!syncDir.exists()) syncDir.mkdirs();
+        File tmp = new File(syncDir, STATE_FILE + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(deviceId);
+            out.writeInt(synced.size());
+            for (Map.Entry<String, Synced> e : synced.entrySet()) {
+                out.writeUTF(e.getKey());
+                out.writeLong(e.getValue().size);
+                out.writeLong(e.getValue().modified);
+                out.writeUTF(e.getValue().sha256);
+            }
+        }
+        if (!tmp.renameTo(new File(syncDir, STATE_FILE))) throw new IOException("Unable to replace sync state");
+    }
+
+    // ---- Helpers ----
+
+    private static byte[] readFile(File f) throws IOException {
+        try (InputStream in = new FileInputStream(f)) {
+            return readAll(in);
+        }
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(8192);
+        byte[] buf = new byte[8192];
+        int n;
+        while ((n = in.read(buf)) > 0) out.write(buf, 0, n);
+        return out.toByteArray();
+    }
+
+    static String sha256Hex(byte[] data) {
+        try {
+            byte[] d = MessageDigest.getInstance("SHA-256").digest(data);
+            StringBuilder sb = new StringBuilder(64);
+            for (byte b : d) sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);  // Every Java/Android runtime ships SHA-256
+        }
+    }
+
+    private static void appendJsonString(StringBuilder sb, String s) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        sb.append('"');
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.fieldviewer;
+
+import android.app.job.JobInfo;
+import android.app.job.JobParameters;
+import android.app.job.JobScheduler;
+import android.app.job.JobService;
+import android.content.ComponentName;
+import android.content.Context;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Runs SyncEngine when the system lets it (network up). A save only queues its file and makes
+ * sure one job is pending, so every save within BATCH_DELAY_MS rides on the same run: one
+ * radio wake-up per batch instead of per save. Failed runs are rescheduled by JobScheduler
+ * with exponential backoff. Disabled while R.string.sync_url is empty.
+ */
+public class SyncJobService extends JobService {
+
+    private static final String TAG = "SyncJobService";
+    private static final int JOB_ID = 4401;
+    static final long BATCH_DELAY_MS = 15 * 60 * 1000L;
+    private static final long RETRY_BACKOFF_MS = 60 * 1000L;
+
+    private Thread worker;
+
+    static File measurementsDir(Context context) {
+        return new File(context.getExternalFilesDir(null), "measurements");
+    }
+
+    /**
+     * Queues a saved measurement for upload and schedules the batch, if sync is configured
+     */
+    static void enqueue(Context context, File jsonFile) {
+        if (context.getString(R.string.sync_url).isEmpty()) return;
+        try {
+            SyncEngine.enqueue(jsonFile.getParentFile(), jsonFile.getName());
+        } catch (IOException e) {
+            Log.w(TAG, "Unable to queue " + jsonFile.getName() + " for sync", e);  // The next run's delta scan finds it
+        }
+        schedule(context);
+    }
+
+    static void schedule(Context context) {
+        JobScheduler scheduler = context.getSystemService(JobScheduler.class);
+        if (scheduler == null || scheduler.getPendingJob(JOB_ID) != null) return;  // Joins the pending batch
+        scheduler.schedule(new JobInfo.Builder(JOB_ID, new ComponentName(context, SyncJobService.class))
+                .setRequiredNetworkType(JobInfo.NETWORK_TYPE_ANY)
+                .setMinimumLatency(BATCH_DELAY_MS)
+                .setBackoffCriteria(RETRY_BACKOFF_MS, JobInfo.BACKOFF_POLICY_EXPONENTIAL)
+                .setPersisted(true)
+                .build());
+    }
+
+    @Override
+    public boolean onStartJob(JobParameters params) {
+        final String url = getString(R.string.sync_url);
+        if (url.isEmpty()) return false;
+        final File dir = measurementsDir(this);
+        worker = new Thread(() -> {
+            SyncEngine.Result r = new SyncEngine(dir, url, 2000).sync();
+            Log.i(TAG, "Sync: " + r.uploaded + " uploaded, " + r.deduplicated + " already on server, "
+                    + r.unchanged + " unchanged, " + r.pending + " pending", r.error);
+            jobFinished(params, r.needsRetry());
+        }, "measurement-sync");
+        worker.start();
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        // Network lost or the system needs the resources: stop, keep the outbox, run again later
+        if (worker != null) worker.interrupt();
+        return true;
+    }
+}
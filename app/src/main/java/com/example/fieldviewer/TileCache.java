@@ -0,0 +1,209 @@
+package com.example.fieldviewer;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Disk LRU cache of map tiles packed into a single file (one file handle instead of one
+ * file per tile, like an MBTiles database but without SQLite).
+ *
+ * File layout: MAGIC, VERSION, then records (long TileMath key, int length, bytes). Records
+ * are only appended; a re-put or evicted tile leaves dead bytes that are dropped when the file
+ * is compacted. The in-memory index is rebuilt by scanning the file on open, and a truncated
+ * last record (crash while writing) is cut off.
+ *
+ * LRU order lives in memory; compaction writes tiles oldest-use first so the order survives
+ * restarts approximately. All methods are synchronized (map tile threads and the prefetcher).
+ */
+public final class TileCache implements Closeable {
+
+    static final int MAGIC = 0x46565443;  // "FVTC"
+    static final short VERSION = 1;
+    private static final int HEADER_BYTES = 6;
+    private static final int RECORD_OVERHEAD = 12;
+    private static final long MIN_COMPACT_DEAD_BYTES = 256 * 1024;
+
+    private static final class Slot {
+        final long offset;  // Start of the tile bytes
+        final int length;
+
+        Slot(long offset, int length) {
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    private final File file;
+    private final long maxBytes;
+    private RandomAccessFile raf;
+    private final LinkedHashMap<Long, Slot> index = new LinkedHashMap<>(256, 0.75f, true);
+    private long liveBytes = 0L;
+    private long deadBytes = 0L;
+    private long compactAfterDeadBytes = MIN_COMPACT_DEAD_BYTES;  // Raised while compaction keeps failing
+    private long hits = 0L, misses = 0L, evictions = 0L;
+
+    /**
+     * @param maxBytes budget for tile bytes; least recently used tiles are evicted beyond it
+     */
+    public TileCache(File file, long maxBytes) throws IOException {
+        this.file = file;
+        this.maxBytes = maxBytes;
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists()) parent.mkdirs();
+        open();
+    }
+
+    private void open() throws IOException {
+        raf = new RandomAccessFile(file, "rw");
+        index.clear();
+        liveBytes = 0L;
+        deadBytes = 0L;
+        compactAfterDeadBytes = MIN_COMPACT_DEAD_BYTES;
+        if (raf.length() < HEADER_BYTES || raf.readInt() != MAGIC || raf.readShort() != VERSION) {
+            raf.setLength(0);
+            raf.writeInt(MAGIC);
+            raf.writeShort(VERSION);
+            return;
+        }
+        long pos = HEADER_BYTES, end = raf.length();
+        while (pos + RECORD_OVERHEAD <= end) {
+            raf.seek(pos);
+            long key = raf.readLong();
+            int length = raf.readInt();
+            if (length < 0 || pos + RECORD_OVERHEAD + length > end) break;
+            Slot old = index.put(key, new Slot(pos + RECORD_OVERHEAD, length));
+            if (old != null) {
+                liveBytes -= old.length;
+                deadBytes += old.length + RECORD_OVERHEAD;
+            }
+            liveBytes += length;
+            pos += RECORD_OVERHEAD + length;
+        }
+        if (pos < end) raf.setLength(pos);
+        evictOverBudget();
+    }
+
+    /**
+     * Tile bytes, or null on a miss
+     */
+    public synchronized byte[] get(long key) throws IOException {
+        Slot s = index.get(key);
+        if (s == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        byte[] data = new byte[s.length];
+        raf.seek(s.offset);
+        raf.readFully(data);
+        return data;
+    }
+
+    /**
+     * Presence check that does not touch LRU order or hit/miss counters (prefetch planning)
+     */
+    public synchronized boolean contains(long key) {
+        return index.containsKey(key);
+    }
+
+    public synchronized void put(long key, byte[] data) throws IOException {
+        if (data.length > maxBytes) return;
+        long pos = raf.length();
+        raf.seek(pos);
+        raf.writeLong(key);
+        raf.writeInt(data.length);
+        raf.write(data);
+        Slot old = index.put(key, new Slot(pos + RECORD_OVERHEAD, data.length));
+        if (old != null) {
+            liveBytes -= old.length;
+            deadBytes += old.length + RECORD_OVERHEAD;
+        }
+        liveBytes += data.length;
+        evictOverBudget();
+    }
+
+    private void evictOverBudget() throws IOException {
+        Iterator<Map.Entry<Long, Slot>> it = index.entrySet().iterator();
+        while (liveBytes > maxBytes && it.hasNext()) {
+            Slot s = it.next().getValue();
+            it.remove();
+            liveBytes -= s.length;
+            deadBytes += s.length + RECORD_OVERHEAD;
+            evictions++;
+        }
+        if (deadBytes > compactAfterDeadBytes && deadBytes > liveBytes) compact();
+    }
+
+    /**
+     * Rewrites live tiles (least recently used first) to a fresh file and swaps it in
+     */
+    synchronized void compact() throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        LinkedHashMap<Long, Slot> moved = new LinkedHashMap<>(Math.max(16, index.size() * 2));
+        try (RandomAccessFile out = new RandomAccessFile(tmp, "rw")) {
+            out.setLength(0);
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            byte[] buf = new byte[0];
+            for (Map.Entry<Long, Slot> e : index.entrySet()) {
+                Slot s = e.getValue();
+                if (buf.length < s.length) buf = new byte[s.length];
+                raf.seek(s.offset);
+                raf.readFully(buf, 0, s.length);
+                long pos = out.getFilePointer();
+                out.writeLong(e.getKey());
+                out.writeInt(s.length);
+                out.write(buf, 0, s.length);
+                moved.put(e.getKey(), new Slot(pos + RECORD_OVERHEAD, s.length));
+            }
+            out.getFD().sync();
+        }
+        raf.close();
+        if (!tmp.renameTo(file)) {
+            // Keep serving from the old file; retry once the dead bytes have doubled, not on every put
+            tmp.delete();
+            raf = new RandomAccessFile(file, "rw");
+            compactAfterDeadBytes = 2 * deadBytes;
+            return;
+        }
+        raf = new RandomAccessFile(file, "rw");
+        index.clear();
+        index.putAll(moved);
+        deadBytes = 0L;
+        compactAfterDeadBytes = MIN_COMPACT_DEAD_BYTES;
+    }
+
+    public synchronized int size() {
+        return index.size();
+    }
+
+    public synchronized long liveBytes() {
+        return liveBytes;
+    }
+
+    public synchronized long fileBytes() throws IOException {
+        return raf.length();
+    }
+
+    public synchronized long hits() {
+        return hits;
+    }
+
+    public synchronized long misses() {
+        return misses;
+    }
+
+    public synchronized long evictions() {
+        return evictions;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        raf.close();
+    }
+}
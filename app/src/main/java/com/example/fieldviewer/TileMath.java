@@ -0,0 +1,61 @@
+package com.example.fieldviewer;
+
+/**
+ * Web Mercator (XYZ/"slippy map") tile arithmetic as used by Google Maps TileProvider.
+ * A tile is packed into one long key: zoom in bits 48+, x in bits 24-47, y in bits 0-23.
+ */
+public final class TileMath {
+
+    private TileMath() {}
+
+    public static long key(int z, int x, int y) {
+        return ((long) z << 48) | ((long) x << 24) | y;
+    }
+
+    public static int zoom(long key) {
+        return (int) (key >>> 48);
+    }
+
+    public static int x(long key) {
+        return (int) ((key >>> 24) & 0xFFFFFF);
+    }
+
+    public static int y(long key) {
+        return (int) (key & 0xFFFFFF);
+    }
+
+    public static int tileX(double lng, int z) {
+        int n = 1 << z;
+        int x = (int) Math.floor((lng + 180.0) / 360.0 * n);
+        return Math.max(0, Math.min(n - 1, x));
+    }
+
+    public static int tileY(double lat, int z) {
+        int n = 1 << z;
+        double r = Math.toRadians(Math.max(-85.05112878, Math.min(85.05112878, lat)));
+        int y = (int) Math.floor((1.0 - Math.log(Math.tan(r) + 1.0 / Math.cos(r)) / Math.PI) / 2.0 * n);
+        return Math.max(0, Math.min(n - 1, y));
+    }
+
+    /**
+     * Keys of every tile within radiusM of (lat, lng) from minZoom to maxZoom, coarse zooms
+     * first so a partial prefetch still covers the whole area at low detail
+     */
+    public static long[] pyramid(double lat, double lng, double radiusM, int minZoom, int maxZoom) {
+        double dLat = radiusM / 111320.0;
+        double dLng = radiusM / (111320.0 * Math.max(1e-6, Math.cos(Math.toRadians(lat))));
+        long[] keys = new long[64];
+        int count = 0;
+        for (int z = minZoom; z <= maxZoom; z++) {
+            int x0 = tileX(lng - dLng, z), x1 = tileX(lng + dLng, z);
+            int y0 = tileY(lat + dLat, z), y1 = tileY(lat - dLat, z);  // Tile y grows southwards
+            for (int x = x0; x <= x1; x++) {
+                for (int y = y0; y <= y1; y++) {
+                    if (count == keys.length) keys = java.util.Arrays.copyOf(keys, count * 2);
+                    keys[count++] = key(z, x, y);
+                }
+            }
+        }
+        return java.util.Arrays.copyOf(keys, count);
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.fieldviewer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+/**
+ * XYZ tile server addressed by a URL template with {z}, {x} and {y} placeholders
+ * ({-y} for TMS servers that count rows from the south), e.g.
+ * https://tiles.example.com/imagery/{z}/{y}/{x}.jpg
+ */
+public final class TileSource {
+
+    private static final int TIMEOUT_MS = 10_000;
+
+    private final String template;
+
+    public TileSource(String template) {
+        if (template == null || !template.contains("{z}") || !template.contains("{x}")
+                || !(template.contains("{y}") || template.contains("{-y}"))) {
+            throw new IllegalArgumentException("Tile URL template needs {z}, {x} and {y}: " + template);
+        }
+        this.template = template;
+    }
+
+    String url(int z, int x, int y) {
+        return template.replace("{z}", Integer.toString(z))
+                .replace("{x}", Integer.toString(x))
+                .replace("{-y}", Integer.toString((1 << z) - 1 - y))
+                .replace("{y}", Integer.toString(y));
+    }
+
+    /**
+     * Downloads one tile; null if the server has no tile there (404/204)
+     */
+    public byte[] fetch(int z, int x, int y) throws IOException {
+        HttpURLConnection conn = (HttpURLConnection) new URL(url(z, x, y)).openConnection();
+        conn.setConnectTimeout(TIMEOUT_MS);
+        conn.setReadTimeout(TIMEOUT_MS);
+        conn.setRequestProperty("User-Agent", "FieldViewer");
+        try {
+            int code = conn.getResponseCode();
+            if (code == HttpURLConnection.HTTP_NOT_FOUND || code == HttpURLConnection.HTTP_NO_CONTENT) return null;
+            if (code != HttpURLConnection.HTTP_OK) throw new IOException("Tile server answered " + code);
+            try (InputStream in = conn.getInputStream()) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream(32 * 1024);
+                byte[] buf = new byte[8192];
+                int n;
+                while ((n = in.read(buf)) > 0) out.write(buf, 0, n);
+                return out.toByteArray();
+            }
+        } finally {
+            conn.disconnect();
+        }
+    }
+}
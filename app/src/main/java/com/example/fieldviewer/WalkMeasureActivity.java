@@ -0,0 +1,149 @@
+package com.example.fieldviewer;
+
+import android.Manifest;
+import android.content.Intent;
+import android.content.pm.PackageManager;
+import android.os.Bundle;
+import android.view.WindowManager;
+import android.widget.Button;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.core.content.ContextCompat;
+
+import java.util.ArrayList;
+
+/**
+ * GPS-only measurement for fields too large for AR tracking: the operator walks the boundary
+ * and the fused location fixes are turned into a ring by BoundaryTracker.
+ * Features:
+ * - Fixes every second, delivered in batches (up to WalkSession.BATCH_DELAY_MS) so the CPU can sleep between them
+ * - Filtering and simplification on a location thread, in constant time and memory per fix
+ * - The walk lives in a WalkSession (ViewModel), so recreating the activity does not lose it
+ * - The finished ring goes to ResultActivity like an AR polygon (map, edits, save, export)
+ */
+public class WalkMeasureActivity extends AppCompatActivity {
+
+    private static final String WALKING_STATUS = "Walking: follow the boundary back to where you started, then tap Finish";
+
+    private TextView tvStatus, tvStats;
+    private Button btnStart, btnFinish;
+    private WalkSession session;
+
+    private final ActivityResultLauncher<String> requestPermissionLauncher =
+            registerForActivityResult(new ActivityResultContracts.RequestPermission(), isGranted -> {
+                if (isGranted) {
+                    startWalk();
+                } else {
+                    Toast.makeText(this, "Location permission required", Toast.LENGTH_LONG).show();
+                }
+            });
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_walk_measure);
+        tvStatus = findViewById(R.id.tvWalkStatus);
+        tvStats = findViewById(R.id.tvWalkStats);
+        btnStart = findViewById(R.id.btnWalkStart);
+        btnFinish = findViewById(R.id.btnWalkFinish);
+
+        session = new androidx.lifecycle.ViewModelProvider(this).get(WalkSession.class);
+        session.stats.observe(this, stats -> {
+            if (stats != null) tvStats.setText(stats);
+        });
+        session.finished.observe(this, finished -> {
+            if (finished != null) onWalkFinished(finished.ring);
+        });
+        if (session.isWalking()) showWalking(session.isFinishing() ? "Finishing…" : WALKING_STATUS);
+
+        btnStart.setOnClickListener(v -> {
+            if (ContextCompat.checkSelfPermission(this, Manifest.permission.ACCESS_FINE_LOCATION) == PackageManager.PERMISSION_GRANTED) {
+                startWalk();
+            } else {
+                requestPermissionLauncher.launch(Manifest.permission.ACCESS_FINE_LOCATION);
+            }
+        });
+        btnFinish.setOnClickListener(v -> finishWalk());
+    }
+
+    /**
+     * Starts a new walk from the current position; any previous one is discarded
+     */
+    private void startWalk() {
+        if (session.isWalking()) return;
+        session.start(this).addOnFailureListener(this, e -> {
+            Toast.makeText(this, "Location updates unavailable: " + e.getMessage(), Toast.LENGTH_LONG).show();
+            stopUpdates();
+        });
+        showWalking(WALKING_STATUS);
+        tvStats.setText("Waiting for GPS…");
+    }
+
+    /**
+     * Walk controls; the walk stops being recorded once the app is in the background, so the
+     * screen stays on
+     */
+    private void showWalking(String status) {
+        getWindow().addFlags(WindowManager.LayoutParams.FLAG_KEEP_SCREEN_ON);
+        tvStatus.setText(status);
+        btnStart.setEnabled(false);
+        btnFinish.setEnabled(!session.isFinishing());
+    }
+
+    /**
+     * Delivers the fixes still held in the batch, then closes the ring and opens the result screen
+     */
+    private void finishWalk() {
+        if (!session.isWalking() || session.isFinishing()) return;
+        session.finish();
+        btnFinish.setEnabled(false);
+        tvStatus.setText("Finishing…");
+    }
+
+    private void onWalkFinished(BoundaryTracker.Ring ring) {
+        session.onFinishedHandled();
+        if (isFinishing() || isDestroyed()) return;
+        if (ring == null) {
+            // Keep walking: the operator may not have closed the loop yet
+            Toast.makeText(this, "Not enough of a boundary yet: walk around the whole field", Toast.LENGTH_LONG).show();
+            tvStatus.setText(WALKING_STATUS);
+            btnFinish.setEnabled(true);
+            return;
+        }
+        stopUpdates();
+        startResult(ring);
+        finish();
+    }
+
+    /**
+     * Same extras as the AR screen; vertices are already meters east/north, so no heading rotation
+     */
+    private void startResult(BoundaryTracker.Ring ring) {
+        ArrayList<double[]> coords = new ArrayList<>();
+        for (int i = 0; i < ring.size(); i++) coords.add(new double[]{ring.xy[2 * i], ring.xy[2 * i + 1]});
+        double area = ring.area();
+        Intent i = new Intent(this, ResultActivity.class);
+        i.putExtra("poly2d", coords);
+        i.putExtra("perimeter", ring.perimeter());
+        i.putExtra("area", area);
+        i.putExtra("areaMode", AreaEngine.Mode.SHOELACE.name());
+        i.putExtra("stremma", area / 1000.0);
+        i.putExtra("headingRad", 0.0);
+        i.putExtra("originLat", Double.valueOf(ring.originLat));
+        i.putExtra("originLng", Double.valueOf(ring.originLng));
+        i.putExtra("originAccuracyM", ring.originAccuracyM);
+        i.putExtra("vertexSigmaM", ring.meanSigmaM());
+        startActivity(i);
+    }
+
+    private void stopUpdates() {
+        session.stop();
+        getWindow().clearFlags(WindowManager.LayoutParams.FLAG_KEEP_SCREEN_ON);
+        btnStart.setEnabled(true);
+        btnFinish.setEnabled(false);
+    }
+}
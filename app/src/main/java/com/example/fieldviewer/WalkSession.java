@@ -0,0 +1,164 @@
+package com.example.fieldviewer;
+
+import android.content.Context;
+import android.location.Location;
+import android.os.Handler;
+import android.os.HandlerThread;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.ViewModel;
+
+import com.google.android.gms.location.FusedLocationProviderClient;
+import com.google.android.gms.location.LocationCallback;
+import com.google.android.gms.location.LocationRequest;
+import com.google.android.gms.location.LocationResult;
+import com.google.android.gms.location.LocationServices;
+import com.google.android.gms.location.Priority;
+import com.google.android.gms.tasks.Task;
+
+import java.util.Locale;
+
+/**
+ * GPS walk of WalkMeasureActivity, held in a ViewModel so it outlives the activity: the location
+ * subscription, its thread and the BoundaryTracker survive recreation (dark mode, multi-window,
+ * locale changes) and end in onCleared(), when the operator leaves the screen.
+ *
+ * Fixes only arrive while the screen is on: there is no foreground location service, so the
+ * fused provider stops delivering in the background. The activity keeps the screen on while
+ * walking.
+ */
+public class WalkSession extends ViewModel {
+
+    static final long FIX_INTERVAL_MS = 1000;
+    static final long BATCH_DELAY_MS = 10_000;  // Up to 10 fixes per wake-up
+
+    /**
+     * Outcome of finish(): the ring, or null when the fixes do not close a boundary yet
+     */
+    static final class Finished {
+        final BoundaryTracker.Ring ring;
+
+        Finished(BoundaryTracker.Ring ring) {
+            this.ring = ring;
+        }
+    }
+
+    // Location callbacks and the tracker live on this thread only
+    private final HandlerThread locationThread = new HandlerThread("walk-gps");
+    private final Handler locationHandler;
+    private BoundaryTracker tracker;
+    private FusedLocationProviderClient client;
+
+    // Main thread
+    private boolean walking = false;
+    private boolean finishing = false;
+
+    final MutableLiveData<String> stats = new MutableLiveData<>();
+    final MutableLiveData<Finished> finished = new MutableLiveData<>();  // Cleared once handled
+
+    private final LocationCallback locationCallback = new LocationCallback() {
+        @Override
+        public void onLocationResult(@NonNull LocationResult result) {
+            if (tracker == null) return;
+            String text;
+            long t0 = PerfTelemetry.begin(PerfTelemetry.WALK_FIXES);
+            try {
+                for (Location l : result.getLocations()) {
+                    // Elapsed realtime, not wall clock: it never jumps while walking
+                    tracker.fix(l.getElapsedRealtimeNanos() / 1_000_000L, l.getLatitude(), l.getLongitude(),
+                            l.hasAccuracy() ? l.getAccuracy() : Double.NaN);
+                }
+                text = formatStats(tracker, result.getLastLocation());
+            } finally {
+                PerfTelemetry.end(PerfTelemetry.WALK_FIXES, t0);
+            }
+            stats.postValue(text);
+        }
+    };
+
+    public WalkSession() {
+        locationThread.start();
+        locationHandler = new Handler(locationThread.getLooper());
+    }
+
+    boolean isWalking() {
+        return walking;
+    }
+
+    boolean isFinishing() {
+        return finishing;
+    }
+
+    /**
+     * Starts a new walk from the current position; any previous one is discarded. The caller
+     * holds the location permission and reports a failed subscription (then call stop()).
+     */
+    @SuppressWarnings("MissingPermission")
+    Task<Void> start(Context context) {
+        if (client == null) client = LocationServices.getFusedLocationProviderClient(context.getApplicationContext());
+        walking = true;
+        finishing = false;
+        finished.setValue(null);
+        stats.setValue(null);
+        locationHandler.post(() -> tracker = new BoundaryTracker());
+        LocationRequest request = new LocationRequest.Builder(Priority.PRIORITY_HIGH_ACCURACY, FIX_INTERVAL_MS)
+                .setMinUpdateIntervalMillis(FIX_INTERVAL_MS)
+                .setMaxUpdateDelayMillis(BATCH_DELAY_MS)
+                .build();
+        return client.requestLocationUpdates(request, locationCallback, locationThread.getLooper());
+    }
+
+    /**
+     * Delivers the fixes still held in the batch, then closes the ring; the outcome arrives in finished
+     */
+    void finish() {
+        if (!walking || finishing) return;
+        finishing = true;
+        client.flushLocations().addOnCompleteListener(task ->
+                // Posted after the flushed batch on the same looper, so the tracker has seen it
+                locationHandler.post(() -> {
+                    Finished result = new Finished(tracker != null ? tracker.finish() : null);
+                    finished.postValue(result);
+                }));
+    }
+
+    /**
+     * Called by the activity once it showed finished: an open boundary keeps the walk going
+     */
+    void onFinishedHandled() {
+        finishing = false;
+        finished.setValue(null);
+    }
+
+    void stop() {
+        if (!walking) return;
+        walking = false;
+        finishing = false;
+        client.removeLocationUpdates(locationCallback);
+    }
+
+    /**
+     * Live walk figures; runs on the location thread
+     */
+    private static String formatStats(BoundaryTracker t, Location last) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.US, "Walked: %.0f m, %d corners%n", t.pathLengthM(), t.vertexCount()));
+        double back = t.distanceToStartM();
+        if (!Double.isNaN(back)) sb.append(String.format(Locale.US, "Back to start: %.0f m%n", back));
+        if (last != null && last.hasAccuracy()) {
+            sb.append(String.format(Locale.US, "GPS: ±%.1f m (filtered ±%.1f m)%n", last.getAccuracy(), t.positionSigmaM()));
+        }
+        if (t.rejectedAccuracyCount() + t.rejectedJumpCount() > 0) {
+            sb.append(String.format(Locale.US, "Dropped fixes: %d imprecise, %d jumps%n",
+                    t.rejectedAccuracyCount(), t.rejectedJumpCount()));
+        }
+        return sb.toString();
+    }
+
+    @Override
+    protected void onCleared() {
+        stop();
+        locationThread.quitSafely();
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.fieldviewer;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for anchor drift tracking and the refresh threshold.
+ */
+public class AnchorDriftMonitorTest {
+
+    @Test
+    public void refresh_firesOnceSummedMovementPassesThreshold() {
+        AnchorDriftMonitor<String> m = new AnchorDriftMonitor<>(0.01);
+        m.track("a", 0, 0, 0);
+        m.track("b", 1, 0, 0);
+        m.update("a", 0.004, 0, 0);
+        m.update("b", 1, 0, 0.004);
+        assertFalse(m.consumeRefresh());
+        m.update("ghost", 5, 5, 5);  // Not ours
+        assertFalse(m.consumeRefresh());
+        m.update("a", 0.007, 0, 0);
+        assertTrue(m.consumeRefresh());
+        assertFalse(m.consumeRefresh());
+    }
+
+    @Test
+    public void snapshot_reportsMaxFinalAndPathInOrder() {
+        AnchorDriftMonitor<String> m = new AnchorDriftMonitor<>(0.01);
+        m.track("a", 0, 0, 0);
+        m.track("b", 2, 0, 0);
+        m.update("a", 0.03, 0, 0.04);  // 5 cm away
+        m.update("a", 0, 0, 0.01);     // Settles back to 1 cm
+        m.untrack("b");
+        double[] s = m.snapshot(Arrays.asList("b", "a"));
+        assertEquals(2 * AnchorDriftMonitor.STATS_STRIDE, s.length);
+        assertEquals(0.0, s[0], 0.0);
+        assertEquals(0.05, s[4], 1e-12);
+        assertEquals(0.01, s[5], 1e-12);
+        assertEquals(0.05 + Math.hypot(0.03, 0.03), s[6], 1e-12);
+        assertEquals(2.0, s[7], 0.0);
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.fieldviewer;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the triangulation area engine.
+ */
+public class AreaEngineTest {
+
+    private static double[] star(int n, double cx, double cy, double r0, double jitter, long seed) {
+        Random rnd = new Random(seed);
+        double[] xy = new double[2 * n];
+        for (int i = 0; i < n; i++) {
+            double t = 2 * Math.PI * i / n;
+            double r = r0 + rnd.nextDouble() * jitter;
+            xy[2 * i] = cx + r * Math.cos(t);
+            xy[2 * i + 1] = cy + r * Math.sin(t);
+        }
+        return xy;
+    }
+
+    @Test
+    public void triangulation_matchesShoelace_onSimpleRings() {
+        for (int seed = 0; seed < 50; seed++) {
+            int n = 3 + seed * 7;
+            double[] ring = star(n, 0, 0, 50, 40, seed);
+            double shoelace = AreaEngine.ringArea(ring, n, AreaEngine.Mode.SHOELACE);
+            double tri = AreaEngine.ringArea(ring, n, AreaEngine.Mode.TRIANGULATION);
+            assertEquals("n=" + n, shoelace, tri, 1e-9 * shoelace);
+        }
+    }
+
+    @Test
+    public void triangulation_subtractsHolesAndReportsTriangles() {
+        List<double[]> rings = new ArrayList<>();
+        rings.add(new double[]{0, 0, 100, 0, 100, 100, 0, 100});
+        rings.add(new double[]{10, 10, 20, 10, 20, 20, 10, 20});
+        rings.add(new double[]{200, 0, 210, 0, 210, 10});
+        boolean[] holes = {false, true, false};
+        AreaEngine.Triangulation t = AreaEngine.triangulate(rings, holes);
+        assertEquals(10000 - 100 + 50, t.area, 1e-9);
+        assertEquals(RingMath.netArea(rings, holes), AreaEngine.netArea(rings, holes, AreaEngine.Mode.TRIANGULATION), 1e-9);
+        assertEquals(t.triangleCount(), t.triangleAreas.length);
+        assertEquals(8, t.ringOffset[2]);
+        // Square with a square hole: 8 vertices -> 8 triangles, plus 1 for the separate field
+        assertEquals(9, t.triangleCount());
+    }
+
+    @Test
+    public void largeRing_triangulatesWithinAFewMilliseconds() {
+        int n = 10000;
+        double[] ring = star(n, 4.0e5, 4.2e6, 300, 30, 9);  // Far from the origin, like projected meters
+        double shoelace = RingMath.area(ring, n);
+        double best = Double.MAX_VALUE;
+        double area = 0;
+        for (int rep = 0; rep < 5; rep++) {
+            long t0 = System.nanoTime();
+            area = AreaEngine.ringArea(ring, n, AreaEngine.Mode.TRIANGULATION);
+            best = Math.min(best, (System.nanoTime() - t0) / 1e6);
+        }
+        assertEquals(shoelace, area, 1e-6 * shoelace);
+        System.out.printf(java.util.Locale.US, "triangulation n=%d: %.2f ms%n", n, best);
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.fieldviewer;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the Monte Carlo area uncertainty.
+ */
+public class AreaUncertaintyTest {
+
+    private static List<double[]> square(double side) {
+        List<double[]> rings = new ArrayList<>();
+        rings.add(new double[]{0, 0, side, 0, side, side, 0, side});
+        return rings;
+    }
+
+    @Test
+    public void vertexNoiseOnly_matchesAnalyticSpread() {
+        // Independent isotropic noise σ per vertex: Var(A) = σ²/4 · Σ |p(i+1) − p(i−1)|² = 2σ²L² for a square
+        double side = 100, sigma = AreaUncertainty.DEFAULT_VERTEX_SIGMA_M;
+        AreaUncertainty.Result r = AreaUncertainty.estimate(square(side), new boolean[]{false},
+                new AreaUncertainty.Sources(null, Double.NaN, Double.NaN), 8000, 42L, () -> false);
+        assertNotNull(r);
+        assertEquals(8000, r.samples);
+        double expectedSd = Math.sqrt(2) * sigma * side;
+        assertEquals(expectedSd, r.sd, 0.05 * expectedSd);
+        assertEquals(side * side, r.mean, 0.5);
+        assertTrue(r.low < side * side && side * side < r.high);
+        // Gaussian 95% interval is about ±1.96 σ
+        assertEquals(1.96 * expectedSd, r.halfWidth(), 0.1 * expectedSd);
+        assertEquals(0.0, r.position95M, 0.1);
+    }
+
+    @Test
+    public void headingAndOrigin_moveShapeWithoutWideningArea() {
+        List<double[]> rings = square(50);
+        // Zero-drift anchors still get the base tracking error; compare with and without the rigid sources
+        AreaUncertainty.Result base = AreaUncertainty.estimate(rings, new boolean[]{false},
+                new AreaUncertainty.Sources(new double[16], Double.NaN, Double.NaN), 4000, 7L, () -> false);
+        AreaUncertainty.Result rigid = AreaUncertainty.estimate(rings, new boolean[]{false},
+                new AreaUncertainty.Sources(new double[16], Math.pow(Math.toRadians(5), 2), 4.0), 4000, 7L, () -> false);
+        assertEquals(base.sd, rigid.sd, 0.1 * base.sd);
+        assertTrue(rigid.position95M > 5 * base.position95M);
+        // 4 m GPS accuracy plus a 5° swing about the corner of a 50 m square
+        assertTrue(rigid.position95M > 4.0 && rigid.position95M < 15.0);
+    }
+
+    @Test
+    public void driftAndHoles_widenInterval_sameSeedSameResult() {
+        List<double[]> rings = square(40);
+        rings.add(new double[]{10, 10, 20, 10, 20, 20, 10, 20});
+        boolean[] holes = {false, true};
+        double[] drift = new double[8 * AnchorDriftMonitor.STATS_STRIDE];
+        for (int i = 0; i < 8; i++) drift[i * AnchorDriftMonitor.STATS_STRIDE] = 0.5;
+        AreaUncertainty.Sources sources = new AreaUncertainty.Sources(drift, Double.NaN, Double.NaN);
+        AreaUncertainty.Result a = AreaUncertainty.estimate(rings, holes, sources, 3000, 1L, () -> false);
+        AreaUncertainty.Result b = AreaUncertainty.estimate(rings, holes, sources, 3000, 1L, () -> false);
+        AreaUncertainty.Result still = AreaUncertainty.estimate(rings, holes,
+                new AreaUncertainty.Sources(null, Double.NaN, Double.NaN), 3000, 1L, () -> false);
+        assertEquals(1500.0, a.mean, 2.0);
+        assertEquals(a.low, b.low, 0.0);
+        assertEquals(a.high, b.high, 0.0);
+        assertTrue(a.halfWidth() > 5 * still.halfWidth());
+
+        assertNull(AreaUncertainty.estimate(rings, holes, sources, 3000, 1L, () -> true));
+    }
+
+    @Test
+    public void typicalAndHugeRings_finishWellUnderASecond() {
+        AreaUncertainty.Sources sources = new AreaUncertainty.Sources(null, 1e-4, 3.0);
+        AreaUncertainty.estimate(circle(200), new boolean[]{false}, sources, AreaUncertainty.DEFAULT_SAMPLES, 3L, () -> false);  // Warm-up
+
+        long t0 = System.nanoTime();
+        AreaUncertainty.Result typical = AreaUncertainty.estimate(circle(200), new boolean[]{false}, sources,
+                AreaUncertainty.DEFAULT_SAMPLES, 3L, () -> false);
+        long typicalMs = (System.nanoTime() - t0) / 1_000_000;
+        assertEquals(AreaUncertainty.DEFAULT_SAMPLES, typical.samples);
+        assertTrue("typical ring took " + typicalMs + " ms", typicalMs < 300);
+
+        // Huge rings get fewer samples so the time stays bounded
+        int n = 20000;
+        t0 = System.nanoTime();
+        AreaUncertainty.Result huge = AreaUncertainty.estimate(circle(n), new boolean[]{false}, sources,
+                AreaUncertainty.DEFAULT_SAMPLES, 3L, () -> false);
+        long hugeMs = (System.nanoTime() - t0) / 1_000_000;
+        assertEquals(AreaUncertainty.MIN_SAMPLES, huge.samples);
+        assertEquals(RingMath.area(circle(n).get(0), n), huge.mean, 1.0);
+        assertTrue("huge ring took " + hugeMs + " ms", hugeMs < 1000);
+    }
+
+    private static List<double[]> circle(int n) {
+        double[] ring = new double[2 * n];
+        for (int i = 0; i < n; i++) {
+            double t = 2 * Math.PI * i / n;
+            ring[2 * i] = 200 * Math.cos(t);
+            ring[2 * i + 1] = 200 * Math.sin(t);
+        }
+        List<double[]> rings = new ArrayList<>();
+        rings.add(ring);
+        return rings;
+    }
+}
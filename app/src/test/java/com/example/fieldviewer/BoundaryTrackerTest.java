@@ -0,0 +1,123 @@
+package com.example.fieldviewer;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the GPS walk-the-boundary tracker.
+ */
+public class BoundaryTrackerTest {
+
+    private static final double LAT0 = 38.0, LNG0 = 23.0;
+    private static final double M_PER_DEG_LNG = ResultMetrics.METERS_PER_DEG_LAT * Math.cos(Math.toRadians(LAT0));
+
+    /**
+     * Feeds a fix at local meters (x east, y north) from the origin
+     */
+    private static int fix(BoundaryTracker t, long ms, double x, double y, double accuracy) {
+        return t.fix(ms, LAT0 + y / ResultMetrics.METERS_PER_DEG_LAT, LNG0 + x / M_PER_DEG_LNG, accuracy);
+    }
+
+    /**
+     * Point at distance s along the boundary of a w x h rectangle walked counter-clockwise from (0, 0)
+     */
+    private static double[] alongRectangle(double s, double w, double h) {
+        s %= 2 * (w + h);
+        if (s < w) return new double[]{s, 0};
+        if (s < w + h) return new double[]{w, s - w};
+        if (s < 2 * w + h) return new double[]{w - (s - w - h), h};
+        return new double[]{0, h - (s - 2 * w - h)};
+    }
+
+    @Test
+    public void noisyWalkAroundField_recoversAreaAndCorners() {
+        BoundaryTracker t = new BoundaryTracker();
+        Random rnd = new Random(11);
+        double w = 120, h = 80, speed = 1.3;
+        int seconds = (int) (2 * (w + h) / speed);
+        int jumps = 0, vague = 0;
+        for (int i = 0; i <= seconds; i++) {
+            double[] p = alongRectangle(i * speed, w, h);
+            if (i > 5 && i % 37 == 0) {
+                // Multipath: 40 m off with a confident accuracy
+                assertEquals(BoundaryTracker.REJECTED_JUMP, fix(t, i * 1000L, p[0] + 40, p[1], 4.0));
+                jumps++;
+                continue;
+            }
+            if (i % 53 == 0 && i > 0) {
+                assertEquals(BoundaryTracker.REJECTED_ACCURACY, fix(t, i * 1000L, p[0], p[1], 60.0));
+                vague++;
+                continue;
+            }
+            assertEquals(BoundaryTracker.ACCEPTED,
+                    fix(t, i * 1000L, p[0] + rnd.nextGaussian() * 1.5, p[1] + rnd.nextGaussian() * 1.5, 3.0));
+        }
+        assertEquals(BoundaryTracker.REJECTED_ORDER, fix(t, 1000L, 0, 0, 3.0));
+        assertEquals(jumps, t.rejectedJumpCount());
+        assertEquals(vague, t.rejectedAccuracyCount());
+        assertEquals(0, t.restartCount());
+        assertEquals(2 * (w + h), t.pathLengthM(), 0.1 * 2 * (w + h));
+        assertTrue(t.distanceToStartM() < 10);
+
+        BoundaryTracker.Ring ring = t.finish();
+        assertNotNull(ring);
+        assertEquals(LAT0, ring.originLat, 1e-4);
+        // Corners are rounded by the filter and the walk, so a few percent of area go missing
+        assertEquals(w * h, ring.area(), 0.06 * w * h);
+        assertEquals(2 * (w + h), ring.perimeter(), 0.06 * 2 * (w + h));
+        assertTrue("kept " + ring.size() + " vertices", ring.size() >= 4 && ring.size() <= 40);
+        assertTrue(ring.meanSigmaM() > 0 && ring.meanSigmaM() < 3.0);
+    }
+
+    @Test
+    public void sustainedShift_restartsFilterInsteadOfRejectingForever() {
+        BoundaryTracker t = new BoundaryTracker();
+        for (int i = 0; i < 20; i++) assertEquals(BoundaryTracker.ACCEPTED, fix(t, i * 1000L, i, 0, 3.0));
+        // The fused provider switches source and every later fix is 60 m north
+        int rejected = 0;
+        for (int i = 20; i < 30; i++) {
+            if (fix(t, i * 1000L, i, 60, 3.0) == BoundaryTracker.REJECTED_JUMP) rejected++;
+        }
+        assertEquals(BoundaryTracker.RESTART_AFTER_REJECTS - 1, rejected);
+        assertEquals(1, t.restartCount());
+        assertEquals(BoundaryTracker.ACCEPTED, fix(t, 30_000L, 30, 60, 3.0));
+    }
+
+    @Test
+    public void tooFewPoints_noRing() {
+        BoundaryTracker t = new BoundaryTracker();
+        assertNull(t.finish());
+        assertTrue(Double.isNaN(t.distanceToStartM()));
+        for (int i = 0; i < 30; i++) fix(t, i * 1000L, i, 0, 3.0);  // A straight line has no area
+        assertNull(t.finish());
+    }
+
+    @Test
+    public void hourLongWalkAt10Hz_staysWithinVertexBudgetAndFast() {
+        int maxVertices = 400;
+        BoundaryTracker t = new BoundaryTracker(BoundaryTracker.DEFAULT_MAX_ACCURACY_M, 0.5, maxVertices);
+        Random rnd = new Random(5);
+        // Two hours around a 600 m wiggly field edge (hedges, ditches), at 10 fixes per second
+        int fixes = 2 * 3600 * 10;
+        double radius = 600, lap = 2 * Math.PI * radius;
+        long t0 = System.nanoTime();
+        for (int i = 0; i < fixes; i++) {
+            double s = i * 0.13;
+            double a = s / lap * 2 * Math.PI;
+            double r = radius + 15 * Math.sin(a * 40) + 5 * Math.sin(a * 170);
+            fix(t, i * 100L, r * Math.cos(a) + rnd.nextGaussian(), r * Math.sin(a) + rnd.nextGaussian(), 2.5);
+        }
+        long ms = (System.nanoTime() - t0) / 1_000_000;
+        assertTrue("2 h of fixes took " + ms + " ms", ms < 1000);
+        assertTrue(t.vertexCount() <= maxVertices + 1);
+        assertTrue(t.recompactionCount() > 0);
+        assertTrue(t.toleranceM() > 0.5);
+        BoundaryTracker.Ring ring = t.finish();
+        assertNotNull(ring);
+        assertTrue(ring.size() <= maxVertices + 1);
+        assertEquals(fixes, t.acceptedCount() + t.rejectedJumpCount());
+    }
+}
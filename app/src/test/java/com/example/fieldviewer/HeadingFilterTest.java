@@ -0,0 +1,57 @@
+package com.example.fieldviewer;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the compass heading filter.
+ */
+public class HeadingFilterTest {
+
+    @Test
+    public void constantHeading_isReturnedWithZeroVariance() {
+        HeadingFilter f = new HeadingFilter(10, 0.5);
+        for (int i = 0; i < 50; i++) f.addSample(1.0);
+        assertEquals(1.0, f.headingRad(), 1e-9);
+        assertEquals(0.0, f.varianceRad2(), 1e-9);
+        assertEquals(10, f.sampleCount());
+    }
+
+    @Test
+    public void meanAcrossWrapAround_staysNearPi() {
+        HeadingFilter f = new HeadingFilter(4, 1.0);
+        f.addSample(Math.PI - 0.1);
+        f.addSample(-Math.PI + 0.1);
+        // Arithmetic mean would be 0 (pointing the wrong way); circular mean is ±π
+        assertEquals(Math.PI, Math.abs(f.headingRad()), 1e-9);
+    }
+
+    @Test
+    public void singleOutlier_barelyMovesHeading() {
+        HeadingFilter f = new HeadingFilter(25, 0.3);
+        for (int i = 0; i < 100; i++) f.addSample(0.0);
+        f.addSample(1.5);
+        assertTrue(Math.abs(f.headingRad()) < 0.05);
+        assertTrue(f.varianceRad2() > 0.0);
+    }
+
+    @Test
+    public void oldSamplesLeaveWindow() {
+        HeadingFilter f = new HeadingFilter(5, 1.0);
+        for (int i = 0; i < 5; i++) f.addSample(-2.0);
+        for (int i = 0; i < 5; i++) f.addSample(0.5);
+        assertEquals(0.5, f.headingRad(), 1e-9);
+        assertEquals(0.0, f.varianceRad2(), 1e-9);
+    }
+
+    @Test
+    public void reset_clearsState() {
+        HeadingFilter f = new HeadingFilter(5, 0.5);
+        f.addSample(1.0);
+        f.reset();
+        assertFalse(f.hasHeading());
+        assertEquals(0, f.sampleCount());
+        assertTrue(Double.isNaN(f.varianceRad2()));
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.fieldviewer;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the telemetry histogram.
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void bucketBounds_containTheirValues() {
+        long[] samples = {0, 1, 3, 4, 7, 8, 9, 1000, 123_456, 16_000_000L, Long.MAX_VALUE / 3};
+        for (long v : samples) {
+            int b = LatencyHistogram.bucketIndex(v);
+            assertTrue("value " + v, v <= LatencyHistogram.bucketUpperBound(b));
+            if (b > 0) assertTrue("value " + v, v > LatencyHistogram.bucketUpperBound(b - 1));
+        }
+    }
+
+    @Test
+    public void percentiles_areWithinBucketResolution() {
+        LatencyHistogram h = new LatencyHistogram("t");
+        for (int i = 1; i <= 1000; i++) h.record(i * 1000L);
+        assertEquals(1000, h.count());
+        assertEquals(1_000_000L, h.maxNanos());
+        long p50 = h.percentileNanos(50);
+        assertTrue(p50 >= 500_000L && p50 <= 500_000L * 5 / 4);
+        assertEquals(1_000_000L, h.percentileNanos(100));
+    }
+
+    @Test
+    public void reset_clearsCounts() {
+        LatencyHistogram h = new LatencyHistogram("t");
+        h.record(42);
+        h.reset();
+        assertEquals(0, h.count());
+        assertEquals(0, h.percentileNanos(99));
+    }
+}
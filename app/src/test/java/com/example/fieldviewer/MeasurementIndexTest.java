@@ -0,0 +1,113 @@
+package com.example.fieldviewer;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the persistent saved-measurement index.
+ */
+public class MeasurementIndexTest {
+
+    private static MeasurementIndex.Entry entry(String name, long ts, double area, double lat, double lng) {
+        double d = 0.001;
+        return new MeasurementIndex.Entry(name, ts, ts, area, lat - d, lng - d, lat + d, lng + d, lat, lng);
+    }
+
+    @Test
+    public void queries_useAreaTimeAndSpatialColumns() throws Exception {
+        File dir = Files.createTempDirectory("idx").toFile();
+        MeasurementIndex idx = new MeasurementIndex(new File(dir, MeasurementIndex.INDEX_FILE_NAME));
+        for (int i = 0; i < 500; i++) {
+            idx.put(entry("m" + i + ".json", 1000L + i, i * 10.0, 38.0 + (i % 50) * 0.01, 23.0 + (i / 50) * 0.01));
+        }
+        assertEquals(500, idx.size());
+        assertEquals("m499.json", idx.newestFirst().get(0).fileName);
+
+        List<MeasurementIndex.Entry> mid = idx.areaBetween(100.0, 200.0);
+        assertEquals(11, mid.size());
+        assertEquals(100.0, mid.get(0).areaM2, 0.0);
+
+        List<MeasurementIndex.Entry> near = idx.withinKm(38.0, 23.0, 0.5);
+        assertFalse(near.isEmpty());
+        assertEquals("m0.json", near.get(0).fileName);
+        for (MeasurementIndex.Entry e : near) {
+            assertTrue(MeasurementIndex.distanceToBoundsMeters(e, 38.0, 23.0) <= 500.0);
+        }
+    }
+
+    @Test
+    public void reload_replaysLogAndSurvivesTruncatedTail() throws Exception {
+        File dir = Files.createTempDirectory("idx").toFile();
+        File file = new File(dir, MeasurementIndex.INDEX_FILE_NAME);
+        MeasurementIndex idx = new MeasurementIndex(file);
+        idx.put(entry("a.json", 1, 50.0, 38.0, 23.0));
+        idx.put(entry("b.json", 2, 60.0, 38.1, 23.1));
+        idx.put(entry("a.json", 3, 70.0, 38.0, 23.0));
+        idx.remove("b.json");
+        idx.put(entry("c.json", 4, 80.0, 38.2, 23.2));
+
+        // Simulate a crash in the middle of the last append
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        Files.write(file.toPath(), java.util.Arrays.copyOf(bytes, bytes.length - 5));
+
+        MeasurementIndex reloaded = new MeasurementIndex(file);
+        reloaded.load();
+        assertEquals(1, reloaded.size());
+        assertEquals(70.0, reloaded.get("a.json").areaM2, 0.0);
+        assertNull(reloaded.get("b.json"));
+    }
+
+    @Test
+    public void corruptTail_isCompactedAwayByTheNextWrite() throws Exception {
+        File dir = Files.createTempDirectory("idx").toFile();
+        File file = new File(dir, MeasurementIndex.INDEX_FILE_NAME);
+        MeasurementIndex idx = new MeasurementIndex(file);
+        idx.put(entry("a.json", 1, 50.0, 38.0, 23.0));
+        idx.put(entry("b.json", 2, 60.0, 38.1, 23.1));
+        byte[] good = Files.readAllBytes(file.toPath());
+
+        // Zeros after a power loss: later appends must not end up behind them
+        Files.write(file.toPath(), java.util.Arrays.copyOf(good, good.length + 4096));
+        MeasurementIndex reloaded = new MeasurementIndex(file);
+        reloaded.load();
+        assertEquals(2, reloaded.size());
+        reloaded.put(entry("c.json", 3, 70.0, 38.2, 23.2));
+        MeasurementIndex again = new MeasurementIndex(file);
+        again.load();
+        assertEquals(3, again.size());
+        assertEquals(70.0, again.get("c.json").areaM2, 0.0);
+
+        // A flipped bit inside the last record fails its checksum; the records before it stay
+        byte[] flipped = Files.readAllBytes(file.toPath());
+        flipped[flipped.length - 12] ^= 0x10;
+        Files.write(file.toPath(), flipped);
+        MeasurementIndex checked = new MeasurementIndex(file);
+        checked.load();
+        assertEquals(2, checked.size());
+        assertNull(checked.get("c.json"));
+    }
+
+    @Test
+    public void sync_dropsMissingFilesAndLoadsNewOnes() throws Exception {
+        File dir = Files.createTempDirectory("idx").toFile();
+        MeasurementIndex idx = new MeasurementIndex(new File(dir, MeasurementIndex.INDEX_FILE_NAME));
+        idx.put(entry("gone.json", 1, 10.0, 38.0, 23.0));
+        File fresh = new File(dir, "fresh.json");
+        Files.write(fresh.toPath(), new byte[]{'{', '}'});
+        final int[] loads = {0};
+        MeasurementIndex.EntryLoader loader = f -> {
+            loads[0]++;
+            return new MeasurementIndex.Entry(f.getName(), 5, f.lastModified(), 42.0, 38, 23, 38.01, 23.01, 38, 23);
+        };
+        assertTrue(idx.sync(new File[]{fresh}, loader));
+        assertFalse(idx.sync(new File[]{fresh}, loader));
+        assertEquals(1, loads[0]);
+        assertEquals(1, idx.size());
+        assertEquals(1, idx.overlapping(38.005, 23.005, 38.006, 23.006).size());
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.fieldviewer;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the crash-safe measurement journal.
+ */
+public class MeasurementJournalTest {
+
+    @Test
+    public void replaysPointsUndoRingsOriginAndHeading() throws Exception {
+        File file = new File(Files.createTempDirectory("journal").toFile(), "current.fvj");
+        MeasurementJournal journal = MeasurementJournal.create(file);
+        journal.append(MeasurementJournal.HEADING, 0.5, 0.01, 0);
+        journal.append(MeasurementJournal.ADD_POINT, 0, 0, 0);
+        journal.append(MeasurementJournal.ADD_POINT, 10, 1, 0);
+        journal.append(MeasurementJournal.ADD_POINT, 10, 2, 10);
+        journal.append(MeasurementJournal.ADD_POINT, 99, 99, 99);
+        journal.append(MeasurementJournal.UNDO, 0, 0, 0);
+        journal.append(MeasurementJournal.ORIGIN, 37.98, 23.72, 0);
+        journal.append(MeasurementJournal.CLOSE_RING, 1, 0, 0);
+        journal.append(MeasurementJournal.ADD_POINT, 2, 0, 2);
+        journal.append(MeasurementJournal.ADD_POINT, 4, 0, 2);
+        journal.close();
+
+        MeasurementJournal.Snapshot s = MeasurementJournal.read(file);
+        assertNotNull(s);
+        assertEquals(10, s.records);
+        assertEquals(1, s.closedRings.size());
+        assertArrayEquals(new double[]{0, 0, 0, 10, 1, 0, 10, 2, 10}, s.closedRings.get(0), 0.0);
+        assertFalse(s.closedHoles.get(0));
+        assertTrue(s.currentIsHole);
+        assertArrayEquals(new double[]{2, 0, 2, 4, 0, 2}, s.current, 0.0);
+        assertEquals(37.98, s.originLat, 0.0);
+        assertEquals(0.01, s.headingVarianceRad2, 0.0);
+        assertEquals(5, s.pointCount());
+        assertTrue(s.isRecoverable());
+
+        java.util.List<double[]> rings = new java.util.ArrayList<>();
+        java.util.List<Boolean> holes = new java.util.ArrayList<>();
+        java.util.List<double[]> heights = new java.util.ArrayList<>();
+        s.collectRings2D(rings, holes, heights);
+        assertEquals(1, rings.size());  // The current ring has only 2 points
+        assertArrayEquals(new double[]{0, 0, 10, 0, 10, 10}, rings.get(0), 0.0);
+        assertArrayEquals(new double[]{0, 1, 2}, heights.get(0), 0.0);
+    }
+
+    @Test
+    public void tornTailAndClear() throws Exception {
+        File file = new File(Files.createTempDirectory("journal").toFile(), "current.fvj");
+        MeasurementJournal journal = MeasurementJournal.create(file);
+        for (int i = 0; i < 1000; i++) journal.append(MeasurementJournal.ADD_POINT, i, 0, i);
+        journal.close();
+        assertEquals(MeasurementJournal.HEADER_BYTES + 1000L * MeasurementJournal.RECORD_BYTES, file.length());
+
+        // Crash in the middle of the last record, and a flipped byte in the one before it
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(file.length() - 7);
+            long corrupt = MeasurementJournal.HEADER_BYTES + 998L * MeasurementJournal.RECORD_BYTES + 9;
+            raf.seek(corrupt);
+            int b = raf.read();
+            raf.seek(corrupt);
+            raf.write(b ^ 0x40);
+        }
+        MeasurementJournal.Snapshot s = MeasurementJournal.read(file);
+        assertEquals(998, s.records);
+        assertEquals(997.0, s.current[3 * 997], 0.0);
+
+        journal = MeasurementJournal.create(file);
+        journal.append(MeasurementJournal.ADD_POINT, 1, 1, 1);
+        journal.clear();
+        journal.append(MeasurementJournal.ADD_POINT, 2, 2, 2);
+        journal.flush();
+        journal.close();
+        s = MeasurementJournal.read(file);
+        assertEquals(1, s.records);
+        assertArrayEquals(new double[]{2, 2, 2}, s.current, 0.0);
+        assertFalse(s.isRecoverable());
+
+        journal = MeasurementJournal.create(file);
+        journal.discard();
+        assertFalse(file.exists());
+        assertNull(MeasurementJournal.read(file));
+    }
+
+    @Test
+    public void createOverUnrecoveredJournal_keepsItAside() throws Exception {
+        // Process killed on the AR screen; Android recreates that screen before MainActivity runs
+        File file = new File(Files.createTempDirectory("journal").toFile(), "current.fvj");
+        MeasurementJournal journal = MeasurementJournal.create(file);
+        for (int i = 0; i < 3; i++) journal.append(MeasurementJournal.ADD_POINT, i, 0, i * i);
+        journal.close();
+
+        journal = MeasurementJournal.create(file);
+        journal.append(MeasurementJournal.ADD_POINT, 5, 5, 5);
+        journal.close();
+        java.util.List<File> pending = MeasurementJournal.pending(file);
+        assertEquals(2, pending.size());
+        File kept = pending.get(0).equals(file) ? pending.get(1) : pending.get(0);
+        assertTrue(kept.getName().startsWith(MeasurementJournal.RECOVERED_PREFIX));
+        MeasurementJournal.Snapshot s = MeasurementJournal.read(kept);
+        assertTrue(s.isRecoverable());
+        assertArrayEquals(new double[]{0, 0, 0, 1, 0, 1, 2, 0, 4}, s.current, 0.0);
+        assertEquals(1, MeasurementJournal.read(file).records);
+
+        // Nothing recoverable in the current one: replaced without another copy
+        MeasurementJournal.create(file).discard();
+        assertEquals(1, MeasurementJournal.pending(file).size());
+    }
+}
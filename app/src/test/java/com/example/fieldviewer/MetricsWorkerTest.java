@@ -0,0 +1,232 @@
+package com.example.fieldviewer;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the latest-wins metrics worker and the result screen metrics.
+ */
+public class MetricsWorkerTest {
+
+    /**
+     * Runs queued tasks only when asked, so tests control when the worker drains
+     */
+    private static final class ManualExecutor implements java.util.concurrent.Executor {
+        final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable r) {
+            tasks.add(r);
+        }
+
+        void runAll() {
+            while (!tasks.isEmpty()) tasks.poll().run();
+        }
+    }
+
+    @Test
+    public void inputsWaitingBehindEachOther_onlyNewestIsComputed() {
+        ManualExecutor executor = new ManualExecutor();
+        List<Integer> seen = new ArrayList<>();
+        MetricsWorker<Integer, Integer> worker = new MetricsWorker<>(executor, (in, stale) -> {
+            seen.add(in);
+            return in * 10;
+        }, Long.MAX_VALUE, null);
+        assertNull(worker.latest());
+
+        worker.submit(1);
+        worker.submit(2);
+        long v = worker.submit(3);
+        assertEquals(1, executor.tasks.size());  // One drain for the whole burst
+        executor.runAll();
+
+        assertEquals(1, seen.size());
+        assertEquals(3, (int) seen.get(0));
+        assertEquals(v, worker.latest().version);
+        assertEquals(30, (int) worker.latest().value);
+        assertEquals(2, worker.supersededCount());
+
+        // The next burst schedules a new drain
+        worker.submit(4);
+        executor.runAll();
+        assertEquals(40, (int) worker.latest().value);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void newerInputDuringComputation_staleRunIsAbandoned() {
+        ManualExecutor executor = new ManualExecutor();
+        final MetricsWorker<Integer, Integer>[] ref = new MetricsWorker[1];
+        int[] published = {0};
+        ref[0] = new MetricsWorker<>(executor, (in, stale) -> {
+            if (in == 1) {
+                assertFalse(stale.isStale());
+                ref[0].submit(2);  // User moved on while this runs
+                if (stale.isStale()) return null;
+            }
+            return in * 10;
+        }, Long.MAX_VALUE, () -> published[0]++);
+        MetricsWorker<Integer, Integer> worker = ref[0];
+
+        worker.submit(1);
+        executor.runAll();
+        assertEquals(1, worker.abandonedCount());
+        assertEquals(1, worker.computedCount());
+        assertEquals(1, published[0]);
+        assertEquals(2, worker.latest().version);
+        assertEquals(20, (int) worker.latest().value);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void nothingPublishedWithinMaxLag_staleWorkStillCompletes() {
+        ManualExecutor executor = new ManualExecutor();
+        final MetricsWorker<Integer, Integer>[] ref = new MetricsWorker[1];
+        List<Long> versions = new ArrayList<>();
+        ref[0] = new MetricsWorker<>(executor, (in, stale) -> {
+            if (in < 3) ref[0].submit(in + 1);
+            if (stale.isStale()) return null;
+            return in;
+        }, 0L, () -> versions.add(ref[0].latest().version));
+
+        ref[0].submit(1);
+        executor.runAll();
+        // Continuous input never starves the display: every run publishes, in submit order
+        assertEquals(3, versions.size());
+        assertEquals(1L, (long) versions.get(0));
+        assertEquals(2L, (long) versions.get(1));
+        assertEquals(3L, (long) versions.get(2));
+        assertEquals(0, ref[0].abandonedCount());
+    }
+
+    @Test
+    public void workerThread_catchesUpWithBurstFromAnotherThread() throws Exception {
+        ExecutorService executor = MetricsWorker.newExecutor("metrics-test");
+        MetricsWorker<double[], Double> worker = new MetricsWorker<>(executor,
+                (in, stale) -> RingMath.area(in, in.length / 2), 50_000_000L, null);
+        long last = 0;
+        for (int i = 1; i <= 1000; i++) last = worker.submit(new double[]{0, 0, i, 0, i, 1, 0, 1});
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while ((worker.latest() == null || worker.latest().version != last) && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        executor.shutdown();
+        assertEquals(last, worker.latest().version);
+        assertEquals(1000.0, worker.latest().value, 1e-9);
+        assertTrue(worker.computedCount() <= 1000);
+        assertEquals(1000, worker.computedCount() + worker.supersededCount() + worker.abandonedCount());
+    }
+
+    @Test
+    public void computationThrows_laterSubmitsStillPublish() throws Exception {
+        ManualExecutor manual = new ManualExecutor();
+        MetricsWorker<Integer, Integer> worker = new MetricsWorker<>(manual, (in, stale) -> {
+            if (in < 0) throw new IllegalArgumentException("degenerate ring");
+            return in * 10;
+        }, Long.MAX_VALUE, null);
+        worker.submit(-1);
+        manual.runAll();
+        assertEquals(1, worker.failedCount());
+        assertNull(worker.latest());
+        worker.submit(2);
+        assertEquals(1, manual.tasks.size());  // Not stuck in draining
+        manual.runAll();
+        assertEquals(20, (int) worker.latest().value);
+
+        // Same on a real worker thread: it survives the failure
+        ExecutorService executor = MetricsWorker.newExecutor("metrics-test");
+        MetricsWorker<Integer, Integer> threaded = new MetricsWorker<>(executor, (in, stale) -> {
+            if (in < 0) throw new IllegalStateException("triangulation failed");
+            return in;
+        }, Long.MAX_VALUE, null);
+        threaded.submit(-1);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (threaded.failedCount() == 0 && System.nanoTime() < deadline) Thread.sleep(1);
+        long v = threaded.submit(7);
+        while ((threaded.latest() == null || threaded.latest().version != v) && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        executor.shutdown();
+        assertEquals(1, threaded.failedCount());
+        assertEquals(7, (int) threaded.latest().value);
+    }
+
+    @Test
+    public void awaitHandled_returnsOnceTheWorkerIsDoneWithTheVersion() throws Exception {
+        ExecutorService executor = MetricsWorker.newExecutor("metrics-test");
+        java.util.concurrent.CountDownLatch release = new java.util.concurrent.CountDownLatch(1);
+        MetricsWorker<Integer, Integer> worker = new MetricsWorker<>(executor, (in, stale) -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (in < 0) throw new IllegalArgumentException("degenerate ring");
+            return in * 10;
+        }, Long.MAX_VALUE, null);
+        long v = worker.submit(4);
+        assertNull(worker.awaitHandled(v, 20));  // Still computing: times out
+        release.countDown();
+        MetricsWorker.Snapshot<Integer> done = worker.awaitHandled(v, 5000);
+        assertEquals(v, done.version);
+        assertEquals(40, (int) done.value);
+
+        // A failed input also ends the wait; the snapshot left is the older one
+        long failed = worker.submit(-1);
+        done = worker.awaitHandled(failed, 5000);
+        executor.shutdown();
+        assertEquals(1, worker.failedCount());
+        assertEquals(v, done.version);
+    }
+
+    @Test
+    public void resultMetrics_matchLocalShoelaceAndEngines() {
+        // 100 m x 50 m field near 38° N with a 10 m x 10 m hole
+        double lat0 = 38.0, lng0 = 23.0;
+        double dLat = 1 / ResultMetrics.METERS_PER_DEG_LAT;
+        double dLng = 1 / (ResultMetrics.METERS_PER_DEG_LAT * Math.cos(Math.toRadians(lat0)));
+        double[] field = {lat0, lng0, lat0, lng0 + 100 * dLng, lat0 + 50 * dLat, lng0 + 100 * dLng, lat0 + 50 * dLat, lng0};
+        double[] hole = {lat0 + 20 * dLat, lng0 + 20 * dLng, lat0 + 20 * dLat, lng0 + 30 * dLng,
+                lat0 + 30 * dLat, lng0 + 30 * dLng, lat0 + 30 * dLat, lng0 + 20 * dLng};
+        List<double[]> one = new ArrayList<>();
+        one.add(field);
+        ResultMetrics.Input single = new ResultMetrics.Input(one, new boolean[]{false}, null,
+                AreaEngine.Mode.SHOELACE, lat0, lng0, 0, null, null);
+        assertEquals(5000.0, ResultMetrics.netArea(single), 1e-6);
+        assertTrue(Double.isNaN(ResultMetrics.surface(single)));
+
+        List<double[]> two = new ArrayList<>(one);
+        two.add(hole);
+        List<double[]> flat = new ArrayList<>();
+        flat.add(new double[4]);
+        flat.add(new double[4]);
+        ResultMetrics.Input withHole = new ResultMetrics.Input(two, new boolean[]{false, true}, flat,
+                AreaEngine.Mode.TRIANGULATION, lat0, lng0, 0, ResultMetrics.project(field, lat0, lng0 - 10 * dLng),
+                new AreaUncertainty.Sources(null, Double.NaN, 5.0));
+        ResultMetrics.Snapshot s = ResultMetrics.compute(withHole, () -> false);
+        assertEquals(4900.0, s.area, 1e-6);
+        assertEquals(4900.0, s.surface, 1e-6);
+        assertNull(s.comparison);
+        // Reference shifted 10 m east
+        PolygonClip.Result r = ResultMetrics.compare(withHole);
+        assertNotNull(r);
+        assertEquals(4500.0, r.intersection.area, 1e-3);
+        assertNull(ResultMetrics.compare(single));
+        assertNull(ResultMetrics.compute(withHole, () -> true));
+        AreaUncertainty.Result u = ResultMetrics.uncertainty(withHole, () -> false);
+        assertNotNull(u);
+        assertTrue(u.low < 4900.0 && 4900.0 < u.high);
+        assertNull(ResultMetrics.uncertainty(single, () -> false));
+
+        ResultMetrics.Input noOrigin = new ResultMetrics.Input(one, new boolean[]{false}, null,
+                AreaEngine.Mode.SHOELACE, Double.NaN, Double.NaN, 0, null, null);
+        assertEquals(0.0, ResultMetrics.netArea(noOrigin), 0.0);
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.fieldviewer;
+
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for tile download, caching and prefetch against a stand-in tile server.
+ */
+public class OfflineTilesTest {
+
+    /**
+     * Serves "z/x/y" as the tile body; row 0 does not exist
+     */
+    private static HttpServer startServer(AtomicInteger requests) throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/tiles/", exchange -> {
+            requests.incrementAndGet();
+            String[] parts = exchange.getRequestURI().getPath().substring("/tiles/".length()).split("/");
+            if (parts[2].equals("0")) {
+                exchange.sendResponseHeaders(404, -1);
+            } else {
+                byte[] body = String.join("/", parts).getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+            exchange.close();
+        });
+        server.start();
+        return server;
+    }
+
+    @Test
+    public void tile_downloadsOnceThenServesFromCache() throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        HttpServer server = startServer(requests);
+        try {
+            String template = "http://127.0.0.1:" + server.getAddress().getPort() + "/tiles/{z}/{x}/{y}";
+            File dir = Files.createTempDirectory("tiles").toFile();
+            OfflineTiles tiles = new OfflineTiles(new TileCache(new File(dir, OfflineTiles.CACHE_FILE_NAME), 1 << 20),
+                    new TileSource(template));
+            assertEquals("17/5/9", new String(tiles.tile(17, 5, 9), StandardCharsets.UTF_8));
+            assertEquals("17/5/9", new String(tiles.tile(17, 5, 9), StandardCharsets.UTF_8));
+            assertNull(tiles.tile(17, 5, 0));
+            assertEquals(2, requests.get());
+            assertEquals(1, tiles.cache().hits());
+            assertEquals(2, tiles.cache().misses());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void prefetch_fillsPyramidAroundOrigin() throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        HttpServer server = startServer(requests);
+        try {
+            String template = "http://127.0.0.1:" + server.getAddress().getPort() + "/tiles/{z}/{x}/{y}";
+            File dir = Files.createTempDirectory("tiles").toFile();
+            OfflineTiles tiles = new OfflineTiles(new TileCache(new File(dir, OfflineTiles.CACHE_FILE_NAME), 1 << 24),
+                    new TileSource(template));
+            long[] keys = TileMath.pyramid(38.0, 23.7, OfflineTiles.PREFETCH_RADIUS_M,
+                    OfflineTiles.PREFETCH_MIN_ZOOM, OfflineTiles.PREFETCH_MAX_ZOOM);
+            int stored = tiles.prefetchAround(38.0, 23.7).get(30, TimeUnit.SECONDS);
+            assertEquals(keys.length, stored);
+            assertEquals(keys.length, tiles.cache().size());
+
+            // Same spot again: everything cached, no new downloads
+            int before = requests.get();
+            assertEquals(0, (int) tiles.prefetchAround(38.0, 23.7).get(30, TimeUnit.SECONDS));
+            assertEquals(before, requests.get());
+            long k = keys[keys.length - 1];
+            assertNotNull(tiles.tile(TileMath.zoom(k), TileMath.x(k), TileMath.y(k)));
+            assertEquals(before, requests.get());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void source_expandsTemplate() {
+        TileSource s = new TileSource("https://h/{z}/{x}/{-y}.png");
+        assertEquals("https://h/3/2/6.png", s.url(3, 2, 1));
+        try {
+            new TileSource("https://h/{z}/{x}.png");
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+}
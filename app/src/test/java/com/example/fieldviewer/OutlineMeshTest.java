@@ -0,0 +1,70 @@
+package com.example.fieldviewer;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the AR outline mesh builder.
+ */
+public class OutlineMeshTest {
+
+    private static void assertAllFaceUp(OutlineMesh mesh) {
+        float[] p = mesh.positions();
+        for (int part = 0; part < OutlineMesh.PART_COUNT; part++) {
+            int[] idx = mesh.indices(part);
+            for (int k = 0; k < mesh.indexCount(part); k += 3) {
+                int a = idx[k], b = idx[k + 1], c = idx[k + 2];
+                assertTrue(a < mesh.vertexCount() && b < mesh.vertexCount() && c < mesh.vertexCount());
+                float ux = p[3 * b] - p[3 * a], uz = p[3 * b + 2] - p[3 * a + 2];
+                float vx = p[3 * c] - p[3 * a], vz = p[3 * c + 2] - p[3 * a + 2];
+                assertTrue("triangle faces down", uz * vx - ux * vz >= 0);
+            }
+        }
+    }
+
+    @Test
+    public void closedRing_buildsFillEdgesAndDotsFacingUp() {
+        double[] cw = {0, 0, 0, 10, 10, 10, 10, 0};  // Clockwise seen from above
+        double[] h = {0, 0.5, 1, 0.5};
+        List<double[]> rings = new ArrayList<>();
+        rings.add(cw);
+        OutlineMesh mesh = new OutlineMesh(0.02f, 0.04f, 0.005f);
+        mesh.addFill(AreaEngine.triangulate(rings, new boolean[]{false}), h);
+        mesh.addOutline(cw, h, 4, true, false);
+
+        assertEquals(4 + 4 * 4 + 4 * 4, mesh.vertexCount());
+        assertEquals(2 * 3, mesh.indexCount(OutlineMesh.FILL));
+        assertEquals((4 + 4) * 2 * 3, mesh.indexCount(OutlineMesh.EDGE));
+        assertEquals(0, mesh.indexCount(OutlineMesh.HOLE_EDGE));
+        assertEquals(1.005f, mesh.positions()[3 * 2 + 1], 1e-6f);  // Height plus lift, y up
+        assertAllFaceUp(mesh);
+    }
+
+    @Test
+    public void openRingAndHole_reuseBuffersOnRebuild() {
+        OutlineMesh mesh = new OutlineMesh(0.02f, 0.04f, 0f);
+        int n = 1000;
+        double[] xy = new double[2 * n];
+        double[] h = new double[n];
+        for (int i = 0; i < n; i++) {
+            xy[2 * i] = 20 * Math.cos(2 * Math.PI * i / n);
+            xy[2 * i + 1] = 20 * Math.sin(2 * Math.PI * i / n);
+        }
+        mesh.addOutline(xy, h, n, false, false);
+        mesh.addOutline(new double[]{0, 0, 1, 0, 1, 1}, new double[3], 3, true, true);
+        assertEquals((n - 1 + n) * 6, mesh.indexCount(OutlineMesh.EDGE));
+        assertEquals((3 + 3) * 6, mesh.indexCount(OutlineMesh.HOLE_EDGE));
+        assertAllFaceUp(mesh);
+
+        float[] before = mesh.positions();
+        mesh.clear();
+        mesh.addOutline(xy, h, n, true, false);
+        assertSame(before, mesh.positions());
+        assertEquals(0, mesh.indexCount(OutlineMesh.HOLE_EDGE));
+        assertEquals(2 * n * 6, mesh.indexCount(OutlineMesh.EDGE));
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.fieldviewer;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the persistent vertex sequence and edit history.
+ */
+public class PersistentVertexListTest {
+
+    @Test
+    public void appendAndGet_acrossSeveralTreeLevels() {
+        PersistentVertexList v = PersistentVertexList.empty(2);
+        for (int i = 0; i < 5000; i++) v = v.append(i, -i);
+        assertEquals(5000, v.size());
+        for (int i = 0; i < 5000; i += 7) {
+            assertEquals(i, v.x(i), 0.0);
+            assertEquals(-i, v.y(i), 0.0);
+        }
+    }
+
+    @Test
+    public void set_leavesOlderVersionsUntouched() {
+        double[] coords = new double[2000 * 3];
+        for (int i = 0; i < coords.length; i++) coords[i] = i;
+        PersistentVertexList a = PersistentVertexList.of(3, coords, 2000);
+        PersistentVertexList b = a.set(1234, 1, 2, 3);
+        assertEquals(1234 * 3, a.get(1234, 0), 0.0);
+        assertEquals(1, b.get(1234, 0), 0.0);
+        assertEquals(3, b.get(1234, 2), 0.0);
+        assertEquals(a.get(1233, 1), b.get(1233, 1), 0.0);
+    }
+
+    @Test
+    public void removeLast_matchesReferenceList() {
+        Random rnd = new Random(7);
+        List<double[]> ref = new ArrayList<>();
+        PersistentVertexList v = PersistentVertexList.empty(2);
+        for (int step = 0; step < 20000; step++) {
+            if (!ref.isEmpty() && rnd.nextInt(3) == 0) {
+                ref.remove(ref.size() - 1);
+                v = v.removeLast();
+            } else {
+                double x = rnd.nextDouble(), y = rnd.nextDouble();
+                ref.add(new double[]{x, y});
+                v = v.append(x, y);
+            }
+        }
+        assertEquals(ref.size(), v.size());
+        double[] flat = new double[v.size() * 2];
+        v.copyTo(flat);
+        for (int i = 0; i < ref.size(); i++) {
+            assertEquals(ref.get(i)[0], flat[2 * i], 0.0);
+            assertEquals(ref.get(i)[1], v.y(i), 0.0);
+        }
+    }
+
+    @Test
+    public void history_undoRedoAndJump() {
+        EditHistory<PersistentVertexList> h = new EditHistory<>();
+        PersistentVertexList v = PersistentVertexList.empty(2);
+        h.reset(v, "Initial");
+        for (int i = 0; i < 10; i++) {
+            v = v.append(i, i);
+            h.commit(v, "Add " + i);
+        }
+        assertEquals(9, h.undo().size());
+        assertEquals(8, h.undo().size());
+        assertEquals(9, h.redo().size());
+        assertEquals(3, h.jumpTo(3).size());
+        assertTrue(h.canRedo());
+        h.commit(h.current().set(0, 5, 5), "Move 0");
+        assertFalse(h.canRedo());
+        assertEquals(5, h.revisionCount());
+        assertEquals(5, h.current().x(0), 0.0);
+    }
+}
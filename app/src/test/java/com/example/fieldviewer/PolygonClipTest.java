@@ -0,0 +1,107 @@
+package com.example.fieldviewer;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for Greiner–Hormann ring clipping.
+ */
+public class PolygonClipTest {
+
+    private static double[] rect(double x0, double y0, double x1, double y1) {
+        return new double[]{x0, y0, x1, y0, x1, y1, x0, y1};
+    }
+
+    private static double[] circle(double cx, double cy, double r, int n, double phase) {
+        double[] xy = new double[2 * n];
+        for (int i = 0; i < n; i++) {
+            double t = phase + 2 * Math.PI * i / n;
+            xy[2 * i] = cx + r * Math.cos(t);
+            xy[2 * i + 1] = cy + r * Math.sin(t);
+        }
+        return xy;
+    }
+
+    private static double[] reversed(double[] xy) {
+        int n = xy.length / 2;
+        double[] out = new double[xy.length];
+        for (int i = 0; i < n; i++) {
+            out[2 * i] = xy[2 * (n - 1 - i)];
+            out[2 * i + 1] = xy[2 * (n - 1 - i) + 1];
+        }
+        return out;
+    }
+
+    @Test
+    public void overlappingSquares_splitIntoSharedAndOwnParts() {
+        double[] a = rect(0, 0, 10, 10);
+        double[] b = rect(5, -5, 15, 5);
+        for (double[] bb : new double[][]{b, reversed(b)}) {
+            PolygonClip.Result r = PolygonClip.compare(a, 4, bb, 4);
+            assertNotNull(r);
+            assertEquals(2, r.crossings);
+            assertEquals(25.0, r.intersection.area, 1e-9);
+            assertEquals(75.0, r.onlyA.area, 1e-9);
+            assertEquals(75.0, r.onlyB.area, 1e-9);
+            assertEquals(150.0, r.deviationPercent(), 1e-9);
+            assertEquals(1, r.intersection.rings.size());
+        }
+    }
+
+    @Test
+    public void containedDisjointAndIdenticalRings() {
+        PolygonClip.Result inside = PolygonClip.compare(rect(2, 2, 4, 4), 4, rect(0, 0, 10, 10), 4);
+        assertEquals(4.0, inside.intersection.area, 1e-9);
+        assertTrue(inside.onlyA.isEmpty());
+        assertEquals(96.0, inside.onlyB.area, 1e-9);
+        assertTrue(inside.onlyB.holes[1]);
+
+        PolygonClip.Result apart = PolygonClip.compare(rect(0, 0, 1, 1), 4, rect(5, 5, 6, 6), 4);
+        assertTrue(apart.intersection.isEmpty());
+        assertEquals(2.0, apart.symmetricDifference(), 1e-9);
+
+        // Shared edges and vertices are degenerate; B is nudged off them
+        double[] a = rect(0, 0, 10, 10);
+        PolygonClip.Result same = PolygonClip.compare(a, 4, a.clone(), 4);
+        assertNotNull(same);
+        assertEquals(100.0, same.intersection.area, 1e-5);
+        assertEquals(0.0, same.deviationPercent(), 1e-5);
+
+        // Vertex of B lying exactly on an edge of A
+        PolygonClip.Result touch = PolygonClip.compare(a, 4, new double[]{5, 0, 15, -5, 15, 5}, 3);
+        assertNotNull(touch);
+        assertEquals(6.25, touch.intersection.area, 1e-5);  // Upper half of the triangle lies inside
+    }
+
+    @Test
+    public void largeRings_matchLensAreaAndBalance() {
+        int na = 4000, nb = 3000;
+        double r = 50, d = 30;
+        double[] a = circle(0, 0, r, na, 0.0);
+        double[] b = circle(d, 0, r, nb, 0.1);
+        PolygonClip.Result res = PolygonClip.compare(a, na, b, nb);
+        assertNotNull(res);
+        assertEquals(2, res.crossings);
+        assertEquals(res.areaA, res.intersection.area + res.onlyA.area, 1e-6);
+        assertEquals(res.areaB, res.intersection.area + res.onlyB.area, 1e-6);
+        double lens = 2 * r * r * Math.acos(d / (2 * r)) - (d / 2) * Math.sqrt(4 * r * r - d * d);
+        assertEquals(lens, res.intersection.area, lens * 1e-3);
+
+        // Wavy ring crossing a square many times
+        int n = 2000;
+        double[] wave = new double[2 * n];
+        for (int i = 0; i < n; i++) {
+            double t = 2 * Math.PI * i / n;
+            double rad = 10 + 2 * Math.sin(40 * t);
+            wave[2 * i] = rad * Math.cos(t);
+            wave[2 * i + 1] = rad * Math.sin(t);
+        }
+        double[] sq = rect(-9.5, -9.5, 9.5, 9.5);
+        PolygonClip.Result w = PolygonClip.compare(wave, n, sq, 4);
+        assertNotNull(w);
+        assertTrue(w.crossings > 40);
+        assertEquals(w.areaA, w.intersection.area + w.onlyA.area, 1e-6);
+        assertEquals(w.areaB, w.intersection.area + w.onlyB.area, 1e-6);
+    }
+}
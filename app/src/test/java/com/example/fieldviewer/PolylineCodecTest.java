@@ -0,0 +1,69 @@
+package com.example.fieldviewer;
+
+import org.junit.Test;
+
+import java.net.URLEncoder;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the encoded polyline codec and URL-budget simplification.
+ */
+public class PolylineCodecTest {
+
+    // Example from Google's "Encoded Polyline Algorithm Format" documentation
+    private static final double[] GOOGLE_POINTS = {38.5, -120.2, 40.7, -120.95, 43.252, -126.453};
+    private static final String GOOGLE_ENCODED = "_p~iF~ps|U_ulLnnqC_mqNvxq`@";
+
+    @Test
+    public void encodeAndDecode_matchGoogleExample() {
+        assertEquals(GOOGLE_ENCODED.length(), PolylineCodec.encodedLength(GOOGLE_POINTS, 3, 5));
+        assertEquals(GOOGLE_ENCODED, PolylineCodec.encode(GOOGLE_POINTS, 3, 5));
+
+        char[] buf = new char[40];
+        int end = PolylineCodec.encode(GOOGLE_POINTS, 3, 5, buf, 4);
+        assertEquals(GOOGLE_ENCODED, new String(buf, 4, end - 4));
+
+        assertEquals(3, PolylineCodec.countPoints(GOOGLE_ENCODED));
+        assertArrayEquals(GOOGLE_POINTS, PolylineCodec.decode(GOOGLE_ENCODED, 5), 1e-9);
+    }
+
+    @Test
+    public void roundTrip_atPrecisionSix() throws Exception {
+        double[] pts = new double[2 * 500];
+        for (int i = 0; i < 500; i++) {
+            double a = 2 * Math.PI * i / 500;
+            pts[2 * i] = 37.98 + 0.002 * Math.sin(a);
+            pts[2 * i + 1] = 23.72 + 0.003 * Math.cos(a);
+        }
+        String enc = PolylineCodec.encode(pts, 500, 6);
+        assertArrayEquals(pts, PolylineCodec.decode(enc, 6), 1e-6);
+        assertEquals(URLEncoder.encode(enc, "UTF-8").length(), PolylineCodec.urlEscapedLength(pts, 500, 6));
+    }
+
+    @Test
+    public void budget_simplifiesLargeRingUntilItFits() throws Exception {
+        int n = 5001;  // Closed ring: last point repeats the first
+        double[] pts = new double[2 * n];
+        for (int i = 0; i < n; i++) {
+            double a = 2 * Math.PI * (i % (n - 1)) / (n - 1);
+            double r = 0.002 * (1 + 0.3 * Math.sin(5 * a));  // Five-lobed field
+            pts[2 * i] = 37.98 + r * Math.sin(a);
+            pts[2 * i + 1] = 23.72 + r * Math.cos(a);
+        }
+        assertTrue(PolylineCodec.urlEscapedLength(pts, n, 5) > 1500);
+        String enc = PolylineCodec.encodeWithinBudget(pts, n, 5, 1500);
+        assertNotNull(enc);
+        int escaped = URLEncoder.encode(enc, "UTF-8").length();
+        assertTrue(escaped <= 1500);
+        assertTrue(escaped > 1400);  // Uses the budget rather than collapsing to a few points
+        double[] back = PolylineCodec.decode(enc, 5);
+        assertEquals(pts[0], back[0], 1e-5);
+        assertEquals(back[0], back[back.length - 2], 0.0);
+        assertEquals(back[1], back[back.length - 1], 0.0);
+
+        // A path that already fits comes back unchanged
+        assertEquals(GOOGLE_ENCODED, PolylineCodec.encodeWithinBudget(GOOGLE_POINTS, 3, 5, 2000));
+        assertNull(PolylineCodec.encodeWithinBudget(GOOGLE_POINTS, 3, 5, 4));
+    }
+}
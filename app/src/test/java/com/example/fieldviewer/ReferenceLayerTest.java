@@ -0,0 +1,107 @@
+package com.example.fieldviewer;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the packed reference-boundary layer store.
+ */
+public class ReferenceLayerTest {
+
+    /**
+     * Square parcel of side ~size meters with `perSide` vertices along each edge
+     */
+    private static double[] parcel(double lat, double lng, double sizeDeg, int perSide) {
+        int n = perSide * 4 + 1;
+        double[] p = new double[2 * n];
+        for (int i = 0; i < n - 1; i++) {
+            int side = i / perSide;
+            double t = (i % perSide) / (double) perSide;
+            double u = side == 0 ? t : side == 1 ? 1 : side == 2 ? 1 - t : 0;
+            double v = side == 0 ? 0 : side == 1 ? t : side == 2 ? 1 : 1 - t;
+            p[2 * i] = lat + v * sizeDeg;
+            p[2 * i + 1] = lng + u * sizeDeg;
+        }
+        p[2 * (n - 1)] = p[0];
+        p[2 * (n - 1) + 1] = p[1];
+        return p;
+    }
+
+    @Test
+    public void writeAndRead_cullsByViewport() throws Exception {
+        File file = new File(Files.createTempDirectory("ref").toFile(), "parcels" + ReferenceLayer.EXTENSION);
+        ReferenceLayer.Writer w = new ReferenceLayer.Writer(file);
+        // 100 x 100 grid of parcels, 0.001° apart
+        for (int r = 0; r < 100; r++) {
+            for (int c = 0; c < 100; c++) {
+                double[] p = parcel(38.0 + r * 0.001, 23.0 + c * 0.001, 0.0009, 5);
+                w.add("P" + r + "_" + c, ReferenceLayer.KIND_RING, p, p.length / 2);
+            }
+        }
+        w.add("too short", ReferenceLayer.KIND_LINE, new double[]{38, 23}, 1);
+        assertEquals(10_000, w.featureCount());
+        assertEquals(1, w.skippedCount());
+        w.close();
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+
+        ReferenceLayer layer = ReferenceLayer.open(file);
+        assertEquals(10_000, layer.featureCount());
+        int[] out = new int[10_000];
+        int n = layer.visible(38.0101, 23.0101, 38.0129, 23.0129, 0.0, out);
+        assertEquals(9, n);  // Rows/cols 10..12
+        for (int i = 0; i < n; i++) assertTrue(layer.name(out[i]).matches("P1[0-2]_1[0-2]"));
+        // Zoomed far out: parcels are below the minimum span and skipped
+        assertEquals(0, layer.visible(37.0, 22.0, 39.0, 24.0, 0.01, out));
+
+        int f = out[0];
+        assertEquals(21, layer.pointCount(f));
+        assertEquals(42, layer.points(f).length);
+        double[] coarse = layer.simplified(f, 1.0);
+        assertEquals(5, coarse.length / 2);  // Corners plus closing point
+        assertSame(coarse, layer.simplified(f, 1.0));
+        layer.close();
+    }
+
+    @Test
+    public void open_rejectsIncompleteFile() throws Exception {
+        File file = new File(Files.createTempDirectory("ref").toFile(), "bad" + ReferenceLayer.EXTENSION);
+        ReferenceLayer.Writer w = new ReferenceLayer.Writer(file);
+        double[] p = parcel(38, 23, 0.001, 2);
+        w.add("a", ReferenceLayer.KIND_RING, p, p.length / 2);
+        w.close();
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        Files.write(file.toPath(), java.util.Arrays.copyOf(bytes, bytes.length - 3));
+        try {
+            ReferenceLayer.open(file);
+            fail();
+        } catch (java.io.IOException expected) {
+        }
+
+        ReferenceLayer.Writer aborted = new ReferenceLayer.Writer(new File(file.getParentFile(), "x" + ReferenceLayer.EXTENSION));
+        aborted.add("a", ReferenceLayer.KIND_RING, p, p.length / 2);
+        aborted.abort();
+        assertEquals(1, file.getParentFile().listFiles().length);
+    }
+
+    @Test
+    public void simplify_keepsEndpointsAndRespectsTolerance() {
+        int n = 1001;
+        double[] line = new double[2 * n];
+        for (int i = 0; i < n; i++) {
+            line[2 * i] = 38.0 + 0.00001 * Math.sin(i * 0.3);  // ~1 m wiggle
+            line[2 * i + 1] = 23.0 + i * 0.00001;
+        }
+        double[] out = new double[2 * n];
+        int m = ReferenceLayer.simplify(line, n, 5.0, out);
+        assertEquals(2, m);
+        m = ReferenceLayer.simplify(line, n, 0.1, out);
+        assertTrue(m > 100 && m < n);
+        assertEquals(line[0], out[0], 0.0);
+        assertEquals(line[2 * n - 1], out[2 * m - 1], 0.0);
+        assertEquals(156543.03392, ReferenceLayer.metersPerPixel(0, 0), 1e-6);
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.fieldviewer;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the report page layout.
+ */
+public class ReportLayoutTest {
+
+    private static final double LAT0 = 38.0, LNG0 = 23.7;
+
+    /**
+     * Axis-aligned rectangle of w × h meters with its south-west corner at (e, n) meters from the origin
+     */
+    private static double[] rect(double e, double n, double w, double h, boolean ccw) {
+        double dLat = 1 / ReportLayout.METERS_PER_DEG_LAT;
+        double dLng = 1 / (ReportLayout.METERS_PER_DEG_LAT * Math.cos(Math.toRadians(LAT0)));
+        double[][] c = {{e, n}, {e + w, n}, {e + w, n + h}, {e, n + h}};
+        double[] out = new double[8];
+        for (int k = 0; k < 4; k++) {
+            double[] p = c[ccw ? k : 3 - k];
+            out[2 * k] = LAT0 + p[1] * dLat;
+            out[2 * k + 1] = LNG0 + p[0] * dLng;
+        }
+        return out;
+    }
+
+    @Test
+    public void fitsCentersAndMeasures() {
+        List<double[]> rings = new ArrayList<>();
+        rings.add(rect(0, 0, 200, 100, true));
+        rings.add(rect(50, 25, 20, 10, false));
+        ReportLayout layout = new ReportLayout();
+        layout.layout(rings, new boolean[]{false, true}, Double.NaN, 0, 0, 1000, 1000, 0, 10);
+
+        assertEquals(200 * 100 - 20 * 10, layout.areaM2(), 1e-3);
+        assertEquals(600 + 60, layout.perimeterM(), 1e-3);
+        assertEquals(19.8, layout.stremma(), 1e-6);
+        assertEquals(5.0, layout.pixelsPerMeter(), 1e-6);
+
+        // 1000 × 500 px drawing, centered vertically; north is up
+        float[] p = layout.points(0);
+        assertEquals(0f, p[0], 1e-3f);
+        assertEquals(750f, p[1], 1e-3f);
+        assertEquals(1000f, p[4], 1e-3f);
+        assertEquals(250f, p[5], 1e-3f);
+        assertTrue(layout.isHole(1));
+        assertEquals(4, layout.pointCount(1));
+
+        // The saved area wins over the computed one
+        layout.layout(rings, new boolean[]{false, true}, 12345.0, 0, 0, 1000, 1000, 0, 10);
+        assertEquals(12345.0, layout.areaM2(), 0.0);
+    }
+
+    @Test
+    public void edgeLabelsSitOutsideFieldsAndInsideHoles() {
+        for (boolean ccw : new boolean[]{true, false}) {
+            List<double[]> rings = new ArrayList<>();
+            rings.add(rect(0, 0, 200, 100, ccw));
+            rings.add(rect(50, 25, 40, 40, !ccw));
+            ReportLayout layout = new ReportLayout();
+            layout.layout(rings, new boolean[]{false, true}, Double.NaN, 0, 0, 1000, 1000, 0, 10);
+            assertEquals(8, layout.labelCount());
+            for (int i = 0; i < layout.labelCount(); i++) {
+                float x = layout.labelX(i), y = layout.labelY(i);
+                boolean inField = x > 0 && x < 1000 && y > 250 && y < 750;
+                boolean inHole = x > 250 && x < 450 && y > 425 && y < 625;
+                if (i < 4) assertFalse("field label on the fill", inField);
+                else assertTrue("hole label outside the hole", inHole);
+            }
+            // West edge of the field: right-aligned text left of it
+            boolean sawWest = false;
+            for (int i = 0; i < 4; i++) {
+                if (layout.labelX(i) < 0) {
+                    assertEquals(ReportLayout.ALIGN_RIGHT, layout.labelAlign(i));
+                    assertEquals(100.0, layout.labelMeters(i), 1e-3);
+                    sawWest = true;
+                }
+            }
+            assertTrue(sawWest);
+        }
+    }
+
+    @Test
+    public void shortEdgesUnlabeledAndScaleBarNice() {
+        List<double[]> rings = new ArrayList<>();
+        rings.add(rect(0, 0, 200, 1, true));
+        ReportLayout layout = new ReportLayout();
+        layout.layout(rings, null, Double.NaN, 0, 0, 1000, 1000, 20, 10);
+        assertEquals(2, layout.labelCount());  // 1 m ends are 5 px on the page
+        assertEquals(50.0, layout.scaleBarMeters(300), 1e-9);   // 60 m fit
+        assertEquals(20.0, layout.scaleBarMeters(200), 1e-9);   // 40 m fit
+        assertEquals(100.0, layout.scaleBarMeters(500), 1e-9);  // 100 m fit
+        assertEquals("12.3 m", ReportLayout.formatEdge(12.34));
+        assertEquals("1.50 km", ReportLayout.formatEdge(1500));
+    }
+
+    @Test
+    public void reusedAcrossLayouts() {
+        ReportLayout layout = new ReportLayout();
+        for (int k = 0; k < 3; k++) {
+            List<double[]> rings = new ArrayList<>();
+            for (int r = 0; r < 10 - 4 * k; r++) rings.add(rect(10 * r, 0, 5, 5, true));
+            layout.layout(rings, null, Double.NaN, 0, 0, 500, 500, 0, 5);
+            assertEquals(rings.size(), layout.ringCount());
+            assertEquals(4 * rings.size(), layout.labelCount());
+            assertEquals(25.0 * rings.size(), layout.areaM2(), 1e-3);
+        }
+        layout.layout(new ArrayList<>(), null, Double.NaN, 0, 0, 500, 500, 0, 5);
+        assertEquals(0, layout.ringCount());
+        assertEquals(0.0, layout.scaleBarMeters(100), 0.0);
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.fieldviewer;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests and a rough benchmark for the sweep-line self-intersection check.
+ */
+public class SelfIntersectionTest {
+
+    /**
+     * Simple star-shaped ring of n vertices (radius jitter keeps it irregular)
+     */
+    private static double[] star(int n, long seed) {
+        Random rnd = new Random(seed);
+        double[] xy = new double[2 * n];
+        for (int i = 0; i < n; i++) {
+            double t = 2 * Math.PI * i / n;
+            double r = 100 + rnd.nextDouble() * 20;
+            xy[2 * i] = r * Math.cos(t);
+            xy[2 * i + 1] = r * Math.sin(t);
+        }
+        return xy;
+    }
+
+    @Test
+    public void bowtie_isDetectedAndSplitIntoTwoTriangles() {
+        double[] bowtie = {0, 0, 10, 10, 10, 0, 0, 10};
+        double[] out = new double[4];
+        assertTrue(SelfIntersection.findCrossing(bowtie, 4, out));
+        assertEquals(5.0, out[2], 1e-9);
+        assertEquals(5.0, out[3], 1e-9);
+        List<double[]> pieces = SelfIntersection.splitSimple(bowtie, 4);
+        assertEquals(2, pieces.size());
+        double total = 0;
+        for (double[] p : pieces) {
+            assertTrue(SelfIntersection.isSimple(p, p.length / 2));
+            total += RingMath.area(p, p.length / 2);
+        }
+        assertEquals(50.0, total, 1e-9);
+    }
+
+    @Test
+    public void simpleRings_withDuplicatesAndCollinearPoints_passThrough() {
+        double[] square = {0, 0, 5, 0, 5, 0, 10, 0, 10, 10, 0, 10, 0, 0};
+        assertTrue(SelfIntersection.isSimple(square, 7));
+        assertEquals(1, SelfIntersection.splitSimple(square, 7).size());
+        assertTrue(SelfIntersection.isSimple(star(10000, 1), 10000));
+    }
+
+    @Test
+    public void sweep_agreesWithNaiveCheck_onDegenerateGridRings() {
+        Random rnd = new Random(42);
+        double[] out = new double[4];
+        for (int iter = 0; iter < 20000; iter++) {
+            int n = 4 + rnd.nextInt(9);
+            double[] xy = new double[2 * n];
+            for (int i = 0; i < 2 * n; i++) xy[i] = rnd.nextInt(6);
+            boolean naive = SelfIntersection.findCrossingNaive(xy, n, out);
+            assertEquals("iteration " + iter, naive, SelfIntersection.findCrossing(xy, n, out));
+            for (double[] piece : SelfIntersection.splitSimple(xy, n)) {
+                assertFalse(SelfIntersection.findCrossingNaive(piece, piece.length / 2, out));
+            }
+        }
+    }
+
+    @Test
+    public void benchmark_sweepVersusNaive_on10kVertexRing() {
+        int n = 10000;
+        double[] xy = star(n, 3);
+        // Drag one vertex across the ring so the crossing is far from the first edges
+        xy[2 * 7000] = -xy[2 * 7000];
+        xy[2 * 7000 + 1] = -xy[2 * 7000 + 1];
+        double[] out = new double[4];
+        boolean sweep = false, naive = false;
+        long tSweep = Long.MAX_VALUE, tNaive = Long.MAX_VALUE;
+        for (int rep = 0; rep < 5; rep++) {
+            long t0 = System.nanoTime();
+            sweep = SelfIntersection.findCrossing(xy, n, out);
+            tSweep = Math.min(tSweep, System.nanoTime() - t0);
+            t0 = System.nanoTime();
+            naive = SelfIntersection.findCrossingNaive(xy, n, out);
+            tNaive = Math.min(tNaive, System.nanoTime() - t0);
+        }
+        assertTrue(sweep);
+        assertTrue(naive);
+        // Simple ring: the naive check has to visit all n²/2 pairs
+        double[] simple = star(n, 4);
+        long t0 = System.nanoTime();
+        assertTrue(SelfIntersection.isSimple(simple, n));
+        long tSweepSimple = System.nanoTime() - t0;
+        t0 = System.nanoTime();
+        assertFalse(SelfIntersection.findCrossingNaive(simple, n, out));
+        long tNaiveSimple = System.nanoTime() - t0;
+        System.out.printf(java.util.Locale.US,
+                "self-intersection n=%d: crossing sweep %.2f ms / naive %.2f ms; simple sweep %.2f ms / naive %.2f ms%n",
+                n, tSweep / 1e6, tNaive / 1e6, tSweepSimple / 1e6, tNaiveSimple / 1e6);
+    }
+}
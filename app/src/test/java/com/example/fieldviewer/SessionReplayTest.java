@@ -0,0 +1,160 @@
+package com.example.fieldviewer;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for recording an AR session and replaying it through the headless pipeline.
+ */
+public class SessionReplayTest {
+
+    /**
+     * Synthetic live frame: the crosshair ray meets a floor plane at the given point
+     */
+    private static ArFrame frame(long ts, float x, float z, int planeType, boolean inPolygon) {
+        List<ArHit> hits = new ArrayList<>();
+        hits.add(new SessionReplayer.ReplayHit(ArPose.translation(x, -1.2f, z), 1.5f, planeType, inPolygon));
+        return new SessionReplayer.ReplayFrame(ts, true, ArPose.translation(x, 0f, z + 1f), hits, 320f, 240f);
+    }
+
+    /**
+     * Walks a 10 m x 10 m square, placing a corner every 30 frames, with an undo/redo
+     * and a wall hit that must not be accepted
+     */
+    private static byte[] recordSquare() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SessionRecorder rec = new SessionRecorder(bytes, 640, 480);
+        float[][] corners = {{0, 0}, {10, 0}, {10, 10}, {0, 10}};
+        long ts = 0;
+        for (int c = 0; c < corners.length; c++) {
+            float[] from = corners[(c + corners.length - 1) % corners.length], to = corners[c];
+            for (int f = 1; f <= 30; f++) {
+                float t = f / 30f;
+                rec.recordFrame(frame(ts += 33_000_000L, from[0] + (to[0] - from[0]) * t,
+                        from[1] + (to[1] - from[1]) * t, ArHit.PLANE_HORIZONTAL_UPWARD, true));
+            }
+            rec.recordEvent(SessionRecorder.EVENT_ADD_POINT);
+        }
+        rec.recordEvent(SessionRecorder.EVENT_UNDO);
+        rec.recordEvent(SessionRecorder.EVENT_REDO);
+        rec.recordFrame(frame(ts += 33_000_000L, 5f, 5f, ArHit.PLANE_VERTICAL, true));
+        rec.recordEvent(SessionRecorder.EVENT_ADD_POINT);
+        rec.recordEvent(SessionRecorder.EVENT_FINISH);
+        assertEquals(121, rec.frameCount());
+        rec.close();
+        return bytes.toByteArray();
+    }
+
+    @Test
+    public void replay_reproducesPlacementAndMetrics() throws Exception {
+        SessionReplayer replayer = new SessionReplayer(new ByteArrayInputStream(recordSquare()));
+        MeasurementPipeline pipeline = new MeasurementPipeline(AreaEngine.Mode.SHOELACE);
+        LatencyHistogram perFrame = new LatencyHistogram("replay_frame");
+        int frames = replayer.replay(new SessionReplayer.Listener() {
+            @Override public void onFrame(ArFrame frame) {
+                long t0 = System.nanoTime();
+                pipeline.refreshMetrics();
+                perFrame.record(System.nanoTime() - t0);
+            }
+
+            @Override public void onEvent(int event, ArFrame frame) {
+                pipeline.apply(event, frame, replayer.crosshairX(), replayer.crosshairY());
+            }
+        });
+        replayer.close();
+
+        assertEquals(121, frames);
+        assertEquals(4, pipeline.pointCount());
+        MeasurementPipeline.Metrics m = pipeline.metrics();
+        assertEquals(100.0, m.area, 1e-3);
+        assertEquals(40.0, m.perimeter, 1e-3);
+        assertEquals(100.0, m.surface, 1e-3);
+        assertFalse(m.crossing);
+        assertEquals(121L, perFrame.count());
+    }
+
+    @Test
+    public void replayFrame_onlyAnswersAtCrosshairAndSkipsWalls() {
+        ArFrame f = frame(1L, 1f, 2f, ArHit.PLANE_HORIZONTAL_UPWARD, true);
+        assertEquals(1, f.hitTest(320f, 240f).size());
+        assertTrue(f.hitTest(10f, 10f).isEmpty());
+        assertNull(MeasurementPipeline.selectPlacementHit(frame(1L, 1f, 2f, ArHit.PLANE_VERTICAL, true).hitTest(320f, 240f)));
+        assertNull(MeasurementPipeline.selectPlacementHit(frame(1L, 1f, 2f, ArHit.PLANE_HORIZONTAL_UPWARD, false).hitTest(320f, 240f)));
+        assertNull(MeasurementPipeline.selectPlacementHit(Collections.emptyList()));
+    }
+
+    @Test
+    public void holeOutsideEveryField_leavesSurfaceAlone() {
+        MeasurementPipeline pipeline = new MeasurementPipeline(AreaEngine.Mode.SHOELACE);
+        float[][] field = {{0, 0}, {10, 0}, {10, 10}, {0, 10}};
+        for (float[] c : field) assertTrue(pipeline.addPoint(frame(1L, c[0], c[1], ArHit.PLANE_HORIZONTAL_UPWARD, true), 320f, 240f));
+        assertTrue(pipeline.closeRing(true));
+        // A pond next to the field, not in it
+        float[][] pond = {{20, 0}, {24, 0}, {24, 4}, {20, 4}};
+        for (float[] c : pond) pipeline.addPoint(frame(1L, c[0], c[1], ArHit.PLANE_HORIZONTAL_UPWARD, true), 320f, 240f);
+        assertEquals(100.0, pipeline.refreshMetrics().surface, 1e-3);
+        assertTrue(pipeline.closeRing(true));
+        assertEquals(100.0, pipeline.refreshMetrics().area, 1e-3);
+        assertEquals(100.0, pipeline.refreshMetrics().surface, 1e-3);
+        // One inside the field counts
+        float[][] inner = {{2, 2}, {4, 2}, {4, 4}, {2, 4}};
+        for (float[] c : inner) pipeline.addPoint(frame(1L, c[0], c[1], ArHit.PLANE_HORIZONTAL_UPWARD, true), 320f, 240f);
+        assertEquals(96.0, pipeline.refreshMetrics().surface, 1e-3);
+        assertTrue(pipeline.closeRing(false));
+        assertEquals(96.0, pipeline.refreshMetrics().surface, 1e-3);
+    }
+
+    @Test
+    public void newAnchorSource_recreatesRingsAtPlacementPositions() {
+        MeasurementPipeline pipeline = new MeasurementPipeline(AreaEngine.Mode.SHOELACE);
+        float[][] field = {{0, 0}, {10, 0}, {10, 10}, {0, 10}};
+        for (float[] c : field) pipeline.addPoint(frame(1L, c[0], c[1], ArHit.PLANE_HORIZONTAL_UPWARD, true), 320f, 240f);
+        pipeline.closeRing(true);
+        pipeline.addPoint(frame(1L, 2f, 2f, ArHit.PLANE_HORIZONTAL_UPWARD, true), 320f, 240f);
+        pipeline.addPoint(frame(1L, 4f, 2f, ArHit.PLANE_HORIZONTAL_UPWARD, true), 320f, 240f);
+        ArAnchor old = pipeline.origin();
+        pipeline.releaseAnchors();
+        assertFalse(old.isTracking());
+
+        // The next session: every anchor comes back, the undone point too on redo
+        List<ArAnchor> created = new ArrayList<>();
+        pipeline.setAnchorSource(pose -> {
+            ArAnchor a = new SessionReplayer.FixedAnchor(pose);
+            created.add(a);
+            return a;
+        }, true);
+        assertEquals(6, created.size());
+        assertNotSame(old, pipeline.origin());
+        assertEquals(100.0, pipeline.refreshMetrics().area, 1e-3);
+        assertTrue(pipeline.undo());
+        assertFalse(created.get(5).isTracking());
+        assertTrue(pipeline.redo());
+        assertEquals(7, created.size());
+        assertEquals(4f, created.get(6).pose().tx, 1e-6);
+        assertEquals(2, pipeline.pointCount());
+    }
+
+    @Test
+    public void replay_toleratesTruncatedRecording() throws Exception {
+        byte[] full = recordSquare();
+        byte[] cut = java.util.Arrays.copyOf(full, full.length - 30);  // Into the last (wall) frame
+        SessionReplayer replayer = new SessionReplayer(new ByteArrayInputStream(cut));
+        MeasurementPipeline pipeline = new MeasurementPipeline(AreaEngine.Mode.TRIANGULATION);
+        int frames = replayer.replay(new SessionReplayer.Listener() {
+            @Override public void onFrame(ArFrame frame) {}
+
+            @Override public void onEvent(int event, ArFrame frame) {
+                pipeline.apply(event, frame, replayer.crosshairX(), replayer.crosshairY());
+            }
+        });
+        assertEquals(120, frames);
+        assertEquals(100.0, pipeline.metrics().area, 1e-3);
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.fieldviewer;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for vertex/edge snapping.
+ */
+public class SnapIndexTest {
+
+    @Test
+    public void prefersVertexThenEdgeWithinRadius() {
+        SnapIndex index = new SnapIndex.Builder()
+                .add(new double[]{0, 0, 10, 0, 10, 10, 0, 10}, 4, true)
+                .add(new double[]{20, 0, 30, 0}, 2, false)
+                .build();
+        assertEquals(5, index.edgeCount());
+        double[] out = new double[2];
+
+        assertEquals(SnapIndex.VERTEX, index.snap(9.6, 0.3, 1.0, out));
+        assertArrayEquals(new double[]{10, 0}, out, 0.0);
+
+        assertEquals(SnapIndex.EDGE, index.snap(5, 0.4, 1.0, out));
+        assertArrayEquals(new double[]{5, 0}, out, 1e-12);
+
+        // Closing edge of the ring exists, the open line has none
+        assertEquals(SnapIndex.EDGE, index.snap(-0.5, 5, 1.0, out));
+        assertArrayEquals(new double[]{0, 5}, out, 1e-12);
+        assertEquals(SnapIndex.NONE, index.snap(25, 5, 1.0, out));
+
+        assertEquals(SnapIndex.NONE, index.snap(50, 50, 1.0, out));
+        assertEquals(SnapIndex.NONE, new SnapIndex.Builder().build().snap(0, 0, 1.0, out));
+    }
+
+    @Test
+    public void manyEdges_matchBruteForce() {
+        Random rnd = new Random(42);
+        SnapIndex.Builder builder = new SnapIndex.Builder();
+        int rings = 2000, n = 20;
+        double[][] all = new double[rings][];
+        for (int r = 0; r < rings; r++) {
+            double cx = rnd.nextDouble() * 3000, cy = rnd.nextDouble() * 3000;
+            double[] ring = new double[2 * n];
+            for (int i = 0; i < n; i++) {
+                double t = 2 * Math.PI * i / n;
+                double rad = 20 + 10 * rnd.nextDouble();
+                ring[2 * i] = cx + rad * Math.cos(t);
+                ring[2 * i + 1] = cy + rad * Math.sin(t);
+            }
+            all[r] = ring;
+            builder.add(ring, n, true);
+        }
+        SnapIndex index = builder.build();
+        assertEquals(rings * n, index.edgeCount());
+
+        double[] out = new double[2];
+        double radius = 3.0;
+        for (int q = 0; q < 5000; q++) {
+            double x = rnd.nextDouble() * 3000, y = rnd.nextDouble() * 3000;
+            if (q % 2 == 0) {
+                // Aim near an actual boundary so most queries hit something
+                double[] ring = all[rnd.nextInt(rings)];
+                int i = rnd.nextInt(n);
+                x = ring[2 * i] + rnd.nextGaussian();
+                y = ring[2 * i + 1] + rnd.nextGaussian();
+            }
+            double bestV = radius * radius, bestE = radius * radius;
+            boolean vertex = false, edge = false;
+            for (double[] ring : all) {
+                for (int i = 0; i < n; i++) {
+                    double ax = ring[2 * i], ay = ring[2 * i + 1];
+                    double bx = ring[2 * ((i + 1) % n)], by = ring[2 * ((i + 1) % n) + 1];
+                    double dv = (ax - x) * (ax - x) + (ay - y) * (ay - y);
+                    if (dv <= bestV) { bestV = dv; vertex = true; }
+                    double dx = bx - ax, dy = by - ay;
+                    double t = Math.max(0, Math.min(1, ((x - ax) * dx + (y - ay) * dy) / (dx * dx + dy * dy)));
+                    double px = ax + t * dx - x, py = ay + t * dy - y;
+                    if (px * px + py * py <= bestE) { bestE = px * px + py * py; edge = true; }
+                }
+            }
+            int kind = index.snap(x, y, radius, out);
+            int expected = vertex ? SnapIndex.VERTEX : edge ? SnapIndex.EDGE : SnapIndex.NONE;
+            assertEquals(expected, kind);
+            if (kind != SnapIndex.NONE) {
+                double d = (out[0] - x) * (out[0] - x) + (out[1] - y) * (out[1] - y);
+                assertEquals(vertex ? bestV : bestE, d, 1e-9);
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.fieldviewer;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the grid / R-tree indexes and multi-ring area.
+ */
+public class SpatialIndexTest {
+
+    @Test
+    public void gridNearest_matchesBruteForce() {
+        Random rnd = new Random(1);
+        int n = 3000;
+        double[] xy = new double[2 * n];
+        SpatialGrid grid = new SpatialGrid(5.0);
+        for (int i = 0; i < n; i++) {
+            xy[2 * i] = rnd.nextDouble() * 500;
+            xy[2 * i + 1] = rnd.nextDouble() * 500;
+            grid.putPoint(i, xy[2 * i], xy[2 * i + 1]);
+        }
+        // Move some points and delete others to exercise updates
+        for (int i = 0; i < n; i += 10) {
+            xy[2 * i] = rnd.nextDouble() * 500;
+            grid.putPoint(i, xy[2 * i], xy[2 * i + 1]);
+        }
+        for (int i = 5; i < n; i += 50) grid.remove(i);
+
+        SpatialGrid.DistanceFn fn = (id, x, y) -> {
+            double dx = xy[2 * id] - x, dy = xy[2 * id + 1] - y;
+            return dx * dx + dy * dy;
+        };
+        for (int q = 0; q < 500; q++) {
+            double x = rnd.nextDouble() * 520 - 10, y = rnd.nextDouble() * 520 - 10;
+            double maxDist = 40.0;
+            int best = -1;
+            double bestSq = maxDist * maxDist;
+            for (int i = 0; i < n; i++) {
+                if (!grid.contains(i)) continue;
+                double d = fn.distanceSq(i, x, y);
+                if (d <= bestSq) { bestSq = d; best = i; }
+            }
+            int got = grid.nearest(x, y, maxDist, fn);
+            if (best < 0) assertEquals(-1, got);
+            else assertEquals(bestSq, fn.distanceSq(got, x, y), 1e-9);
+        }
+    }
+
+    @Test
+    public void rtreeQuery_matchesBruteForce() {
+        Random rnd = new Random(2);
+        int n = 2000;
+        double[] boxes = new double[4 * n];
+        int[] ids = new int[n];
+        for (int i = 0; i < n; i++) {
+            double x = rnd.nextDouble() * 1000, y = rnd.nextDouble() * 1000;
+            boxes[4 * i] = x;
+            boxes[4 * i + 1] = y;
+            boxes[4 * i + 2] = x + rnd.nextDouble() * 20;
+            boxes[4 * i + 3] = y + rnd.nextDouble() * 20;
+            ids[i] = i + 100;
+        }
+        RTree tree = RTree.build(boxes, ids, n);
+        int[] out = new int[n];
+        for (int q = 0; q < 200; q++) {
+            double x = rnd.nextDouble() * 1000, y = rnd.nextDouble() * 1000;
+            double w = rnd.nextDouble() * 80;
+            List<Integer> expected = new ArrayList<>();
+            for (int i = 0; i < n; i++) {
+                if (boxes[4 * i] <= x + w && boxes[4 * i + 2] >= x && boxes[4 * i + 1] <= y + w && boxes[4 * i + 3] >= y) {
+                    expected.add(i + 100);
+                }
+            }
+            int found = tree.query(x, y, x + w, y + w, out);
+            int[] got = Arrays.copyOf(out, found);
+            Arrays.sort(got);
+            assertEquals(expected.size(), found);
+            for (int i = 0; i < found; i++) assertEquals((int) expected.get(i), got[i]);
+        }
+    }
+
+    @Test
+    public void netArea_subtractsContainedHolesOnly() {
+        List<double[]> rings = new ArrayList<>();
+        rings.add(new double[]{0, 0, 100, 0, 100, 100, 0, 100});      // 10000 m² field
+        rings.add(new double[]{10, 10, 20, 10, 20, 20, 10, 20});      // 100 m² pond inside
+        rings.add(new double[]{500, 500, 510, 500, 510, 510});        // Hole outside any field: ignored
+        rings.add(new double[]{200, 0, 210, 0, 210, 10, 200, 10});    // Second 100 m² field
+        boolean[] holes = {false, true, true, false};
+        assertEquals(10000 - 100 + 100, RingMath.netArea(rings, holes), 1e-9);
+        int[] parent = RingMath.assignHoles(rings, holes);
+        assertEquals(0, parent[1]);
+        assertEquals(-1, parent[2]);
+    }
+}
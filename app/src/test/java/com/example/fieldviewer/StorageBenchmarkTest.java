@@ -0,0 +1,210 @@
+package com.example.fieldviewer;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Benchmark of saved-measurement storage at fleet-sized volumes, through the code the screens
+ * use (MeasurementFiles, MeasurementIndex):
+ *
+ * - save: JSON of the rings built and written, index record appended (ResultActivity.saveAsJson)
+ * - list: index file loaded, directory synced, newest first (SavedMeasurementsActivity), both
+ *   with the index in place and cold (no index file, every JSON parsed once)
+ * - open: file read and header parsed (SavedMeasurementDetailActivity)
+ * - bytes on disk and peak heap of the list and open phases
+ *
+ * Directories are synthetic and seeded, so runs are reproducible. The unit test run covers a
+ * small matrix; the full one (100 to 100k files, rings of 8 to 20k vertices, several GB and some
+ * minutes) runs with
+ *
+ *   ./gradlew :app:testDebugUnitTest --tests '*StorageBenchmarkTest' -Pfieldviewer.bench=full
+ *
+ * Each case prints one CSV row, so runs before and after a storage change can be compared.
+ */
+public class StorageBenchmarkTest {
+
+    private static final String CSV_HEADER = "files,vertices,save_mean_ms,save_p95_ms,list_indexed_ms,list_cold_ms,"
+            + "open_mean_ms,open_p95_ms,bytes_on_disk,peak_heap_list_mb,peak_heap_open_mb";
+    private static final int OPEN_SAMPLES = 200;
+
+    private static final int[][] SMOKE = {{100, 8}, {1000, 8}, {100, 1000}};
+    private static final int[][] FULL = {
+            {100, 8}, {1000, 8}, {10_000, 8}, {100_000, 8},
+            {100, 200}, {1000, 200}, {10_000, 200},
+            {100, 5000}, {1000, 5000},
+            {100, 20_000}
+    };
+
+    static final class Row {
+        int files, vertices;
+        double saveMeanMs, saveP95Ms, listIndexedMs, listColdMs, openMeanMs, openP95Ms;
+        long bytesOnDisk;
+        double peakHeapListMb, peakHeapOpenMb;
+
+        String csv() {
+            return String.format(Locale.US, "%d,%d,%.3f,%.3f,%.1f,%.1f,%.3f,%.3f,%d,%.1f,%.1f",
+                    files, vertices, saveMeanMs, saveP95Ms, listIndexedMs, listColdMs,
+                    openMeanMs, openP95Ms, bytesOnDisk, peakHeapListMb, peakHeapOpenMb);
+        }
+    }
+
+    @Test
+    public void benchmark_saveListOpen() throws Exception {
+        boolean full = "full".equals(System.getProperty("fieldviewer.bench"));
+        System.out.println(CSV_HEADER);
+        for (int[] c : full ? FULL : SMOKE) {
+            Row row = run(c[0], c[1], 20240601L + c[0] * 31L + c[1]);
+            System.out.println(row.csv());
+            assertTrue(row.bytesOnDisk > (long) c[0] * c[1] * 20);
+        }
+    }
+
+    /**
+     * Saves files measurements of about vertices points each into a fresh directory, then
+     * lists and opens them
+     */
+    static Row run(int files, int vertices, long seed) throws Exception {
+        File dir = Files.createTempDirectory("fv-bench").toFile();
+        Row row = new Row();
+        row.files = files;
+        row.vertices = vertices;
+        try {
+            Random rnd = new Random(seed);
+            LatencyHistogram save = new LatencyHistogram("save");
+            long start = 1_600_000_000_000L;
+            for (int i = 0; i < files; i++) {
+                List<double[]> rings = syntheticRings(rnd, vertices);
+                boolean[] holes = new boolean[rings.size()];
+                if (holes.length > 1) holes[1] = true;
+                long timestamp = start + (long) (rnd.nextDouble() * 3 * 365 * 86_400_000L);
+                double lat0 = rings.get(0)[0], lng0 = rings.get(0)[1];
+                double area = ResultMetrics.netArea(new ResultMetrics.Input(rings, holes, null,
+                        AreaEngine.Mode.SHOELACE, lat0, lng0, 0, null, null));
+                long t0 = System.nanoTime();
+                JSONObject root = new JSONObject();
+                root.put("name", "field_" + i);
+                root.put("timestamp", timestamp);
+                root.put("timestamp_iso", new java.text.SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssZ", Locale.US)
+                        .format(new java.util.Date(timestamp)));
+                root.put("timestamp_local", new java.text.SimpleDateFormat("yyyy-MM-dd HH:mm", Locale.US)
+                        .format(new java.util.Date(timestamp)));
+                root.put("area_m2", area);
+                root.put("stremma", area / 1000.0);
+                root.put("area_mode", AreaEngine.Mode.SHOELACE.name());
+                root.put("originLat", lat0);
+                root.put("originLng", lng0);
+                MeasurementFiles.putRings(root, rings, holes);
+                MeasurementFiles.save(dir, "field_" + i + ".json", root, timestamp, area, rings, lat0, lng0);
+                save.recordSince(t0);
+            }
+            row.saveMeanMs = save.meanNanos() / 1e6;
+            row.saveP95Ms = save.percentileNanos(95) / 1e6;
+            MeasurementIndex.evict(dir);
+
+            File[] all = dir.listFiles();
+            for (File f : all) row.bytesOnDisk += f.length();
+
+            // Saved list with its index in place: no JSON parsed
+            resetPeakHeap();
+            long t0 = System.nanoTime();
+            List<MeasurementIndex.Entry> listed = list(dir);
+            row.listIndexedMs = (System.nanoTime() - t0) / 1e6;
+            assertEquals(files, listed.size());
+            for (int i = 1; i < listed.size(); i++) assertTrue(listed.get(i - 1).timestamp >= listed.get(i).timestamp);
+
+            // Cold: no index file (older app versions, cleared data), every file parsed once
+            assertTrue(new File(dir, MeasurementIndex.INDEX_FILE_NAME).delete());
+            t0 = System.nanoTime();
+            listed = list(dir);
+            row.listColdMs = (System.nanoTime() - t0) / 1e6;
+            row.peakHeapListMb = peakHeapMb();
+            assertEquals(files, listed.size());
+
+            // Detail screen opens of random files
+            resetPeakHeap();
+            LatencyHistogram open = new LatencyHistogram("open");
+            for (int i = 0; i < Math.min(OPEN_SAMPLES, files); i++) {
+                File f = new File(dir, listed.get(rnd.nextInt(listed.size())).fileName);
+                long o0 = System.nanoTime();
+                String content = MeasurementFiles.readText(f);
+                String header = MeasurementFiles.detailHeader(f, content);
+                open.recordSince(o0);
+                assertTrue(header.startsWith("field_"));
+            }
+            row.openMeanMs = open.meanNanos() / 1e6;
+            row.openP95Ms = open.percentileNanos(95) / 1e6;
+            row.peakHeapOpenMb = peakHeapMb();
+        } finally {
+            MeasurementIndex.evict(dir);
+            File[] left = dir.listFiles();
+            if (left != null) for (File f : left) f.delete();
+            dir.delete();
+        }
+        return row;
+    }
+
+    /**
+     * What the saved list does on open: index from disk, reconciled with the directory
+     */
+    private static List<MeasurementIndex.Entry> list(File dir) throws Exception {
+        MeasurementIndex index = new MeasurementIndex(new File(dir, MeasurementIndex.INDEX_FILE_NAME));
+        index.load();
+        MeasurementFiles.syncIndex(dir, index);
+        return index.newestFirst();
+    }
+
+    /**
+     * A field of about vertices points (jittered circle, 20 to 500 m radius) somewhere in
+     * Greece; one in five gets an exclusion zone
+     */
+    static List<double[]> syntheticRings(Random rnd, int vertices) {
+        double lat = 35 + rnd.nextDouble() * 6, lng = 20 + rnd.nextDouble() * 8;
+        double radius = 20 + rnd.nextDouble() * 480;
+        List<double[]> rings = new ArrayList<>();
+        rings.add(circle(rnd, lat, lng, radius, vertices));
+        if (rnd.nextInt(5) == 0) rings.add(circle(rnd, lat, lng, radius / 4, Math.max(4, vertices / 8)));
+        return rings;
+    }
+
+    private static double[] circle(Random rnd, double lat, double lng, double radius, int n) {
+        double mPerDegLng = ResultMetrics.METERS_PER_DEG_LAT * Math.cos(Math.toRadians(lat));
+        double[] ring = new double[2 * n];
+        for (int i = 0; i < n; i++) {
+            double t = 2 * Math.PI * i / n;
+            double r = radius * (0.9 + 0.1 * rnd.nextDouble());
+            ring[2 * i] = lat + r * Math.sin(t) / ResultMetrics.METERS_PER_DEG_LAT;
+            ring[2 * i + 1] = lng + r * Math.cos(t) / mPerDegLng;
+        }
+        return ring;
+    }
+
+    private static void resetPeakHeap() {
+        System.gc();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) pool.resetPeakUsage();
+        }
+    }
+
+    /**
+     * Sum of the heap pools' peaks since resetPeakHeap (an upper bound: pools peak at different times)
+     */
+    private static double peakHeapMb() {
+        long bytes = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) bytes += pool.getPeakUsage().getUsed();
+        }
+        return bytes / (1024.0 * 1024.0);
+    }
+}
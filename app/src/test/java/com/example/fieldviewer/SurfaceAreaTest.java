@@ -0,0 +1,49 @@
+package com.example.fieldviewer;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for slope-aware surface area.
+ */
+public class SurfaceAreaTest {
+
+    @Test
+    public void tiltedSquare_surfaceExceedsPlanarBySlopeFactor() {
+        // 10 x 10 m square rising 10 m along x: 45° slope
+        double[] xy = {0, 0, 10, 0, 10, 10, 0, 10};
+        double[] heights = {0, 10, 10, 0};
+        List<double[]> rings = new ArrayList<>();
+        rings.add(xy);
+        AreaEngine.Triangulation t = AreaEngine.triangulate(rings, new boolean[]{false});
+        assertEquals(100.0, t.area, 1e-9);
+        assertEquals(100.0 * Math.sqrt(2), SurfaceArea.of(t, heights), 1e-9);
+
+        SurfaceArea.Accumulator acc = new SurfaceArea.Accumulator();
+        for (int i = 0; i < 4; i++) acc.add(xy[2 * i], xy[2 * i + 1], heights[i]);
+        assertEquals(100.0, acc.planarArea(), 1e-9);
+        assertEquals(100.0 * Math.sqrt(2), acc.surfaceArea(), 1e-9);
+    }
+
+    @Test
+    public void accumulator_undoRestoresPreviousValues_andFlatRingMatchesShoelace() {
+        double[] ring = {0, 0, 8, 0, 8, 6, 4, 2, 0, 6};  // Concave
+        SurfaceArea.Accumulator acc = new SurfaceArea.Accumulator();
+        for (int i = 0; i < 5; i++) acc.add(ring[2 * i], ring[2 * i + 1], 3.0);
+        assertEquals(RingMath.area(ring, 5), acc.planarArea(), 1e-9);
+        assertEquals(RingMath.area(ring, 5), acc.surfaceArea(), 1e-9);
+        double before = acc.surfaceArea();
+        acc.add(-3, 3, 50);
+        acc.removeLast();
+        assertEquals(before, acc.surfaceArea(), 0.0);
+        acc.removeLast();
+        acc.removeLast();
+        assertEquals(24.0, acc.surfaceArea(), 1e-9);
+        acc.removeLast();
+        assertEquals(0.0, acc.surfaceArea(), 0.0);
+    }
+}
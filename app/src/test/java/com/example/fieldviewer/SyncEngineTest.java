@@ -0,0 +1,168 @@
+package com.example.fieldviewer;
+
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for batched measurement sync against an in-process HTTP server.
+ */
+public class SyncEngineTest {
+
+    /**
+     * Minimal server following the sync contract; can fail the next batch requests with 503
+     */
+    private static final class MockServer implements AutoCloseable {
+        final HttpServer http;
+        final Set<String> stored = new HashSet<>();
+        final List<List<String>> batches = new ArrayList<>();  // Names per accepted batch
+        int failNextBatches = 0;
+        int batchRequests = 0;
+
+        MockServer() throws IOException {
+            http = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            http.createContext("/measurements/missing", ex -> {
+                StringBuilder missing = new StringBuilder();
+                for (String h : new String(readAll(ex.getRequestBody()), StandardCharsets.UTF_8).split("\n")) {
+                    if (!h.isEmpty() && !stored.contains(h)) missing.append(h).append('\n');
+                }
+                respond(ex, 200, missing.toString());
+            });
+            http.createContext("/measurements/batch", ex -> {
+                batchRequests++;
+                if (failNextBatches > 0) {
+                    failNextBatches--;
+                    respond(ex, 503, "");
+                    return;
+                }
+                assertEquals("gzip", ex.getRequestHeaders().getFirst("Content-Encoding"));
+                assertNotNull(ex.getRequestHeaders().getFirst("Idempotency-Key"));
+                assertNotNull(ex.getRequestHeaders().getFirst("X-Device-Id"));
+                String ndjson = new String(readAll(new GZIPInputStream(ex.getRequestBody())), StandardCharsets.UTF_8);
+                Matcher m = Pattern.compile("\\{\"name\":\"([^\"]+)\",\"sha256\":\"([0-9a-f]{64})\",\"body\":").matcher(ndjson);
+                List<String> names = new ArrayList<>();
+                while (m.find()) {
+                    names.add(m.group(1));
+                    stored.add(m.group(2));
+                }
+                batches.add(names);
+                respond(ex, 204, null);
+            });
+            http.start();
+        }
+
+        String url() {
+            return "http://127.0.0.1:" + http.getAddress().getPort() + "/";
+        }
+
+        private static void respond(com.sun.net.httpserver.HttpExchange ex, int code, String body) throws IOException {
+            byte[] b = body == null ? new byte[0] : body.getBytes(StandardCharsets.UTF_8);
+            ex.sendResponseHeaders(code, b.length == 0 ? -1 : b.length);
+            if (b.length > 0) {
+                try (OutputStream out = ex.getResponseBody()) {
+                    out.write(b);
+                }
+            }
+            ex.close();
+        }
+
+        @Override
+        public void close() {
+            http.stop(0);
+        }
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[4096];
+        int n;
+        while ((n = in.read(buf)) > 0) out.write(buf, 0, n);
+        return out.toByteArray();
+    }
+
+    private static void write(File f, String text) throws IOException {
+        try (FileWriter w = new FileWriter(f)) {
+            w.write(text);
+        }
+    }
+
+    @Test
+    public void uploadsInBatchesThenOnlyChangedFiles() throws Exception {
+        File dir = Files.createTempDirectory("measurements").toFile();
+        try (MockServer server = new MockServer()) {
+            for (int i = 0; i < 60; i++) {
+                write(new File(dir, "field_" + i + ".json"), "{\n  \"area_m2\": " + i + ",\n  \"name\": \"Field \\\"" + i + "\\\"\"\n}");
+            }
+            SyncEngine engine = new SyncEngine(dir, server.url(), 1);
+            SyncEngine.Result first = engine.sync();
+            assertNull(first.error);
+            assertEquals(60, first.uploaded);
+            assertEquals(2, server.batches.size());  // MAX_BATCH_FILES per request
+            assertEquals(SyncEngine.MAX_BATCH_FILES, server.batches.get(0).size());
+
+            // Nothing changed: no batch at all
+            SyncEngine.Result idle = new SyncEngine(dir, server.url(), 1).sync();
+            assertEquals(0, idle.uploaded);
+            assertEquals(2, server.batches.size());
+
+            // One edited file, one re-queued without changes, one copy of already stored content
+            write(new File(dir, "field_3.json"), "{\"area_m2\": 33}");
+            SyncEngine.enqueue(dir, "field_4.json");
+            java.nio.file.Files.copy(new File(dir, "field_5.json").toPath(), new File(dir, "copy_of_5.json").toPath());
+            SyncEngine.Result delta = new SyncEngine(dir, server.url(), 1).sync();
+            assertNull(delta.error);
+            assertEquals(1, delta.uploaded);
+            assertEquals(1, delta.deduplicated);
+            assertEquals(1, delta.unchanged);
+            assertEquals(List.of("field_3.json"), server.batches.get(2));
+            assertTrue(SyncEngine.outbox(dir).isEmpty());
+        }
+    }
+
+    @Test
+    public void retriesWithBackoffAndRequeuesWhenServerStaysDown() throws Exception {
+        File dir = Files.createTempDirectory("measurements").toFile();
+        try (MockServer server = new MockServer()) {
+            write(new File(dir, "a.json"), "{\"area_m2\": 1}");
+            write(new File(dir, "b.json"), "{\"area_m2\": 2}");
+            SyncEngine.enqueue(dir, "a.json");
+
+            server.failNextBatches = 2;  // Recovers within MAX_ATTEMPTS
+            SyncEngine.Result flaky = new SyncEngine(dir, server.url(), 1).sync();
+            assertNull(flaky.error);
+            assertEquals(2, flaky.uploaded);
+            assertEquals(3, server.batchRequests);
+
+            write(new File(dir, "a.json"), "{\"area_m2\": 10}");
+            server.failNextBatches = SyncEngine.MAX_ATTEMPTS;
+            SyncEngine.Result down = new SyncEngine(dir, server.url(), 1).sync();
+            assertNotNull(down.error);
+            assertTrue(down.needsRetry());
+            assertEquals(Set.of("a.json"), SyncEngine.outbox(dir));
+
+            SyncEngine.Result resumed = new SyncEngine(dir, server.url(), 1).sync();
+            assertNull(resumed.error);
+            assertEquals(1, resumed.uploaded);
+            assertTrue(SyncEngine.outbox(dir).isEmpty());
+        }
+    }
+}
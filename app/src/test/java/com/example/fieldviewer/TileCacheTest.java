@@ -0,0 +1,84 @@
+package com.example.fieldviewer;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for tile math and the packed-file LRU tile cache.
+ */
+public class TileCacheTest {
+
+    private static byte[] tile(int seed, int size) {
+        byte[] b = new byte[size];
+        for (int i = 0; i < size; i++) b[i] = (byte) (seed * 31 + i);
+        return b;
+    }
+
+    @Test
+    public void tileMath_matchesSlippyMapNumbering() {
+        assertEquals(0, TileMath.tileX(-180.0, 0));
+        assertEquals(1, TileMath.tileX(0.0, 1));
+        assertEquals(1, TileMath.tileY(-10.0, 1));
+        // Null Island sits on the corner of the four centre tiles; the poles clamp to the edge rows
+        assertEquals(16384, TileMath.tileX(0.0, 15));
+        assertEquals(16384, TileMath.tileY(0.0, 15));
+        assertEquals(0, TileMath.tileY(89.0, 15));
+        assertEquals(32767, TileMath.tileY(-89.0, 15));
+        long k = TileMath.key(20, 600_000, 400_000);
+        assertEquals(20, TileMath.zoom(k));
+        assertEquals(600_000, TileMath.x(k));
+        assertEquals(400_000, TileMath.y(k));
+
+        long[] keys = TileMath.pyramid(37.9838, 23.7275, 250.0, 15, 20);
+        assertEquals(15, TileMath.zoom(keys[0]));
+        assertEquals(20, TileMath.zoom(keys[keys.length - 1]));
+        assertTrue(keys.length > 100 && keys.length < 1000);
+    }
+
+    @Test
+    public void lru_evictsLeastRecentlyUsedAndReloads() throws Exception {
+        File file = new File(Files.createTempDirectory("tiles").toFile(), "t.tiles");
+        TileCache cache = new TileCache(file, 3000);
+        cache.put(1, tile(1, 1000));
+        cache.put(2, tile(2, 1000));
+        cache.put(3, tile(3, 1000));
+        assertNotNull(cache.get(1));  // 2 is now the least recently used
+        cache.put(4, tile(4, 1000));
+        assertNull(cache.get(2));
+        assertArrayEquals(tile(1, 1000), cache.get(1));
+        assertEquals(1, cache.evictions());
+        assertEquals(2, cache.hits());
+        assertEquals(1, cache.misses());
+        cache.close();
+
+        TileCache reopened = new TileCache(file, 3000);
+        assertEquals(3, reopened.size());
+        assertArrayEquals(tile(4, 1000), reopened.get(4));
+        reopened.close();
+    }
+
+    @Test
+    public void reload_cutsTruncatedTailAndCompactionKeepsTiles() throws Exception {
+        File file = new File(Files.createTempDirectory("tiles").toFile(), "t.tiles");
+        TileCache cache = new TileCache(file, 1 << 20);
+        for (int i = 0; i < 10; i++) cache.put(i, tile(i, 500));
+        cache.close();
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        Files.write(file.toPath(), java.util.Arrays.copyOf(bytes, bytes.length - 100));
+
+        cache = new TileCache(file, 1 << 20);
+        assertEquals(9, cache.size());
+        cache.put(9, tile(9, 500));
+        for (int i = 0; i < 5; i++) cache.put(i, tile(i + 100, 500));  // Leaves dead copies behind
+        long before = cache.fileBytes();
+        cache.compact();
+        assertTrue(cache.fileBytes() < before);
+        for (int i = 0; i < 5; i++) assertArrayEquals(tile(i + 100, 500), cache.get(i));
+        assertArrayEquals(tile(9, 500), cache.get(9));
+        cache.close();
+    }
+}